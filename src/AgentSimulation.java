@@ -0,0 +1,399 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The AgentSimulation class moves many agents through a Maze at the same time,
+ * one tick at a time. Every agent follows the PassageSelector of the simulation
+ * from its start cell until it reaches the exit or the PassageSelector leaves it
+ * without a passage. Taking a passage lasts as many ticks as its travel time, and
+ * every cell other than the exit holds at most a fixed number of agents, counting
+ * the agents on their way into it; an agent whose next cell is full waits.
+ *
+ * The state of the agents is kept in parallel primitive arrays indexed by agent
+ * number rather than in one object per agent, and each tick updates chunks of
+ * agents in parallel on the common ForkJoinPool. Cell occupancy is updated by
+ * compare-and-set, so which of several agents competing for the last place in
+ * a cell gets it is not deterministic. The next cells of all agents of a chunk
+ * that stand in a cell are chosen in one call to a BatchPassageSelector; other
+ * PassageSelectors are asked about one agent at a time. The PassageSelector must
+ * be safe to use from several threads.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class AgentSimulation {
+	// private class constants
+	private final static byte IN_CELL = 0;
+	private final static byte IN_PASSAGE = 1;
+	private final static byte EXITED = 2;
+	private final static byte STUCK = 3;
+	private final static int CHUNK_SIZE = 1 << 14; // agents updated by one task
+
+	// private class variables
+	private PassageGraph graph;
+	private int exit;
+	private BatchPassageSelector passageSelector;
+	private ThreadLocal<int[][]> buffers; // the cells and choices of the agents of a chunk
+	private int cellCapacity;
+	private AtomicIntegerArray occupancy; // agents in or on their way into each cell
+	private int agentCount;
+	private int[] cells; // the cell an agent is in, or is on its way into
+	private int[] remainingTimes; // ticks left in the current passage
+	private int[] startTicks;
+	private byte[] states;
+	private int tick;
+	private long exitedCount;
+	private long stuckCount;
+	private ExitTimeStatistics exitTimes;
+
+	/**
+	 * Constructor of the AgentSimulation class which creates a simulation without agents.
+	 *
+	 * @param maze - the Maze the agents move through
+	 * @param outside - the exit to the maze
+	 * @param passageSelector - the next cell algorithm every agent follows
+	 * @param cellCapacity - the largest number of agents in any cell other than the exit
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public AgentSimulation(Maze maze, MazeCell outside, PassageSelector passageSelector, int cellCapacity)
+			throws UninitializedObjectException {
+		if(passageSelector == null || cellCapacity < 1) {
+			throw new IllegalArgumentException("A simulation needs a PassageSelector and a positive cell capacity");
+		}
+		this.graph = maze.graph();
+		this.exit = graph.indexOf(outside);
+		this.passageSelector = ScalarBatchSelector.of(passageSelector);
+		this.buffers = new ThreadLocal<int[][]>() {
+			@Override
+			protected int[][] initialValue() {
+				return new int[2][CHUNK_SIZE];
+			}
+		};
+		this.cellCapacity = cellCapacity;
+		this.occupancy = new AtomicIntegerArray(graph.cellCount());
+		this.cells = new int[16];
+		this.remainingTimes = new int[16];
+		this.startTicks = new int[16];
+		this.states = new byte[16];
+		this.exitTimes = new ExitTimeStatistics();
+	}
+
+	/**
+	 * Adds agents that start at a MazeCell in the current tick. Agents starting
+	 * at the same cell may exceed its capacity.
+	 *
+	 * @param start - the MazeCell the agents start at
+	 * @param count - the number of agents to add
+	 * @return the number of the first new agent; the others follow consecutively.
+	 * -1 is returned if the MazeCell is not in the Maze
+	 */
+	public int addAgents(MazeCell start, int count) {
+		int cell = graph.indexOf(start);
+		if(cell < 0 || count < 0) {
+			return -1;
+		}
+		int first = agentCount;
+		ensureCapacity(agentCount + count);
+		Arrays.fill(cells, first, first + count, cell);
+		Arrays.fill(startTicks, first, first + count, tick);
+		if(cell == exit) {
+			Arrays.fill(states, first, first + count, EXITED);
+			for(int i = 0; i < count; i++) {
+				exitTimes.record(0);
+			}
+			exitedCount += count;
+		} else {
+			Arrays.fill(states, first, first + count, IN_CELL);
+			occupancy.addAndGet(cell, count);
+		}
+		agentCount += count;
+		return first;
+	}
+
+	/**
+	 * Advances every agent by one tick.
+	 *
+	 * @return the statistics of the tick
+	 */
+	public TickStatistics tick() {
+		tick++;
+		TickStatistics statistics = ForkJoinPool.commonPool().invoke(new TickTask(0, agentCount));
+		exitTimes.merge(statistics.exitTimes);
+		exitedCount += statistics.exited;
+		stuckCount += statistics.stuck;
+		statistics.tick = tick;
+		statistics.exitedTotal = exitedCount;
+		statistics.stuckTotal = stuckCount;
+		statistics.exitTimes = null;
+		return statistics;
+	}
+
+	/**
+	 * Advances the agents until every agent has exited or is stuck, or the
+	 * specified number of ticks has passed.
+	 *
+	 * @param maxTicks - the largest number of ticks to simulate
+	 * @return the statistics of the last tick, or null if no tick was simulated
+	 */
+	public TickStatistics run(int maxTicks) {
+		TickStatistics statistics = null;
+		for(int t = 0; t < maxTicks && exitedCount + stuckCount < agentCount; t++) {
+			statistics = tick();
+		}
+		return statistics;
+	}
+
+	/**
+	 * @return the number of ticks simulated so far
+	 */
+	public int currentTick() {
+		return tick;
+	}
+
+	/**
+	 * @return the number of agents in the simulation
+	 */
+	public int agentCount() {
+		return agentCount;
+	}
+
+	/**
+	 * Determines where an agent is. An agent in a passage is placed at the cell
+	 * the passage leads to.
+	 *
+	 * @param agent - the number of the agent
+	 * @return the MazeCell of the agent
+	 */
+	public MazeCell agentCell(int agent) {
+		return graph.cellAt(cells[agent]);
+	}
+
+	/**
+	 * @param agent - the number of the agent
+	 * @return true if the agent has reached the exit, false otherwise
+	 */
+	public boolean hasExited(int agent) {
+		return states[agent] == EXITED;
+	}
+
+	/**
+	 * @return the statistics of the numbers of ticks the exited agents needed to exit
+	 */
+	public ExitTimeStatistics exitTimes() {
+		return exitTimes;
+	}
+
+	/**
+	 * Grows the agent arrays to hold at least the specified number of agents.
+	 */
+	private void ensureCapacity(int capacity) {
+		if(capacity > cells.length) {
+			int length = Math.max(capacity, cells.length * 2);
+			cells = Arrays.copyOf(cells, length);
+			remainingTimes = Arrays.copyOf(remainingTimes, length);
+			startTicks = Arrays.copyOf(startTicks, length);
+			states = Arrays.copyOf(states, length);
+		}
+	}
+
+	/**
+	 * Advances one agent by one tick and counts what it did.
+	 *
+	 * @param agent - the number of the agent
+	 * @param next - the index of the next cell chosen for an agent in a cell, or -1 if there is none
+	 * @param statistics - the statistics of the chunk of the agent
+	 */
+	private void advance(int agent, int next, TickStatistics statistics) {
+		if(states[agent] == IN_CELL) {
+			int cell = cells[agent];
+			int passage = next < 0 ? -1 : passageTo(cell, next);
+			if(passage < 0) {
+				states[agent] = STUCK;
+				occupancy.decrementAndGet(cell);
+				statistics.stuck++;
+				return;
+			}
+			if(next != exit && !reserve(next)) {
+				statistics.waiting++;
+				return;
+			}
+			occupancy.decrementAndGet(cell);
+			cells[agent] = next;
+			remainingTimes[agent] = graph.passageTime(cell, passage);
+			states[agent] = IN_PASSAGE;
+		}
+		if(states[agent] == IN_PASSAGE) {
+			// the passage is travelled for the whole tick in which it is entered
+			statistics.moving++;
+			if(--remainingTimes[agent] > 0) {
+				return;
+			}
+			if(cells[agent] == exit) {
+				states[agent] = EXITED;
+				statistics.exited++;
+				statistics.exitTimes.record(tick - startTicks[agent]);
+			} else {
+				states[agent] = IN_CELL;
+			}
+		}
+	}
+
+	/**
+	 * Takes a place in a cell unless the cell is full.
+	 *
+	 * @return true if a place was taken, false if the cell is full
+	 */
+	private boolean reserve(int cell) {
+		int current = occupancy.get(cell);
+		while(current < cellCapacity) {
+			if(occupancy.compareAndSet(cell, current, current + 1)) {
+				return true;
+			}
+			current = occupancy.get(cell);
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of the passage between two cells, or -1 if there is none
+	 */
+	private int passageTo(int cell, int target) {
+		for(int p = 0; p < graph.passageCount(cell); p++) {
+			if(graph.passageTarget(cell, p) == target) {
+				return p;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The TickStatistics class counts what the agents did in one tick.
+	 */
+	public static class TickStatistics {
+		// private class variables
+		private int tick;
+		private long moving;
+		private long waiting;
+		private long exited;
+		private long stuck;
+		private long exitedTotal;
+		private long stuckTotal;
+		private ExitTimeStatistics exitTimes; // only used while the tick is computed
+
+		private TickStatistics() {
+			this.exitTimes = new ExitTimeStatistics();
+		}
+
+		/**
+		 * @return the number of the tick
+		 */
+		public int tick() {
+			return tick;
+		}
+
+		/**
+		 * @return the number of agents that spent the tick in a passage
+		 */
+		public long moving() {
+			return moving;
+		}
+
+		/**
+		 * @return the number of agents that waited because their next cell was full
+		 */
+		public long waiting() {
+			return waiting;
+		}
+
+		/**
+		 * @return the number of agents that reached the exit in this tick
+		 */
+		public long exited() {
+			return exited;
+		}
+
+		/**
+		 * @return the number of agents that were left without a passage in this tick
+		 */
+		public long stuck() {
+			return stuck;
+		}
+
+		/**
+		 * @return the number of agents that have reached the exit so far
+		 */
+		public long exitedTotal() {
+			return exitedTotal;
+		}
+
+		/**
+		 * @return the number of agents that have been left without a passage so far
+		 */
+		public long stuckTotal() {
+			return stuckTotal;
+		}
+
+		/**
+		 * Adds the counts of another chunk of agents.
+		 */
+		private void merge(TickStatistics other) {
+			moving += other.moving;
+			waiting += other.waiting;
+			exited += other.exited;
+			stuck += other.stuck;
+			exitTimes.merge(other.exitTimes);
+		}
+
+		@Override
+		public String toString() {
+			return "tick " + tick + ": " + moving + " moving, " + waiting + " waiting, " + exited + " exited ("
+					+ exitedTotal + " in total), " + stuck + " stuck (" + stuckTotal + " in total)";
+		}
+	}
+
+	/**
+	 * The TickTask class advances a range of agents by splitting it into chunks
+	 * that are advanced in parallel and merging their statistics.
+	 */
+	private class TickTask extends RecursiveTask<TickStatistics> {
+		private static final long serialVersionUID = 1L;
+		private int from;
+		private int to;
+
+		TickTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected TickStatistics compute() {
+			if(to - from > CHUNK_SIZE) {
+				int middle = (from + to) >>> 1;
+				TickTask left = new TickTask(from, middle);
+				left.fork();
+				TickStatistics statistics = new TickTask(middle, to).compute();
+				statistics.merge(left.join());
+				return statistics;
+			}
+			TickStatistics statistics = new TickStatistics();
+			int[][] buffer = buffers.get();
+			int[] current = buffer[0];
+			int[] next = buffer[1];
+			int count = 0;
+			for(int agent = from; agent < to; agent++) {
+				if(states[agent] == IN_CELL) {
+					current[count++] = cells[agent];
+				}
+			}
+			passageSelector.nextCells(graph, current, next, count);
+			count = 0;
+			for(int agent = from; agent < to; agent++) {
+				advance(agent, states[agent] == IN_CELL ? next[count++] : -1, statistics);
+			}
+			return statistics;
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+import java.util.Random;
+
+/**
+ * The AgentSimulationBenchmark class measures how long a tick of an
+ * AgentSimulation takes. It builds an open grid maze with the exit in a
+ * corner, places the agents on random cells and reports the average time of
+ * a tick, first with a RandomSelector, whose next cells are chosen a chunk of
+ * agents at a time, and then with the same selector asked about one agent at
+ * a time through its PassageSelector interface. The ticks per second are the
+ * frame rate an interactive view of the simulation could reach.
+ *
+ * Usage: java AgentSimulationBenchmark [size] [agents] [ticks]
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class AgentSimulationBenchmark {
+	// private class constants
+	private final static int WARMUP_TICKS = 5;
+	private final static int CELL_CAPACITY = 4;
+
+	private AgentSimulationBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark and prints one line per selector.
+	 *
+	 * @param args - the width and height of the grid, the number of agents and the number of measured ticks
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public static void main(String[] args) throws UninitializedObjectException {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int agents = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		GridMaze grid = new GridMaze(size, size, false);
+		for(int x = 0; x < size; x++) {
+			for(int y = 0; y < size; y++) {
+				if(x + 1 < size) {
+					grid.connect(x, y, GridMaze.EAST);
+				}
+				if(y + 1 < size) {
+					grid.connect(x, y, GridMaze.SOUTH);
+				}
+			}
+		}
+		Maze maze = new Maze();
+		maze.addGraph(grid);
+		System.out.println(size + " x " + size + " grid, " + agents + " agents, "
+				+ ticks + " ticks, capacity " + CELL_CAPACITY);
+		System.out.println(String.format("%-22s %14s %14s %14s", "selector", "ms/tick", "ticks/s", "agents/s"));
+		final RandomSelector random = new RandomSelector();
+		report("batch", maze, grid, random, agents, ticks);
+		// hide the batch interface so that every agent is asked about separately
+		PassageSelector scalar = new PassageSelector() {
+			@Override
+			public MazeCell nextCell(MazeCell currentCell) throws UninitializedObjectException {
+				return random.nextCell(currentCell);
+			}
+		};
+		report("one agent at a time", maze, grid, scalar, agents, ticks);
+	}
+
+	/**
+	 * Measures the ticks of one selector and prints the results.
+	 *
+	 * @param name - the name of the selector
+	 * @param maze - the Maze of the grid
+	 * @param grid - the grid the agents move through
+	 * @param passageSelector - the next cell algorithm of the agents
+	 * @param agents - the number of agents
+	 * @param ticks - the number of measured ticks
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	private static void report(String name, Maze maze, GridMaze grid, PassageSelector passageSelector,
+			int agents, int ticks) throws UninitializedObjectException {
+		AgentSimulation simulation = new AgentSimulation(maze, grid.cellAt(0), passageSelector, CELL_CAPACITY);
+		Random random = new Random(39);
+		for(int i = 0; i < agents; i++) {
+			simulation.addAgents(grid.cellAt(1 + random.nextInt(grid.cellCount() - 1)), 1);
+		}
+		simulation.run(WARMUP_TICKS);
+		int firstTick = simulation.currentTick();
+		long start = System.nanoTime();
+		simulation.run(ticks);
+		long elapsed = System.nanoTime() - start;
+		int measured = Math.max(1, simulation.currentTick() - firstTick);
+		System.out.println(String.format("%-22s %14.1f %14.1f %14.3g", name, elapsed / 1e6 / measured,
+				measured * 1e9 / elapsed, (double)agents * measured * 1e9 / elapsed));
+	}
+
+}
@@ -0,0 +1,131 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the AgentSimulation class. This class tests all public
+ * methods of the AgentSimulation class for proper and expected functionality.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class AgentSimulationTest {
+
+	/**
+	 * Builds a corridor of cells in which every cell leads to the next one.
+	 *
+	 * @param times - the travel time of every passage of the corridor
+	 * @return the builder of the corridor, after the Maze was built
+	 */
+	private MazeBuilder buildCorridor(int... times) {
+		MazeBuilder builder = new MazeBuilder(times.length);
+		builder.addCells(times.length + 1);
+		for(int cell = 0; cell < times.length; cell++) {
+			builder.addPassage(cell, cell + 1, times[cell]);
+		}
+		return builder;
+	}
+
+	/**
+	 * Tests agents that do not hinder each other.
+	 */
+	@Test
+	public void testFreeFlow() {
+		try {
+			MazeBuilder builder = buildCorridor(2, 3);
+			Maze maze = builder.build();
+			AgentSimulation simulation = new AgentSimulation(maze, builder.cellAt(2), new FirstSelector(), 100);
+			assertEquals("addAgents() does not number the agents", 0, simulation.addAgents(builder.cellAt(0), 10));
+			assertEquals("addAgents() accepts cells outside of the Maze", -1,
+					simulation.addAgents(new MazeCell(), 1));
+			AgentSimulation.TickStatistics statistics = simulation.tick();
+			assertEquals("tick() does not count moving agents", 10, statistics.moving());
+			assertEquals("tick() counts waiting agents without congestion", 0, statistics.waiting());
+			statistics = simulation.run(100);
+			assertEquals("run() does not stop once every agent has exited", 5, simulation.currentTick());
+			assertEquals("run() does not let every agent exit", 10, statistics.exitedTotal());
+			assertTrue("hasExited() is incorrect", simulation.hasExited(9));
+			assertEquals("exitTimes() are incorrect", 5.0, simulation.exitTimes().mean(), 0.0);
+			assertEquals("agentCell() is incorrect", builder.cellAt(2), simulation.agentCell(0));
+		} catch(UninitializedObjectException e) {
+			fail("AgentSimulation generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests agents that wait for room in a full cell.
+	 */
+	@Test
+	public void testCongestion() {
+		try {
+			MazeBuilder builder = buildCorridor(1, 1);
+			Maze maze = builder.build();
+			AgentSimulation simulation = new AgentSimulation(maze, builder.cellAt(2), new FirstSelector(), 1);
+			simulation.addAgents(builder.cellAt(0), 3);
+			AgentSimulation.TickStatistics statistics = simulation.tick();
+			assertEquals("tick() lets too many agents into a cell", 1, statistics.moving());
+			assertEquals("tick() does not count waiting agents", 2, statistics.waiting());
+			simulation.run(100);
+			assertEquals("congestion does not delay the agents", 4, simulation.currentTick());
+			assertEquals("exitTimes() are incorrect under congestion", 3.0, simulation.exitTimes().mean(), 0.0);
+			assertEquals("exitTimes() are incorrect under congestion", 4, simulation.exitTimes().max());
+		} catch(UninitializedObjectException e) {
+			fail("AgentSimulation generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests agents that are left without a passage.
+	 */
+	@Test
+	public void testStuck() {
+		try {
+			MazeBuilder builder = buildCorridor(1, 1);
+			Maze maze = builder.build();
+			// the exit is the middle cell, so agents starting after it have nowhere to go
+			AgentSimulation simulation = new AgentSimulation(maze, builder.cellAt(1), new FirstSelector(), 10);
+			simulation.addAgents(builder.cellAt(2), 4);
+			simulation.addAgents(builder.cellAt(1), 2);
+			AgentSimulation.TickStatistics statistics = simulation.run(100);
+			assertEquals("run() does not stop once every agent is done", 1, simulation.currentTick());
+			assertEquals("tick() does not count stuck agents", 4, statistics.stuckTotal());
+			assertEquals("agents starting at the exit are not counted", 2, statistics.exitedTotal());
+		} catch(UninitializedObjectException e) {
+			fail("AgentSimulation generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests many agents updated in parallel chunks.
+	 */
+	@Test
+	public void testManyAgents() {
+		try {
+			int size = 40;
+			GridMaze grid = new GridMaze(size, size, false);
+			for(int x = 0; x < size; x++) {
+				for(int y = 0; y < size; y++) {
+					if(y > 0) {
+						grid.openPassage(x, y, GridMaze.NORTH);
+					} else if(x > 0) {
+						grid.openPassage(x, y, GridMaze.WEST);
+					}
+				}
+			}
+			Maze maze = new Maze();
+			maze.addGraph(grid);
+			AgentSimulation simulation = new AgentSimulation(maze, grid.cellAt(0, 0), new FirstSelector(), 1 << 20);
+			for(int x = 0; x < size; x++) {
+				simulation.addAgents(grid.cellAt(x, size - 1), 2000);
+			}
+			simulation.run(1000);
+			assertEquals("not every agent exited", 2000L * size, simulation.exitTimes().count());
+			assertEquals("run() takes too many ticks", 2 * (size - 1), simulation.currentTick());
+			assertEquals("exitTimes() are incorrect for many agents", 2000L * size * (size - 1) + 2000L * size * (size - 1) / 2,
+					simulation.exitTimes().total());
+		} catch(UninitializedObjectException e) {
+			fail("AgentSimulation generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+/**
+ * The AnytimeRoute class is the answer of Maze.routeAnytime(): the best route
+ * found before the search was stopped, and a bound on how much longer it may be
+ * than the shortest route. A bound of 1 means the route is the shortest one.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class AnytimeRoute {
+	// private class variables
+	private MazeRoute route;
+	private long travelTime;
+	private double bound;
+	private boolean isComplete;
+
+	/**
+	 * Constructor of the AnytimeRoute class.
+	 *
+	 * @param route - the best route found, empty if none was found
+	 * @param travelTime - the travel time of the route, or IMPASSABLE if none was found
+	 * @param bound - the largest ratio of the travel time to the shortest travel time
+	 * @param isComplete - true if the search finished, false if it was stopped
+	 */
+	AnytimeRoute(MazeRoute route, long travelTime, double bound, boolean isComplete) {
+		this.route = route;
+		this.travelTime = travelTime;
+		this.bound = bound;
+		this.isComplete = isComplete;
+	}
+
+	/**
+	 * @return the best route found, empty if no route was found in time or the
+	 * destination cannot be reached
+	 */
+	public MazeRoute route() {
+		return route;
+	}
+
+	/**
+	 * @return the travel time of the route, or MazeCell.IMPASSABLE if there is no route
+	 */
+	public long travelTime() {
+		return travelTime;
+	}
+
+	/**
+	 * Determines the suboptimality bound of the route: the travel time of the
+	 * route is at most the bound times the shortest travel time.
+	 *
+	 * @return the bound, 1 for a shortest route, or Double.POSITIVE_INFINITY if no
+	 * route was found or the search was stopped before it could bound the route
+	 */
+	public double bound() {
+		return bound;
+	}
+
+	/**
+	 * @return true if the route is known to be the shortest route, false otherwise
+	 */
+	public boolean isOptimal() {
+		return bound == 1.0;
+	}
+
+	/**
+	 * @return true if the search ran until it proved its answer, false if it was
+	 * stopped by the deadline or cancelled
+	 */
+	public boolean isComplete() {
+		return isComplete;
+	}
+
+	@Override
+	public String toString() {
+		if(travelTime == MazeCell.IMPASSABLE) {
+			return "no route" + (isComplete ? "" : " found in time");
+		}
+		return "travel time " + travelTime + " within " + bound + " of the shortest"
+				+ (isComplete ? "" : " (stopped)");
+	}
+
+}
@@ -0,0 +1,321 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The AnytimeRouter class finds a route between two cells of a PassageGraph
+ * that is as short as the time allows, with Anytime Repairing A* (ARA*). The
+ * search starts as weighted A*, which inflates the LandmarkHeuristic by a
+ * factor epsilon and finds some route quickly, and then repeatedly lowers
+ * epsilon and repairs the route, reusing the work of the previous rounds: cells
+ * whose time improved after they were expanded are only queued again at the
+ * start of the next round. After every round the route is at most epsilon
+ * times, and at most the time of the route divided by the smallest estimate of
+ * any unexpanded cell times, longer than the shortest route. The round with
+ * epsilon 1 is A* and proves the route shortest.
+ *
+ * The search checks a deadline and a cancellation flag every few hundred
+ * expanded cells and, once stopped, returns the best route found so far with the
+ * bound of the last finished round. The search arrays are stamped with a query
+ * number as in BidirectionalRouter, so a router can answer any number of queries
+ * without clearing them. The LandmarkHeuristic is given with every query, so the
+ * same arrays serve searches with and without landmarks. A router must only be
+ * used by one thread at a time.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class AnytimeRouter {
+	// package-private class constants
+	final static double INITIAL_EPSILON = 3.0;
+
+	// private class constants
+	private final static double EPSILON_STEP = 0.5;
+	private final static int CHECK_INTERVAL = 256; // expansions between checks of the deadline
+	private final static long UNREACHED = Long.MAX_VALUE;
+	private final static byte NEW = 0;
+	private final static byte OPEN = 1;
+	private final static byte CLOSED = 2;
+	private final static byte INCONSISTENT = 3; // improved after it was expanded in this round
+
+	// private class variables
+	private PassageGraph graph;
+	private LandmarkHeuristic heuristic;
+	private long[] times; // best known time from the start
+	private long[] estimates; // heuristic estimate of the time to the destination
+	private int[] parents; // previous cell on the best known route from the start
+	private int[] stamps; // query number that last wrote the arrays
+	private byte[] states;
+	private int epoch;
+	private CellPriorityQueue queue;
+	private IntList reached; // every cell reached in the current query
+	private int destination;
+	private double epsilon;
+	private long expansions;
+	private long deadline;
+	private AtomicBoolean cancelled;
+	private long lastTravelTime;
+	private double lastBound;
+	private boolean isLastComplete;
+
+	/**
+	 * Constructor of the AnytimeRouter class which allocates the search arrays
+	 * for the specified graph.
+	 *
+	 * @param graph - the graph to search
+	 */
+	AnytimeRouter(PassageGraph graph) {
+		int cellCount = graph.cellCount();
+		this.graph = graph;
+		this.times = new long[cellCount];
+		this.estimates = new long[cellCount];
+		this.parents = new int[cellCount];
+		this.stamps = new int[cellCount];
+		this.states = new byte[cellCount];
+		this.queue = new CellPriorityQueue(64);
+		this.reached = new IntList(64);
+	}
+
+	/**
+	 * Finds a route between two cells, improving it until it is the shortest
+	 * route or the search is stopped.
+	 *
+	 * @param start - the index of the cell the route starts at
+	 * @param destination - the index of the cell the route ends at
+	 * @param heuristic - the LandmarkHeuristic of the graph
+	 * @param deadline - the time in milliseconds since the epoch at which the
+	 * search stops, or 0 for none
+	 * @param cancelled - a flag that stops the search once it is set, or null
+	 * @return the cell indices along the best route found in order of traversal,
+	 * or null if no route was found
+	 */
+	int[] route(int start, int destination, LandmarkHeuristic heuristic, long deadline, AtomicBoolean cancelled) {
+		this.heuristic = heuristic;
+		beginQuery(destination, deadline, cancelled);
+		if(start == destination) {
+			lastTravelTime = 0;
+			lastBound = 1.0;
+			isLastComplete = true;
+			return new int[] {start};
+		}
+		int[] path = null;
+		if(heuristic.estimate(start, destination) != LandmarkHeuristic.UNREACHABLE) {
+			reach(start, 0, -1);
+		}
+		while(true) {
+			boolean isFinished = improveRoute();
+			if(time(destination) != UNREACHED) {
+				path = buildPath();
+			}
+			if(!isFinished) {
+				break; // keep the bound of the last finished round
+			}
+			if(path == null) {
+				isLastComplete = true; // the destination cannot be reached
+				break;
+			}
+			lastBound = roundBound();
+			if(epsilon == 1.0 || lastBound == 1.0) {
+				lastBound = 1.0;
+				isLastComplete = true;
+				break;
+			}
+			// there is no use in a round with an epsilon above the bound already proven
+			epsilon = Math.max(1.0, Math.min(epsilon - EPSILON_STEP, lastBound));
+			beginRound();
+		}
+		return path;
+	}
+
+	/**
+	 * @return the travel time of the route found by the last call to route(),
+	 * or IMPASSABLE if none was found
+	 */
+	long lastTravelTime() {
+		return lastTravelTime;
+	}
+
+	/**
+	 * @return the suboptimality bound of the route found by the last call to
+	 * route(), or Double.POSITIVE_INFINITY if none was found
+	 */
+	double lastBound() {
+		return lastBound;
+	}
+
+	/**
+	 * @return true if the last call to route() finished, false if it was stopped
+	 */
+	boolean isLastComplete() {
+		return isLastComplete;
+	}
+
+	/**
+	 * Starts a new query by advancing the query number. The stamp array is only
+	 * cleared when the query number wraps around.
+	 */
+	private void beginQuery(int destination, long deadline, AtomicBoolean cancelled) {
+		if(++epoch == 0) {
+			Arrays.fill(stamps, 0);
+			epoch = 1;
+		}
+		queue.clear();
+		reached.clear();
+		this.destination = destination;
+		this.deadline = deadline;
+		this.cancelled = cancelled;
+		this.epsilon = INITIAL_EPSILON;
+		this.expansions = 0;
+		this.lastTravelTime = MazeCell.IMPASSABLE;
+		this.lastBound = Double.POSITIVE_INFINITY;
+		this.isLastComplete = false;
+	}
+
+	/**
+	 * Expands cells in the order of their inflated estimates until no queued cell
+	 * can lead to a better route to the destination in this round.
+	 *
+	 * @return true if the round finished, false if the search was stopped
+	 */
+	private boolean improveRoute() {
+		while(!queue.isEmpty() && queue.peekPriority() < time(destination)) {
+			long priority = queue.peekPriority();
+			int cell = queue.poll();
+			if(states[cell] != OPEN || priority != key(cell)) {
+				continue; // an outdated entry of a cell that was reached faster later
+			}
+			if(expansions++ % CHECK_INTERVAL == 0 && isStopped()) {
+				queue.add(cell, priority);
+				return false;
+			}
+			states[cell] = CLOSED;
+			long time = times[cell];
+			for(int p = 0; p < graph.passageCount(cell); p++) {
+				int next = graph.passageTarget(cell, p);
+				long nextTime = time + graph.passageTime(cell, p);
+				if(nextTime < time(next)) {
+					reach(next, nextTime, cell);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records a shorter route from the start to a cell. Cells that cannot reach
+	 * the destination are never queued, and cells that were already expanded in
+	 * this round wait for the next one.
+	 */
+	private void reach(int cell, long time, int parent) {
+		if(stamps[cell] != epoch) {
+			stamps[cell] = epoch;
+			states[cell] = NEW;
+			estimates[cell] = heuristic.estimate(cell, destination);
+			reached.add(cell);
+		}
+		if(estimates[cell] == LandmarkHeuristic.UNREACHABLE) {
+			times[cell] = UNREACHED;
+			return;
+		}
+		times[cell] = time;
+		parents[cell] = parent;
+		if(states[cell] == CLOSED) {
+			states[cell] = INCONSISTENT;
+		} else if(states[cell] != INCONSISTENT) {
+			states[cell] = OPEN;
+			queue.add(cell, key(cell));
+		}
+	}
+
+	/**
+	 * Computes the bound of the route after a finished round: the smaller of
+	 * epsilon and the travel time of the route divided by the smallest estimate
+	 * of the total time through any cell that waits to be expanded.
+	 */
+	private double roundBound() {
+		long smallest = UNREACHED;
+		for(int i = 0; i < reached.size(); i++) {
+			int cell = reached.get(i);
+			if(states[cell] == OPEN || states[cell] == INCONSISTENT) {
+				smallest = Math.min(smallest, times[cell] + estimates[cell]);
+			}
+		}
+		if(smallest == UNREACHED) {
+			return 1.0; // no cell can lead to a shorter route
+		}
+		if(smallest == 0) {
+			return epsilon;
+		}
+		return Math.max(1.0, Math.min(epsilon, (double)time(destination) / smallest));
+	}
+
+	/**
+	 * Starts a round with the new epsilon: the cells that wait to be expanded are
+	 * queued with their new keys, and the expanded cells may be expanded again.
+	 */
+	private void beginRound() {
+		queue.clear();
+		for(int i = 0; i < reached.size(); i++) {
+			int cell = reached.get(i);
+			if(states[cell] == OPEN || states[cell] == INCONSISTENT) {
+				states[cell] = OPEN;
+				queue.add(cell, key(cell));
+			} else {
+				states[cell] = NEW;
+			}
+		}
+	}
+
+	/**
+	 * @return the priority of a cell: its time plus its inflated estimate
+	 */
+	private long key(int cell) {
+		return times[cell] + (long)Math.floor(epsilon * estimates[cell]);
+	}
+
+	/**
+	 * @return the best known time from the start to the cell in the current query
+	 */
+	private long time(int cell) {
+		return stamps[cell] == epoch ? times[cell] : UNREACHED;
+	}
+
+	/**
+	 * Checks whether the search has to stop. It is called every CHECK_INTERVAL
+	 * expanded cells.
+	 *
+	 * @return true if the deadline has passed or the search was cancelled
+	 */
+	boolean isStopped() {
+		return (deadline != 0 && System.currentTimeMillis() >= deadline)
+				|| (cancelled != null && cancelled.get());
+	}
+
+	/**
+	 * Follows the parents from the destination back to the start and measures
+	 * the travel time of the route, which may be shorter than the time recorded
+	 * for the destination if cells along it were reached faster later.
+	 */
+	private int[] buildPath() {
+		IntList path = new IntList(64);
+		for(int cell = destination; cell != -1 && path.size() <= graph.cellCount(); cell = parents[cell]) {
+			path.add(cell);
+		}
+		int[] cells = new int[path.size()];
+		for(int i = 0; i < cells.length; i++) {
+			cells[i] = path.get(cells.length - 1 - i);
+		}
+		long travelTime = 0;
+		for(int i = 1; i < cells.length; i++) {
+			int time = MazeCell.IMPASSABLE;
+			for(int p = 0; p < graph.passageCount(cells[i - 1]); p++) {
+				if(graph.passageTarget(cells[i - 1], p) == cells[i]) {
+					time = Math.min(time, graph.passageTime(cells[i - 1], p));
+				}
+			}
+			travelTime += time;
+		}
+		lastTravelTime = travelTime;
+		return cells;
+	}
+
+}
@@ -0,0 +1,23 @@
+/**
+ * Provides an interface for a passage selection algorithm that chooses the next
+ * cell for many walkers in one call. The walkers are given as cell indices of a
+ * PassageGraph, so a choice needs neither MazeCell objects nor their validity
+ * checks, and only passages to cells of the graph can be chosen.
+ * 
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public interface BatchPassageSelector {
+	
+	/**
+	 * Chooses the next cell of every walker.
+	 * 
+	 * @param graph - the graph the walkers move through
+	 * @param current - the index of the cell of every walker
+	 * @param next - receives the index of the next cell of every walker, or -1
+	 * for walkers in a dead end
+	 * @param count - the number of walkers, starting at position 0 of both arrays
+	 */
+	public void nextCells(PassageGraph graph, int[] current, int[] next, int count);
+	
+}
@@ -0,0 +1,117 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case class for the BatchPassageSelector interface. This class tests the
+ * batch choices of FirstSelector, GreedySelector and RandomSelector, and the
+ * fallback for PassageSelectors that only choose one cell at a time.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class BatchPassageSelectorTest {
+	// private class variables
+	private MazeBuilder builder;
+	private PassageGraph graph;
+	private int[] current;
+	private int[] next;
+
+	/**
+	 * Creates a Maze in which cell 0 leads to cells 1 (time 5), 2 (time 3) and
+	 * 3 (time 4), cell 1 leads to cell 0 (time 1) and cells 2 and 3 are dead ends.
+	 */
+	@Before
+	public void generateMaze() {
+		builder = new MazeBuilder(4);
+		builder.addCells(4);
+		builder.addPassage(0, 1, 5);
+		builder.addPassage(0, 2, 3);
+		builder.addPassage(0, 3, 4);
+		builder.addPassage(1, 0, 1);
+		try {
+			builder.build();
+			graph = ((GraphMazeCell)builder.cellAt(0)).graph();
+		} catch(UninitializedObjectException e) {
+			fail("build() generated an UninitializedObjectException incorrectly");
+		}
+		current = new int[] {0, 1, 2, 0, 3};
+		next = new int[current.length];
+	}
+
+	/**
+	 * Tests the batch choices of the FirstSelector.
+	 */
+	@Test
+	public void testFirstSelector() {
+		new FirstSelector().nextCells(graph, current, next, current.length);
+		assertArrayEquals("FirstSelector does not choose the first passages",
+				new int[] {1, 0, -1, 1, -1}, next);
+	}
+
+	/**
+	 * Tests the batch choices of the GreedySelector.
+	 */
+	@Test
+	public void testGreedySelector() {
+		new GreedySelector().nextCells(graph, current, next, current.length);
+		assertArrayEquals("GreedySelector does not choose the shortest passages",
+				new int[] {2, 0, -1, 2, -1}, next);
+	}
+
+	/**
+	 * Tests the batch choices of the RandomSelector.
+	 */
+	@Test
+	public void testRandomSelector() {
+		int[] many = new int[3000];
+		int[] choices = new int[many.length];
+		new RandomSelector().nextCells(graph, many, choices, many.length);
+		int[] counts = new int[4];
+		for(int choice : choices) {
+			counts[choice]++;
+		}
+		assertEquals("RandomSelector chooses a cell without a passage", 0, counts[0]);
+		for(int cell = 1; cell < 4; cell++) {
+			assertTrue("RandomSelector does not choose every passage", counts[cell] > 800);
+		}
+	}
+
+	/**
+	 * Tests that only the requested number of walkers is changed.
+	 */
+	@Test
+	public void testCount() {
+		Arrays.fill(next, 7);
+		new GreedySelector().nextCells(graph, current, next, 2);
+		assertArrayEquals("nextCells() changes walkers beyond the count", new int[] {2, 0, 7, 7, 7}, next);
+	}
+
+	/**
+	 * Tests the fallback for PassageSelectors without batch choices.
+	 */
+	@Test
+	public void testScalarFallback() {
+		PassageSelector lastSelector = new PassageSelector() {
+			@Override
+			public MazeCell nextCell(MazeCell currentCell) throws UninitializedObjectException {
+				MazeCell last = null;
+				for(MazeCell cell : currentCell.connectedCells()) {
+					if(last == null || ((GraphMazeCell)cell).index() > ((GraphMazeCell)last).index()) {
+						last = cell;
+					}
+				}
+				return last;
+			}
+		};
+		BatchPassageSelector batch = ScalarBatchSelector.of(lastSelector);
+		batch.nextCells(graph, current, next, current.length);
+		assertArrayEquals("the fallback does not ask the PassageSelector", new int[] {3, 0, -1, 3, -1}, next);
+		GreedySelector greedy = new GreedySelector();
+		assertSame("the fallback wraps a BatchPassageSelector", greedy, ScalarBatchSelector.of(greedy));
+	}
+
+}
@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+/**
+ * The BidirectionalRouter class finds the route with the shortest travel time
+ * between two cells of a PassageGraph. It runs Dijkstra's algorithm forward from
+ * the start and backward from the destination over the incoming passages, always
+ * expanding the frontier whose next cell is closer, and stops once no unexplored
+ * cell can improve the best meeting point found so far. The search arrays are
+ * allocated once and stamped with a query number, so a router can answer any
+ * number of queries without clearing or reallocating them. A router must only
+ * be used by one thread at a time.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class BidirectionalRouter {
+	// private class constants
+	private final static long UNREACHED = Long.MAX_VALUE;
+
+	// private class variables
+	private PassageGraph graph;
+	private long[] forwardTimes;
+	private long[] backwardTimes;
+	private int[] forwardParents; // previous cell on the best known route from the start
+	private int[] backwardParents; // next cell on the best known route to the destination
+	private int[] forwardStamps; // query number that last wrote forwardTimes
+	private int[] backwardStamps; // query number that last wrote backwardTimes
+	private int epoch;
+	private CellPriorityQueue forwardQueue;
+	private CellPriorityQueue backwardQueue;
+	private long bestTime;
+	private int meetingCell;
+
+	/**
+	 * Constructor of the BidirectionalRouter class which allocates the search
+	 * arrays for the specified graph.
+	 *
+	 * @param graph - the graph to search
+	 */
+	BidirectionalRouter(PassageGraph graph) {
+		int cellCount = graph.cellCount();
+		this.graph = graph;
+		this.forwardTimes = new long[cellCount];
+		this.backwardTimes = new long[cellCount];
+		this.forwardParents = new int[cellCount];
+		this.backwardParents = new int[cellCount];
+		this.forwardStamps = new int[cellCount];
+		this.backwardStamps = new int[cellCount];
+		this.forwardQueue = new CellPriorityQueue(64);
+		this.backwardQueue = new CellPriorityQueue(64);
+	}
+
+	/**
+	 * Finds the route with the shortest travel time between two cells.
+	 *
+	 * @param start - the index of the cell the route starts at
+	 * @param destination - the index of the cell the route ends at
+	 * @return the cell indices along the route in order of traversal, or null if
+	 * the destination cannot be reached
+	 */
+	int[] route(int start, int destination) {
+		if(start == destination) {
+			return new int[] {start};
+		}
+		beginQuery();
+		reachForward(start, 0, -1);
+		reachBackward(destination, 0, -1);
+		while(true) {
+			long forwardTop = forwardQueue.peekPriority();
+			long backwardTop = backwardQueue.peekPriority();
+			if(forwardTop == UNREACHED && backwardTop == UNREACHED) {
+				break;
+			}
+			// an exhausted frontier has settled every cell it can reach and adds nothing to the bound
+			long bound = (forwardTop == UNREACHED ? 0 : forwardTop) + (backwardTop == UNREACHED ? 0 : backwardTop);
+			if(bestTime != UNREACHED && bound >= bestTime) {
+				break;
+			}
+			if(forwardTop <= backwardTop) {
+				expandForward();
+			} else {
+				expandBackward();
+			}
+		}
+		if(meetingCell < 0) {
+			return null;
+		}
+		return buildPath();
+	}
+
+	/**
+	 * @return the travel time of the route found by the last call to route()
+	 */
+	long lastTravelTime() {
+		return bestTime;
+	}
+
+	/**
+	 * Starts a new query by advancing the query number. The stamp arrays are
+	 * only cleared when the query number wraps around.
+	 */
+	private void beginQuery() {
+		if(++epoch == 0) {
+			Arrays.fill(forwardStamps, 0);
+			Arrays.fill(backwardStamps, 0);
+			epoch = 1;
+		}
+		forwardQueue.clear();
+		backwardQueue.clear();
+		bestTime = UNREACHED;
+		meetingCell = -1;
+	}
+
+	/**
+	 * Settles the closest cell of the forward frontier and relaxes its passages.
+	 */
+	private void expandForward() {
+		long time = forwardQueue.peekPriority();
+		int cell = forwardQueue.poll();
+		if(time != forwardTimes[cell]) { // a shorter route to the cell was already expanded
+			return;
+		}
+		for(int p = 0; p < graph.passageCount(cell); p++) {
+			int next = graph.passageTarget(cell, p);
+			long nextTime = time + graph.passageTime(cell, p);
+			if(nextTime < forwardTime(next)) {
+				reachForward(next, nextTime, cell);
+			}
+		}
+	}
+
+	/**
+	 * Settles the closest cell of the backward frontier and relaxes its incoming passages.
+	 */
+	private void expandBackward() {
+		long time = backwardQueue.peekPriority();
+		int cell = backwardQueue.poll();
+		if(time != backwardTimes[cell]) { // a shorter route from the cell was already expanded
+			return;
+		}
+		for(int p = 0; p < graph.incomingCount(cell); p++) {
+			int previous = graph.incomingSource(cell, p);
+			long previousTime = time + graph.incomingTime(cell, p);
+			if(previousTime < backwardTime(previous)) {
+				reachBackward(previous, previousTime, cell);
+			}
+		}
+	}
+
+	/**
+	 * Records a shorter route from the start to a cell and checks whether it
+	 * meets the backward search there.
+	 */
+	private void reachForward(int cell, long time, int parent) {
+		forwardTimes[cell] = time;
+		forwardParents[cell] = parent;
+		forwardStamps[cell] = epoch;
+		forwardQueue.add(cell, time);
+		long otherTime = backwardTime(cell);
+		if(otherTime != UNREACHED && time + otherTime < bestTime) {
+			bestTime = time + otherTime;
+			meetingCell = cell;
+		}
+	}
+
+	/**
+	 * Records a shorter route from a cell to the destination and checks whether
+	 * it meets the forward search there.
+	 */
+	private void reachBackward(int cell, long time, int parent) {
+		backwardTimes[cell] = time;
+		backwardParents[cell] = parent;
+		backwardStamps[cell] = epoch;
+		backwardQueue.add(cell, time);
+		long otherTime = forwardTime(cell);
+		if(otherTime != UNREACHED && time + otherTime < bestTime) {
+			bestTime = time + otherTime;
+			meetingCell = cell;
+		}
+	}
+
+	/**
+	 * @return the best known time from the start to the cell in the current query
+	 */
+	private long forwardTime(int cell) {
+		return forwardStamps[cell] == epoch ? forwardTimes[cell] : UNREACHED;
+	}
+
+	/**
+	 * @return the best known time from the cell to the destination in the current query
+	 */
+	private long backwardTime(int cell) {
+		return backwardStamps[cell] == epoch ? backwardTimes[cell] : UNREACHED;
+	}
+
+	/**
+	 * Joins the forward route to the meeting cell and the backward route from it.
+	 */
+	private int[] buildPath() {
+		int length = 0;
+		for(int cell = meetingCell; cell != -1; cell = forwardParents[cell]) {
+			length++;
+		}
+		for(int cell = backwardParents[meetingCell]; cell != -1; cell = backwardParents[cell]) {
+			length++;
+		}
+		int[] path = new int[length];
+		int position = 0;
+		for(int cell = meetingCell; cell != -1; cell = forwardParents[cell]) {
+			path[position++] = cell;
+		}
+		// the forward part was collected from the meeting cell back to the start
+		for(int i = 0, j = position - 1; i < j; i++, j--) {
+			int tmp = path[i];
+			path[i] = path[j];
+			path[j] = tmp;
+		}
+		for(int cell = backwardParents[meetingCell]; cell != -1; cell = backwardParents[cell]) {
+			path[position++] = cell;
+		}
+		return path;
+	}
+
+}
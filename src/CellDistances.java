@@ -0,0 +1,82 @@
+import java.nio.IntBuffer;
+
+/**
+ * The CellDistances class holds one distance for every cell of a Maze, such as
+ * the shortest travel time from or to a given cell. Distances are stored in a
+ * primitive array indexed like the Maze's PassageGraph, or in a buffer mapped
+ * from an IndexSnapshot, and cells that cannot be reached have a distance of
+ * MazeCell.IMPASSABLE. A travel time of MazeCell.IMPASSABLE or more does not
+ * fit, so a cell whose shortest route takes that long is IMPASSABLE as well.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class CellDistances {
+	// private class variables
+	private PassageGraph graph;
+	private IntBuffer distances;
+
+	/**
+	 * Constructor of the CellDistances class.
+	 *
+	 * @param graph - the graph the distances were computed on
+	 * @param distances - the distance of every cell of the graph
+	 */
+	CellDistances(PassageGraph graph, int[] distances) {
+		this(graph, IntBuffer.wrap(distances));
+	}
+
+	/**
+	 * Constructor of the CellDistances class which reads the distances from a
+	 * buffer, for example one mapped from a file.
+	 *
+	 * @param graph - the graph the distances were computed on
+	 * @param distances - the distance of every cell of the graph
+	 */
+	CellDistances(PassageGraph graph, IntBuffer distances) {
+		this.graph = graph;
+		this.distances = distances;
+	}
+
+	/**
+	 * Determines the distance of a MazeCell.
+	 *
+	 * @param cell - the MazeCell to look up
+	 * @return the distance of the cell, or MazeCell.IMPASSABLE if the cell cannot
+	 * be reached or is not in the Maze
+	 */
+	public int distance(MazeCell cell) {
+		int index = graph.indexOf(cell);
+		if(index < 0) {
+			return MazeCell.IMPASSABLE;
+		}
+		return distances.get(index);
+	}
+
+	/**
+	 * @param index - the index of a cell in the Maze's PassageGraph
+	 * @return the distance of the cell
+	 */
+	public int distance(int index) {
+		return distances.get(index);
+	}
+
+	/**
+	 * @return the number of cells with a distance
+	 */
+	public int cellCount() {
+		return distances.limit();
+	}
+
+	/**
+	 * Copies the distances to a new array to avoid inadvertent changes.
+	 *
+	 * @return the distance of every cell indexed like the Maze's PassageGraph
+	 */
+	public int[] toArray() {
+		int[] array = new int[distances.limit()];
+		distances.duplicate().get(array);
+		return array;
+	}
+
+}
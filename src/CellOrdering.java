@@ -0,0 +1,320 @@
+import java.util.Arrays;
+
+/**
+ * The CellOrdering class computes new orders of the cells of a PassageGraph
+ * that place cells joined by a passage close to each other, so that searches
+ * touching the neighbors of a cell read nearby memory. An order is an array
+ * that lists the current index of every cell in its new position, as taken by
+ * MazeGraph.copyOf() and Maze.reorderCells(). Passages are followed in both
+ * directions, and cells that are not connected are ordered one group of
+ * connected cells after another.
+ *
+ * BREADTH_FIRST numbers the cells in the order a breadth-first search reaches
+ * them. REVERSE_CUTHILL_MCKEE starts every group at a cell on its rim, visits
+ * the neighbors of every cell from the fewest passages to the most and reverses
+ * the result, which keeps the largest index difference of any passage small.
+ * hilbert() orders the cells of a GridMaze along a Hilbert curve, which keeps
+ * nearby cells together in both directions of the grid.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class CellOrdering {
+	// public class constants
+	public final static int BREADTH_FIRST = 0;
+	public final static int REVERSE_CUTHILL_MCKEE = 1;
+
+	// private class constants
+	private final static int CACHE_LINE_CELLS = 16; // ints of an array that share a 64-byte cache line
+
+	private CellOrdering() {
+	}
+
+	/**
+	 * Computes an order of the cells of a graph.
+	 *
+	 * @param graph - the graph to order
+	 * @param ordering - BREADTH_FIRST or REVERSE_CUTHILL_MCKEE
+	 * @return the current index of the cell at every new position
+	 */
+	public static int[] order(PassageGraph graph, int ordering) {
+		if(ordering == BREADTH_FIRST) {
+			return breadthFirst(graph);
+		} else if(ordering == REVERSE_CUTHILL_MCKEE) {
+			return reverseCuthillMcKee(graph);
+		}
+		throw new IllegalArgumentException("Unknown cell ordering " + ordering);
+	}
+
+	/**
+	 * Numbers the cells in the order a breadth-first search reaches them,
+	 * starting every group of connected cells at its cell with the lowest index.
+	 *
+	 * @param graph - the graph to order
+	 * @return the current index of the cell at every new position
+	 */
+	public static int[] breadthFirst(PassageGraph graph) {
+		int cellCount = graph.cellCount();
+		int[] order = new int[cellCount];
+		boolean[] isOrdered = new boolean[cellCount];
+		int size = 0;
+		for(int start = 0; start < cellCount; start++) {
+			if(!isOrdered[start]) {
+				size = search(graph, start, order, size, isOrdered, null, null);
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Orders the cells by the reverse Cuthill-McKee algorithm. Every group of
+	 * connected cells starts at a cell of the group with the fewest passages
+	 * among the cells farthest from another such cell.
+	 *
+	 * @param graph - the graph to order
+	 * @return the current index of the cell at every new position
+	 */
+	public static int[] reverseCuthillMcKee(PassageGraph graph) {
+		int cellCount = graph.cellCount();
+		int[] degrees = new int[cellCount];
+		for(int cell = 0; cell < cellCount; cell++) {
+			degrees[cell] = graph.passageCount(cell) + graph.incomingCount(cell);
+		}
+		int[] order = new int[cellCount];
+		boolean[] isOrdered = new boolean[cellCount];
+		boolean[] isSearched = new boolean[cellCount];
+		int[] levels = new int[cellCount];
+		int size = 0;
+		for(int first = 0; first < cellCount; first++) {
+			if(isOrdered[first]) {
+				continue;
+			}
+			// find a cell on the rim of the group: the cell with the fewest passages
+			// among the farthest cells from the previous one, until they get no farther
+			int start = first;
+			int eccentricity = -1;
+			for(int round = 0; round < 4; round++) {
+				int end = search(graph, start, order, size, isSearched, null, levels);
+				int height = levels[order[end - 1]];
+				int candidate = order[end - 1];
+				for(int i = size; i < end; i++) {
+					isSearched[order[i]] = false;
+					if(levels[order[i]] == height && degrees[order[i]] < degrees[candidate]) {
+						candidate = order[i];
+					}
+				}
+				if(height <= eccentricity) {
+					break;
+				}
+				eccentricity = height;
+				start = candidate;
+			}
+			size = search(graph, start, order, size, isOrdered, degrees, null);
+		}
+		for(int i = 0, j = cellCount - 1; i < j; i++, j--) {
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		return order;
+	}
+
+	/**
+	 * Orders the cells of a GridMaze along a Hilbert curve over the smallest
+	 * square of a power of two side that covers the grid.
+	 *
+	 * @param grid - the grid to order
+	 * @return the current index of the cell at every new position
+	 */
+	public static int[] hilbert(GridMaze grid) {
+		int side = 1;
+		while(side < grid.width() || side < grid.height()) {
+			side <<= 1;
+		}
+		int cellCount = grid.cellCount();
+		long[] distances = new long[cellCount];
+		for(int cell = 0; cell < cellCount; cell++) {
+			distances[cell] = hilbertDistance(side, grid.x(cell), grid.y(cell));
+		}
+		Arrays.sort(distances);
+		// every position of the curve belongs to one cell, so the sorted positions give the cells back
+		int[] order = new int[cellCount];
+		int[] point = new int[2];
+		for(int i = 0; i < cellCount; i++) {
+			hilbertPoint(side, distances[i], point);
+			order[i] = grid.index(point[0], point[1]);
+		}
+		return order;
+	}
+
+	/**
+	 * Measures how far apart the ends of the passages of a graph are stored,
+	 * as the average difference of their indices.
+	 *
+	 * @param graph - the graph to measure
+	 * @return the average index difference of the ends of a passage
+	 */
+	public static double averageGap(PassageGraph graph) {
+		double total = 0;
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			for(int p = 0; p < graph.passageCount(cell); p++) {
+				total += Math.abs(graph.passageTarget(cell, p) - cell);
+			}
+		}
+		return graph.passageCount() == 0 ? 0 : total / graph.passageCount();
+	}
+
+	/**
+	 * Estimates the cache misses of expanding the cells of a graph as the
+	 * average number of distinct 64-byte cache lines of an int array indexed by
+	 * cell, such as the distances of a search, that are read when a cell and the
+	 * ends of its passages are looked up. A cell without passages reads one line.
+	 *
+	 * @param graph - the graph to measure
+	 * @return the average number of cache lines read per cell, at least 1 for a graph with cells
+	 */
+	public static double cacheLinesPerCell(PassageGraph graph) {
+		long lines = 0;
+		int[] seen = new int[16];
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			int count = graph.passageCount(cell);
+			if(seen.length <= count) {
+				seen = new int[2 * count + 1];
+			}
+			int distinct = 0;
+			seen[distinct++] = cell / CACHE_LINE_CELLS;
+			for(int p = 0; p < count; p++) {
+				int line = graph.passageTarget(cell, p) / CACHE_LINE_CELLS;
+				int i = 0;
+				while(i < distinct && seen[i] != line) {
+					i++;
+				}
+				if(i == distinct) {
+					seen[distinct++] = line;
+				}
+			}
+			lines += distinct;
+		}
+		return graph.cellCount() == 0 ? 0 : (double)lines / graph.cellCount();
+	}
+
+	/**
+	 * Appends the cells a breadth-first search over the passages in both
+	 * directions reaches from a cell to an order.
+	 *
+	 * @param graph - the graph to search
+	 * @param start - the index of the cell the search starts at
+	 * @param order - the order to append the cells to
+	 * @param size - the number of cells already in the order
+	 * @param isOrdered - marks the cells that are in the order
+	 * @param degrees - the number of passages of every cell to visit the
+	 * neighbors of a cell by, from the fewest to the most, or null for any order
+	 * @param levels - receives the number of passages between the start and every
+	 * cell reached, or null
+	 * @return the number of cells in the order after the search
+	 */
+	private static int search(PassageGraph graph, int start, int[] order, int size, boolean[] isOrdered,
+			int[] degrees, int[] levels) {
+		order[size++] = start;
+		isOrdered[start] = true;
+		if(levels != null) {
+			levels[start] = 0;
+		}
+		for(int head = size - 1; head < size; head++) {
+			int cell = order[head];
+			int firstNeighbor = size;
+			for(int p = 0; p < graph.passageCount(cell); p++) {
+				int next = graph.passageTarget(cell, p);
+				if(!isOrdered[next]) {
+					isOrdered[next] = true;
+					order[size++] = next;
+					if(levels != null) {
+						levels[next] = levels[cell] + 1;
+					}
+				}
+			}
+			for(int p = 0; p < graph.incomingCount(cell); p++) {
+				int next = graph.incomingSource(cell, p);
+				if(!isOrdered[next]) {
+					isOrdered[next] = true;
+					order[size++] = next;
+					if(levels != null) {
+						levels[next] = levels[cell] + 1;
+					}
+				}
+			}
+			if(degrees != null) {
+				sortByDegree(order, firstNeighbor, size, degrees);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Sorts a part of an order by the number of passages of the cells with an
+	 * insertion sort, since a cell only has a few neighbors.
+	 */
+	private static void sortByDegree(int[] order, int from, int to, int[] degrees) {
+		for(int i = from + 1; i < to; i++) {
+			int cell = order[i];
+			int j = i - 1;
+			while(j >= from && degrees[order[j]] > degrees[cell]) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = cell;
+		}
+	}
+
+	/**
+	 * @return the Hilbert curve position of a cell of a square of the given side
+	 */
+	private static long hilbertDistance(int side, int x, int y) {
+		long distance = 0;
+		for(int s = side / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			distance += (long)s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant so that the curve continues where the last one ended
+			if(ry == 0) {
+				if(rx == 1) {
+					x = s - 1 - x;
+					y = s - 1 - y;
+				}
+				int tmp = x;
+				x = y;
+				y = tmp;
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Determines the cell at a position of the Hilbert curve of a square of the given side.
+	 *
+	 * @param point - receives the column and the row of the cell
+	 */
+	private static void hilbertPoint(int side, long distance, int[] point) {
+		int x = 0;
+		int y = 0;
+		for(int s = 1; s < side; s *= 2) {
+			int rx = (int)(1 & (distance / 2));
+			int ry = (int)(1 & (distance ^ rx));
+			if(ry == 0) {
+				if(rx == 1) {
+					x = s - 1 - x;
+					y = s - 1 - y;
+				}
+				int tmp = x;
+				x = y;
+				y = tmp;
+			}
+			x += s * rx;
+			y += s * ry;
+			distance /= 4;
+		}
+		point[0] = x;
+		point[1] = y;
+	}
+
+}
@@ -0,0 +1,161 @@
+import java.util.Random;
+
+/**
+ * The CellOrderingBenchmark class measures how the order of the cells of a
+ * maze affects searches. It builds a grid maze with random passage times,
+ * shuffles its cells to imitate cell ids that are unrelated to the layout of
+ * the maze, and reorders the shuffled graph with every CellOrdering. For every
+ * order it reports the average index difference of the ends of a passage, the
+ * average number of cache lines read to expand a cell (an estimate of the
+ * cache misses of a search, since Java cannot read the hardware counters),
+ * and the measured throughput of shortest route queries and of breadth-first
+ * searches over the whole maze.
+ *
+ * Usage: java CellOrderingBenchmark [width] [height] [queries]
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class CellOrderingBenchmark {
+	// private class constants
+	private final static int WARMUP_ROUNDS = 2;
+	private final static int SWEEPS = 5; // breadth-first searches over the whole maze per measurement
+
+	private CellOrderingBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark and prints one line per order.
+	 *
+	 * @param args - the width and height of the grid and the number of route queries
+	 */
+	public static void main(String[] args) {
+		int width = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+		int height = args.length > 1 ? Integer.parseInt(args[1]) : 512;
+		int queries = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		Random random = new Random(49);
+		GridMaze grid = buildGrid(width, height, random);
+		int[] shuffle = new int[grid.cellCount()];
+		for(int i = 0; i < shuffle.length; i++) {
+			shuffle[i] = i;
+		}
+		for(int i = shuffle.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = shuffle[i];
+			shuffle[i] = shuffle[j];
+			shuffle[j] = tmp;
+		}
+		MazeGraph shuffled = MazeGraph.copyOf(grid, shuffle);
+		int[][] pairs = new int[queries][2];
+		for(int[] pair : pairs) {
+			pair[0] = random.nextInt(grid.cellCount());
+			pair[1] = random.nextInt(grid.cellCount());
+		}
+		// compile the searches before the first measurement
+		for(int round = 0; round < WARMUP_ROUNDS; round++) {
+			measure(shuffled, shuffle, pairs);
+		}
+		System.out.println(width + " x " + height + " grid, " + grid.passageCount() + " passages, "
+				+ queries + " route queries");
+		System.out.println(String.format("%-22s %12s %16s %14s %14s", "order", "average gap",
+				"lines per cell", "routes/s", "sweeps/s"));
+		// the queries name cells by their index in the row-major grid
+		int[] rowMajor = identity(grid.cellCount());
+		report("row-major", MazeGraph.copyOf(grid, rowMajor), rowMajor, pairs);
+		report("shuffled", shuffled, shuffle, pairs);
+		int[] breadthFirst = compose(shuffle, CellOrdering.breadthFirst(shuffled));
+		report("breadth-first", MazeGraph.copyOf(grid, breadthFirst), breadthFirst, pairs);
+		int[] cuthillMcKee = compose(shuffle, CellOrdering.reverseCuthillMcKee(shuffled));
+		report("reverse Cuthill-McKee", MazeGraph.copyOf(grid, cuthillMcKee), cuthillMcKee, pairs);
+		int[] hilbert = CellOrdering.hilbert(grid);
+		report("Hilbert", MazeGraph.copyOf(grid, hilbert), hilbert, pairs);
+	}
+
+	/**
+	 * Builds a grid in which most neighbors are connected, with random times.
+	 */
+	private static GridMaze buildGrid(int width, int height, Random random) {
+		GridMaze grid = new GridMaze(width, height, true);
+		for(int x = 0; x < width; x++) {
+			for(int y = 0; y < height; y++) {
+				grid.setTime(x, y, 1 + random.nextInt(9));
+				if(x + 1 < width && random.nextInt(10) < 9) {
+					grid.connect(x, y, GridMaze.EAST);
+				}
+				if(y + 1 < height && random.nextInt(10) < 9) {
+					grid.connect(x, y, GridMaze.SOUTH);
+				}
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Measures one order of the grid and prints the results.
+	 *
+	 * @param name - the name of the order
+	 * @param graph - the grid stored in the order
+	 * @param order - the grid index of the cell at every position of the graph
+	 * @param pairs - the grid indices of the start and destination of every query
+	 */
+	private static void report(String name, PassageGraph graph, int[] order, int[][] pairs) {
+		double[] throughput = measure(graph, order, pairs);
+		System.out.println(String.format("%-22s %12.1f %16.2f %14.0f %14.2f", name,
+				CellOrdering.averageGap(graph), CellOrdering.cacheLinesPerCell(graph),
+				throughput[0], throughput[1]));
+	}
+
+	/**
+	 * Measures the throughput of route queries and whole-maze searches.
+	 *
+	 * @return the route queries per second and the searches per second
+	 */
+	private static double[] measure(PassageGraph graph, int[] order, int[][] pairs) {
+		int[] positions = new int[order.length];
+		for(int i = 0; i < order.length; i++) {
+			positions[order[i]] = i;
+		}
+		BidirectionalRouter router = new BidirectionalRouter(graph);
+		HopDistanceSearch search = new HopDistanceSearch(graph);
+		long checksum = 0;
+		long start = System.nanoTime();
+		for(int[] pair : pairs) {
+			int[] route = router.route(positions[pair[0]], positions[pair[1]]);
+			checksum += route == null ? 0 : router.lastTravelTime();
+		}
+		long middle = System.nanoTime();
+		for(int sweep = 0; sweep < SWEEPS; sweep++) {
+			checksum += search.run(new int[] {positions[sweep]})[positions[0]];
+		}
+		long end = System.nanoTime();
+		if(checksum == Long.MIN_VALUE) {
+			System.out.println(); // keeps the searches from being optimized away
+		}
+		return new double[] {pairs.length * 1e9 / (middle - start), SWEEPS * 1e9 / (end - middle)};
+	}
+
+	/**
+	 * @return the order that keeps every cell in place
+	 */
+	private static int[] identity(int cellCount) {
+		int[] order = new int[cellCount];
+		for(int i = 0; i < cellCount; i++) {
+			order[i] = i;
+		}
+		return order;
+	}
+
+	/**
+	 * Combines an order of the grid with an order of the graph it produced.
+	 *
+	 * @return the grid index of the cell at every position of the second order
+	 */
+	private static int[] compose(int[] first, int[] second) {
+		int[] order = new int[second.length];
+		for(int i = 0; i < second.length; i++) {
+			order[i] = first[second[i]];
+		}
+		return order;
+	}
+
+}
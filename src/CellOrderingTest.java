@@ -0,0 +1,259 @@
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the CellOrdering class. This class tests all public
+ * methods of the CellOrdering class, MazeGraph.copyOf() and Maze.reorderCells()
+ * for proper and expected functionality.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class CellOrderingTest {
+
+	/**
+	 * Builds a grid in which most neighbors are connected, with random times.
+	 */
+	private GridMaze buildGrid(int width, int height, Random random) {
+		GridMaze grid = new GridMaze(width, height, true);
+		for(int x = 0; x < width; x++) {
+			for(int y = 0; y < height; y++) {
+				grid.setTime(x, y, 1 + random.nextInt(9));
+				if(x + 1 < width && random.nextInt(10) < 8) {
+					grid.connect(x, y, GridMaze.EAST);
+				}
+				if(y + 1 < height && random.nextInt(10) < 8) {
+					grid.connect(x, y, GridMaze.SOUTH);
+				}
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Shuffles the cells of a grid.
+	 */
+	private MazeGraph shuffle(GridMaze grid, Random random) {
+		int[] order = new int[grid.cellCount()];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		for(int i = order.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		return MazeGraph.copyOf(grid, order);
+	}
+
+	/**
+	 * Checks that an order lists every cell once.
+	 */
+	private void assertPermutation(String message, int[] order, int cellCount) {
+		assertEquals(message, cellCount, order.length);
+		boolean[] isListed = new boolean[cellCount];
+		for(int cell : order) {
+			assertFalse(message, isListed[cell]);
+			isListed[cell] = true;
+		}
+	}
+
+	/**
+	 * Tests that the orders list every cell once and place neighbors closer
+	 * together than random ids do.
+	 */
+	@Test
+	public void testOrders() {
+		Random random = new Random(49);
+		GridMaze grid = buildGrid(30, 20, random);
+		MazeGraph shuffled = shuffle(grid, random);
+		double shuffledGap = CellOrdering.averageGap(shuffled);
+		int[] breadthFirst = CellOrdering.order(shuffled, CellOrdering.BREADTH_FIRST);
+		assertPermutation("breadthFirst() does not list every cell once", breadthFirst, grid.cellCount());
+		assertTrue("breadthFirst() does not place neighbors together",
+				CellOrdering.averageGap(MazeGraph.copyOf(shuffled, breadthFirst)) < shuffledGap / 4);
+		int[] cuthillMcKee = CellOrdering.order(shuffled, CellOrdering.REVERSE_CUTHILL_MCKEE);
+		assertPermutation("reverseCuthillMcKee() does not list every cell once", cuthillMcKee, grid.cellCount());
+		assertTrue("reverseCuthillMcKee() does not place neighbors together",
+				CellOrdering.averageGap(MazeGraph.copyOf(shuffled, cuthillMcKee)) < shuffledGap / 4);
+		int[] hilbert = CellOrdering.hilbert(grid);
+		assertPermutation("hilbert() does not list every cell once", hilbert, grid.cellCount());
+		assertTrue("hilbert() does not keep cells together",
+				CellOrdering.cacheLinesPerCell(MazeGraph.copyOf(grid, hilbert)) < CellOrdering.cacheLinesPerCell(grid));
+		double shuffledLines = CellOrdering.cacheLinesPerCell(shuffled);
+		assertTrue("breadthFirst() does not read fewer cache lines than a shuffled order",
+				CellOrdering.cacheLinesPerCell(MazeGraph.copyOf(shuffled, breadthFirst)) < shuffledLines);
+		assertTrue("reverseCuthillMcKee() does not read fewer cache lines than a shuffled order",
+				CellOrdering.cacheLinesPerCell(MazeGraph.copyOf(shuffled, cuthillMcKee)) < shuffledLines);
+		// a corridor of two cache lines reads both lines only from the cells at their boundary
+		GridMaze corridor = new GridMaze(32, 1, false);
+		for(int x = 0; x + 1 < 32; x++) {
+			corridor.connect(x, 0, GridMaze.EAST);
+		}
+		assertEquals("cacheLinesPerCell() is incorrect", 34.0 / 32, CellOrdering.cacheLinesPerCell(corridor), 1e-12);
+		// on a square of a power of two side, the Hilbert curve moves between neighbors only
+		GridMaze square = new GridMaze(8, 8, false);
+		hilbert = CellOrdering.hilbert(square);
+		for(int i = 1; i < hilbert.length; i++) {
+			int distance = Math.abs(square.x(hilbert[i]) - square.x(hilbert[i - 1]))
+					+ Math.abs(square.y(hilbert[i]) - square.y(hilbert[i - 1]));
+			assertEquals("hilbert() does not follow the curve", 1, distance);
+		}
+		try {
+			CellOrdering.order(grid, 7);
+			fail("order() accepted an unknown ordering");
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Tests that copyOf() keeps the passages of a graph in the new order.
+	 */
+	@Test
+	public void testCopyOf() {
+		try {
+			Random random = new Random(293);
+			GridMaze grid = buildGrid(12, 9, random);
+			int[] order = CellOrdering.reverseCuthillMcKee(grid);
+			MazeGraph copy = MazeGraph.copyOf(grid, order);
+			assertEquals("copyOf() changes the number of passages", grid.passageCount(), copy.passageCount());
+			Maze original = new Maze();
+			original.addGraph(grid);
+			Maze reordered = new Maze();
+			reordered.addGraph(copy);
+			for(int i = 0; i < 20; i++) {
+				int from = random.nextInt(grid.cellCount());
+				int to = random.nextInt(grid.cellCount());
+				int[] positions = new int[order.length];
+				for(int p = 0; p < order.length; p++) {
+					positions[order[p]] = p;
+				}
+				assertEquals("copyOf() changes the travel times",
+						original.distancesFrom(grid.cellAt(from)).distance(grid.cellAt(to)),
+						reordered.distancesFrom(copy.cellAt(positions[from])).distance(copy.cellAt(positions[to])));
+			}
+			try {
+				MazeGraph.copyOf(grid, new int[] {0, 0});
+				fail("copyOf() accepted an order that is not a permutation");
+			} catch(IllegalArgumentException e) {
+				// expected
+			}
+		} catch(UninitializedObjectException e) {
+			fail("copyOf() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests that reorderCells() keeps every answer about the MazeCells of a Maze.
+	 */
+	@Test
+	public void testReorderCells() {
+		try {
+			// build a ring of MazeCells with a shortcut
+			MazeCell[] cells = new MazeCell[50];
+			for(int i = 0; i < cells.length; i++) {
+				cells[i] = new MazeCell();
+			}
+			for(int i = 0; i < cells.length; i++) {
+				Map<MazeCell, Integer> passages = new HashMap<MazeCell, Integer>();
+				passages.put(cells[(i + 1) % cells.length], 1 + i % 3);
+				if(i == 10) {
+					passages.put(cells[30], 4);
+				}
+				cells[i].addPassages(passages, new MazeCell.Status());
+			}
+			Set<MazeCell> set = new HashSet<MazeCell>();
+			for(MazeCell cell : cells) {
+				set.add(cell);
+			}
+			Maze maze = new Maze();
+			maze.addCells(set);
+			MazeRoute before = maze.routeShortest(cells[5], cells[40]);
+			assertTrue("canReach() is incorrect before reordering", maze.canReach(cells[45], cells[3]));
+			assertTrue("reorderCells() does not renumber a Maze of MazeCells",
+					maze.reorderCells(CellOrdering.REVERSE_CUTHILL_MCKEE));
+			assertEquals("reorderCells() changes the shortest route",
+					before.getCells(), maze.routeShortest(cells[5], cells[40]).getCells());
+			assertTrue("reorderCells() changes the reachability", maze.canReach(cells[45], cells[3]));
+			assertEquals("reorderCells() changes the incoming passages",
+					Integer.valueOf(4), maze.incomingPassages(cells[30]).get(cells[10]));
+			assertTrue("reorderCells() does not renumber twice", maze.reorderCells(CellOrdering.BREADTH_FIRST));
+			assertEquals("reorderCells() changes the anytime route", (long)before.travelTime(),
+					maze.routeAnytime(cells[5], cells[40], 0, null).travelTime());
+			// a Maze made of a PassageGraph keeps its indices
+			Maze gridMaze = new Maze();
+			gridMaze.addGraph(new GridMaze(4, 4, false));
+			assertFalse("reorderCells() renumbers a Maze made of a PassageGraph",
+					gridMaze.reorderCells(CellOrdering.BREADTH_FIRST));
+		} catch(UninitializedObjectException e) {
+			fail("reorderCells() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests that queries on other threads keep answering correctly while the
+	 * cells of a Maze are renumbered.
+	 */
+	@Test
+	public void testReorderCellsWhileRouting() throws InterruptedException {
+		try {
+			// build a ring of MazeCells with passages both ways
+			final MazeCell[] cells = new MazeCell[300];
+			for(int i = 0; i < cells.length; i++) {
+				cells[i] = new MazeCell();
+			}
+			for(int i = 0; i < cells.length; i++) {
+				Map<MazeCell, Integer> passages = new HashMap<MazeCell, Integer>();
+				passages.put(cells[(i + 1) % cells.length], 1);
+				passages.put(cells[(i + cells.length - 1) % cells.length], 1);
+				cells[i].addPassages(passages, new MazeCell.Status());
+			}
+			Set<MazeCell> set = new HashSet<MazeCell>();
+			for(MazeCell cell : cells) {
+				set.add(cell);
+			}
+			final Maze maze = new Maze();
+			maze.addCells(set);
+			final AtomicBoolean isDone = new AtomicBoolean();
+			final AtomicReference<String> failure = new AtomicReference<String>();
+			Thread router = new Thread() {
+				@Override
+				public void run() {
+					try {
+						while(!isDone.get()) {
+							MazeRoute route = maze.routeShortest(cells[10], cells[110]);
+							if(route.travelTime() != 100 || !route.getCells().get(0).equals(cells[10])) {
+								failure.compareAndSet(null, "a route is incorrect during reordering");
+							}
+						}
+					} catch(RuntimeException e) {
+						failure.compareAndSet(null, e.toString());
+					} catch(UninitializedObjectException e) {
+						failure.compareAndSet(null, e.toString());
+					}
+				}
+			};
+			router.start();
+			for(int i = 0; i < 40; i++) {
+				maze.reorderCells(i % 2 == 0 ? CellOrdering.BREADTH_FIRST : CellOrdering.REVERSE_CUTHILL_MCKEE);
+			}
+			isDone.set(true);
+			router.join();
+			assertNull("routeShortest() fails while the cells are renumbered", failure.get());
+		} catch(UninitializedObjectException e) {
+			fail("reorderCells() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+/**
+ * The CellPriorityQueue class is a binary min-heap of cell indices ordered by a
+ * long priority. It stores only primitives so that shortest-path searches do not
+ * allocate an object per queued cell. A cell may be queued more than once; callers
+ * skip entries whose priority no longer matches the best known value.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class CellPriorityQueue {
+	// private class variables
+	private long[] priorities;
+	private int[] cells;
+	private int size;
+
+	/**
+	 * Constructor of the CellPriorityQueue class.
+	 *
+	 * @param capacity - the initial number of entries the queue can hold
+	 */
+	CellPriorityQueue(int capacity) {
+		capacity = Math.max(capacity, 16);
+		this.priorities = new long[capacity];
+		this.cells = new int[capacity];
+	}
+
+	/**
+	 * Adds a cell to the queue.
+	 *
+	 * @param cell - the index of the cell
+	 * @param priority - the priority of the cell, lower values leave the queue first
+	 */
+	void add(int cell, long priority) {
+		if(size == cells.length) {
+			priorities = Arrays.copyOf(priorities, size * 2);
+			cells = Arrays.copyOf(cells, size * 2);
+		}
+		// sift the new entry up from the bottom of the heap
+		int position = size++;
+		while(position > 0) {
+			int parent = (position - 1) >>> 1;
+			if(priorities[parent] <= priority) {
+				break;
+			}
+			priorities[position] = priorities[parent];
+			cells[position] = cells[parent];
+			position = parent;
+		}
+		priorities[position] = priority;
+		cells[position] = cell;
+	}
+
+	/**
+	 * @return the priority of the first cell in the queue, or Long.MAX_VALUE if the queue is empty
+	 */
+	long peekPriority() {
+		return size == 0 ? Long.MAX_VALUE : priorities[0];
+	}
+
+	/**
+	 * @return the index of the first cell in the queue
+	 */
+	int peekCell() {
+		return cells[0];
+	}
+
+	/**
+	 * Removes the first cell from the queue.
+	 *
+	 * @return the index of the removed cell
+	 */
+	int poll() {
+		int first = cells[0];
+		size--;
+		if(size > 0) {
+			// sift the last entry down from the top of the heap
+			long priority = priorities[size];
+			int cell = cells[size];
+			int position = 0;
+			int child;
+			while((child = 2 * position + 1) < size) {
+				if(child + 1 < size && priorities[child + 1] < priorities[child]) {
+					child++;
+				}
+				if(priorities[child] >= priority) {
+					break;
+				}
+				priorities[position] = priorities[child];
+				cells[position] = cells[child];
+				position = child;
+			}
+			priorities[position] = priority;
+			cells[position] = cell;
+		}
+		return first;
+	}
+
+	/**
+	 * @return true if the queue contains no cells, false otherwise
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all cells from the queue without releasing its storage.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+}
@@ -0,0 +1,432 @@
+import java.util.Arrays;
+
+/**
+ * The CorridorGraph class is a compressed view of a PassageGraph for shortest
+ * route queries between a few terminal cells, such as the exits of a maze. It
+ * is built in two steps. First, dead-end trees are pruned: a cell other than a
+ * terminal is removed if it cannot be entered, cannot be left, or only borders
+ * one other cell, since no route that visits every cell once can pass through
+ * it. Then every corridor cell, which borders exactly two cells and can be
+ * passed through in every direction it can be entered from, is contracted:
+ * each chain of corridor cells between two kept cells becomes one passage
+ * whose time is the total time of the chain. Only the shortest of several
+ * chains between the same two cells is kept.
+ *
+ * A passage of the compressed graph remembers the first cell of its chain, so
+ * a route found in the compressed graph can be expanded back to every cell of
+ * the original graph by following the corridor from there. Chains that would
+ * take IMPASSABLE time or longer are split by keeping one of their cells.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class CorridorGraph implements PassageGraph {
+	// private class variables
+	private PassageGraph graph; // the original graph
+	private MazeGraph compressed;
+	private int[] originalIndices; // original index of every compressed cell
+	private int[] compressedIndices; // compressed index of every original cell, -1 if it is not kept
+	private boolean[] isAlive; // false for the original cells of pruned dead-end trees
+	private int[] offsets; // passages of compressed cell i are stored in [offsets[i], offsets[i + 1])
+	private int[] targets; // compressed index of the cell every passage leads to
+	private int[] times; // travel time of every passage
+	private int[] firstCells; // original index of the first corridor cell of every passage, -1 if there is none
+	private ThreadLocal<BidirectionalRouter> routers;
+
+	/**
+	 * Constructor of the CorridorGraph class which compresses a graph.
+	 *
+	 * @param graph - the graph to compress
+	 * @param terminals - the indices of the cells that must be kept
+	 */
+	CorridorGraph(PassageGraph graph, int[] terminals) {
+		this.graph = graph;
+		int cellCount = graph.cellCount();
+		boolean[] isTerminal = new boolean[cellCount];
+		for(int terminal : terminals) {
+			isTerminal[terminal] = true;
+		}
+		this.isAlive = prune(isTerminal);
+		boolean[] isKept = new boolean[cellCount];
+		IntList pending = new IntList(64);
+		for(int cell = 0; cell < cellCount; cell++) {
+			if(isAlive[cell] && (isTerminal[cell] || !isCorridor(cell, isAlive))) {
+				isKept[cell] = true;
+				pending.add(cell);
+			}
+		}
+		// walk every chain, remembering the shortest one between each pair of kept cells
+		IntList sources = new IntList(pending.size() * 2);
+		IntList targets = new IntList(pending.size() * 2);
+		IntList times = new IntList(pending.size() * 2);
+		IntList firsts = new IntList(pending.size() * 2);
+		boolean[] isVisited = new boolean[cellCount];
+		int[] lastSources = new int[cellCount]; // the last source with a passage to a cell, plus one
+		int[] lastPositions = new int[cellCount]; // the position of that passage in the lists
+		int next = 0;
+		while(true) {
+			while(pending.size() > 0) {
+				int source = pending.removeLast();
+				for(int p = 0; p < graph.passageCount(source); p++) {
+					int first = graph.passageTarget(source, p);
+					if(!isAlive[first] || first == source) {
+						continue;
+					}
+					int previous = source;
+					int cell = first;
+					long time = graph.passageTime(source, p);
+					while(!isKept[cell]) {
+						isVisited[cell] = true;
+						int following = otherNeighbor(cell, previous);
+						int passageTime = originalTime(cell, following);
+						if(time + passageTime >= MazeCell.IMPASSABLE) {
+							// split the chain so that its time stays below IMPASSABLE
+							isKept[cell] = true;
+							pending.add(cell);
+							break;
+						}
+						time += passageTime;
+						previous = cell;
+						cell = following;
+					}
+					if(cell == source) {
+						continue; // a chain back to its own start is never part of a route
+					}
+					if(lastSources[cell] == source + 1) {
+						int position = lastPositions[cell];
+						if(time < times.get(position)) {
+							times.set(position, (int)time);
+							firsts.set(position, first == cell ? -1 : first);
+						}
+					} else {
+						lastSources[cell] = source + 1;
+						lastPositions[cell] = sources.size();
+						sources.add(source);
+						targets.add(cell);
+						times.add((int)time);
+						firsts.add(first == cell ? -1 : first);
+					}
+				}
+			}
+			// a cycle made only of corridor cells is kept by keeping one of its cells
+			while(next < cellCount && (!isAlive[next] || isKept[next] || isVisited[next])) {
+				next++;
+			}
+			if(next == cellCount) {
+				break;
+			}
+			isKept[next] = true;
+			pending.add(next);
+		}
+		buildCompressedGraph(isKept, sources, targets, times, firsts);
+		this.routers = new ThreadLocal<BidirectionalRouter>() {
+			@Override
+			protected BidirectionalRouter initialValue() {
+				return new BidirectionalRouter(compressed);
+			}
+		};
+	}
+
+	/**
+	 * @return the number of cells in the compressed graph
+	 */
+	@Override
+	public int cellCount() {
+		return compressed.cellCount();
+	}
+
+	/**
+	 * @return the total number of passages in the compressed graph
+	 */
+	@Override
+	public long passageCount() {
+		return compressed.passageCount();
+	}
+
+	@Override
+	public int passageCount(int cell) {
+		return compressed.passageCount(cell);
+	}
+
+	@Override
+	public int passageTarget(int cell, int passage) {
+		return compressed.passageTarget(cell, passage);
+	}
+
+	@Override
+	public int passageTime(int cell, int passage) {
+		return compressed.passageTime(cell, passage);
+	}
+
+	@Override
+	public int incomingCount(int cell) {
+		return compressed.incomingCount(cell);
+	}
+
+	@Override
+	public int incomingSource(int cell, int passage) {
+		return compressed.incomingSource(cell, passage);
+	}
+
+	@Override
+	public int incomingTime(int cell, int passage) {
+		return compressed.incomingTime(cell, passage);
+	}
+
+	/**
+	 * Determines the MazeCell of a compressed cell.
+	 *
+	 * @param index - the index of the cell in the compressed graph
+	 * @return the MazeCell of the original graph
+	 */
+	@Override
+	public MazeCell cellAt(int index) {
+		return graph.cellAt(originalIndices[index]);
+	}
+
+	/**
+	 * Determines the compressed index of a MazeCell.
+	 *
+	 * @param cell - the MazeCell to look for
+	 * @return the index of the cell in the compressed graph, or -1 if the cell was
+	 * contracted, pruned or is not in the graph
+	 */
+	@Override
+	public int indexOf(MazeCell cell) {
+		int index = graph.indexOf(cell);
+		return index < 0 ? -1 : compressedIndices[index];
+	}
+
+	/**
+	 * Finds the route with the shortest travel time between two kept cells in the
+	 * compressed graph and expands it to the original graph.
+	 *
+	 * @param start - the original index of the cell the route starts at
+	 * @param destination - the original index of the cell the route ends at
+	 * @return the original indices of every cell along the route, or null if
+	 * either cell was not kept or the destination cannot be reached
+	 */
+	int[] route(int start, int destination) {
+		if(compressedIndices[start] < 0 || compressedIndices[destination] < 0) {
+			return null;
+		}
+		int[] cells = routers.get().route(compressedIndices[start], compressedIndices[destination]);
+		return cells == null ? null : expand(cells);
+	}
+
+	/**
+	 * Expands a route of the compressed graph to the original graph.
+	 *
+	 * @param cells - the compressed indices of the cells along the route
+	 * @return the original indices of every cell along the route
+	 */
+	int[] expand(int[] cells) {
+		IntList expanded = new IntList(cells.length * 4);
+		if(cells.length > 0) {
+			expanded.add(originalIndices[cells[0]]);
+		}
+		for(int i = 0; i + 1 < cells.length; i++) {
+			int source = originalIndices[cells[i]];
+			int target = originalIndices[cells[i + 1]];
+			int first = firstCell(cells[i], cells[i + 1]);
+			int previous = source;
+			for(int cell = first; cell != -1 && cell != target; ) {
+				expanded.add(cell);
+				int following = otherNeighbor(cell, previous);
+				previous = cell;
+				cell = following;
+			}
+			expanded.add(target);
+		}
+		return expanded.toArray();
+	}
+
+	/**
+	 * Removes dead-end trees until every remaining cell other than a terminal can
+	 * be entered, can be left and borders at least two cells.
+	 *
+	 * @return true for every cell that remains
+	 */
+	private boolean[] prune(boolean[] isTerminal) {
+		int cellCount = graph.cellCount();
+		boolean[] isAlive = new boolean[cellCount];
+		Arrays.fill(isAlive, true);
+		IntList pending = new IntList(cellCount);
+		for(int cell = cellCount - 1; cell >= 0; cell--) {
+			pending.add(cell);
+		}
+		int[] neighbors = new int[2];
+		while(pending.size() > 0) {
+			int cell = pending.removeLast();
+			if(!isAlive[cell] || isTerminal[cell]) {
+				continue;
+			}
+			if(liveCount(cell, true, isAlive) > 0 && liveCount(cell, false, isAlive) > 0
+					&& neighbors(cell, isAlive, neighbors) > 1) {
+				continue;
+			}
+			isAlive[cell] = false;
+			for(int p = 0; p < graph.passageCount(cell); p++) {
+				pending.add(graph.passageTarget(cell, p));
+			}
+			for(int p = 0; p < graph.incomingCount(cell); p++) {
+				pending.add(graph.incomingSource(cell, p));
+			}
+		}
+		return isAlive;
+	}
+
+	/**
+	 * Checks whether a cell is a corridor cell: it borders exactly two live cells
+	 * and can be left towards one of them whenever it is entered from the other.
+	 */
+	private boolean isCorridor(int cell, boolean[] isAlive) {
+		int[] neighbors = new int[2];
+		if(neighbors(cell, isAlive, neighbors) != 2) {
+			return false;
+		}
+		for(int p = 0; p < graph.incomingCount(cell); p++) {
+			int source = graph.incomingSource(cell, p);
+			if(source == cell) {
+				return false;
+			}
+			if(isAlive[source] && originalTime(cell, source == neighbors[0] ? neighbors[1] : neighbors[0])
+					== MazeCell.IMPASSABLE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the distinct live cells a cell has passages to or from, not counting
+	 * itself, and stores the first two of them.
+	 *
+	 * @return the number of neighbors, but at most three
+	 */
+	private int neighbors(int cell, boolean[] isAlive, int[] neighbors) {
+		int count = 0;
+		for(int direction = 0; direction < 2; direction++) {
+			boolean isOutgoing = direction == 0;
+			int passages = isOutgoing ? graph.passageCount(cell) : graph.incomingCount(cell);
+			for(int p = 0; p < passages; p++) {
+				int neighbor = isOutgoing ? graph.passageTarget(cell, p) : graph.incomingSource(cell, p);
+				if(neighbor == cell || !isAlive[neighbor]
+						|| (count > 0 && neighbors[0] == neighbor) || (count > 1 && neighbors[1] == neighbor)) {
+					continue;
+				}
+				if(count == 2) {
+					return 3;
+				}
+				neighbors[count++] = neighbor;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of passages between a cell and other live cells in one direction
+	 */
+	private int liveCount(int cell, boolean isOutgoing, boolean[] isAlive) {
+		int count = 0;
+		int passages = isOutgoing ? graph.passageCount(cell) : graph.incomingCount(cell);
+		for(int p = 0; p < passages; p++) {
+			int neighbor = isOutgoing ? graph.passageTarget(cell, p) : graph.incomingSource(cell, p);
+			if(neighbor != cell && isAlive[neighbor]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Determines where a corridor leads after a corridor cell.
+	 *
+	 * @param cell - the original index of the corridor cell
+	 * @param previous - the original index of the cell the corridor was entered from
+	 * @return the original index of the neighbor that is not the previous cell
+	 */
+	private int otherNeighbor(int cell, int previous) {
+		for(int p = 0; p < graph.passageCount(cell); p++) {
+			int target = graph.passageTarget(cell, p);
+			if(target != previous && target != cell && isAlive[target]) {
+				return target;
+			}
+		}
+		throw new IllegalStateException("A corridor cell has no way out");
+	}
+
+	/**
+	 * @return the time of the passage between two original cells, or IMPASSABLE if there is none
+	 */
+	private int originalTime(int cell, int target) {
+		for(int p = 0; p < graph.passageCount(cell); p++) {
+			if(graph.passageTarget(cell, p) == target) {
+				return graph.passageTime(cell, p);
+			}
+		}
+		return MazeCell.IMPASSABLE;
+	}
+
+	/**
+	 * Looks up the passage between two compressed cells in the arrays the
+	 * compressed graph was built from, since the MazeGraph lists the passages
+	 * of a cell in its own order. Of several corridors between the same cells,
+	 * the fastest is the one a shortest route takes.
+	 *
+	 * @return the first corridor cell of the passage between two compressed cells
+	 */
+	private int firstCell(int cell, int target) {
+		int best = -1;
+		for(int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+			if(targets[i] == target && (best == -1 || times[i] < times[best])) {
+				best = i;
+			}
+		}
+		if(best == -1) {
+			throw new IllegalStateException("The route uses a passage that is not in the graph");
+		}
+		return firstCells[best];
+	}
+
+	/**
+	 * Numbers the kept cells in their original order and sorts the chains into the
+	 * compressed sparse row form of a MazeGraph.
+	 */
+	private void buildCompressedGraph(boolean[] isKept, IntList sources, IntList targets, IntList times,
+			IntList firsts) {
+		int cellCount = graph.cellCount();
+		compressedIndices = new int[cellCount];
+		IntList kept = new IntList(64);
+		for(int cell = 0; cell < cellCount; cell++) {
+			if(isKept[cell]) {
+				compressedIndices[cell] = kept.size();
+				kept.add(cell);
+			} else {
+				compressedIndices[cell] = -1;
+			}
+		}
+		originalIndices = kept.toArray();
+		offsets = new int[originalIndices.length + 1];
+		for(int i = 0; i < sources.size(); i++) {
+			offsets[compressedIndices[sources.get(i)] + 1]++;
+		}
+		for(int cell = 0; cell < originalIndices.length; cell++) {
+			offsets[cell + 1] += offsets[cell];
+		}
+		int[] positions = Arrays.copyOf(offsets, originalIndices.length);
+		int[] graphTargets = new int[sources.size()];
+		int[] graphTimes = new int[sources.size()];
+		firstCells = new int[sources.size()];
+		for(int i = 0; i < sources.size(); i++) {
+			int position = positions[compressedIndices[sources.get(i)]]++;
+			graphTargets[position] = compressedIndices[targets.get(i)];
+			graphTimes[position] = times.get(i);
+			firstCells[position] = firsts.get(i);
+		}
+		this.targets = graphTargets;
+		this.times = graphTimes;
+		compressed = new MazeGraph(offsets, graphTargets, graphTimes);
+	}
+
+}
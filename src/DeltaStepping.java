@@ -0,0 +1,225 @@
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The DeltaStepping class computes the shortest travel time from one cell to
+ * every other cell of a PassageGraph, or from every cell to one cell when run
+ * over the incoming passages. Cells are kept in buckets of width delta by their
+ * tentative travel time. The smallest bucket is repeatedly emptied by relaxing
+ * the light passages (time at most delta) of all its cells in parallel, after
+ * which the heavy passages of every cell settled in the bucket are relaxed in
+ * parallel once. Travel times are updated without locks by compare-and-set on
+ * an int array. A travel time that does not fit below MazeCell.IMPASSABLE is
+ * not recorded, so a cell that is only reached by such routes is IMPASSABLE.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class DeltaStepping {
+	// private class constants
+	private final static int PARALLEL_THRESHOLD = 1024; // smaller frontiers are relaxed by the calling thread
+
+	// private class variables
+	private PassageGraph graph;
+	private boolean isBackward;
+	private int delta;
+	private ForkJoinPool pool;
+	private AtomicIntegerArray times;
+	private TreeMap<Integer, IntList> buckets;
+
+	/**
+	 * Constructor of the DeltaStepping class.
+	 *
+	 * @param graph - the graph to search
+	 * @param isBackward - true to follow incoming passages, giving travel times to the source
+	 * @param delta - the bucket width, or a non-positive value to use the average passage time
+	 * @param pool - the pool that relaxes large frontiers
+	 */
+	DeltaStepping(PassageGraph graph, boolean isBackward, int delta, ForkJoinPool pool) {
+		this.graph = graph;
+		this.isBackward = isBackward;
+		this.delta = delta > 0 ? delta : averagePassageTime(graph);
+		this.pool = pool;
+	}
+
+	/**
+	 * Computes the travel time between the source and every cell.
+	 *
+	 * @param source - the index of the source cell
+	 * @return the travel time of every cell, MazeCell.IMPASSABLE if it cannot be reached
+	 */
+	int[] run(int source) {
+		int cellCount = graph.cellCount();
+		times = new AtomicIntegerArray(cellCount);
+		for(int i = 0; i < cellCount; i++) {
+			times.set(i, MazeCell.IMPASSABLE);
+		}
+		buckets = new TreeMap<Integer, IntList>();
+		times.set(source, 0);
+		addToBucket(source, 0);
+		IntList settled = new IntList(64);
+		while(!buckets.isEmpty()) {
+			int bucket = buckets.firstKey();
+			settled.clear();
+			// light passages may put cells back into the current bucket
+			while(buckets.containsKey(bucket)) {
+				int[] frontier = currentMembers(bucket, buckets.remove(bucket));
+				for(int cell : frontier) {
+					settled.add(cell);
+				}
+				distribute(relax(frontier, 0, frontier.length, true));
+			}
+			int[] finished = settled.toArray();
+			distribute(relax(finished, 0, finished.length, false));
+		}
+		int[] result = new int[cellCount];
+		for(int i = 0; i < cellCount; i++) {
+			result[i] = times.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Removes cells whose travel time has dropped into an earlier bucket since
+	 * they were added.
+	 *
+	 * @param bucket - the number of the bucket
+	 * @param members - the cells added to the bucket
+	 * @return the cells that still belong to the bucket
+	 */
+	private int[] currentMembers(int bucket, IntList members) {
+		IntList current = new IntList(members.size());
+		for(int i = 0; i < members.size(); i++) {
+			int cell = members.get(i);
+			if(times.get(cell) / delta == bucket) {
+				current.add(cell);
+			}
+		}
+		return current.toArray();
+	}
+
+	/**
+	 * Relaxes either the light or the heavy passages of a range of cells, splitting
+	 * large ranges across the pool.
+	 *
+	 * @return the cells whose travel time was lowered
+	 */
+	private IntList relax(int[] cells, int from, int to, boolean isLight) {
+		if(to - from <= PARALLEL_THRESHOLD) {
+			return relaxRange(cells, from, to, isLight);
+		}
+		return pool.invoke(new RelaxTask(cells, from, to, isLight));
+	}
+
+	/**
+	 * Relaxes the passages of a range of cells on the calling thread.
+	 *
+	 * @return the cells whose travel time was lowered
+	 */
+	private IntList relaxRange(int[] cells, int from, int to, boolean isLight) {
+		IntList improved = new IntList(16);
+		for(int i = from; i < to; i++) {
+			int cell = cells[i];
+			int time = times.get(cell);
+			int count = isBackward ? graph.incomingCount(cell) : graph.passageCount(cell);
+			for(int p = 0; p < count; p++) {
+				int passageTime = isBackward ? graph.incomingTime(cell, p) : graph.passageTime(cell, p);
+				if((passageTime <= delta) != isLight) {
+					continue;
+				}
+				int next = isBackward ? graph.incomingSource(cell, p) : graph.passageTarget(cell, p);
+				long longTime = (long)time + passageTime;
+				if(longTime >= MazeCell.IMPASSABLE) {
+					continue; // the travel time overflows, so the route is not recorded
+				}
+				int nextTime = (int)longTime;
+				// lower the travel time unless another thread lowered it further
+				int current = times.get(next);
+				while(nextTime < current) {
+					if(times.compareAndSet(next, current, nextTime)) {
+						improved.add(next);
+						break;
+					}
+					current = times.get(next);
+				}
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * Adds cells with lowered travel times to the buckets of their new times.
+	 */
+	private void distribute(IntList improved) {
+		for(int i = 0; i < improved.size(); i++) {
+			int cell = improved.get(i);
+			addToBucket(cell, times.get(cell));
+		}
+	}
+
+	/**
+	 * Adds a cell to the bucket of its travel time.
+	 */
+	private void addToBucket(int cell, int time) {
+		int bucket = time / delta;
+		IntList members = buckets.get(bucket);
+		if(members == null) {
+			members = new IntList(16);
+			buckets.put(bucket, members);
+		}
+		members.add(cell);
+	}
+
+	/**
+	 * @return the average passage time of the graph rounded up, at least one
+	 */
+	private static int averagePassageTime(PassageGraph graph) {
+		long total = 0;
+		long count = 0;
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			for(int p = 0; p < graph.passageCount(cell); p++) {
+				total += graph.passageTime(cell, p);
+				count++;
+			}
+		}
+		if(count == 0) {
+			return 1;
+		}
+		return (int)Math.max(1, (total + count - 1) / count);
+	}
+
+	/**
+	 * The RelaxTask class relaxes a range of cells by splitting it in halves
+	 * until the halves are small enough to be relaxed directly.
+	 */
+	private class RelaxTask extends RecursiveTask<IntList> {
+		private static final long serialVersionUID = 1L;
+		private int[] cells;
+		private int from;
+		private int to;
+		private boolean isLight;
+
+		RelaxTask(int[] cells, int from, int to, boolean isLight) {
+			this.cells = cells;
+			this.from = from;
+			this.to = to;
+			this.isLight = isLight;
+		}
+
+		@Override
+		protected IntList compute() {
+			if(to - from <= PARALLEL_THRESHOLD) {
+				return relaxRange(cells, from, to, isLight);
+			}
+			int middle = (from + to) >>> 1;
+			RelaxTask left = new RelaxTask(cells, from, middle, isLight);
+			left.fork();
+			IntList improved = new RelaxTask(cells, middle, to, isLight).compute();
+			improved.addAll(left.join());
+			return improved;
+		}
+	}
+
+}
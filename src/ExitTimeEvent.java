@@ -0,0 +1,43 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The ExitTimeEvent class is a Java Flight Recorder event describing one call
+ * of Maze.averageExitTime(). Its fields are only filled in when the event is
+ * enabled and lasted longer than its threshold.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+@Name("maze.AverageExitTime")
+@Label("Maze Average Exit Time")
+@Category("Maze")
+@Description("The walks from every cell of a Maze to its exit")
+class ExitTimeEvent extends Event {
+	// termination reasons
+	final static String COMPLETE = "complete";
+	final static String UNREACHABLE = "exit unreachable";
+	final static String NOT_FOUND = "exit not found";
+
+	@Label("Maze ID")
+	int mazeId;
+
+	@Label("Selector")
+	Class<?> selector;
+
+	@Label("Cells Walked")
+	long cells;
+
+	@Label("Steps")
+	@Description("The number of passages taken by all walks")
+	long steps;
+
+	@Label("Termination Reason")
+	String terminationReason;
+
+	@Label("Average Exit Time")
+	double averageExitTime;
+}
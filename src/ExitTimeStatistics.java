@@ -0,0 +1,205 @@
+/**
+ * The ExitTimeStatistics class summarizes the times needed to exit a Maze from
+ * many cells. It keeps the number of times, their sum, mean, variance, minimum
+ * and maximum in 64-bit accumulators, counts the cells that could not exit, and
+ * records every time in a histogram with logarithmic buckets so that percentiles
+ * can be estimated within 12.5 percent. Statistics gathered separately, for
+ * example by different threads, are combined with merge().
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class ExitTimeStatistics {
+	// private class constants
+	private final static int LINEAR_BUCKETS = 16; // times below this value have a bucket of their own
+	private final static int SUB_BUCKET_BITS = 3; // each power of two is split into 8 buckets
+	private final static int BUCKET_COUNT = LINEAR_BUCKETS + (63 - 4) * (1 << SUB_BUCKET_BITS);
+
+	// private class variables
+	private long count;
+	private long impassableCount;
+	private long total;
+	private double mean;
+	private double squaredDeviations; // sum of squared differences from the mean
+	private long minimum;
+	private long maximum;
+	private long[] buckets;
+
+	/**
+	 * Constructor of the ExitTimeStatistics class which creates statistics
+	 * without any recorded times.
+	 */
+	public ExitTimeStatistics() {
+		this.minimum = Long.MAX_VALUE;
+		this.maximum = Long.MIN_VALUE;
+		this.buckets = new long[BUCKET_COUNT];
+	}
+
+	/**
+	 * Records the time needed to exit from one cell.
+	 *
+	 * @param time - a non-negative exit time
+	 */
+	public void record(long time) {
+		count++;
+		total += time;
+		// update the mean and the squared deviations incrementally (Welford's method)
+		double difference = time - mean;
+		mean += difference / count;
+		squaredDeviations += difference * (time - mean);
+		minimum = Math.min(minimum, time);
+		maximum = Math.max(maximum, time);
+		buckets[bucketOf(time)]++;
+	}
+
+	/**
+	 * Records a cell from which the exit could not be reached.
+	 */
+	public void recordImpassable() {
+		impassableCount++;
+	}
+
+	/**
+	 * Adds all times recorded by other statistics to these statistics.
+	 *
+	 * @param other - the statistics to add
+	 */
+	public void merge(ExitTimeStatistics other) {
+		if(other.count > 0) {
+			long combined = count + other.count;
+			double difference = other.mean - mean;
+			// combine the squared deviations of both parts (Chan's method)
+			squaredDeviations += other.squaredDeviations
+					+ difference * difference * ((double)count * other.count / combined);
+			mean += difference * other.count / combined;
+			count = combined;
+			total += other.total;
+			minimum = Math.min(minimum, other.minimum);
+			maximum = Math.max(maximum, other.maximum);
+			for(int i = 0; i < BUCKET_COUNT; i++) {
+				buckets[i] += other.buckets[i];
+			}
+		}
+		impassableCount += other.impassableCount;
+	}
+
+	/**
+	 * @return the number of recorded exit times
+	 */
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * @return the number of cells from which the exit could not be reached
+	 */
+	public long impassableCount() {
+		return impassableCount;
+	}
+
+	/**
+	 * @return the sum of all recorded exit times
+	 */
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * @return the mean of the recorded exit times, or 0 if no time was recorded
+	 */
+	public double mean() {
+		return count == 0 ? 0.0 : (double)total / count;
+	}
+
+	/**
+	 * @return the population variance of the recorded exit times, or 0 if no time was recorded
+	 */
+	public double variance() {
+		return count == 0 ? 0.0 : squaredDeviations / count;
+	}
+
+	/**
+	 * @return the smallest recorded exit time, or MazeCell.IMPASSABLE if no time was recorded
+	 */
+	public long min() {
+		return count == 0 ? MazeCell.IMPASSABLE : minimum;
+	}
+
+	/**
+	 * @return the largest recorded exit time, or MazeCell.IMPASSABLE if no time was recorded
+	 */
+	public long max() {
+		return count == 0 ? MazeCell.IMPASSABLE : maximum;
+	}
+
+	/**
+	 * Estimates a percentile of the recorded exit times. The estimate is the
+	 * largest time of the histogram bucket containing the percentile, limited to
+	 * the recorded maximum, so it is never below the exact percentile.
+	 *
+	 * @param percentile - the percentile between 0 and 100, for example 99 for p99
+	 * @return the estimated exit time, or MazeCell.IMPASSABLE if no time was recorded
+	 */
+	public long percentile(double percentile) {
+		if(count == 0) {
+			return MazeCell.IMPASSABLE;
+		}
+		long rank = (long)Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * count);
+		rank = Math.max(1, rank);
+		long seen = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			seen += buckets[i];
+			if(seen >= rank) {
+				return Math.max(minimum, Math.min(maximum, bucketUpperBound(i)));
+			}
+		}
+		return maximum;
+	}
+
+	/**
+	 * Creates a String showing the main statistics.
+	 *
+	 * @return a String representation of the statistics
+	 */
+	@Override
+	public String toString() {
+		if(count == 0) {
+			return "no exit times, " + impassableCount + " impassable";
+		}
+		return "count " + count + ", impassable " + impassableCount + ", mean " + mean()
+				+ ", variance " + variance() + ", min " + minimum + ", p50 " + percentile(50)
+				+ ", p95 " + percentile(95) + ", p99 " + percentile(99) + ", max " + maximum;
+	}
+
+	/**
+	 * Determines the histogram bucket of a time.
+	 *
+	 * @param time - a non-negative time
+	 * @return the index of the bucket
+	 */
+	private static int bucketOf(long time) {
+		if(time < LINEAR_BUCKETS) {
+			return (int)Math.max(0, time);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(time);
+		int subBucket = (int)(time >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+		return LINEAR_BUCKETS + ((exponent - 4) << SUB_BUCKET_BITS) + subBucket;
+	}
+
+	/**
+	 * Determines the largest time that falls into a histogram bucket.
+	 *
+	 * @param bucket - the index of the bucket
+	 * @return the largest time of the bucket
+	 */
+	private static long bucketUpperBound(int bucket) {
+		if(bucket < LINEAR_BUCKETS) {
+			return bucket;
+		}
+		int exponent = ((bucket - LINEAR_BUCKETS) >>> SUB_BUCKET_BITS) + 4;
+		long subBucket = (bucket - LINEAR_BUCKETS) & ((1 << SUB_BUCKET_BITS) - 1);
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return (1L << exponent) + (subBucket + 1) * width - 1;
+	}
+
+}
@@ -0,0 +1,91 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the ExitTimeStatistics class. This class tests all public
+ * methods of the ExitTimeStatistics class for proper and expected functionality.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class ExitTimeStatisticsTest {
+
+	/**
+	 * Tests statistics without any recorded times.
+	 */
+	@Test
+	public void testEmpty() {
+		ExitTimeStatistics statistics = new ExitTimeStatistics();
+		statistics.recordImpassable();
+		assertEquals("count() is incorrect without times", 0, statistics.count());
+		assertEquals("impassableCount() is incorrect", 1, statistics.impassableCount());
+		assertEquals("mean() is incorrect without times", 0.0, statistics.mean(), 0.0);
+		assertEquals("min() is incorrect without times", MazeCell.IMPASSABLE, statistics.min());
+		assertEquals("percentile() is incorrect without times", MazeCell.IMPASSABLE, statistics.percentile(99));
+	}
+
+	/**
+	 * Tests that times larger than an int are accumulated without overflow.
+	 */
+	@Test
+	public void testLargeTimes() {
+		ExitTimeStatistics statistics = new ExitTimeStatistics();
+		statistics.record(Integer.MAX_VALUE - 1);
+		statistics.record(Integer.MAX_VALUE - 1);
+		statistics.record(1);
+		assertEquals("total() overflowed", 2L * (Integer.MAX_VALUE - 1) + 1, statistics.total());
+		assertEquals("mean() was truncated", (2.0 * (Integer.MAX_VALUE - 1) + 1) / 3, statistics.mean(), 1e-6);
+		assertEquals("max() is incorrect", Integer.MAX_VALUE - 1, statistics.max());
+	}
+
+	/**
+	 * Tests the percentile estimates against exact percentiles.
+	 */
+	@Test
+	public void testPercentile() {
+		ExitTimeStatistics statistics = new ExitTimeStatistics();
+		for(int time = 1; time <= 10000; time++) {
+			statistics.record(time);
+		}
+		assertEquals("percentile() is incorrect for the minimum", 1, statistics.percentile(0));
+		assertEquals("percentile() is incorrect for the maximum", 10000, statistics.percentile(100));
+		long[] exact = {5000, 9500, 9900};
+		double[] percentiles = {50, 95, 99};
+		for(int i = 0; i < exact.length; i++) {
+			long estimate = statistics.percentile(percentiles[i]);
+			assertTrue("percentile() is below the exact percentile", estimate >= exact[i]);
+			assertTrue("percentile() is more than 12.5 percent above the exact percentile",
+					estimate <= exact[i] * 1.125);
+		}
+	}
+
+	/**
+	 * Tests that merged statistics equal statistics recorded in one piece.
+	 */
+	@Test
+	public void testMerge() {
+		ExitTimeStatistics whole = new ExitTimeStatistics();
+		ExitTimeStatistics first = new ExitTimeStatistics();
+		ExitTimeStatistics second = new ExitTimeStatistics();
+		for(int time = 0; time < 1000; time++) {
+			long value = (time * 7919L) % 1013;
+			whole.record(value);
+			if(time < 300) {
+				first.record(value);
+			} else {
+				second.record(value);
+			}
+		}
+		second.recordImpassable();
+		first.merge(second);
+		assertEquals("merge() does not add the counts", whole.count(), first.count());
+		assertEquals("merge() does not add the impassable counts", 1, first.impassableCount());
+		assertEquals("merge() does not add the totals", whole.total(), first.total());
+		assertEquals("merge() combines the variances incorrectly", whole.variance(), first.variance(), 1e-6);
+		assertEquals("merge() combines the minimums incorrectly", whole.min(), first.min());
+		assertEquals("merge() combines the maximums incorrectly", whole.max(), first.max());
+		assertEquals("merge() combines the histograms incorrectly", whole.percentile(95), first.percentile(95));
+	}
+
+}
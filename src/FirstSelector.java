@@ -2,12 +2,13 @@ import java.util.Iterator;
 import java.util.Set;
 
 /**
- * Implements a first-available next MazeCell algorithm.
+ * Implements a first-available next MazeCell algorithm. In batches, the
+ * first passage of every cell in the order of the PassageGraph is taken.
  * 
  * @author Derrick Tilsner dtt13
  *
  */
-public class FirstSelector implements PassageSelector {
+public class FirstSelector implements PassageSelector, BatchPassageSelector {
 
 	@Override
 	public MazeCell nextCell(MazeCell currentCell)
@@ -22,4 +23,11 @@ public class FirstSelector implements PassageSelector {
 		return nextCellIterate.next();
 	}
 
+	@Override
+	public void nextCells(PassageGraph graph, int[] current, int[] next, int count) {
+		for(int i = 0; i < count; i++) {
+			next[i] = graph.passageCount(current[i]) == 0 ? -1 : graph.passageTarget(current[i], 0);
+		}
+	}
+
 }
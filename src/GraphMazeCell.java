@@ -0,0 +1,131 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The GraphMazeCell class is a lightweight MazeCell that reads its passages from
+ * a PassageGraph instead of storing them. GraphMazeCells are created on demand
+ * whenever a cell of a graph-backed Maze is handed to a caller or a PassageSelector,
+ * and two GraphMazeCells are equal whenever they refer to the same cell of the
+ * same graph. A GraphMazeCell is always valid and its passages cannot be replaced.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class GraphMazeCell extends MazeCell {
+	// private class variables
+	private PassageGraph graph;
+	private int index;
+
+	/**
+	 * Constructor of the GraphMazeCell class which refers to one cell of a graph.
+	 *
+	 * @param graph - the graph that stores the passages
+	 * @param index - the index of the cell in the graph
+	 */
+	GraphMazeCell(PassageGraph graph, int index) {
+		super(index);
+		this.graph = graph;
+		this.index = index;
+	}
+
+	/**
+	 * @return the graph that stores the passages of the cell
+	 */
+	public PassageGraph graph() {
+		return graph;
+	}
+
+	/**
+	 * @return the index of the cell in its graph
+	 */
+	public int index() {
+		return index;
+	}
+
+	/**
+	 * Passages are stored by the graph, so they cannot be added to the cell.
+	 *
+	 * @param passages - ignored
+	 * @param status - set to INPUT_NULL for a null Map and ALREADY_VALID otherwise
+	 */
+	@Override
+	public void addPassages(Map<MazeCell, Integer> passages, Status status) {
+		if(passages == null) {
+			status.set(Status.Code.INPUT_NULL);
+		} else {
+			status.set(Status.Code.ALREADY_VALID);
+		}
+	}
+
+	@Override
+	public boolean isValid() {
+		return true;
+	}
+
+	@Override
+	public Map<MazeCell, Integer> passages() throws UninitializedObjectException {
+		int count = graph.passageCount(index);
+		Map<MazeCell, Integer> map = new HashMap<MazeCell, Integer>(count * 2);
+		for(int p = 0; p < count; p++) {
+			map.put(graph.cellAt(graph.passageTarget(index, p)), graph.passageTime(index, p));
+		}
+		return map;
+	}
+
+	@Override
+	public Integer passageTimeTo(MazeCell cell) throws UninitializedObjectException {
+		int target = graph.indexOf(cell);
+		if(target >= 0) {
+			for(int p = 0; p < graph.passageCount(index); p++) {
+				if(graph.passageTarget(index, p) == target) {
+					return graph.passageTime(index, p);
+				}
+			}
+		}
+		// cells without a passage are interpreted as impassable
+		return IMPASSABLE;
+	}
+
+	@Override
+	public Set<MazeCell> connectedCells() throws UninitializedObjectException {
+		int count = graph.passageCount(index);
+		Set<MazeCell> set = new HashSet<MazeCell>(count * 2);
+		for(int p = 0; p < count; p++) {
+			set.add(graph.cellAt(graph.passageTarget(index, p)));
+		}
+		return set;
+	}
+
+	@Override
+	public boolean isDeadEnd() throws UninitializedObjectException {
+		return graph.passageCount(index) == 0;
+	}
+
+	/**
+	 * Determines if another object refers to the same cell of the same graph.
+	 *
+	 * @param other - the object to compare to
+	 * @return true if the object is a GraphMazeCell of the same cell, false otherwise
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if(!(other instanceof GraphMazeCell)) {
+			return false;
+		}
+		GraphMazeCell cell = (GraphMazeCell)other;
+		return cell.graph == graph && cell.index == index;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(graph) * 31 + index;
+	}
+
+	@Override
+	public String toString() {
+		return "<MazeCell index " + index + ">";
+	}
+
+}
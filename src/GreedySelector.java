@@ -2,12 +2,13 @@ import java.util.Iterator;
 import java.util.Set;
 
 /**
- * Implements a greedy next MazeCell selection algorithm.
+ * Implements a greedy next MazeCell selection algorithm. In batches, ties
+ * between passages are broken by the order of the PassageGraph.
  * 
  * @author Derrick Tilsner dtt13
  *
  */
-public class GreedySelector implements PassageSelector {
+public class GreedySelector implements PassageSelector, BatchPassageSelector {
 
 	@Override
 	public MazeCell nextCell(MazeCell currentCell) 
@@ -33,4 +34,21 @@ public class GreedySelector implements PassageSelector {
 		return nextCell;
 	}
 
+	@Override
+	public void nextCells(PassageGraph graph, int[] current, int[] next, int count) {
+		for(int i = 0; i < count; i++) {
+			int cell = current[i];
+			int nextCell = -1;
+			int minimumPassageTime = MazeCell.IMPASSABLE;
+			for(int p = 0; p < graph.passageCount(cell); p++) {
+				int passageTime = graph.passageTime(cell, p);
+				if(passageTime < minimumPassageTime) {
+					nextCell = graph.passageTarget(cell, p);
+					minimumPassageTime = passageTime;
+				}
+			}
+			next[i] = nextCell;
+		}
+	}
+
 }
@@ -0,0 +1,278 @@
+import java.util.Arrays;
+
+/**
+ * The GridMaze class is a PassageGraph for rectangular mazes. Instead of a MazeCell
+ * with its own Map for every cell, each cell only stores four bits that tell which
+ * of its neighbors to the north, east, south and west it has a passage to, and an
+ * optional 16-bit travel time. Cell indices and neighbors are computed from the
+ * coordinates, with index = y * width + x. A GridMaze is used by adding it to a
+ * Maze with Maze.addGraph(), after which all routing and aggregate methods of the
+ * Maze work on it. Passages should not be changed once the GridMaze is added to a Maze.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class GridMaze implements PassageGraph {
+	// public class constants
+	public final static int NORTH = 0;
+	public final static int EAST = 1;
+	public final static int SOUTH = 2;
+	public final static int WEST = 3;
+	public final static int MAX_TIME = Short.MAX_VALUE;
+
+	// private class constants
+	private final static int CELLS_PER_WORD = 16; // four passage bits per cell
+	private final static int[] DX = {0, 1, 0, -1};
+	private final static int[] DY = {-1, 0, 1, 0};
+
+	// private class variables
+	private int width;
+	private int height;
+	private long[] passageBits;
+	private short[] times; // null if every passage takes a time of one
+	private long passageCount;
+
+	/**
+	 * Constructor of the GridMaze class which creates a grid without any passages.
+	 *
+	 * @param width - the number of columns of the grid
+	 * @param height - the number of rows of the grid
+	 * @param isWeighted - true to store a travel time for every cell, false if
+	 * every passage takes a time of one
+	 */
+	public GridMaze(int width, int height, boolean isWeighted) {
+		if(width <= 0 || height <= 0 || (long)width * height > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A grid must have between 1 and " + Integer.MAX_VALUE + " cells");
+		}
+		this.width = width;
+		this.height = height;
+		int cellCount = width * height;
+		this.passageBits = new long[(cellCount + CELLS_PER_WORD - 1) / CELLS_PER_WORD];
+		if(isWeighted) {
+			this.times = new short[cellCount];
+			Arrays.fill(times, (short)1);
+		}
+	}
+
+	/**
+	 * @return the number of columns of the grid
+	 */
+	public int width() {
+		return width;
+	}
+
+	/**
+	 * @return the number of rows of the grid
+	 */
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * @param x - the column of the cell
+	 * @param y - the row of the cell
+	 * @return the index of the cell
+	 * @throws IllegalArgumentException if the coordinates lie outside the grid
+	 */
+	public int index(int x, int y) {
+		if(!isInside(x, y)) {
+			throw new IllegalArgumentException("Cell (" + x + ", " + y + ") lies outside the "
+					+ width + " x " + height + " grid");
+		}
+		return cellIndex(x, y);
+	}
+
+	/**
+	 * @param index - the index of a cell
+	 * @return the column of the cell
+	 */
+	public int x(int index) {
+		return index % width;
+	}
+
+	/**
+	 * @param index - the index of a cell
+	 * @return the row of the cell
+	 */
+	public int y(int index) {
+		return index / width;
+	}
+
+	/**
+	 * Opens a one-way passage from a cell to its neighbor in the specified direction.
+	 *
+	 * @param x - the column of the cell
+	 * @param y - the row of the cell
+	 * @param direction - NORTH, EAST, SOUTH or WEST
+	 * @return true if the passage was opened, false if the direction is unknown or
+	 * the neighbor is outside the grid
+	 */
+	public boolean openPassage(int x, int y, int direction) {
+		if(direction < NORTH || direction > WEST
+				|| !isInside(x, y) || !isInside(x + DX[direction], y + DY[direction])) {
+			return false;
+		}
+		int cell = cellIndex(x, y);
+		long bit = 1L << ((cell % CELLS_PER_WORD) * 4 + direction);
+		if((passageBits[cell / CELLS_PER_WORD] & bit) == 0) {
+			passageBits[cell / CELLS_PER_WORD] |= bit;
+			passageCount++;
+		}
+		return true;
+	}
+
+	/**
+	 * Opens passages in both directions between a cell and its neighbor in the
+	 * specified direction.
+	 *
+	 * @param x - the column of the cell
+	 * @param y - the row of the cell
+	 * @param direction - NORTH, EAST, SOUTH or WEST
+	 * @return true if the passages were opened, false if the direction is unknown
+	 * or the neighbor is outside the grid
+	 */
+	public boolean connect(int x, int y, int direction) {
+		return openPassage(x, y, direction)
+				&& openPassage(x + DX[direction], y + DY[direction], (direction + 2) % 4);
+	}
+
+	/**
+	 * Sets the time required to travel any passage leaving a cell.
+	 *
+	 * @param x - the column of the cell
+	 * @param y - the row of the cell
+	 * @param time - a travel time between 1 and MAX_TIME
+	 * @return true if the time was set, false if the grid is not weighted or the time is invalid
+	 */
+	public boolean setTime(int x, int y, int time) {
+		if(times == null || !isInside(x, y) || time <= 0 || time > MAX_TIME) {
+			return false;
+		}
+		times[cellIndex(x, y)] = (short)time;
+		return true;
+	}
+
+	/**
+	 * Generates the MazeCell of the cell at the specified coordinates.
+	 *
+	 * @param x - the column of the cell
+	 * @param y - the row of the cell
+	 * @return a MazeCell that reads its passages from the grid
+	 * @throws IllegalArgumentException if the coordinates lie outside the grid
+	 */
+	public MazeCell cellAt(int x, int y) {
+		return cellAt(index(x, y));
+	}
+
+	@Override
+	public int cellCount() {
+		return width * height;
+	}
+
+	@Override
+	public long passageCount() {
+		return passageCount;
+	}
+
+	@Override
+	public int passageCount(int cell) {
+		return Integer.bitCount(bitsOf(cell));
+	}
+
+	@Override
+	public int passageTarget(int cell, int passage) {
+		int bits = bitsOf(cell);
+		// skip the lower passage bits until the requested passage is found
+		for(int i = 0; i < passage; i++) {
+			bits &= bits - 1;
+		}
+		return neighbor(cell, Integer.numberOfTrailingZeros(bits));
+	}
+
+	@Override
+	public int passageTime(int cell, int passage) {
+		return times == null ? 1 : times[cell];
+	}
+
+	@Override
+	public int incomingCount(int cell) {
+		int count = 0;
+		for(int direction = NORTH; direction <= WEST; direction++) {
+			if(hasIncoming(cell, direction)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int incomingSource(int cell, int passage) {
+		for(int direction = NORTH; direction <= WEST; direction++) {
+			if(hasIncoming(cell, direction) && passage-- == 0) {
+				return neighbor(cell, direction);
+			}
+		}
+		throw new IndexOutOfBoundsException("Cell " + cell + " has no incoming passage " + passage);
+	}
+
+	@Override
+	public int incomingTime(int cell, int passage) {
+		return times == null ? 1 : times[incomingSource(cell, passage)];
+	}
+
+	@Override
+	public MazeCell cellAt(int index) {
+		return new GraphMazeCell(this, index);
+	}
+
+	@Override
+	public int indexOf(MazeCell cell) {
+		if(cell instanceof GraphMazeCell && ((GraphMazeCell)cell).graph() == this) {
+			int index = ((GraphMazeCell)cell).index();
+			return index >= 0 && index < cellCount() ? index : -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the four passage bits of a cell
+	 */
+	private int bitsOf(int cell) {
+		return (int)(passageBits[cell / CELLS_PER_WORD] >>> ((cell % CELLS_PER_WORD) * 4)) & 0xF;
+	}
+
+	/**
+	 * @return the index of the neighbor of a cell in the specified direction
+	 */
+	private int neighbor(int cell, int direction) {
+		return cell + DY[direction] * width + DX[direction];
+	}
+
+	/**
+	 * Determines if the neighbor of a cell in the specified direction has a
+	 * passage back into the cell.
+	 */
+	private boolean hasIncoming(int cell, int direction) {
+		int x = x(cell) + DX[direction];
+		int y = y(cell) + DY[direction];
+		if(!isInside(x, y)) {
+			return false;
+		}
+		return (bitsOf(cellIndex(x, y)) & (1 << ((direction + 2) % 4))) != 0;
+	}
+
+	/**
+	 * @return the index of the cell at coordinates that lie within the grid
+	 */
+	private int cellIndex(int x, int y) {
+		return y * width + x;
+	}
+
+	/**
+	 * @return true if the coordinates lie within the grid, false otherwise
+	 */
+	private boolean isInside(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+}
@@ -0,0 +1,154 @@
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case class for the GridMaze class. This class tests all public methods
+ * of the GridMaze class for proper and expected functionality.
+ * 
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class GridMazeTest {
+	// private class variables
+	private GridMaze grid;
+	private GridMaze weighted;
+	private Maze maze;
+	
+	/**
+	 * Creates a 3 by 2 grid with a corridor along the top row and a one-way
+	 * passage down from its middle, and a weighted one-way corridor.
+	 */
+	@Before
+	public void generateGrids() {
+		/*
+		 * (0,0) <-> (1,0) <-> (2,0)
+		 *             |
+		 *             v
+		 * (0,1)     (1,1)     (2,1)
+		 */
+		grid = new GridMaze(3, 2, false);
+		grid.connect(0, 0, GridMaze.EAST);
+		grid.connect(1, 0, GridMaze.EAST);
+		grid.openPassage(1, 0, GridMaze.SOUTH);
+		weighted = new GridMaze(3, 1, true);
+		weighted.openPassage(0, 0, GridMaze.EAST);
+		weighted.openPassage(1, 0, GridMaze.EAST);
+		weighted.setTime(0, 0, 4);
+		weighted.setTime(1, 0, 7);
+		maze = new Maze();
+		maze.addGraph(grid);
+	}
+	
+	/**
+	 * Tests the openPassage(), connect() and setTime() methods with valid and invalid inputs.
+	 */
+	@Test
+	public void testOpenPassages() {
+		assertFalse("openPassage() should not leave the grid", grid.openPassage(0, 0, GridMaze.NORTH));
+		assertFalse("openPassage() should reject an unknown direction", grid.openPassage(0, 0, 4));
+		assertFalse("connect() should reject an unknown direction", grid.connect(0, 0, -1));
+		assertFalse("connect() should not leave the grid", grid.connect(2, 1, GridMaze.EAST));
+		assertEquals("passageCount() is incorrect", 5, grid.passageCount());
+		// opening the same passage twice does not add a passage
+		assertTrue("openPassage() did not open a passage", grid.openPassage(0, 0, GridMaze.EAST));
+		assertEquals("passageCount() counts a passage twice", 5, grid.passageCount());
+		assertFalse("setTime() should fail for a grid without times", grid.setTime(0, 0, 2));
+		assertFalse("setTime() should reject a non-positive time", weighted.setTime(0, 0, 0));
+		assertFalse("setTime() should reject a time that does not fit", weighted.setTime(0, 0, GridMaze.MAX_TIME + 1));
+	}
+	
+	/**
+	 * Tests the passage and incoming passage methods of the PassageGraph interface.
+	 */
+	@Test
+	public void testPassages() {
+		int middle = grid.index(1, 0);
+		assertEquals("passageCount() is incorrect", 3, grid.passageCount(middle));
+		assertEquals("passageTarget() is incorrect", grid.index(2, 0), grid.passageTarget(middle, 0));
+		assertEquals("passageTarget() is incorrect", grid.index(1, 1), grid.passageTarget(middle, 1));
+		assertEquals("passageTarget() is incorrect", grid.index(0, 0), grid.passageTarget(middle, 2));
+		assertEquals("incomingCount() is incorrect", 2, grid.incomingCount(middle));
+		assertEquals("incomingCount() is incorrect for a one-way passage", 1, grid.incomingCount(grid.index(1, 1)));
+		assertEquals("incomingSource() is incorrect", middle, grid.incomingSource(grid.index(1, 1), 0));
+		assertEquals("passageCount() is incorrect for a dead end", 0, grid.passageCount(grid.index(1, 1)));
+		assertEquals("passageTime() is incorrect", 7, weighted.passageTime(weighted.index(1, 0), 0));
+		assertEquals("incomingTime() is incorrect", 4, weighted.incomingTime(weighted.index(1, 0), 0));
+		assertEquals("x() is incorrect", 1, grid.x(grid.index(1, 1)));
+		assertEquals("y() is incorrect", 1, grid.y(grid.index(1, 1)));
+	}
+	
+	/**
+	 * Tests the cells generated by cellAt() and indexOf().
+	 */
+	@Test
+	public void testCells() {
+		try {
+			MazeCell cell = grid.cellAt(1, 0);
+			assertEquals("cellAt() should generate equal cells for the same coordinates", cell, grid.cellAt(1, 0));
+			assertFalse("cellAt() should generate different cells for different coordinates",
+					cell.equals(grid.cellAt(0, 0)));
+			assertEquals("indexOf() is incorrect", grid.index(1, 0), grid.indexOf(cell));
+			assertEquals("indexOf() should not find cells of another grid", -1, weighted.indexOf(cell));
+			assertEquals("passageTimeTo() is incorrect", new Integer(1), cell.passageTimeTo(grid.cellAt(1, 1)));
+			assertEquals("passageTimeTo() is incorrect without a passage",
+					new Integer(MazeCell.IMPASSABLE), grid.cellAt(1, 1).passageTimeTo(cell));
+			assertTrue("isDeadEnd() is incorrect", grid.cellAt(1, 1).isDeadEnd());
+			assertEquals("connectedCells() is incorrect", 3, cell.connectedCells().size());
+			assertEquals("indexOf() should not find a cell past the grid", -1, grid.indexOf(grid.cellAt(6)));
+			assertFalse("canReach() should not reach a cell past the grid", maze.canReach(cell, grid.cellAt(6)));
+			assertTrue("routeShortest() should not route to a cell past the grid",
+					maze.routeShortest(cell, grid.cellAt(6)).getCells().isEmpty());
+			int[][] outside = {{3, 0}, {0, 2}, {-1, 0}, {0, -1}, {-1, 1}};
+			for(int[] coordinates : outside) {
+				try {
+					grid.cellAt(coordinates[0], coordinates[1]);
+					fail("cellAt() accepted coordinates outside the grid");
+				} catch(IllegalArgumentException e) {
+					// expected
+				}
+				try {
+					grid.index(coordinates[0], coordinates[1]);
+					fail("index() accepted coordinates outside the grid");
+				} catch(IllegalArgumentException e) {
+					// expected
+				}
+			}
+		} catch(UninitializedObjectException e) {
+			fail("GridMaze cells generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests routing and aggregate methods of a Maze backed by a GridMaze.
+	 */
+	@Test
+	public void testMazeMethods() {
+		try {
+			assertFalse("addGraph() should not add a second graph", maze.addGraph(weighted));
+			// test the shortest route from a corner
+			MazeRoute route = maze.routeShortest(grid.cellAt(0, 0), grid.cellAt(1, 1));
+			List<MazeCell> cells = new LinkedList<MazeCell>();
+			cells.add(grid.cellAt(0, 0));
+			cells.add(grid.cellAt(1, 0));
+			cells.add(grid.cellAt(1, 1));
+			assertEquals("routeShortest() is incorrect on a grid", cells, route.getCells());
+			assertEquals("travelTime() is incorrect on a grid", new Integer(2), route.travelTime());
+			assertFalse("canReach() is incorrect on a grid", maze.canReach(grid.cellAt(1, 1), grid.cellAt(0, 0)));
+			// test averageExitTime() on the weighted corridor
+			Maze corridor = new Maze();
+			corridor.addGraph(weighted);
+			assertEquals("averageExitTime() is incorrect on a grid",
+					new Double(9.0), corridor.averageExitTime(weighted.cellAt(2, 0), new GreedySelector()));
+			assertEquals("averageExitTime() is incorrect when an exit cannot be reached",
+					new Double(MazeCell.IMPASSABLE_DOUBLE), maze.averageExitTime(grid.cellAt(0, 0), new FirstSelector()));
+		} catch(UninitializedObjectException e) {
+			fail("Maze methods generated an UninitializedObjectException incorrectly on a grid");
+		}
+	}
+	
+}
@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+/**
+ * The HopDistanceSearch class counts the smallest number of passages between
+ * every cell of a PassageGraph and the nearest of several exit cells, ignoring
+ * passage times. It runs a breadth-first search backward from all exits at once
+ * and keeps the frontier and the visited cells as bitsets. Each level is expanded
+ * either top-down, by following the incoming passages of the frontier, or
+ * bottom-up, by checking whether any passage of an unvisited cell leads into the
+ * frontier, whichever is expected to inspect fewer passages.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class HopDistanceSearch {
+	// private class constants
+	private final static int TOP_DOWN_FACTOR = 14; // switch to bottom-up when the frontier has this share of passages
+	private final static int BOTTOM_UP_FACTOR = 24; // switch back when the frontier has this share of cells
+
+	// private class variables
+	private PassageGraph graph;
+
+	/**
+	 * Constructor of the HopDistanceSearch class.
+	 *
+	 * @param graph - the graph to search
+	 */
+	HopDistanceSearch(PassageGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Counts the passages from every cell to the nearest exit.
+	 *
+	 * @param exits - the indices of the exit cells
+	 * @return the number of passages to the nearest exit of every cell,
+	 * MazeCell.IMPASSABLE if no exit can be reached
+	 */
+	int[] run(int[] exits) {
+		int cellCount = graph.cellCount();
+		int words = (cellCount + 63) >>> 6;
+		int[] hops = new int[cellCount];
+		Arrays.fill(hops, MazeCell.IMPASSABLE);
+		long[] visited = new long[words];
+		long[] frontier = new long[words];
+		long[] next = new long[words];
+		long unvisitedPassages = 0;
+		for(int cell = 0; cell < cellCount; cell++) {
+			unvisitedPassages += graph.passageCount(cell);
+		}
+		int frontierSize = 0;
+		long frontierPassages = 0;
+		for(int exit : exits) {
+			if(hops[exit] != 0) {
+				hops[exit] = 0;
+				visited[exit >>> 6] |= 1L << exit;
+				frontier[exit >>> 6] |= 1L << exit;
+				frontierSize++;
+				frontierPassages += graph.incomingCount(exit);
+				unvisitedPassages -= graph.passageCount(exit);
+			}
+		}
+		boolean isBottomUp = false;
+		int level = 0;
+		while(frontierSize > 0) {
+			level++;
+			if(!isBottomUp && frontierPassages > unvisitedPassages / TOP_DOWN_FACTOR) {
+				isBottomUp = true;
+			} else if(isBottomUp && frontierSize < cellCount / BOTTOM_UP_FACTOR) {
+				isBottomUp = false;
+			}
+			Arrays.fill(next, 0);
+			if(isBottomUp) {
+				expandBottomUp(frontier, next, visited);
+			} else {
+				expandTopDown(frontier, next, visited);
+			}
+			// record the new level and measure it for the next direction decision
+			frontierSize = 0;
+			frontierPassages = 0;
+			for(int w = 0; w < words; w++) {
+				long bits = next[w];
+				visited[w] |= bits;
+				while(bits != 0) {
+					int cell = (w << 6) + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					hops[cell] = level;
+					frontierSize++;
+					frontierPassages += graph.incomingCount(cell);
+					unvisitedPassages -= graph.passageCount(cell);
+				}
+			}
+			long[] swap = frontier;
+			frontier = next;
+			next = swap;
+		}
+		return hops;
+	}
+
+	/**
+	 * Visits every unvisited cell that has a passage into a frontier cell by
+	 * following the incoming passages of the frontier.
+	 */
+	private void expandTopDown(long[] frontier, long[] next, long[] visited) {
+		for(int w = 0; w < frontier.length; w++) {
+			long bits = frontier[w];
+			while(bits != 0) {
+				int cell = (w << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				for(int p = 0; p < graph.incomingCount(cell); p++) {
+					int previous = graph.incomingSource(cell, p);
+					if((visited[previous >>> 6] & (1L << previous)) == 0) {
+						next[previous >>> 6] |= 1L << previous;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visits every unvisited cell that has a passage into a frontier cell by
+	 * checking the passages of each unvisited cell until one leads into the frontier.
+	 */
+	private void expandBottomUp(long[] frontier, long[] next, long[] visited) {
+		int cellCount = graph.cellCount();
+		for(int w = 0; w < visited.length; w++) {
+			long unvisited = ~visited[w];
+			if(w == visited.length - 1 && (cellCount & 63) != 0) {
+				unvisited &= (1L << (cellCount & 63)) - 1;
+			}
+			while(unvisited != 0) {
+				int cell = (w << 6) + Long.numberOfTrailingZeros(unvisited);
+				unvisited &= unvisited - 1;
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					int target = graph.passageTarget(cell, p);
+					if((frontier[target >>> 6] & (1L << target)) != 0) {
+						next[w] |= 1L << cell;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,307 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The IndexSnapshot class stores precomputed indexes of a Maze, such as distance
+ * tables and the ReachabilityIndex, in a file so that a restarted process does
+ * not have to compute them again. Every snapshot records a fingerprint of the
+ * cells and passages of its Maze. When a snapshot is opened, the file is mapped
+ * into memory and the fingerprint is compared with the Maze it is opened for;
+ * distance tables and the ReachabilityIndex are then read straight from the
+ * mapping. Each table must be smaller than two gigabytes.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class IndexSnapshot {
+	// private class constants
+	private final static int MAGIC = 0x4D5A5353;
+	private final static int FORMAT_VERSION = 2;
+	private final static int HEADER_SIZE = 32;
+	private final static int SECTION_HEADER_SIZE = 16;
+	private final static int TYPE_DISTANCES = 1;
+	private final static int TYPE_REACHABILITY = 2;
+	private final static String REACHABILITY_NAME = "reachability";
+	private final static int WRITE_BUFFER_SIZE = 1 << 16;
+
+	// private class variables
+	private PassageGraph graph;
+	private long fingerprint;
+	private Map<String, Section> sections;
+
+	/**
+	 * Constructor of the IndexSnapshot class which creates an empty snapshot
+	 * for a Maze.
+	 *
+	 * @param maze - the Maze whose indexes are stored
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public IndexSnapshot(Maze maze) throws UninitializedObjectException {
+		this.graph = maze.graph();
+		this.fingerprint = fingerprint(graph);
+		this.sections = new LinkedHashMap<String, Section>();
+	}
+
+	/**
+	 * Calculates a 64-bit fingerprint of the cells and passages of a graph. Graphs
+	 * with the same number of cells and the same passages between the same cell
+	 * indices have the same fingerprint, whatever the order of the passages of a
+	 * cell or the class storing them.
+	 *
+	 * @param graph - the graph to fingerprint
+	 * @return the fingerprint of the graph
+	 */
+	public static long fingerprint(PassageGraph graph) {
+		long hash = mix(graph.cellCount() ^ 0x9E3779B97F4A7C15L);
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			// adding the passages of a cell makes their order irrelevant
+			long cellHash = graph.passageCount(cell);
+			for(int p = 0; p < graph.passageCount(cell); p++) {
+				cellHash += mix(((long)graph.passageTarget(cell, p) << 32) | (graph.passageTime(cell, p) & 0xFFFFFFFFL));
+			}
+			hash = mix(hash ^ cellHash);
+		}
+		return hash;
+	}
+
+	/**
+	 * @return the fingerprint of the Maze the snapshot belongs to
+	 */
+	public long fingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return the graph of the Maze the snapshot was created or opened for,
+	 * whose fingerprint has been checked
+	 */
+	PassageGraph graph() {
+		return graph;
+	}
+
+	/**
+	 * @return the names of the distance tables in the snapshot
+	 */
+	public Set<String> distanceNames() {
+		Set<String> names = new LinkedHashSet<String>();
+		for(Map.Entry<String, Section> entry : sections.entrySet()) {
+			if(entry.getValue().type == TYPE_DISTANCES) {
+				names.add(entry.getKey());
+			}
+		}
+		return Collections.unmodifiableSet(names);
+	}
+
+	/**
+	 * Adds a distance table to the snapshot, replacing any table of the same name.
+	 *
+	 * @param name - the name of the table
+	 * @param distances - the distances computed for the Maze of the snapshot
+	 */
+	public void putDistances(String name, CellDistances distances) {
+		if(distances.cellCount() != graph.cellCount()) {
+			throw new IllegalArgumentException("The distances were computed for a different maze");
+		}
+		ByteBuffer data = ByteBuffer.allocate(4 * distances.cellCount()).order(ByteOrder.LITTLE_ENDIAN);
+		for(int i = 0; i < distances.cellCount(); i++) {
+			data.putInt(distances.distance(i));
+		}
+		data.flip();
+		sections.put(name, new Section(TYPE_DISTANCES, data));
+	}
+
+	/**
+	 * Determines a distance table of the snapshot. Tables of an opened snapshot are
+	 * read directly from the mapped file.
+	 *
+	 * @param name - the name of the table
+	 * @return the distances, or null if the snapshot has no table of that name
+	 */
+	public CellDistances distances(String name) {
+		Section section = sections.get(name);
+		if(section == null || section.type != TYPE_DISTANCES) {
+			return null;
+		}
+		return new CellDistances(graph, section.data.duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+	}
+
+	/**
+	 * Adds the ReachabilityIndex of the Maze to the snapshot.
+	 *
+	 * @param index - the ReachabilityIndex of the Maze of the snapshot
+	 */
+	public void putReachabilityIndex(ReachabilityIndex index) {
+		sections.put(REACHABILITY_NAME, new Section(TYPE_REACHABILITY, index.toBuffer()));
+	}
+
+	/**
+	 * Restores the ReachabilityIndex stored in the snapshot. The index of an
+	 * opened snapshot is read directly from the mapped file.
+	 *
+	 * @param graph - the graph of the Maze the index is restored for
+	 * @return the ReachabilityIndex, or null if the snapshot does not contain one
+	 * @throws IOException if the stored index is damaged
+	 */
+	ReachabilityIndex reachabilityIndex(PassageGraph graph) throws IOException {
+		Section section = sections.get(REACHABILITY_NAME);
+		if(section == null || section.type != TYPE_REACHABILITY) {
+			return null;
+		}
+		return ReachabilityIndex.view(section.data.duplicate(), graph);
+	}
+
+	/**
+	 * Writes the snapshot to a file in the format read by open().
+	 *
+	 * @param file - the file to create or overwrite
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		RandomAccessFile stream = new RandomAccessFile(file, "rw");
+		try {
+			stream.setLength(0);
+			FileChannel channel = stream.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC);
+			buffer.putInt(FORMAT_VERSION);
+			buffer.putLong(fingerprint);
+			buffer.putInt(graph.cellCount());
+			buffer.putInt(sections.size());
+			buffer.putLong(graph.passageCount());
+			for(Map.Entry<String, Section> entry : sections.entrySet()) {
+				byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				ByteBuffer data = entry.getValue().data.duplicate();
+				buffer.putInt(entry.getValue().type);
+				buffer.putInt(name.length);
+				buffer.putLong(data.remaining());
+				flush(channel, buffer);
+				// names and data go straight to the channel, so neither is limited by the buffer
+				writeFully(channel, ByteBuffer.wrap(name));
+				buffer.put(new byte[(int)(align(SECTION_HEADER_SIZE + name.length) - SECTION_HEADER_SIZE - name.length)]);
+				flush(channel, buffer);
+				// every section starts at a multiple of eight bytes so that it can be viewed as ints
+				int length = data.remaining();
+				writeFully(channel, data);
+				buffer.put(new byte[(int)(align(length) - length)]);
+				flush(channel, buffer);
+			}
+			flush(channel, buffer);
+			channel.force(false);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Maps a snapshot written by write() into memory and checks that it belongs to
+	 * a Maze. Distance tables are not read until they are used.
+	 *
+	 * @param file - the file containing the snapshot
+	 * @param maze - the Maze the snapshot is opened for
+	 * @return an IndexSnapshot backed by the file
+	 * @throws IOException if the file cannot be read, does not contain a snapshot,
+	 * or was written for a Maze with a different fingerprint
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public static IndexSnapshot open(File file, Maze maze) throws IOException, UninitializedObjectException {
+		IndexSnapshot snapshot = new IndexSnapshot(maze);
+		RandomAccessFile stream = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = stream.getChannel();
+			long size = channel.size();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_SIZE))
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if(size < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+				throw new IOException("The file does not contain an index snapshot");
+			}
+			if(header.getLong(8) != snapshot.fingerprint || header.getInt(16) != snapshot.graph.cellCount()
+					|| header.getLong(24) != snapshot.graph.passageCount()) {
+				throw new IOException("The index snapshot was written for a different maze");
+			}
+			int sectionCount = header.getInt(20);
+			long position = HEADER_SIZE;
+			for(int s = 0; s < sectionCount; s++) {
+				if(position + SECTION_HEADER_SIZE > size) {
+					throw new IOException("The index snapshot is truncated");
+				}
+				ByteBuffer sectionHeader = channel.map(FileChannel.MapMode.READ_ONLY, position, SECTION_HEADER_SIZE)
+						.order(ByteOrder.LITTLE_ENDIAN);
+				int type = sectionHeader.getInt(0);
+				int nameLength = sectionHeader.getInt(4);
+				long length = sectionHeader.getLong(8);
+				long dataStart = position + align(SECTION_HEADER_SIZE + (long)nameLength);
+				if(nameLength < 0 || length < 0 || length > Integer.MAX_VALUE || dataStart + length > size) {
+					throw new IOException("The index snapshot is truncated");
+				}
+				ByteBuffer name = channel.map(FileChannel.MapMode.READ_ONLY, position + SECTION_HEADER_SIZE, nameLength);
+				byte[] nameBytes = new byte[nameLength];
+				name.get(nameBytes);
+				// the mappings stay valid after the channel is closed
+				ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataStart, length);
+				snapshot.sections.put(new String(nameBytes, StandardCharsets.UTF_8), new Section(type, data));
+				position = dataStart + align(length);
+			}
+		} finally {
+			stream.close();
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Scrambles the bits of a value (the finalizer of SplitMix64).
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	/**
+	 * @return the length rounded up to a multiple of eight bytes
+	 */
+	private static long align(long length) {
+		return (length + 7) & ~7L;
+	}
+
+	/**
+	 * Writes the contents of the buffer to the channel and empties the buffer.
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		writeFully(channel, buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer to the channel.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * The Section class holds the type and the bytes of one stored index.
+	 */
+	private static class Section {
+		private int type;
+		private ByteBuffer data;
+
+		Section(int type, ByteBuffer data) {
+			this.type = type;
+			this.data = data;
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the IndexSnapshot class. This class tests all public
+ * methods of the IndexSnapshot class for proper and expected functionality.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class IndexSnapshotTest {
+
+	/**
+	 * Builds a ring of cells in which every cell leads to the next one, plus a
+	 * few cells from which the ring cannot be reached.
+	 *
+	 * @param time - the time of the passage out of the first cell
+	 * @return the builder of the maze, after the maze was built
+	 */
+	private MazeBuilder buildRing(int time) {
+		MazeBuilder builder = new MazeBuilder(1000);
+		builder.addCells(1000);
+		for(int cell = 0; cell < 990; cell++) {
+			builder.addPassage(cell, (cell + 1) % 990, cell == 0 ? time : 1);
+		}
+		for(int cell = 990; cell < 999; cell++) {
+			builder.addPassage(cell, cell + 1, 1);
+		}
+		return builder;
+	}
+
+	/**
+	 * Tests that the fingerprint depends on the passages of a maze.
+	 */
+	@Test
+	public void testFingerprint() {
+		try {
+			MazeBuilder first = buildRing(1);
+			MazeBuilder second = buildRing(1);
+			MazeBuilder different = buildRing(2);
+			first.build();
+			second.build();
+			different.build();
+			PassageGraph graph = ((GraphMazeCell)first.cellAt(0)).graph();
+			assertEquals("fingerprint() differs for equal mazes",
+					IndexSnapshot.fingerprint(graph),
+					IndexSnapshot.fingerprint(((GraphMazeCell)second.cellAt(0)).graph()));
+			assertFalse("fingerprint() is equal for different mazes",
+					IndexSnapshot.fingerprint(graph) == IndexSnapshot.fingerprint(((GraphMazeCell)different.cellAt(0)).graph()));
+			assertEquals("fingerprint() depends on the storage of the graph",
+					IndexSnapshot.fingerprint(graph), IndexSnapshot.fingerprint(MappedMazeGraph.copyOf(graph)));
+		} catch(UninitializedObjectException e) {
+			fail("fingerprint() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests writing a snapshot and opening it for an equal maze in a new "process".
+	 */
+	@Test
+	public void testWriteAndOpen() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".snapshot");
+			MazeBuilder builder = buildRing(1);
+			Maze maze = builder.build();
+			IndexSnapshot snapshot = new IndexSnapshot(maze);
+			CellDistances toStart = maze.distancesTo(builder.cellAt(0));
+			snapshot.putDistances("toStart", toStart);
+			snapshot.putDistances("fromStart", maze.distancesFrom(builder.cellAt(0)));
+			// a name longer than the write buffer, whose length is not a multiple of eight bytes
+			StringBuilder longName = new StringBuilder();
+			for(int i = 0; i < 70001; i++) {
+				longName.append(i % 2 == 0 ? 'x' : '\u00e9');
+			}
+			snapshot.putDistances(longName.toString(), toStart);
+			snapshot.putReachabilityIndex(maze.reachabilityIndex());
+			snapshot.write(file);
+			// open the snapshot for an equal Maze built from scratch
+			MazeBuilder restartedBuilder = buildRing(1);
+			Maze restarted = restartedBuilder.build();
+			IndexSnapshot opened = IndexSnapshot.open(file, restarted);
+			assertEquals("open() does not restore the fingerprint", snapshot.fingerprint(), opened.fingerprint());
+			assertEquals("open() does not restore the table names", 3, opened.distanceNames().size());
+			assertArrayEquals("open() does not restore a table with a long name", toStart.toArray(),
+					opened.distances(longName.toString()).toArray());
+			CellDistances restored = opened.distances("toStart");
+			assertArrayEquals("open() does not restore the distances", toStart.toArray(), restored.toArray());
+			assertEquals("open() restores distances for the wrong cells", 989,
+					restored.distance(restartedBuilder.cellAt(1)));
+			assertNull("distances() returns a table that was not stored", opened.distances("missing"));
+			assertTrue("loadReachabilityIndex() does not restore the index", restarted.loadReachabilityIndex(opened));
+			assertFalse("restored index is incorrect", restarted.canReach(restartedBuilder.cellAt(5), restartedBuilder.cellAt(995)));
+			assertTrue("restored index is incorrect", restarted.canReach(restartedBuilder.cellAt(995), restartedBuilder.cellAt(999)));
+			assertFalse("loadReachabilityIndex() replaced an existing index", restarted.loadReachabilityIndex(opened));
+		} catch(IOException e) {
+			fail("IndexSnapshot generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("IndexSnapshot generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Builds a chain of cells too long for a bitset closure, with a dead end
+	 * branching off every tenth cell.
+	 *
+	 * @return the builder of the maze, after the maze was built
+	 */
+	private MazeBuilder buildChain() {
+		int length = ReachabilityIndex.BITSET_COMPONENT_LIMIT + 100;
+		int branches = (length + 9) / 10;
+		MazeBuilder builder = new MazeBuilder(length + branches);
+		builder.addCells(length + branches);
+		for(int cell = 0; cell + 1 < length; cell++) {
+			builder.addPassage(cell, cell + 1, 1);
+		}
+		for(int cell = 0; cell < length; cell += 10) {
+			builder.addPassage(cell, length + cell / 10, 1);
+		}
+		return builder;
+	}
+
+	/**
+	 * Tests that an index labeled by traversals is read from the mapped snapshot
+	 * and that a damaged index is rejected.
+	 */
+	@Test
+	public void testLabeledReachabilityIndex() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".snapshot");
+			MazeBuilder builder = buildChain();
+			Maze maze = builder.build();
+			IndexSnapshot snapshot = new IndexSnapshot(maze);
+			snapshot.putReachabilityIndex(maze.reachabilityIndex());
+			snapshot.write(file);
+			MazeBuilder restartedBuilder = buildChain();
+			Maze restarted = restartedBuilder.build();
+			assertTrue("loadReachabilityIndex() does not restore a labeled index",
+					restarted.loadReachabilityIndex(IndexSnapshot.open(file, restarted)));
+			assertEquals("the restored index has the wrong components",
+					maze.reachabilityIndex().componentCount(), restarted.reachabilityIndex().componentCount());
+			Random random = new Random(35);
+			int cellCount = ((GraphMazeCell)builder.cellAt(0)).graph().cellCount();
+			for(int i = 0; i < 2000; i++) {
+				int from = random.nextInt(cellCount);
+				int to = random.nextInt(cellCount);
+				assertEquals("the restored index answers differently",
+						maze.canReach(builder.cellAt(from), builder.cellAt(to)),
+						restarted.canReach(restartedBuilder.cellAt(from), restartedBuilder.cellAt(to)));
+			}
+			// cut the last bytes of the stored index
+			RandomAccessFile stream = new RandomAccessFile(file, "rw");
+			try {
+				stream.setLength(stream.length() - 8);
+			} finally {
+				stream.close();
+			}
+			try {
+				Maze damaged = buildChain().build();
+				damaged.loadReachabilityIndex(IndexSnapshot.open(file, damaged));
+				fail("a truncated snapshot was accepted");
+			} catch(IOException e) {
+				// expected
+			}
+		} catch(IOException e) {
+			fail("IndexSnapshot generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("IndexSnapshot generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Tests that a snapshot is rejected for a different maze.
+	 */
+	@Test
+	public void testDifferentMaze() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".snapshot");
+			Maze maze = buildRing(1).build();
+			IndexSnapshot snapshot = new IndexSnapshot(maze);
+			snapshot.putReachabilityIndex(maze.reachabilityIndex());
+			snapshot.write(file);
+			try {
+				IndexSnapshot.open(file, buildRing(3).build());
+				fail("open() accepted a snapshot of a different maze");
+			} catch(IOException e) {
+				// expected
+			}
+			try {
+				buildRing(3).build().loadReachabilityIndex(snapshot);
+				fail("loadReachabilityIndex() accepted a snapshot of a different maze");
+			} catch(IOException e) {
+				// expected
+			}
+		} catch(IOException e) {
+			fail("IndexSnapshot generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("IndexSnapshot generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+
+}
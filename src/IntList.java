@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+/**
+ * The IntList class is a growable list of primitive ints used by the graph
+ * algorithms to collect cell indices without boxing them.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class IntList {
+	// private class variables
+	private int[] values;
+	private int size;
+
+	/**
+	 * Constructor of the IntList class.
+	 *
+	 * @param capacity - the initial number of values the list can hold
+	 */
+	IntList(int capacity) {
+		this.values = new int[Math.max(capacity, 8)];
+	}
+
+	/**
+	 * Appends a value to the end of the list.
+	 *
+	 * @param value - the value to append
+	 */
+	void add(int value) {
+		if(size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	/**
+	 * Appends all values of another list to the end of the list.
+	 *
+	 * @param other - the list to append
+	 */
+	void addAll(IntList other) {
+		if(size + other.size > values.length) {
+			values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+		}
+		System.arraycopy(other.values, 0, values, size, other.size);
+		size += other.size;
+	}
+
+	/**
+	 * Removes the last value of the list so that it can be used as a stack.
+	 *
+	 * @return the removed value
+	 */
+	int removeLast() {
+		return values[--size];
+	}
+
+	/**
+	 * @param index - the position of the value
+	 * @return the value at the position
+	 */
+	int get(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Replaces the value at a position.
+	 *
+	 * @param index - the position of the value
+	 * @param value - the new value
+	 */
+	void set(int index, int value) {
+		values[index] = value;
+	}
+
+	/**
+	 * @return the number of values in the list
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the list contains no values, false otherwise
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all values from the list without releasing its storage.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return a new array containing the values of the list
+	 */
+	int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+}
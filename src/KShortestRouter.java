@@ -0,0 +1,371 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The KShortestRouter class finds the k routes with the shortest travel times
+ * between two cells of a PassageGraph that do not visit any cell twice, using
+ * Yen's algorithm. Each new route deviates from an earlier one at a spur cell:
+ * the part up to the spur cell is kept, the passages taken there by earlier
+ * routes with the same beginning are blocked, and the rest is searched again
+ * without entering the kept part. The spur searches of one route are run in
+ * parallel. They are A* searches guided by the exact travel time of every cell
+ * to the destination, so they only leave the shortest routes where blocked
+ * passages force them to. The travel times to the last few destinations are
+ * kept, so repeated queries towards a destination skip the search that computes
+ * them. Each thread reuses one set of epoch-stamped search arrays for all of
+ * its searches, across queries. A router may be used by several threads at once.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class KShortestRouter {
+	// private class constants
+	private final static int CACHED_DESTINATIONS = 4;
+
+	// private class variables
+	private PassageGraph graph;
+	private ForkJoinPool pool;
+	private Map<Integer, int[]> remainingTimes; // travel times to recent destinations, least recently used first
+	private ThreadLocal<SpurSearch> searches;
+
+	/**
+	 * Constructor of the KShortestRouter class which prepares searches in a graph.
+	 *
+	 * @param graph - the graph to search
+	 * @param pool - the pool that runs the spur searches
+	 */
+	KShortestRouter(final PassageGraph graph, ForkJoinPool pool) {
+		this.graph = graph;
+		this.pool = pool;
+		this.remainingTimes = new LinkedHashMap<Integer, int[]>(2 * CACHED_DESTINATIONS, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+				return size() > CACHED_DESTINATIONS;
+			}
+		};
+		this.searches = new ThreadLocal<SpurSearch>() {
+			@Override
+			protected SpurSearch initialValue() {
+				return new SpurSearch(graph.cellCount());
+			}
+		};
+	}
+
+	/**
+	 * Finds up to k routes with the shortest travel times in ascending order.
+	 *
+	 * @param start - the index of the cell the routes start at
+	 * @param destination - the index of the cell the routes end at
+	 * @param k - the largest number of routes to find
+	 * @return the cell indices of every route in order of traversal, shortest
+	 * route first; empty if the destination cannot be reached
+	 */
+	List<int[]> routes(int start, int destination, int k) {
+		List<int[]> found = new ArrayList<int[]>();
+		if(k <= 0) {
+			return found;
+		}
+		Target target = new Target(destination, remaining(destination));
+		if(target.remaining[start] == MazeCell.IMPASSABLE) {
+			return found;
+		}
+		Path shortest = searches.get().search(target, start, new int[0], 0, new int[0], 0);
+		List<Path> accepted = new ArrayList<Path>();
+		PriorityQueue<Path> candidates = new PriorityQueue<Path>(16, new Comparator<Path>() {
+			@Override
+			public int compare(Path first, Path second) {
+				return Long.compare(first.time, second.time);
+			}
+		});
+		Set<Path> seen = new HashSet<Path>();
+		seen.add(shortest);
+		accepted.add(shortest);
+		while(accepted.size() < k) {
+			for(Path candidate : spurCandidates(target, accepted)) {
+				if(seen.add(candidate)) {
+					candidates.add(candidate);
+				}
+			}
+			if(candidates.isEmpty()) {
+				break;
+			}
+			accepted.add(candidates.poll());
+		}
+		for(Path path : accepted) {
+			found.add(path.cells);
+		}
+		return found;
+	}
+
+	/**
+	 * Determines the travel time from every cell to a destination, computing it
+	 * unless it is one of the last few destinations.
+	 *
+	 * @param destination - the index of the destination
+	 * @return the travel time from every cell to the destination
+	 */
+	private int[] remaining(int destination) {
+		synchronized(remainingTimes) {
+			int[] remaining = remainingTimes.get(destination);
+			if(remaining != null) {
+				return remaining;
+			}
+		}
+		// search outside of the lock so that queries towards other destinations do not wait
+		int[] remaining = new DeltaStepping(graph, true, 0, pool).run(destination);
+		synchronized(remainingTimes) {
+			remainingTimes.put(destination, remaining);
+		}
+		return remaining;
+	}
+
+	/**
+	 * Searches the deviations from every spur cell of the most recently accepted
+	 * route in parallel.
+	 *
+	 * @param target - the destination of the routes
+	 * @param accepted - the routes accepted so far
+	 * @return the new candidate routes
+	 */
+	private List<Path> spurCandidates(final Target target, final List<Path> accepted) {
+		final Path previous = accepted.get(accepted.size() - 1);
+		List<RecursiveTask<Path>> tasks = new ArrayList<RecursiveTask<Path>>();
+		for(int s = 0; s < previous.cells.length - 1; s++) {
+			final int spurIndex = s;
+			tasks.add(new RecursiveTask<Path>() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected Path compute() {
+					return spur(target, accepted, previous, spurIndex);
+				}
+			});
+		}
+		List<Path> candidates = new ArrayList<Path>();
+		for(RecursiveTask<Path> task : runAll(tasks)) {
+			Path candidate = task.join();
+			if(candidate != null) {
+				candidates.add(candidate);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Runs a list of tasks on the pool and waits for all of them.
+	 */
+	private List<RecursiveTask<Path>> runAll(final List<RecursiveTask<Path>> tasks) {
+		pool.invoke(new RecursiveTask<Void>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected Void compute() {
+				invokeAll(tasks);
+				return null;
+			}
+		});
+		return tasks;
+	}
+
+	/**
+	 * Finds the shortest deviation of a route at one of its cells.
+	 *
+	 * @param target - the destination of the routes
+	 * @param accepted - the routes accepted so far
+	 * @param previous - the route to deviate from
+	 * @param spurIndex - the position of the spur cell in the route
+	 * @return the shortest route that keeps the route up to the spur cell and
+	 * then leaves it, or null if there is none
+	 */
+	private Path spur(Target target, List<Path> accepted, Path previous, int spurIndex) {
+		int[] root = Arrays.copyOf(previous.cells, spurIndex + 1);
+		// block the passage taken at the spur cell by every route with the same beginning
+		IntList blockedTargets = new IntList(4);
+		for(Path path : accepted) {
+			if(path.cells.length > spurIndex + 1
+					&& Arrays.equals(Arrays.copyOf(path.cells, spurIndex + 1), root)) {
+				blockedTargets.add(path.cells[spurIndex + 1]);
+			}
+		}
+		long rootTime = 0;
+		for(int i = 0; i < spurIndex; i++) {
+			rootTime += passageTime(root[i], root[i + 1]);
+		}
+		return searches.get().search(target, root[spurIndex], root, spurIndex, blockedTargets.toArray(), rootTime);
+	}
+
+	/**
+	 * @return the time of the passage between two cells
+	 */
+	private int passageTime(int from, int to) {
+		for(int p = 0; p < graph.passageCount(from); p++) {
+			if(graph.passageTarget(from, p) == to) {
+				return graph.passageTime(from, p);
+			}
+		}
+		return MazeCell.IMPASSABLE;
+	}
+
+	/**
+	 * The Target class is the destination of a query and the travel time from
+	 * every cell to it.
+	 */
+	private static class Target {
+		private int destination;
+		private int[] remaining;
+
+		Target(int destination, int[] remaining) {
+			this.destination = destination;
+			this.remaining = remaining;
+		}
+	}
+
+	/**
+	 * The Path class is a route given by its cell indices and its travel time.
+	 * Paths with the same cells are equal.
+	 */
+	private static class Path {
+		private int[] cells;
+		private long time;
+
+		Path(int[] cells, long time) {
+			this.cells = cells;
+			this.time = time;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Path && Arrays.equals(cells, ((Path)other).cells);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(cells);
+		}
+	}
+
+	/**
+	 * The SpurSearch class holds the search arrays of one thread. The arrays are
+	 * stamped with a search number so that they never have to be cleared.
+	 */
+	private class SpurSearch {
+		private long[] times;
+		private int[] parents;
+		private int[] stamps; // search number that last wrote times and parents
+		private int[] blocked; // search number for which a cell may not be entered
+		private int epoch;
+		private CellPriorityQueue queue;
+
+		SpurSearch(int cellCount) {
+			this.times = new long[cellCount];
+			this.parents = new int[cellCount];
+			this.stamps = new int[cellCount];
+			this.blocked = new int[cellCount];
+			this.queue = new CellPriorityQueue(64);
+		}
+
+		/**
+		 * Finds the shortest route from the spur cell to the destination that
+		 * avoids the root cells before the spur cell and the blocked passages of
+		 * the spur cell, and prefixes it with the root.
+		 *
+		 * @param target - the destination of the route
+		 * @param spur - the index of the cell the search starts at
+		 * @param root - the cells of the route up to and including the spur cell
+		 * @param rootLength - the number of root cells before the spur cell
+		 * @param blockedTargets - the cells the spur cell may not lead to directly
+		 * @param rootTime - the travel time of the root
+		 * @return the complete route, or null if the destination cannot be reached
+		 */
+		Path search(Target target, int spur, int[] root, int rootLength, int[] blockedTargets, long rootTime) {
+			int destination = target.destination;
+			int[] remaining = target.remaining;
+			beginSearch();
+			for(int i = 0; i < rootLength; i++) {
+				blocked[root[i]] = epoch;
+			}
+			stamps[spur] = epoch;
+			times[spur] = 0;
+			parents[spur] = -1;
+			queue.add(spur, remaining[spur]);
+			while(!queue.isEmpty()) {
+				long estimate = queue.peekPriority();
+				int cell = queue.poll();
+				if(estimate != times[cell] + remaining[cell]) {
+					continue; // an outdated entry of a cell that was reached faster later
+				}
+				if(cell == destination) {
+					return buildPath(destination, root, rootLength, rootTime + times[cell]);
+				}
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					int next = graph.passageTarget(cell, p);
+					if(blocked[next] == epoch || remaining[next] == MazeCell.IMPASSABLE
+							|| (cell == spur && contains(blockedTargets, next))) {
+						continue;
+					}
+					long time = times[cell] + graph.passageTime(cell, p);
+					if(stamps[next] != epoch || time < times[next]) {
+						stamps[next] = epoch;
+						times[next] = time;
+						parents[next] = cell;
+						queue.add(next, time + remaining[next]);
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Starts a new search, clearing the stamps only when the search number wraps around.
+		 */
+		private void beginSearch() {
+			queue.clear();
+			epoch++;
+			if(epoch == Integer.MAX_VALUE) {
+				Arrays.fill(stamps, 0);
+				Arrays.fill(blocked, 0);
+				epoch = 1;
+			}
+		}
+
+		/**
+		 * Joins the root and the searched route from the spur cell to the destination.
+		 */
+		private Path buildPath(int destination, int[] root, int rootLength, long time) {
+			IntList reversed = new IntList(16);
+			for(int cell = destination; cell != -1; cell = parents[cell]) {
+				reversed.add(cell);
+			}
+			int[] cells = new int[rootLength + reversed.size()];
+			System.arraycopy(root, 0, cells, 0, rootLength);
+			for(int i = 0; i < reversed.size(); i++) {
+				cells[rootLength + i] = reversed.get(reversed.size() - 1 - i);
+			}
+			return new Path(cells, time);
+		}
+
+		/**
+		 * @return true if the array contains the value
+		 */
+		private boolean contains(int[] values, int value) {
+			for(int v : values) {
+				if(v == value) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
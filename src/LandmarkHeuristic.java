@@ -0,0 +1,118 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The LandmarkHeuristic class estimates the shortest travel time between two
+ * cells of a PassageGraph from the travel times to and from a few landmark
+ * cells (ALT). By the triangle inequality, the time from a cell to a
+ * destination is at least the time from the cell to a landmark minus the time
+ * from the destination to that landmark, and at least the time from the
+ * landmark to the destination minus the time from the landmark to the cell.
+ * The largest of these bounds over all landmarks never overestimates and is
+ * consistent, so A* searches guided by it stay correct. The landmarks are
+ * chosen far apart: each new landmark is the cell farthest from the landmarks
+ * chosen before it. Building the heuristic costs two delta-stepping searches
+ * per landmark; afterwards every estimate is a few array lookups. A heuristic
+ * without landmarks estimates every time as 0, which turns A* into Dijkstra's
+ * algorithm, for searches that cannot wait for the landmarks.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class LandmarkHeuristic {
+	// package-private class constants
+	final static long UNREACHABLE = Long.MAX_VALUE; // the estimate of a destination that cannot be reached
+
+	// private class constants
+	private final static int LANDMARK_COUNT = 4;
+
+	// private class variables
+	private int[][] fromLandmarks; // fromLandmarks[l][cell] is the travel time from landmark l to the cell
+	private int[][] toLandmarks; // toLandmarks[l][cell] is the travel time from the cell to landmark l
+
+	/**
+	 * Constructor of the LandmarkHeuristic class which creates a heuristic
+	 * without landmarks.
+	 */
+	LandmarkHeuristic() {
+		this.fromLandmarks = new int[0][];
+		this.toLandmarks = new int[0][];
+	}
+
+	/**
+	 * Constructor of the LandmarkHeuristic class which chooses the landmarks and
+	 * computes the travel times to and from them.
+	 *
+	 * @param graph - the graph to estimate travel times in
+	 */
+	LandmarkHeuristic(PassageGraph graph) {
+		int cellCount = graph.cellCount();
+		int landmarkCount = Math.min(LANDMARK_COUNT, cellCount);
+		this.fromLandmarks = new int[landmarkCount][];
+		this.toLandmarks = new int[landmarkCount][];
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int[] nearest = new int[cellCount]; // travel time from the nearest landmark chosen so far
+		Arrays.fill(nearest, MazeCell.IMPASSABLE);
+		int landmark = 0;
+		for(int l = 0; l < landmarkCount; l++) {
+			fromLandmarks[l] = new DeltaStepping(graph, false, 0, pool).run(landmark);
+			toLandmarks[l] = new DeltaStepping(graph, true, 0, pool).run(landmark);
+			// the next landmark is the reachable cell farthest from every landmark so far
+			int next = -1;
+			for(int cell = 0; cell < cellCount; cell++) {
+				nearest[cell] = Math.min(nearest[cell], fromLandmarks[l][cell]);
+				if(nearest[cell] != MazeCell.IMPASSABLE && (next < 0 || nearest[cell] > nearest[next])) {
+					next = cell;
+				}
+			}
+			if(next < 0 || nearest[next] == 0) {
+				// every reachable cell is a landmark already, so start from a cell no landmark reaches
+				next = (landmark + 1) % cellCount;
+				for(int cell = 0; cell < cellCount; cell++) {
+					if(nearest[cell] == MazeCell.IMPASSABLE) {
+						next = cell;
+						break;
+					}
+				}
+			}
+			landmark = next;
+		}
+	}
+
+	/**
+	 * Estimates the shortest travel time from a cell to a destination.
+	 *
+	 * @param cell - the index of the cell the route starts at
+	 * @param destination - the index of the cell the route ends at
+	 * @return a lower bound of the travel time, or UNREACHABLE if the landmarks
+	 * prove that the destination cannot be reached from the cell
+	 */
+	long estimate(int cell, int destination) {
+		long estimate = 0;
+		for(int l = 0; l < toLandmarks.length; l++) {
+			int[] to = toLandmarks[l];
+			int[] from = fromLandmarks[l];
+			if(to[destination] != MazeCell.IMPASSABLE) {
+				if(to[cell] == MazeCell.IMPASSABLE) {
+					return UNREACHABLE; // otherwise the cell could reach the landmark through the destination
+				}
+				estimate = Math.max(estimate, (long)to[cell] - to[destination]);
+			}
+			if(from[cell] != MazeCell.IMPASSABLE) {
+				if(from[destination] == MazeCell.IMPASSABLE) {
+					return UNREACHABLE; // otherwise the landmark could reach the destination through the cell
+				}
+				estimate = Math.max(estimate, (long)from[destination] - from[cell]);
+			}
+		}
+		return estimate;
+	}
+
+	/**
+	 * @return the number of landmarks
+	 */
+	int landmarkCount() {
+		return toLandmarks.length;
+	}
+
+}
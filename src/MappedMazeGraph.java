@@ -0,0 +1,777 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The MappedMazeGraph class is a PassageGraph whose passages are stored outside
+ * of the Java heap. The graph is kept in the same form as a MazeGraph, with every
+ * pair of symmetric passages stored once and directed passages in a side table,
+ * but in direct ByteBuffers or in a memory-mapped file, so that very large mazes
+ * neither require a large heap nor add to garbage collection pauses. Storage is
+ * split into chunks of CHUNK_SIZE bytes because a single buffer cannot address
+ * more than two gigabytes. MazeCells are only created when a caller asks for
+ * them, for example when a MazeRoute is generated.
+ *
+ * A graph can be copied from any PassageGraph with copyOf() or write(), or
+ * built from passages that are added one at a time with a Writer from create(),
+ * which keeps every passage in a memory-mapped scratch file instead of the heap
+ * so that graphs larger than the heap can be built.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MappedMazeGraph implements PassageGraph {
+	// public class constants
+	public final static int CHUNK_SIZE = 1 << 30;
+
+	// private class constants
+	private final static int MAGIC = 0x4D5A4752;
+	private final static int FORMAT_VERSION = 2;
+	private final static int HEADER_SIZE = 64;
+	private final static int CHUNK_SHIFT = 30;
+	private final static long CHUNK_MASK = CHUNK_SIZE - 1;
+
+	// private class variables
+	private ByteBuffer[] chunks;
+	private Layout layout;
+
+	/**
+	 * Constructor of the MappedMazeGraph class which reads the layout of the
+	 * graph from the header of the storage and checks that the storage holds
+	 * every array the header describes.
+	 *
+	 * @param chunks - the storage of the graph
+	 * @throws IOException if the storage does not contain a graph
+	 */
+	private MappedMazeGraph(ByteBuffer[] chunks) throws IOException {
+		this.chunks = chunks;
+		if(chunks.length == 0 || chunks[0].limit() < HEADER_SIZE
+				|| chunks[0].getInt(0) != MAGIC || chunks[0].getInt(4) != FORMAT_VERSION) {
+			throw new IOException("The storage does not contain a maze graph");
+		}
+		int cellCount = chunks[0].getInt(8);
+		int exceptionCount = chunks[0].getInt(12);
+		long passageCount = chunks[0].getLong(16);
+		long pairCount = chunks[0].getLong(24);
+		long exceptionPassages = chunks[0].getLong(32);
+		if(cellCount < 0 || exceptionCount < 0 || exceptionCount > cellCount
+				|| passageCount < 0 || passageCount > Long.MAX_VALUE / 16 || pairCount < 0 || pairCount > Integer.MAX_VALUE
+				|| exceptionPassages < 0 || exceptionPassages % 2 != 0 || exceptionPassages > 2 * passageCount
+				|| passageCount != 2 * pairCount + exceptionPassages / 2) {
+			throw new IOException("The header of the maze graph is inconsistent");
+		}
+		this.layout = new Layout(cellCount, exceptionCount, passageCount, pairCount, exceptionPassages);
+		long size = 0;
+		for(ByteBuffer chunk : chunks) {
+			size += chunk.limit();
+		}
+		if(size != layout.size) {
+			throw new IOException("The maze graph takes " + size + " bytes instead of " + layout.size);
+		}
+		if(getLong(layout.pairOffsetsStart) != 0 || getLong(layout.pairOffsetsStart + 8L * cellCount) != pairCount
+				|| getLong(layout.lowerOffsetsStart) != 0 || getLong(layout.lowerOffsetsStart + 8L * cellCount) != pairCount
+				|| getLong(layout.exceptionOffsetsStart + 16L * exceptionCount) != exceptionPassages) {
+			throw new IOException("The passage lists of the maze graph are inconsistent");
+		}
+		if(cellCount > 0) {
+			int lastWord = (cellCount - 1) >>> 6;
+			if(getInt(layout.exceptionRanksStart + 4L * lastWord)
+					+ Long.bitCount(getLong(layout.exceptionBitsStart + 8L * lastWord)) != exceptionCount) {
+				throw new IOException("The marked cells of the maze graph are inconsistent");
+			}
+		}
+	}
+
+	/**
+	 * Writes a PassageGraph to a file in the format read by open(). The file is
+	 * mapped into memory while it is written, so the graph is not copied to the
+	 * heap.
+	 *
+	 * @param graph - the graph to write
+	 * @param file - the file to create or overwrite
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(PassageGraph graph, File file) throws IOException {
+		Layout layout = measure(graph);
+		RandomAccessFile stream = new RandomAccessFile(file, "rw");
+		try {
+			stream.setLength(0);
+			stream.setLength(layout.size);
+			ByteBuffer[] chunks = map(stream.getChannel(), FileChannel.MapMode.READ_WRITE, layout.size);
+			writeGraph(graph, layout, chunks);
+			for(ByteBuffer chunk : chunks) {
+				((MappedByteBuffer)chunk).force();
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Creates a Writer that builds a graph in a file from passages added one at
+	 * a time, in the format read by open(). The passages are kept in a scratch
+	 * file next to the file until the Writer is closed.
+	 *
+	 * @param file - the file to create or overwrite
+	 * @param cellCount - the number of cells of the graph
+	 * @param passageCapacity - the largest number of passages that will be added
+	 * @return a Writer for the graph
+	 * @throws IOException if the scratch file cannot be created
+	 */
+	public static Writer create(File file, int cellCount, long passageCapacity) throws IOException {
+		if(cellCount < 0 || passageCapacity < 0 || passageCapacity > Long.MAX_VALUE / 16) {
+			throw new IllegalArgumentException("Invalid size of " + cellCount + " cells and "
+					+ passageCapacity + " passages");
+		}
+		return new Writer(file, cellCount, passageCapacity);
+	}
+
+	/**
+	 * Maps a file written by write() into memory. Only the parts of the file that
+	 * are used are loaded, and they are paged in and out by the operating system.
+	 *
+	 * @param file - the file containing the graph
+	 * @return a MappedMazeGraph backed by the file
+	 * @throws IOException if the file cannot be read or does not contain a graph
+	 */
+	public static MappedMazeGraph open(File file) throws IOException {
+		RandomAccessFile stream = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = stream.getChannel();
+			// the mappings stay valid after the channel is closed
+			return new MappedMazeGraph(map(channel, FileChannel.MapMode.READ_ONLY, channel.size()));
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Copies a PassageGraph into direct ByteBuffers outside of the Java heap.
+	 *
+	 * @param graph - the graph to copy
+	 * @return a MappedMazeGraph backed by direct memory
+	 */
+	public static MappedMazeGraph copyOf(PassageGraph graph) {
+		Layout layout = measure(graph);
+		ByteBuffer[] chunks = new ByteBuffer[(int)((layout.size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+		for(int i = 0; i < chunks.length; i++) {
+			int length = (int)Math.min(CHUNK_SIZE, layout.size - ((long)i << CHUNK_SHIFT));
+			chunks[i] = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		writeGraph(graph, layout, chunks);
+		try {
+			return new MappedMazeGraph(chunks);
+		} catch(IOException e) {
+			// the graph was just written in the expected layout
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public int cellCount() {
+		return layout.cellCount;
+	}
+
+	@Override
+	public long passageCount() {
+		return layout.passageCount;
+	}
+
+	@Override
+	public int passageCount(int cell) {
+		int count = pairCount(cell);
+		if(isException(cell)) {
+			long offset = layout.exceptionOffsetsStart + 16L * exceptionRank(cell);
+			count += (int)(getLong(offset + 8) - getLong(offset));
+		}
+		return count;
+	}
+
+	@Override
+	public int passageTarget(int cell, int passage) {
+		long pair = pairPosition(cell, passage);
+		if(pair >= 0) {
+			return getInt(layout.pairEndsStart + 4 * pair) ^ cell;
+		}
+		return getInt(layout.exceptionEndsStart + 4 * exceptionPosition(cell, passage, 0));
+	}
+
+	@Override
+	public int passageTime(int cell, int passage) {
+		long pair = pairPosition(cell, passage);
+		if(pair >= 0) {
+			return getInt(layout.pairTimesStart + 4 * pair);
+		}
+		return getInt(layout.exceptionTimesStart + 4 * exceptionPosition(cell, passage, 0));
+	}
+
+	@Override
+	public int incomingCount(int cell) {
+		int count = pairCount(cell);
+		if(isException(cell)) {
+			long offset = layout.exceptionOffsetsStart + 16L * exceptionRank(cell);
+			count += (int)(getLong(offset + 16) - getLong(offset + 8));
+		}
+		return count;
+	}
+
+	@Override
+	public int incomingSource(int cell, int passage) {
+		long pair = pairPosition(cell, passage);
+		if(pair >= 0) {
+			return getInt(layout.pairEndsStart + 4 * pair) ^ cell;
+		}
+		return getInt(layout.exceptionEndsStart + 4 * exceptionPosition(cell, passage, 1));
+	}
+
+	@Override
+	public int incomingTime(int cell, int passage) {
+		long pair = pairPosition(cell, passage);
+		if(pair >= 0) {
+			return getInt(layout.pairTimesStart + 4 * pair);
+		}
+		return getInt(layout.exceptionTimesStart + 4 * exceptionPosition(cell, passage, 1));
+	}
+
+	@Override
+	public MazeCell cellAt(int index) {
+		return new GraphMazeCell(this, index);
+	}
+
+	@Override
+	public int indexOf(MazeCell cell) {
+		if(cell instanceof GraphMazeCell && ((GraphMazeCell)cell).graph() == this) {
+			int index = ((GraphMazeCell)cell).index();
+			return index >= 0 && index < cellCount() ? index : -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the number of pairs of passages stored once for both directions
+	 */
+	long pairCount() {
+		return layout.pairCount;
+	}
+
+	/**
+	 * @return the number of cells with directed passages in the side table
+	 */
+	int exceptionCount() {
+		return layout.exceptionCount;
+	}
+
+	/**
+	 * @return the number of pairs of a cell with its lower and higher neighbors
+	 */
+	private int pairCount(int cell) {
+		long lower = layout.lowerOffsetsStart + 8L * cell;
+		long upper = layout.pairOffsetsStart + 8L * cell;
+		return (int)(getLong(lower + 8) - getLong(lower) + getLong(upper + 8) - getLong(upper));
+	}
+
+	/**
+	 * Determines where a passage of a cell is stored if it belongs to a pair.
+	 *
+	 * @return the position of the pair, or -1 if the passage is directed
+	 */
+	private long pairPosition(int cell, int passage) {
+		long lowerOffset = getLong(layout.lowerOffsetsStart + 8L * cell);
+		long lowerCount = getLong(layout.lowerOffsetsStart + 8L * (cell + 1)) - lowerOffset;
+		if(passage < lowerCount) {
+			return getInt(layout.lowerPairsStart + 4 * (lowerOffset + passage));
+		}
+		long upperOffset = getLong(layout.pairOffsetsStart + 8L * cell);
+		if(passage - lowerCount < getLong(layout.pairOffsetsStart + 8L * (cell + 1)) - upperOffset) {
+			return upperOffset + passage - lowerCount;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param side - 0 for the passages out of the cell, 1 for the passages into it
+	 * @return the position of a directed passage of a cell in the side table
+	 */
+	private long exceptionPosition(int cell, int passage, int side) {
+		long offset = getLong(layout.exceptionOffsetsStart + 8L * (2L * exceptionRank(cell) + side));
+		return offset + passage - pairCount(cell);
+	}
+
+	/**
+	 * @return true if the cell has directed passages in the side table
+	 */
+	private boolean isException(int cell) {
+		return (getLong(layout.exceptionBitsStart + 8L * (cell >>> 6)) & (1L << cell)) != 0;
+	}
+
+	/**
+	 * @return the number of marked cells before the cell, its position in the side table
+	 */
+	private int exceptionRank(int cell) {
+		long bits = getLong(layout.exceptionBitsStart + 8L * (cell >>> 6));
+		return getInt(layout.exceptionRanksStart + 4L * (cell >>> 6)) + Long.bitCount(bits & ((1L << cell) - 1));
+	}
+
+	/**
+	 * Reads an int at an absolute byte position of the storage.
+	 */
+	private int getInt(long position) {
+		return getInt(chunks, position);
+	}
+
+	/**
+	 * Reads a long at an absolute byte position of the storage.
+	 */
+	private long getLong(long position) {
+		return getLong(chunks, position);
+	}
+
+	/**
+	 * Reads an int at an absolute byte position of a storage.
+	 */
+	private static int getInt(ByteBuffer[] chunks, long position) {
+		return chunks[(int)(position >>> CHUNK_SHIFT)].getInt((int)(position & CHUNK_MASK));
+	}
+
+	/**
+	 * Reads a long at an absolute byte position of a storage.
+	 */
+	private static long getLong(ByteBuffer[] chunks, long position) {
+		return chunks[(int)(position >>> CHUNK_SHIFT)].getLong((int)(position & CHUNK_MASK));
+	}
+
+	/**
+	 * Writes an int at an absolute byte position of a storage.
+	 */
+	private static void putInt(ByteBuffer[] chunks, long position, int value) {
+		chunks[(int)(position >>> CHUNK_SHIFT)].putInt((int)(position & CHUNK_MASK), value);
+	}
+
+	/**
+	 * Writes a long at an absolute byte position of a storage.
+	 */
+	private static void putLong(ByteBuffer[] chunks, long position, long value) {
+		chunks[(int)(position >>> CHUNK_SHIFT)].putLong((int)(position & CHUNK_MASK), value);
+	}
+
+	/**
+	 * @return the number of bytes of an int array padded to a multiple of eight
+	 */
+	private static long alignedIntBytes(long length) {
+		return (4 * length + 7) & ~7L;
+	}
+
+	/**
+	 * Maps a region of a file into chunks.
+	 */
+	private static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+		ByteBuffer[] chunks = new ByteBuffer[(int)((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+		for(int i = 0; i < chunks.length; i++) {
+			long position = (long)i << CHUNK_SHIFT;
+			long length = Math.min(CHUNK_SIZE, size - position);
+			chunks[i] = channel.map(mode, position, length).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return chunks;
+	}
+
+	/**
+	 * Counts the pairs, marked cells and directed passages of a graph to lay
+	 * out its storage.
+	 *
+	 * @param graph - the graph to measure
+	 * @return the layout of the storage of the graph
+	 */
+	private static Layout measure(PassageGraph graph) {
+		SymmetricPassages passages = new SymmetricPassages();
+		int exceptionCount = 0;
+		long pairCount = 0;
+		long exceptionPassages = 0;
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			passages.split(graph, cell);
+			pairCount += passages.upperCount();
+			if(!passages.isSymmetric()) {
+				exceptionCount++;
+				exceptionPassages += passages.directedOutCount() + passages.directedInCount();
+			}
+		}
+		if(pairCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A MappedMazeGraph holds at most " + Integer.MAX_VALUE + " pairs of passages");
+		}
+		return new Layout(graph.cellCount(), exceptionCount, 2 * pairCount + exceptionPassages / 2, pairCount,
+				exceptionPassages);
+	}
+
+	/**
+	 * Writes the header and all arrays of a graph into storage of the measured
+	 * size. Values never straddle two chunks since every array starts at a
+	 * multiple of eight bytes. The first pass writes the offsets and the bitset;
+	 * the second writes the pairs and the directed passages and adds the
+	 * position of every pair to the list of its higher cell, advancing the
+	 * offsets of the lower lists as cursors, which are shifted back afterwards.
+	 *
+	 * @param graph - the graph to write
+	 * @param layout - the layout measured for the graph
+	 * @param chunks - the storage to write to
+	 */
+	private static void writeGraph(PassageGraph graph, Layout layout, ByteBuffer[] chunks) {
+		int cellCount = layout.cellCount;
+		putInt(chunks, 0, MAGIC);
+		putInt(chunks, 4, FORMAT_VERSION);
+		putInt(chunks, 8, cellCount);
+		putInt(chunks, 12, layout.exceptionCount);
+		putLong(chunks, 16, layout.passageCount);
+		putLong(chunks, 24, layout.pairCount);
+		putLong(chunks, 32, layout.exceptionPassages);
+		SymmetricPassages passages = new SymmetricPassages();
+		long pairPosition = 0;
+		long lowerPosition = 0;
+		long exceptionPosition = 0;
+		int exceptions = 0;
+		long bits = 0;
+		for(int cell = 0; cell < cellCount; cell++) {
+			passages.split(graph, cell);
+			putLong(chunks, layout.pairOffsetsStart + 8L * cell, pairPosition);
+			putLong(chunks, layout.lowerOffsetsStart + 8L * cell, lowerPosition);
+			pairPosition += passages.upperCount();
+			lowerPosition += passages.lowerCount();
+			if((cell & 63) == 0) {
+				putInt(chunks, layout.exceptionRanksStart + 4L * (cell >>> 6), exceptions);
+			}
+			if(!passages.isSymmetric()) {
+				bits |= 1L << cell;
+				putLong(chunks, layout.exceptionOffsetsStart + 16L * exceptions, exceptionPosition);
+				exceptionPosition += passages.directedOutCount();
+				putLong(chunks, layout.exceptionOffsetsStart + 16L * exceptions + 8, exceptionPosition);
+				exceptionPosition += passages.directedInCount();
+				exceptions++;
+			}
+			if((cell & 63) == 63 || cell == cellCount - 1) {
+				putLong(chunks, layout.exceptionBitsStart + 8L * (cell >>> 6), bits);
+				bits = 0;
+			}
+		}
+		putLong(chunks, layout.pairOffsetsStart + 8L * cellCount, pairPosition);
+		putLong(chunks, layout.lowerOffsetsStart + 8L * cellCount, lowerPosition);
+		putLong(chunks, layout.exceptionOffsetsStart + 16L * exceptions, exceptionPosition);
+		pairPosition = 0;
+		exceptionPosition = 0;
+		for(int cell = 0; cell < cellCount; cell++) {
+			passages.split(graph, cell);
+			for(int i = 0; i < passages.upperCount(); i++) {
+				int neighbor = SymmetricPassages.neighbor(passages.upper(i));
+				putInt(chunks, layout.pairEndsStart + 4 * pairPosition, cell ^ neighbor);
+				putInt(chunks, layout.pairTimesStart + 4 * pairPosition, SymmetricPassages.time(passages.upper(i)));
+				long cursor = layout.lowerOffsetsStart + 8L * neighbor;
+				long lower = getLong(chunks, cursor);
+				putInt(chunks, layout.lowerPairsStart + 4 * lower, (int)pairPosition);
+				putLong(chunks, cursor, lower + 1);
+				pairPosition++;
+			}
+			if(!passages.isSymmetric()) {
+				for(int i = 0; i < passages.directedOutCount(); i++) {
+					putInt(chunks, layout.exceptionEndsStart + 4 * exceptionPosition,
+							SymmetricPassages.neighbor(passages.directedOut(i)));
+					putInt(chunks, layout.exceptionTimesStart + 4 * exceptionPosition,
+							SymmetricPassages.time(passages.directedOut(i)));
+					exceptionPosition++;
+				}
+				for(int i = 0; i < passages.directedInCount(); i++) {
+					putInt(chunks, layout.exceptionEndsStart + 4 * exceptionPosition,
+							SymmetricPassages.neighbor(passages.directedIn(i)));
+					putInt(chunks, layout.exceptionTimesStart + 4 * exceptionPosition,
+							SymmetricPassages.time(passages.directedIn(i)));
+					exceptionPosition++;
+				}
+			}
+		}
+		// every cursor now holds the offset of the next cell
+		for(int cell = cellCount - 1; cell > 0; cell--) {
+			putLong(chunks, layout.lowerOffsetsStart + 8L * cell,
+					getLong(chunks, layout.lowerOffsetsStart + 8L * (cell - 1)));
+		}
+		if(cellCount > 0) {
+			putLong(chunks, layout.lowerOffsetsStart, 0);
+		}
+	}
+
+	/**
+	 * The Writer class builds a MappedMazeGraph file from passages added in order
+	 * of the cells they leave. The passages go straight into a memory-mapped
+	 * scratch file in compressed sparse row form, and the number of passages
+	 * into every cell is counted there as well. close() places every passage in
+	 * the incoming list of its target within the scratch file, using the offsets
+	 * of the incoming lists as cursors, and then writes the graph from the
+	 * scratch file in the format read by open(). Neither step keeps more than the
+	 * passages of one cell on the heap.
+	 */
+	public static class Writer implements Closeable {
+		// private class variables
+		private File file;
+		private File scratchFile;
+		private RandomAccessFile scratch;
+		private ByteBuffer[] chunks;
+		private ScratchLayout layout;
+		private int cell; // the cell the last passage left from
+		private long passageCount;
+		private boolean isClosed;
+
+		/**
+		 * Constructor of the Writer class which creates and maps the scratch file.
+		 */
+		private Writer(File file, int cellCount, long passageCapacity) throws IOException {
+			this.file = file;
+			File directory = file.getAbsoluteFile().getParentFile();
+			this.scratchFile = File.createTempFile(file.getName(), ".passages", directory);
+			this.layout = new ScratchLayout(cellCount, passageCapacity);
+			try {
+				this.scratch = new RandomAccessFile(scratchFile, "rw");
+				scratch.setLength(layout.size);
+				this.chunks = map(scratch.getChannel(), FileChannel.MapMode.READ_WRITE, layout.size);
+			} catch(IOException e) {
+				if(scratch != null) {
+					scratch.close();
+				}
+				scratchFile.delete();
+				throw e;
+			}
+		}
+
+		/**
+		 * Adds a passage to the graph. Passages must be added in order of the
+		 * cell they leave; passages with the time IMPASSABLE are accepted but not
+		 * part of the graph, as in a MazeBuilder.
+		 *
+		 * @param from - the index of the cell the passage leaves from
+		 * @param to - the index of the cell the passage leads to
+		 * @param time - the time required to travel the passage
+		 * @throws IllegalArgumentException if the passage is invalid or out of order
+		 * @throws IllegalStateException if the Writer is closed or full
+		 */
+		public void addPassage(int from, int to, int time) {
+			if(isClosed) {
+				throw new IllegalStateException("The writer is closed");
+			}
+			if(from < cell || from >= layout.cellCount || to < 0 || to >= layout.cellCount || time <= 0) {
+				throw new IllegalArgumentException("Invalid passage from " + from + " to " + to + " with time "
+						+ time + " after a passage from " + cell);
+			}
+			while(cell < from) {
+				putLong(chunks, layout.offsetsStart + 8L * ++cell, passageCount);
+			}
+			if(time == MazeCell.IMPASSABLE) {
+				return;
+			}
+			if(passageCount == layout.passageCapacity) {
+				throw new IllegalStateException("The writer holds at most " + layout.passageCapacity + " passages");
+			}
+			putInt(chunks, layout.targetsStart + 4 * passageCount, to);
+			putInt(chunks, layout.timesStart + 4 * passageCount, time);
+			passageCount++;
+			long count = layout.incomingOffsetsStart + 8L * (to + 1);
+			putLong(chunks, count, getLong(chunks, count) + 1);
+		}
+
+		/**
+		 * @return the number of passages added so far
+		 */
+		public long passageCount() {
+			return passageCount;
+		}
+
+		/**
+		 * Builds the incoming passages, writes the graph to the file and deletes
+		 * the scratch file.
+		 *
+		 * @throws IOException if the file cannot be written
+		 */
+		@Override
+		public void close() throws IOException {
+			if(isClosed) {
+				return;
+			}
+			isClosed = true;
+			try {
+				int cellCount = layout.cellCount;
+				while(cell < cellCount) {
+					putLong(chunks, layout.offsetsStart + 8L * ++cell, passageCount);
+				}
+				for(int i = 0; i < cellCount; i++) {
+					long offset = layout.incomingOffsetsStart + 8L * (i + 1);
+					putLong(chunks, offset, getLong(chunks, offset) + getLong(chunks, offset - 8));
+				}
+				// place every passage, advancing the offset of its target as a cursor
+				for(int source = 0; source < cellCount; source++) {
+					long end = getLong(chunks, layout.offsetsStart + 8L * (source + 1));
+					for(long i = getLong(chunks, layout.offsetsStart + 8L * source); i < end; i++) {
+						int target = getInt(chunks, layout.targetsStart + 4 * i);
+						long cursor = layout.incomingOffsetsStart + 8L * target;
+						long position = getLong(chunks, cursor);
+						putInt(chunks, layout.sourcesStart + 4 * position, source);
+						putInt(chunks, layout.incomingTimesStart + 4 * position, getInt(chunks, layout.timesStart + 4 * i));
+						putLong(chunks, cursor, position + 1);
+					}
+				}
+				for(int i = cellCount - 1; i > 0; i--) {
+					putLong(chunks, layout.incomingOffsetsStart + 8L * i,
+							getLong(chunks, layout.incomingOffsetsStart + 8L * (i - 1)));
+				}
+				if(cellCount > 0) {
+					putLong(chunks, layout.incomingOffsetsStart, 0);
+				}
+				write(new ScratchGraph(chunks, layout, passageCount), file);
+			} finally {
+				scratch.close();
+				chunks = null;
+				scratchFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * The ScratchLayout class computes where the arrays of the scratch file of a
+	 * Writer start: the passages out of every cell and into every cell in
+	 * compressed sparse row form.
+	 */
+	private static class ScratchLayout {
+		private int cellCount;
+		private long passageCapacity;
+		private long offsetsStart; // long[cellCount + 1]
+		private long targetsStart; // int[passageCapacity]
+		private long timesStart; // int[passageCapacity]
+		private long incomingOffsetsStart; // long[cellCount + 1]
+		private long sourcesStart; // int[passageCapacity]
+		private long incomingTimesStart; // int[passageCapacity]
+		private long size;
+
+		ScratchLayout(int cellCount, long passageCapacity) {
+			this.cellCount = cellCount;
+			this.passageCapacity = passageCapacity;
+			offsetsStart = 0;
+			targetsStart = offsetsStart + 8L * (cellCount + 1);
+			timesStart = targetsStart + alignedIntBytes(passageCapacity);
+			incomingOffsetsStart = timesStart + alignedIntBytes(passageCapacity);
+			sourcesStart = incomingOffsetsStart + 8L * (cellCount + 1);
+			incomingTimesStart = sourcesStart + alignedIntBytes(passageCapacity);
+			size = incomingTimesStart + alignedIntBytes(passageCapacity);
+		}
+	}
+
+	/**
+	 * The ScratchGraph class is a PassageGraph view of the scratch file of a
+	 * Writer, from which the pairs are found while the graph is written.
+	 */
+	private static class ScratchGraph implements PassageGraph {
+		private ByteBuffer[] chunks;
+		private ScratchLayout layout;
+		private long passageCount;
+
+		ScratchGraph(ByteBuffer[] chunks, ScratchLayout layout, long passageCount) {
+			this.chunks = chunks;
+			this.layout = layout;
+			this.passageCount = passageCount;
+		}
+
+		@Override
+		public int cellCount() {
+			return layout.cellCount;
+		}
+
+		@Override
+		public long passageCount() {
+			return passageCount;
+		}
+
+		@Override
+		public int passageCount(int cell) {
+			return (int)(getLong(chunks, layout.offsetsStart + 8L * (cell + 1))
+					- getLong(chunks, layout.offsetsStart + 8L * cell));
+		}
+
+		@Override
+		public int passageTarget(int cell, int passage) {
+			return getInt(chunks, layout.targetsStart + 4 * (getLong(chunks, layout.offsetsStart + 8L * cell) + passage));
+		}
+
+		@Override
+		public int passageTime(int cell, int passage) {
+			return getInt(chunks, layout.timesStart + 4 * (getLong(chunks, layout.offsetsStart + 8L * cell) + passage));
+		}
+
+		@Override
+		public int incomingCount(int cell) {
+			return (int)(getLong(chunks, layout.incomingOffsetsStart + 8L * (cell + 1))
+					- getLong(chunks, layout.incomingOffsetsStart + 8L * cell));
+		}
+
+		@Override
+		public int incomingSource(int cell, int passage) {
+			return getInt(chunks, layout.sourcesStart
+					+ 4 * (getLong(chunks, layout.incomingOffsetsStart + 8L * cell) + passage));
+		}
+
+		@Override
+		public int incomingTime(int cell, int passage) {
+			return getInt(chunks, layout.incomingTimesStart
+					+ 4 * (getLong(chunks, layout.incomingOffsetsStart + 8L * cell) + passage));
+		}
+
+		@Override
+		public MazeCell cellAt(int index) {
+			throw new UnsupportedOperationException("The passages of a graph under construction have no cells");
+		}
+
+		@Override
+		public int indexOf(MazeCell cell) {
+			return -1;
+		}
+	}
+
+	/**
+	 * The Layout class computes where every array of a graph starts in its
+	 * storage from the counts in the header.
+	 */
+	private static class Layout {
+		private int cellCount;
+		private int exceptionCount;
+		private long passageCount;
+		private long pairCount;
+		private long exceptionPassages; // directed passages out of and into the marked cells
+		private long pairOffsetsStart; // long[cellCount + 1], pairs with higher cells
+		private long lowerOffsetsStart; // long[cellCount + 1], pairs with lower cells
+		private long exceptionBitsStart; // long[words]
+		private long exceptionRanksStart; // int[words]
+		private long exceptionOffsetsStart; // long[2 * exceptionCount + 1]
+		private long pairEndsStart; // int[pairCount]
+		private long pairTimesStart; // int[pairCount]
+		private long lowerPairsStart; // int[pairCount]
+		private long exceptionEndsStart; // int[exceptionPassages]
+		private long exceptionTimesStart; // int[exceptionPassages]
+		private long size;
+
+		Layout(int cellCount, int exceptionCount, long passageCount, long pairCount, long exceptionPassages) {
+			this.cellCount = cellCount;
+			this.exceptionCount = exceptionCount;
+			this.passageCount = passageCount;
+			this.pairCount = pairCount;
+			this.exceptionPassages = exceptionPassages;
+			long words = ((long)cellCount + 63) >>> 6;
+			pairOffsetsStart = HEADER_SIZE;
+			lowerOffsetsStart = pairOffsetsStart + 8L * (cellCount + 1);
+			exceptionBitsStart = lowerOffsetsStart + 8L * (cellCount + 1);
+			exceptionRanksStart = exceptionBitsStart + 8 * words;
+			exceptionOffsetsStart = exceptionRanksStart + alignedIntBytes(words);
+			pairEndsStart = exceptionOffsetsStart + 8L * (2L * exceptionCount + 1);
+			pairTimesStart = pairEndsStart + alignedIntBytes(pairCount);
+			lowerPairsStart = pairTimesStart + alignedIntBytes(pairCount);
+			exceptionEndsStart = lowerPairsStart + alignedIntBytes(pairCount);
+			exceptionTimesStart = exceptionEndsStart + alignedIntBytes(exceptionPassages);
+			size = exceptionTimesStart + alignedIntBytes(exceptionPassages);
+		}
+	}
+
+}
@@ -0,0 +1,242 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case class for the MappedMazeGraph class. This class tests all public
+ * methods of the MappedMazeGraph class for proper and expected functionality.
+ * 
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MappedMazeGraphTest {
+	// private class variables
+	private Maze maze;
+	private PassageGraph graph;
+	private MazeCell cellOne;
+	private MazeCell cellTwo;
+	private MazeCell cellThree;
+	
+	/**
+	 * Creates a small Maze whose graph is copied into off-heap storage.
+	 */
+	@Before
+	public void generateMaze() {
+		/*
+		 * cellOne -2-> cellTwo
+		 * cellOne -7-> cellThree
+		 * cellTwo -3-> cellThree
+		 * cellThree -1-> cellOne
+		 */
+		cellOne = new MazeCell();
+		cellTwo = new MazeCell();
+		cellThree = new MazeCell();
+		Map<MazeCell, Integer> map = new HashMap<MazeCell, Integer>();
+		map.put(cellTwo, new Integer(2));
+		map.put(cellThree, new Integer(7));
+		cellOne.addPassages(map, new MazeCell.Status());
+		map = new HashMap<MazeCell, Integer>();
+		map.put(cellThree, new Integer(3));
+		cellTwo.addPassages(map, new MazeCell.Status());
+		map = new HashMap<MazeCell, Integer>();
+		map.put(cellOne, new Integer(1));
+		cellThree.addPassages(map, new MazeCell.Status());
+		Set<MazeCell> cells = new HashSet<MazeCell>();
+		cells.add(cellOne);
+		cells.add(cellTwo);
+		cells.add(cellThree);
+		maze = new Maze();
+		try {
+			maze.addCells(cells);
+			graph = maze.graph();
+		} catch(UninitializedObjectException e) {
+			fail("Initialization of the Maze failed");
+		}
+	}
+	
+	/**
+	 * Tests that copyOf() stores the same passages as the original graph.
+	 */
+	@Test
+	public void testCopyOf() {
+		assertSameGraph(graph, MappedMazeGraph.copyOf(graph));
+		assertSameGraph(new GridMaze(4, 4, false), MappedMazeGraph.copyOf(new GridMaze(4, 4, false)));
+	}
+	
+	/**
+	 * Tests the write() and open() methods with valid and invalid files.
+	 */
+	@Test
+	public void testWriteAndOpen() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".graph");
+			MappedMazeGraph.write(graph, file);
+			MappedMazeGraph mapped = MappedMazeGraph.open(file);
+			assertSameGraph(graph, mapped);
+			// test routing on a Maze backed by the mapped file
+			Maze offHeap = new Maze();
+			offHeap.addGraph(mapped);
+			List<MazeCell> route = new LinkedList<MazeCell>();
+			route.add(mapped.cellAt(graph.indexOf(cellOne)));
+			route.add(mapped.cellAt(graph.indexOf(cellTwo)));
+			route.add(mapped.cellAt(graph.indexOf(cellThree)));
+			assertEquals("routeShortest() is incorrect on a mapped graph", route,
+					offHeap.routeShortest(route.get(0), route.get(2)).getCells());
+			assertEquals("averageExitTime() is incorrect on a mapped graph", new Double(4.0),
+					offHeap.averageExitTime(route.get(2), new GreedySelector()));
+			// test a truncated file and a file whose header does not match its arrays
+			RandomAccessFile stream = new RandomAccessFile(file, "rw");
+			long length = stream.length();
+			stream.setLength(length - 8);
+			stream.close();
+			try {
+				MappedMazeGraph.open(file);
+				fail("open() should reject a truncated file");
+			} catch(IOException e) {
+				// test passed because exception was thrown
+			}
+			MappedMazeGraph.write(graph, file);
+			stream = new RandomAccessFile(file, "rw");
+			stream.seek(16);
+			stream.writeLong(Long.reverseBytes(graph.passageCount() + 2));
+			stream.close();
+			try {
+				MappedMazeGraph.open(file);
+				fail("open() should reject a file with a wrong passage count");
+			} catch(IOException e) {
+				// test passed because exception was thrown
+			}
+			// test a file that does not contain a graph
+			FileOutputStream out = new FileOutputStream(file);
+			out.write(new byte[64]);
+			out.close();
+			try {
+				MappedMazeGraph.open(file);
+				fail("open() should reject a file without a graph");
+			} catch(IOException e) {
+				// test passed because exception was thrown
+			}
+		} catch(IOException e) {
+			fail("Writing or mapping the graph generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("Routing on a mapped graph generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+	
+	/**
+	 * Tests that a Writer builds the same graph as copyOf() from passages added
+	 * one at a time, and rejects invalid passages.
+	 */
+	@Test
+	public void testWriter() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".graph");
+			GridMaze grid = new GridMaze(7, 5, true);
+			for(int x = 0; x < grid.width(); x++) {
+				for(int y = 0; y < grid.height(); y++) {
+					grid.setTime(x, y, 1 + (x + y) % 3);
+					grid.connect(x, y, GridMaze.EAST);
+					grid.connect(x, y, GridMaze.SOUTH);
+				}
+			}
+			grid.openPassage(3, 2, GridMaze.NORTH);
+			MappedMazeGraph.Writer writer = MappedMazeGraph.create(file, grid.cellCount(), grid.passageCount() + 1);
+			for(int cell = 0; cell < grid.cellCount(); cell++) {
+				for(int p = 0; p < grid.passageCount(cell); p++) {
+					writer.addPassage(cell, grid.passageTarget(cell, p), grid.passageTime(cell, p));
+				}
+				if(cell == 20) {
+					writer.addPassage(cell, 0, MazeCell.IMPASSABLE);
+				}
+			}
+			assertEquals("passageCount() counts an impassable passage", grid.passageCount(), writer.passageCount());
+			try {
+				writer.addPassage(3, 4, 1);
+				fail("addPassage() accepted a passage out of order");
+			} catch(IllegalArgumentException e) {
+				// expected
+			}
+			try {
+				writer.addPassage(grid.cellCount() - 1, grid.cellCount(), 1);
+				fail("addPassage() accepted a passage to a cell outside of the graph");
+			} catch(IllegalArgumentException e) {
+				// expected
+			}
+			writer.close();
+			assertSameGraph(MappedMazeGraph.copyOf(grid), MappedMazeGraph.open(file));
+			File[] scratch = file.getAbsoluteFile().getParentFile().listFiles();
+			for(File other : scratch) {
+				assertFalse("close() does not delete the scratch file",
+						other.getName().startsWith(file.getName()) && other.getName().endsWith(".passages"));
+			}
+			writer = MappedMazeGraph.create(file, 2, 1);
+			writer.addPassage(0, 1, 1);
+			writer.addPassage(1, 0, MazeCell.IMPASSABLE); // not stored, so it fits in a full writer
+			try {
+				writer.addPassage(1, 0, 1);
+				fail("addPassage() accepted more passages than the capacity");
+			} catch(IllegalStateException e) {
+				// expected
+			}
+			writer.close();
+			assertEquals("close() does not write a partial graph", 1, MappedMazeGraph.open(file).passageCount());
+		} catch(IOException e) {
+			fail("Writing the graph generated an IOException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+	
+	/**
+	 * Tests that cells are created lazily and belong to their graph.
+	 */
+	@Test
+	public void testCells() {
+		MappedMazeGraph mapped = MappedMazeGraph.copyOf(graph);
+		MazeCell cell = mapped.cellAt(1);
+		assertEquals("cellAt() should generate equal cells for the same index", cell, mapped.cellAt(1));
+		assertEquals("indexOf() is incorrect", 1, mapped.indexOf(cell));
+		assertEquals("indexOf() should not find cells of another graph", -1, mapped.indexOf(cellOne));
+	}
+	
+	/**
+	 * Compares every passage and incoming passage of two graphs.
+	 */
+	private void assertSameGraph(PassageGraph expected, PassageGraph actual) {
+		assertEquals("cellCount() is incorrect", expected.cellCount(), actual.cellCount());
+		assertEquals("passageCount() is incorrect", expected.passageCount(), actual.passageCount());
+		for(int cell = 0; cell < expected.cellCount(); cell++) {
+			assertEquals("passageCount() is incorrect", expected.passageCount(cell), actual.passageCount(cell));
+			for(int p = 0; p < expected.passageCount(cell); p++) {
+				assertEquals("passageTarget() is incorrect", expected.passageTarget(cell, p), actual.passageTarget(cell, p));
+				assertEquals("passageTime() is incorrect", expected.passageTime(cell, p), actual.passageTime(cell, p));
+			}
+			assertEquals("incomingCount() is incorrect", expected.incomingCount(cell), actual.incomingCount(cell));
+			for(int p = 0; p < expected.incomingCount(cell); p++) {
+				assertEquals("incomingSource() is incorrect", expected.incomingSource(cell, p), actual.incomingSource(cell, p));
+				assertEquals("incomingTime() is incorrect", expected.incomingTime(cell, p), actual.incomingTime(cell, p));
+			}
+		}
+	}
+	
+}
@@ -1,7 +1,16 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -12,11 +21,22 @@ import java.util.concurrent.atomic.AtomicInteger;
  *
  */
 public class Maze {
+	// private class constants
+	private final static long NO_EXIT = -1; // the time of a walk that does not reach the exit
+	private final static LandmarkHeuristic NO_LANDMARKS = new LandmarkHeuristic();
+
 	// private class variables
 	private static AtomicInteger mazeInstances = new AtomicInteger();
 	private int mazeId; // used to differentiate Maze objects
 	private boolean isValid;
 	private Set<MazeCell> cells;
+	private PassageGraph graph; // built on first use for Mazes made of MazeCells
+	private ReachabilityIndex reachabilityIndex;
+	private ThreadLocal<BidirectionalRouter> routers; // search arrays reused across queries
+	private ThreadLocal<AnytimeRouter> anytimeRouters;
+	private KShortestRouter kShortestRouter; // search arrays and destination times reused across queries
+	private LandmarkTask landmarkTask; // builds the landmarks of routeAnytime() in the background
+	private CorridorGraph corridorGraph; // compressed graph for routes between kept cells, if any
 	
 	/**
 	 * Constructor of the Maze class which creates a new MazeRoute object
@@ -38,14 +58,40 @@ public class Maze {
 	 */
 	public boolean addCells(Set<MazeCell> cells) throws UninitializedObjectException {
 		if(!isValid && cells != null){ // copy the cells if the maze is already invalid
+			MazeBuildEvent event = new MazeBuildEvent();
+			event.begin();
 			copyCells(cells);
 			isValid = true;
+			event.end();
+			if(event.shouldCommit()) {
+				commitBuildEvent(event, "Maze.addCells", cells.size(), MazeBuildEvent.UNKNOWN);
+			}
 			return true;
 		} else { // don't copy the cells if the maze was already valid or the input was null
 			return false;
 		}
 	}
 
+	/**
+	 * Adds a PassageGraph such as a GridMaze to the Maze instead of a Set of cells.
+	 * The MazeCells of the Maze are then created from the graph whenever they are
+	 * needed, for example by graph.cellAt(). A graph cannot be added to the Maze
+	 * more than once or after cells have been added. If the graph is null, nothing
+	 * is added and the maze remains invalid.
+	 * 
+	 * @param graph - the PassageGraph storing the cells and passages of the maze
+	 * @return true if the graph was added, false if the graph was not added
+	 */
+	public boolean addGraph(PassageGraph graph) {
+		if(!isValid && graph != null) {
+			this.graph = graph;
+			isValid = true;
+			return true;
+		} else { // don't add the graph if the maze was already valid or the input was null
+			return false;
+		}
+	}
+	
 	/**
 	 * Checks if the Maze has been validated. A Maze is considered valid if it
 	 * has added cells to the maze and all MazeCells are valid.
@@ -116,20 +162,407 @@ public class Maze {
 	public MazeRoute route(MazeCell initialCell, PassageSelector passageSelector)
 			throws UninitializedObjectException {
 		checkValidity();
+		RouteEvent event = new RouteEvent();
+		event.begin();
 		MazeRoute route = new MazeRoute();
 		List<MazeCell> path;
 		path = routePath(initialCell, null, null, passageSelector);
 		route.addCells(path);
+		event.end();
+		if(event.shouldCommit()) {
+			event.mazeId = mazeId;
+			event.selector = passageSelector == null ? null : passageSelector.getClass();
+			event.steps = Math.max(path.size() - 1, 0);
+			event.terminationReason = routeTermination(path, passageSelector);
+			event.commit();
+		}
 		return route;
 	}
 	
+	/**
+	 * Generates a MazeRoute by walking from the specified MazeCell to the exit
+	 * with a WalkSelector. Unlike route(), the walk may return to cells it has
+	 * visited, and the WalkSelector is told about the walk so far so that it
+	 * can avoid loops. The walk ends at the exit, when the WalkSelector stops,
+	 * or after taking twice as many passages as the Maze has plus one per cell.
+	 * An empty MazeRoute is returned if the WalkSelector is null or the initial
+	 * cell is not in the Maze.
+	 * 
+	 * @param initialCell - the starting MazeCell of the route to be created
+	 * @param outside - the exit to the maze
+	 * @param walkSelector - implementation of the walk algorithm
+	 * @return a MazeRoute of every cell entered by the walk, in order
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public MazeRoute walk(MazeCell initialCell, MazeCell outside, WalkSelector walkSelector)
+			throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		RouteEvent event = new RouteEvent();
+		event.begin();
+		List<MazeCell> path = new LinkedList<MazeCell>();
+		int start = graph.indexOf(initialCell);
+		int exit = graph.indexOf(outside);
+		long time = MazeCell.IMPASSABLE;
+		if(start >= 0 && walkSelector != null) {
+			IntList indices = new IntList(64);
+			time = walkPath(graph, start, exit, walkSelector, indices);
+			for(int i = 0; i < indices.size(); i++) {
+				path.add(graph.cellAt(indices.get(i)));
+			}
+		} else {
+			// don't walk since there is no start or no way to choose passages
+		}
+		MazeRoute route = new MazeRoute();
+		route.addCells(path);
+		event.end();
+		if(event.shouldCommit()) {
+			event.mazeId = mazeId;
+			event.selector = walkSelector == null ? null : walkSelector.getClass();
+			event.steps = Math.max(path.size() - 1, 0);
+			if(start < 0) {
+				event.terminationReason = RouteEvent.NOT_IN_MAZE;
+			} else if(walkSelector == null) {
+				event.terminationReason = RouteEvent.NO_SELECTOR;
+			} else {
+				event.terminationReason = time != MazeCell.IMPASSABLE ? RouteEvent.EXIT : RouteEvent.STOPPED;
+			}
+			event.commit();
+		}
+		return route;
+	}
+	
+	/**
+	 * Generates a MazeRoute by walking backward from an exit with a WalkSelector.
+	 * The walk follows the incoming passages of every cell, so the WalkSelector
+	 * sees a WalkContext of the reversed graph in which the passages of a cell
+	 * are the passages that lead into it. The walk ends at the entrance, when the
+	 * WalkSelector stops, or after as many steps as walk() allows. The cells of
+	 * the walk are returned in the order in which they lead to the exit, so the
+	 * MazeRoute ends at the exit. An empty MazeRoute is returned if the
+	 * WalkSelector is null or the exit is not in the Maze.
+	 * 
+	 * @param outside - the exit the walk starts at
+	 * @param entrance - the MazeCell the walk ends at, or null to walk until the WalkSelector stops
+	 * @param walkSelector - implementation of the walk algorithm
+	 * @return a MazeRoute of every cell entered by the walk, ending at the exit
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public MazeRoute walkBackward(MazeCell outside, MazeCell entrance, WalkSelector walkSelector)
+			throws UninitializedObjectException {
+		PassageGraph graph = new ReversedGraph(graph());
+		RouteEvent event = new RouteEvent();
+		event.begin();
+		LinkedList<MazeCell> path = new LinkedList<MazeCell>();
+		int start = graph.indexOf(outside);
+		int end = entrance == null ? -1 : graph.indexOf(entrance);
+		long time = MazeCell.IMPASSABLE;
+		if(start >= 0 && walkSelector != null) {
+			IntList indices = new IntList(64);
+			time = walkPath(graph, start, end, walkSelector, indices);
+			for(int i = 0; i < indices.size(); i++) {
+				path.addFirst(graph.cellAt(indices.get(i)));
+			}
+		} else {
+			// don't walk since there is no exit or no way to choose passages
+		}
+		MazeRoute route = new MazeRoute();
+		route.addCells(path);
+		event.end();
+		if(event.shouldCommit()) {
+			event.mazeId = mazeId;
+			event.selector = walkSelector == null ? null : walkSelector.getClass();
+			event.steps = Math.max(path.size() - 1, 0);
+			if(start < 0) {
+				event.terminationReason = RouteEvent.NOT_IN_MAZE;
+			} else if(walkSelector == null) {
+				event.terminationReason = RouteEvent.NO_SELECTOR;
+			} else {
+				event.terminationReason = time != MazeCell.IMPASSABLE ? RouteEvent.EXIT : RouteEvent.STOPPED;
+			}
+			event.commit();
+		}
+		return route;
+	}
+	
+	/**
+	 * Generates the MazeRoute with the shortest travel time from one MazeCell
+	 * to another. The route is found by searching forward from the initial cell
+	 * and backward from the destination at the same time. If both cells were
+	 * kept by compressCorridors(), the search runs on the compressed graph and
+	 * the route is expanded afterwards. An empty MazeRoute is returned if either
+	 * cell is not in the Maze or the destination cannot be reached from the
+	 * initial cell.
+	 * 
+	 * @param initialCell - the starting MazeCell of the route to be created
+	 * @param destination - the final MazeCell of the route to be created
+	 * @return a MazeRoute with the shortest travel time between the cells
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public MazeRoute routeShortest(MazeCell initialCell, MazeCell destination)
+			throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		List<MazeCell> path = new LinkedList<MazeCell>();
+		if(canReach(initialCell, destination)) {
+			int start = graph.indexOf(initialCell);
+			int end = graph.indexOf(destination);
+			CorridorGraph corridors = corridorGraph(graph);
+			int[] indices = corridors == null ? null : corridors.route(start, end);
+			if(indices == null) { // the cells were not kept by the compressed graph
+				indices = router(graph).route(start, end);
+			}
+			for(int index : indices) {
+				path.add(graph.cellAt(index));
+			}
+		} else {
+			// don't search since the destination cannot be reached
+		}
+		MazeRoute route = new MazeRoute();
+		route.addCells(path);
+		return route;
+	}
+	
+	/**
+	 * Generates a MazeRoute from one MazeCell to another that is as short as a
+	 * deadline allows. The route is found by ARA*, an A* search guided by
+	 * travel times to and from a few landmark cells that first finds a route
+	 * quickly by overestimating the remaining time and then improves it in
+	 * rounds until it is proven shortest. When the deadline passes or the search
+	 * is cancelled, the best route found so far is returned with a bound on how
+	 * much longer it may be than the shortest route. The landmarks are chosen on
+	 * the common ForkJoinPool, starting with the first call. A call with a
+	 * deadline or a cancellation flag does not wait for them, nor for the
+	 * ReachabilityIndex to be built: until the landmarks are ready it searches
+	 * without them, and without the index it leaves proving a destination
+	 * unreachable to the search. The AnytimeRoute is empty if either cell is not
+	 * in the Maze, the destination cannot be reached from the initial cell, or no
+	 * route was found in time.
+	 * 
+	 * @param initialCell - the starting MazeCell of the route to be created
+	 * @param destination - the final MazeCell of the route to be created
+	 * @param deadline - the time in milliseconds since the epoch at which the
+	 * search stops, or 0 for none
+	 * @param cancelled - a flag that stops the search once another thread sets it, or null
+	 * @return the best route found and its suboptimality bound
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public AnytimeRoute routeAnytime(MazeCell initialCell, MazeCell destination, long deadline,
+			AtomicBoolean cancelled) throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		List<MazeCell> path = new LinkedList<MazeCell>();
+		AnytimeRoute answer;
+		boolean isBounded = deadline != 0 || cancelled != null;
+		int start = graph.indexOf(initialCell);
+		int end = graph.indexOf(destination);
+		ReachabilityIndex reachability = isBounded ? builtReachabilityIndex() : reachabilityIndex();
+		if(start >= 0 && end >= 0 && (reachability == null || reachability.canReach(initialCell, destination))) {
+			AnytimeRouter router = anytimeRouter(graph);
+			int[] indices = router.route(start, end, landmarks(graph, isBounded), deadline, cancelled);
+			if(indices != null) {
+				for(int index : indices) {
+					path.add(graph.cellAt(index));
+				}
+			}
+			MazeRoute route = new MazeRoute();
+			route.addCells(path);
+			answer = new AnytimeRoute(route, router.lastTravelTime(), router.lastBound(), router.isLastComplete());
+		} else { // don't search since the destination cannot be reached
+			MazeRoute route = new MazeRoute();
+			route.addCells(path);
+			answer = new AnytimeRoute(route, MazeCell.IMPASSABLE, Double.POSITIVE_INFINITY, true);
+		}
+		return answer;
+	}
+	
+	/**
+	 * Generates up to k MazeRoutes with the shortest travel times from one MazeCell
+	 * to another that never visit a MazeCell twice, ranked from the shortest to the
+	 * longest. The routes are found with Yen's algorithm, whose searches for
+	 * deviations from a route run in parallel on the common ForkJoinPool. An empty
+	 * List is returned if either cell is not in the Maze or the destination cannot
+	 * be reached from the initial cell.
+	 * 
+	 * @param initialCell - the starting MazeCell of the routes to be created
+	 * @param destination - the final MazeCell of the routes to be created
+	 * @param k - the largest number of routes to generate
+	 * @return a List of at most k MazeRoutes, shortest first
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public List<MazeRoute> routeShortest(MazeCell initialCell, MazeCell destination, int k)
+			throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		List<MazeRoute> routes = new ArrayList<MazeRoute>();
+		if(k > 0 && canReach(initialCell, destination)) {
+			for(int[] indices : kShortestRouter(graph).routes(graph.indexOf(initialCell), graph.indexOf(destination), k)) {
+				List<MazeCell> path = new LinkedList<MazeCell>();
+				for(int index : indices) {
+					path.add(graph.cellAt(index));
+				}
+				MazeRoute route = new MazeRoute();
+				route.addCells(path);
+				routes.add(route);
+			}
+		} else {
+			// don't search since there is no route to rank
+		}
+		return routes;
+	}
+	
+	/**
+	 * Calculates the shortest travel time from a MazeCell to every cell of the
+	 * Maze. The times are computed by parallel delta-stepping with a bucket width
+	 * equal to the average passage time of the Maze.
+	 * 
+	 * @param cell - the MazeCell the routes start at
+	 * @return the shortest travel time to every cell of the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public CellDistances distancesFrom(MazeCell cell) throws UninitializedObjectException {
+		return distancesFrom(cell, 0);
+	}
+	
+	/**
+	 * Calculates the shortest travel time from a MazeCell to every cell of the
+	 * Maze by parallel delta-stepping. Passages no longer than delta are relaxed
+	 * repeatedly within a bucket, longer passages once per bucket. If the cell is
+	 * not in the Maze, every cell is IMPASSABLE, as is every cell whose shortest
+	 * travel time is IMPASSABLE or more.
+	 * 
+	 * @param cell - the MazeCell the routes start at
+	 * @param delta - the bucket width, or a non-positive value to use the average passage time
+	 * @return the shortest travel time to every cell of the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public CellDistances distancesFrom(MazeCell cell, int delta) throws UninitializedObjectException {
+		return computeDistances(cell, false, delta);
+	}
+	
+	/**
+	 * Calculates the shortest travel time from every cell of the Maze to a
+	 * MazeCell. The times are computed by parallel delta-stepping over the
+	 * incoming passages with a bucket width equal to the average passage time.
+	 * 
+	 * @param cell - the MazeCell the routes end at
+	 * @return the shortest travel time from every cell of the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public CellDistances distancesTo(MazeCell cell) throws UninitializedObjectException {
+		return distancesTo(cell, 0);
+	}
+	
+	/**
+	 * Calculates the shortest travel time from every cell of the Maze to a
+	 * MazeCell by parallel delta-stepping over the incoming passages. If the cell
+	 * is not in the Maze, every cell is IMPASSABLE, as is every cell whose
+	 * shortest travel time is IMPASSABLE or more.
+	 * 
+	 * @param cell - the MazeCell the routes end at
+	 * @param delta - the bucket width, or a non-positive value to use the average passage time
+	 * @return the shortest travel time from every cell of the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public CellDistances distancesTo(MazeCell cell, int delta) throws UninitializedObjectException {
+		return computeDistances(cell, true, delta);
+	}
+	
+	/**
+	 * Counts the smallest number of passages from every cell of the Maze to the
+	 * nearest of several exits, ignoring passage times. All exits are searched at
+	 * once by a breadth-first search over bitsets that switches between following
+	 * the incoming passages of the frontier and checking the passages of unvisited
+	 * cells. Exits that are not in the Maze are ignored, and cells that cannot
+	 * reach any exit are IMPASSABLE.
+	 * 
+	 * @param exits - the exits of the maze
+	 * @return the number of passages to the nearest exit for every cell of the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public CellDistances hopsToExits(Set<MazeCell> exits) throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		return new CellDistances(graph, new HopDistanceSearch(graph).run(indicesOf(graph, exits)));
+	}
+	
+	/**
+	 * Labels every cell of the Maze with the exit it can reach fastest and the
+	 * travel time to that exit. All exits are searched at once, backward over the
+	 * incoming passages, so any number of exits costs about as much as one.
+	 * Exits that are not in the Maze are ignored.
+	 * 
+	 * @param exits - the exits of the maze
+	 * @return the nearest exit and its travel time for every cell of the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public NearestExitField nearestExits(Set<MazeCell> exits) throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		return new NearestExitField(graph, indicesOf(graph, exits));
+	}
+	
+	/**
+	 * Determines the passages that lead into a MazeCell. The passages are read
+	 * from the index of incoming passages that the Maze builds together with its
+	 * graph, so the Maze is not scanned. Impassable passages are not included.
+	 * 
+	 * @param cell - the MazeCell the passages lead to
+	 * @return a Map of every MazeCell with a passage to the cell to the travel
+	 * time of the passage, empty if the cell is not in the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public Map<MazeCell, Integer> incomingPassages(MazeCell cell) throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		int index = graph.indexOf(cell);
+		if(index < 0) {
+			return new HashMap<MazeCell, Integer>();
+		}
+		int count = graph.incomingCount(index);
+		Map<MazeCell, Integer> map = new HashMap<MazeCell, Integer>(count * 2);
+		for(int p = 0; p < count; p++) {
+			map.put(graph.cellAt(graph.incomingSource(index, p)), graph.incomingTime(index, p));
+		}
+		return map;
+	}
+	
+	/**
+	 * Finds every MazeCell from which a MazeCell can be reached, such as all
+	 * cells that can leave the maze through an exit, by a depth-first search
+	 * backward over the incoming passages from the cell.
+	 * 
+	 * @param cell - the MazeCell to reach
+	 * @return every MazeCell with a route to the cell, including the cell itself,
+	 * empty if the cell is not in the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public Set<MazeCell> cellsReaching(MazeCell cell) throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		Set<MazeCell> reaching = new HashSet<MazeCell>();
+		int start = graph.indexOf(cell);
+		if(start < 0) {
+			return reaching;
+		}
+		long[] visited = new long[(graph.cellCount() + 63) >>> 6];
+		IntList stack = new IntList(64);
+		visited[start >>> 6] |= 1L << start;
+		stack.add(start);
+		while(stack.size() > 0) {
+			int current = stack.removeLast();
+			reaching.add(graph.cellAt(current));
+			for(int p = 0; p < graph.incomingCount(current); p++) {
+				int source = graph.incomingSource(current, p);
+				if((visited[source >>> 6] & (1L << source)) == 0) {
+					visited[source >>> 6] |= 1L << source;
+					stack.add(source);
+				}
+			}
+		}
+		return reaching;
+	}
+	
 	/**
 	 * Calculates the average time to exit the Maze from every other cell
 	 * in the maze, given a specific PassageSelector. In the case that one
 	 * time to reach the exit MazeCell is IMPASSABLE or the PassageSelector
 	 * is null, the average time returned is IMPASSABLE_DOUBLE. One should
 	 * note that even if a passable path exists, the PassageSelector may not
-	 * find it and may return IMPASSABLE_DOUBLE.
+	 * find it and may return IMPASSABLE_DOUBLE. If the exit is the only cell
+	 * of the maze, the average time returned is 0.
 	 * 
 	 * @param outside - the exit to the maze
 	 * @param passageSelector - implementation of the next cell algorithm
@@ -139,23 +572,492 @@ public class Maze {
 	public Double averageExitTime(MazeCell outside, PassageSelector passageSelector)
 			throws UninitializedObjectException {
 		checkValidity();
-		int totalTime = 0;
-		int numPaths = 0;
-		for(MazeCell cell : cells) {
-			if(cell != outside) {
-				MazeRoute route = new MazeRoute();
-				List<MazeCell> path = routePath(cell, outside, null, passageSelector);
-				route.addCells(path);
-				int time = route.travelTime();
-				if(time != MazeCell.IMPASSABLE && path.contains(outside)) {
-					totalTime += time;
-					numPaths++;
-				} else {
+		ReachabilityIndex index = reachabilityIndex();
+		PassageGraph graph = graph();
+		ExitTimeEvent event = new ExitTimeEvent();
+		event.begin();
+		long[] steps = new long[1];
+		ExitTimeStatistics statistics = new ExitTimeStatistics();
+		for(int i = 0; i < graph.cellCount(); i++) {
+			MazeCell cell = graph.cellAt(i);
+			if(!cell.equals(outside)) {
+				long time = exitTime(cell, outside, passageSelector, index, steps);
+				if(time == NO_EXIT) {
+					event.end();
+					if(event.shouldCommit()) {
+						commitExitTimeEvent(event, passageSelector, statistics.count() + 1, steps[0],
+								index.canReach(cell, outside) ? ExitTimeEvent.NOT_FOUND : ExitTimeEvent.UNREACHABLE,
+								MazeCell.IMPASSABLE_DOUBLE);
+					}
 					return MazeCell.IMPASSABLE_DOUBLE;
 				}
+				statistics.record(time);
+			}
+		}
+		event.end();
+		if(event.shouldCommit()) {
+			commitExitTimeEvent(event, passageSelector, statistics.count(), steps[0], ExitTimeEvent.COMPLETE,
+					statistics.mean());
+		}
+		return statistics.mean();
+	}
+	
+	/**
+	 * Calculates the average time to exit the Maze from every other cell in the
+	 * maze by walking with a WalkSelector, as done by walk(). In the case that
+	 * one walk does not reach the exit or the WalkSelector is null, the average
+	 * time returned is IMPASSABLE_DOUBLE.
+	 * 
+	 * @param outside - the exit to the maze
+	 * @param walkSelector - implementation of the walk algorithm
+	 * @return the average time to reach the exit from all other cells in the maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public Double averageWalkExitTime(MazeCell outside, WalkSelector walkSelector)
+			throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		int exit = graph.indexOf(outside);
+		if(exit < 0 || walkSelector == null) {
+			return MazeCell.IMPASSABLE_DOUBLE;
+		}
+		ExitTimeStatistics statistics = new ExitTimeStatistics();
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			if(cell != exit) {
+				long time = walkPath(graph, cell, exit, walkSelector, null);
+				if(time == MazeCell.IMPASSABLE) {
+					return MazeCell.IMPASSABLE_DOUBLE;
+				}
+				statistics.record(time);
+			}
+		}
+		return statistics.mean();
+	}
+	
+	/**
+	 * Gathers the distribution of the times to exit the Maze from every other
+	 * cell in the maze, given a specific PassageSelector. Cells from which the
+	 * PassageSelector does not find the exit are counted as impassable instead
+	 * of making the whole result impassable. The cells are walked in parallel on
+	 * the common ForkJoinPool, so the PassageSelector must be safe to use from
+	 * several threads, as FirstSelector, RandomSelector and GreedySelector are.
+	 * 
+	 * @param outside - the exit to the maze
+	 * @param passageSelector - implementation of the next cell algorithm
+	 * @return the statistics of the times to reach the exit from all other cells in the maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public ExitTimeStatistics exitTimeStatistics(MazeCell outside, PassageSelector passageSelector)
+			throws UninitializedObjectException {
+		checkValidity();
+		ReachabilityIndex index = reachabilityIndex();
+		PassageGraph graph = graph();
+		return ForkJoinPool.commonPool().invoke(
+				new ExitTimeTask(graph, index, outside, passageSelector, 0, graph.cellCount()));
+	}
+	
+	/**
+	 * Determines if any passable path through the Maze leads from one MazeCell
+	 * to another. Every MazeCell in the Maze can reach itself, and MazeCells that
+	 * are not in the Maze can neither reach nor be reached. The answer comes from
+	 * the Maze's ReachabilityIndex, which is built on the first query.
+	 * 
+	 * @param from - the MazeCell the path starts at
+	 * @param to - the MazeCell the path ends at
+	 * @return true if the destination can be reached from the start, false otherwise
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public boolean canReach(MazeCell from, MazeCell to) throws UninitializedObjectException {
+		return reachabilityIndex().canReach(from, to);
+	}
+	
+	/**
+	 * Generates the ReachabilityIndex of the Maze. The index is built once and
+	 * shared by all later calls.
+	 * 
+	 * @return the ReachabilityIndex of the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public synchronized ReachabilityIndex reachabilityIndex() throws UninitializedObjectException {
+		if(reachabilityIndex == null) {
+			PassageGraph graph = graph();
+			MazeBuildEvent event = new MazeBuildEvent();
+			event.begin();
+			reachabilityIndex = new ReachabilityIndex(graph);
+			event.end();
+			if(event.shouldCommit()) {
+				commitBuildEvent(event, "ReachabilityIndex", graph.cellCount(), graph.passageCount());
+			}
+		}
+		return reachabilityIndex;
+	}
+	
+	/**
+	 * @return the ReachabilityIndex of the Maze, or null if it has not been built yet
+	 */
+	private synchronized ReachabilityIndex builtReachabilityIndex() {
+		return reachabilityIndex;
+	}
+	
+	/**
+	 * Restores a ReachabilityIndex previously written with ReachabilityIndex.writeTo()
+	 * for this Maze so that it does not have to be built again. The index is only
+	 * restored if the Maze has not built one yet.
+	 * 
+	 * @param stream - the stream containing the index
+	 * @return true if the index was restored, false if the Maze already has an index
+	 * @throws IOException if the stream cannot be read or was written for a different maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public synchronized boolean loadReachabilityIndex(InputStream stream)
+			throws IOException, UninitializedObjectException {
+		if(reachabilityIndex != null) {
+			return false;
+		}
+		PassageGraph graph = graph();
+		MazeBuildEvent event = new MazeBuildEvent();
+		event.begin();
+		reachabilityIndex = ReachabilityIndex.readFrom(stream, graph);
+		event.end();
+		if(event.shouldCommit()) {
+			commitBuildEvent(event, "ReachabilityIndex (loaded)", graph.cellCount(), graph.passageCount());
+		}
+		return true;
+	}
+	
+	/**
+	 * Restores the ReachabilityIndex stored in an IndexSnapshot opened for this
+	 * Maze so that it does not have to be built again. The index is read from
+	 * the mapped snapshot rather than copied. The fingerprint of a snapshot that
+	 * was created or opened for the current graph of the Maze has already been
+	 * checked; for any other snapshot it is computed before the Maze is locked.
+	 * The index is only restored if the Maze has not built one yet and the
+	 * snapshot contains one.
+	 * 
+	 * @param snapshot - an IndexSnapshot of this Maze
+	 * @return true if the index was restored, false otherwise
+	 * @throws IOException if the snapshot belongs to a different Maze or the stored index is damaged
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public boolean loadReachabilityIndex(IndexSnapshot snapshot)
+			throws IOException, UninitializedObjectException {
+		PassageGraph graph = graph();
+		if(snapshot.graph() != graph && snapshot.fingerprint() != IndexSnapshot.fingerprint(graph)) {
+			throw new IOException("The index snapshot was written for a different maze");
+		}
+		if(builtReachabilityIndex() != null) {
+			return false;
+		}
+		MazeBuildEvent event = new MazeBuildEvent();
+		event.begin();
+		ReachabilityIndex index = snapshot.reachabilityIndex(graph);
+		event.end();
+		if(index == null) {
+			return false;
+		}
+		synchronized(this) {
+			if(graph != this.graph) { // the cells were renumbered meanwhile
+				throw new IOException("The index snapshot was written for a different order of the maze");
+			}
+			if(reachabilityIndex != null) {
+				return false;
+			}
+			reachabilityIndex = index;
+		}
+		if(event.shouldCommit()) {
+			commitBuildEvent(event, "ReachabilityIndex (snapshot)", graph.cellCount(), graph.passageCount());
+		}
+		return true;
+	}
+	
+	/**
+	 * Compresses the Maze for shortest route queries between the specified cells.
+	 * Dead-end trees that no route between two other cells can pass through are
+	 * pruned, and corridors of cells with one way in and one way out are
+	 * contracted into single passages. The terminals, and every junction left
+	 * after pruning, are kept; routeShortest() then searches the compressed graph
+	 * whenever both of its cells were kept. A later call replaces the compressed
+	 * graph. Terminals that are not in the Maze are ignored.
+	 * 
+	 * @param terminals - the MazeCells that routes will start or end at, such as the exits
+	 * @return the number of cells kept in the compressed graph
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public int compressCorridors(Set<MazeCell> terminals) throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		MazeBuildEvent event = new MazeBuildEvent();
+		event.begin();
+		CorridorGraph corridors = new CorridorGraph(graph, indicesOf(graph, terminals));
+		event.end();
+		if(event.shouldCommit()) {
+			commitBuildEvent(event, "CorridorGraph", corridors.cellCount(), corridors.passageCount());
+		}
+		synchronized(this) {
+			if(graph != this.graph) { // the cells were renumbered meanwhile
+				return compressCorridors(terminals);
+			}
+			corridorGraph = corridors;
+		}
+		return corridors.cellCount();
+	}
+	
+	/**
+	 * Renumbers the cells of a Maze made of MazeCells so that cells joined by a
+	 * passage are stored close together, which makes searches read less scattered
+	 * memory. The MazeCells and every answer about them stay the same; only the
+	 * order of the compact storage changes. The ReachabilityIndex, the landmarks
+	 * and the compressed graph of compressCorridors() are dropped and built again
+	 * when needed, and IndexSnapshots and RouteLogs of the old order no longer
+	 * match the Maze. A Maze made of a PassageGraph is not renumbered, since its
+	 * cells are identified by their index; use MazeGraph.copyOf() with a
+	 * CellOrdering to build a reordered graph for a new Maze instead. Queries
+	 * that other threads started before the cells were renumbered finish on
+	 * the old order, with search arrays of their own instead of the cached ones.
+	 * 
+	 * @param ordering - CellOrdering.BREADTH_FIRST or CellOrdering.REVERSE_CUTHILL_MCKEE
+	 * @return true if the cells were renumbered, false if the Maze is made of a PassageGraph
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public boolean reorderCells(int ordering) throws UninitializedObjectException {
+		PassageGraph current = graph();
+		if(cells == null) {
+			return false;
+		}
+		MazeBuildEvent event = new MazeBuildEvent();
+		event.begin();
+		MazeGraph reordered = MazeGraph.copyOf(current, CellOrdering.order(current, ordering));
+		event.end();
+		if(event.shouldCommit()) {
+			commitBuildEvent(event, "MazeGraph (reordered)", reordered.cellCount(), reordered.passageCount());
+		}
+		synchronized(this) {
+			graph = reordered;
+			reachabilityIndex = null;
+			routers = null;
+			anytimeRouters = null;
+			kShortestRouter = null;
+			landmarkTask = null;
+			corridorGraph = null;
+		}
+		return true;
+	}
+	
+	/**
+	 * @param graph - the PassageGraph of the Maze the caller is working on
+	 * @return the compressed graph built by compressCorridors(), or null if there
+	 * is none or the cells were renumbered since the caller read the graph
+	 */
+	private synchronized CorridorGraph corridorGraph(PassageGraph graph) {
+		return graph == this.graph ? corridorGraph : null;
+	}
+	
+	/**
+	 * Generates the PassageGraph of the Maze. For Mazes made of MazeCells, a compact
+	 * MazeGraph is built on the first call.
+	 * 
+	 * @return the PassageGraph of the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	synchronized PassageGraph graph() throws UninitializedObjectException {
+		checkValidity();
+		if(graph == null) {
+			MazeBuildEvent event = new MazeBuildEvent();
+			event.begin();
+			graph = new MazeGraph(cells);
+			event.end();
+			if(event.shouldCommit()) {
+				commitBuildEvent(event, "MazeGraph", graph.cellCount(), graph.passageCount());
+			}
+		}
+		return graph;
+	}
+	
+	/**
+	 * @return the number that differentiates this Maze from other Maze objects
+	 */
+	int id() {
+		return mazeId;
+	}
+	
+	/**
+	 * Looks up the indices of the cells that belong to the Maze.
+	 * 
+	 * @param graph - the PassageGraph of the Maze
+	 * @param cells - a potentially-null Set of MazeCells
+	 * @return the indices of the cells that are in the Maze
+	 */
+	private int[] indicesOf(PassageGraph graph, Set<MazeCell> cells) {
+		IntList indices = new IntList(cells == null ? 0 : cells.size());
+		if(cells != null) {
+			for(MazeCell cell : cells) {
+				int index = graph.indexOf(cell);
+				if(index >= 0) {
+					indices.add(index);
+				}
+			}
+		}
+		return indices.toArray();
+	}
+	
+	/**
+	 * Runs a delta-stepping search from or to a MazeCell.
+	 * 
+	 * @param cell - the MazeCell the search starts at
+	 * @param isBackward - true to follow passages in reverse
+	 * @param delta - the bucket width, or a non-positive value to use the average passage time
+	 * @return the travel time of every cell of the Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	private CellDistances computeDistances(MazeCell cell, boolean isBackward, int delta)
+			throws UninitializedObjectException {
+		PassageGraph graph = graph();
+		int source = graph.indexOf(cell);
+		int[] times;
+		if(source >= 0) {
+			times = new DeltaStepping(graph, isBackward, delta, ForkJoinPool.commonPool()).run(source);
+		} else { // nothing can be reached from a cell outside of the Maze
+			times = new int[graph.cellCount()];
+			Arrays.fill(times, MazeCell.IMPASSABLE);
+		}
+		return new CellDistances(graph, times);
+	}
+	
+	/**
+	 * Generates the BidirectionalRouter of the calling thread, creating the
+	 * routers on the first call. If the cells were renumbered since the caller
+	 * read the graph, a router of the caller's graph is created instead.
+	 * 
+	 * @param graph - the PassageGraph of the Maze the caller is working on
+	 * @return a BidirectionalRouter of the graph that only the calling thread uses
+	 */
+	private BidirectionalRouter router(final PassageGraph graph) {
+		ThreadLocal<BidirectionalRouter> current;
+		synchronized(this) {
+			if(graph != this.graph) {
+				return new BidirectionalRouter(graph);
 			}
+			if(routers == null) {
+				routers = new ThreadLocal<BidirectionalRouter>() {
+					@Override
+					protected BidirectionalRouter initialValue() {
+						return new BidirectionalRouter(graph);
+					}
+				};
+			}
+			current = routers;
 		}
-		return (double)(totalTime / numPaths);
+		return current.get();
+	}
+	
+	/**
+	 * Generates the AnytimeRouter of the calling thread, creating the routers
+	 * on the first call. If the cells were renumbered since the caller read the
+	 * graph, a router of the caller's graph is created instead.
+	 * 
+	 * @param graph - the PassageGraph of the Maze the caller is working on
+	 * @return an AnytimeRouter of the graph that only the calling thread uses
+	 */
+	private AnytimeRouter anytimeRouter(final PassageGraph graph) {
+		ThreadLocal<AnytimeRouter> current;
+		synchronized(this) {
+			if(graph != this.graph) {
+				return new AnytimeRouter(graph);
+			}
+			if(anytimeRouters == null) {
+				anytimeRouters = new ThreadLocal<AnytimeRouter>() {
+					@Override
+					protected AnytimeRouter initialValue() {
+						return new AnytimeRouter(graph);
+					}
+				};
+			}
+			current = anytimeRouters;
+		}
+		return current.get();
+	}
+	
+	/**
+	 * Generates the KShortestRouter of the Maze, creating it on the first call.
+	 * If the cells were renumbered since the caller read the graph, a router of
+	 * the caller's graph is created instead.
+	 * 
+	 * @param graph - the PassageGraph of the Maze the caller is working on
+	 * @return a KShortestRouter of the graph
+	 */
+	private synchronized KShortestRouter kShortestRouter(PassageGraph graph) {
+		if(graph != this.graph) {
+			return new KShortestRouter(graph, ForkJoinPool.commonPool());
+		}
+		if(kShortestRouter == null) {
+			kShortestRouter = new KShortestRouter(graph, ForkJoinPool.commonPool());
+		}
+		return kShortestRouter;
+	}
+	
+	/**
+	 * Generates the LandmarkHeuristic of the Maze. The landmarks are chosen by a
+	 * task on the common ForkJoinPool that the first call starts, so the Maze is
+	 * not locked while they are built. A bounded search that finds them unfinished
+	 * goes on without landmarks instead of waiting.
+	 * 
+	 * @param graph - the PassageGraph of the Maze the caller is working on
+	 * @param isBounded - true if the caller cannot wait for the landmarks
+	 * @return the LandmarkHeuristic of the graph, or one without landmarks
+	 */
+	private LandmarkHeuristic landmarks(PassageGraph graph, boolean isBounded) {
+		LandmarkTask task;
+		synchronized(this) {
+			if(graph != this.graph) { // the cells were renumbered since the caller read the graph
+				return isBounded ? NO_LANDMARKS : new LandmarkHeuristic(graph);
+			}
+			if(landmarkTask == null) {
+				landmarkTask = new LandmarkTask(graph);
+				ForkJoinPool.commonPool().execute(landmarkTask);
+			}
+			task = landmarkTask;
+		}
+		if(isBounded && !task.isDone()) {
+			return NO_LANDMARKS;
+		}
+		return task.join();
+	}
+	
+	/**
+	 * Calculates the exact expected time for a random walk to exit the Maze,
+	 * averaged over every other cell of the maze. Unlike averageExitTime() with a
+	 * RandomSelector, the walk may revisit cells: in every cell it takes each
+	 * passage to another cell of the Maze with equal probability until it reaches
+	 * the exit. The expected times are found by solving the absorbing Markov chain
+	 * of the walk with a parallel Gauss-Seidel iteration instead of simulating walks.
+	 * If the walk may never reach the exit from some cell, or the exit is not in
+	 * the Maze, the average time returned is IMPASSABLE_DOUBLE.
+	 * 
+	 * @param outside - the exit to the maze
+	 * @param tolerance - the largest error of any expected time relative to the
+	 * largest expected time, for example 1e-9
+	 * @return the average expected time to reach the exit from all other cells in the maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 * @throws IllegalArgumentException if the tolerance is not positive
+	 * @throws IllegalStateException if the iteration does not reach the tolerance
+	 */
+	public Double expectedExitTime(MazeCell outside, double tolerance) throws UninitializedObjectException {
+		if(!(tolerance > 0)) {
+			throw new IllegalArgumentException("The tolerance must be positive, not " + tolerance);
+		}
+		PassageGraph graph = graph();
+		int exit = graph.indexOf(outside);
+		if(exit < 0) {
+			return MazeCell.IMPASSABLE_DOUBLE;
+		}
+		double[] times = new RandomWalkSolver(graph, ForkJoinPool.commonPool()).solve(exit, tolerance);
+		double totalTime = 0;
+		for(int cell = 0; cell < times.length; cell++) {
+			if(times[cell] == MazeCell.IMPASSABLE_DOUBLE) {
+				return MazeCell.IMPASSABLE_DOUBLE;
+			}
+			totalTime += times[cell];
+		}
+		// the exit itself contributes a time of zero and is not counted
+		return times.length > 1 ? totalTime / (times.length - 1) : 0.0;
 	}
 	
 	/**
@@ -190,10 +1092,11 @@ public class Maze {
 	}
 	
 	/**
-	 * Recursively generates a route until the mouse hits a dead end, leaves
-	 * the maze, or visits the same cell twice. The next MazeCell along the path
-	 * is chosen according to the PassageSelector specified. For the initial call
-	 * to this method, the path should be null.
+	 * Generates a route until the mouse hits a dead end, leaves the maze, or
+	 * visits the same cell twice. The next MazeCell along the path is chosen
+	 * according to the PassageSelector specified. The route is built in a loop
+	 * rather than by recursion so that long routes cannot overflow the stack.
+	 * For the initial call to this method, the path should be null.
 	 * 
 	 * @param cell - the MazeCell that the mouse is currently in
 	 * @param outside - the MazeCell indicating the end of the maze
@@ -205,19 +1108,153 @@ public class Maze {
 	private List<MazeCell> routePath(MazeCell cell, MazeCell outside, List<MazeCell> path, PassageSelector passageSelector)
 			throws UninitializedObjectException {
 		path = initializePathIfNull(path);
-		if(!isRouteBaseCase(cell, outside, path) && passageSelector != null) {
+		while(!isRouteBaseCase(cell, outside, path) && passageSelector != null) {
 			// if never-before-seen cell
 			path.add(cell);
-			MazeCell nextCell = passageSelector.nextCell(cell);
-			if(nextCell != null) {
-				path = routePath(nextCell, outside, path, passageSelector);
-			} else {
-				// don't recurse since there is nowhere else to go (dead end)
+			cell = passageSelector.nextCell(cell);
+			if(cell == null) {
+				break; // stop since there is nowhere else to go (dead end)
 			}
 		}
 		return path;
 	}
 
+	/**
+	 * Walks from a MazeCell to the exit with a PassageSelector and measures the
+	 * time of the walk. Cells that cannot reach the exit at all are recognized
+	 * from the ReachabilityIndex without walking.
+	 * 
+	 * @param cell - the MazeCell the walk starts at
+	 * @param outside - the exit to the maze
+	 * @param passageSelector - implementation of the next cell algorithm
+	 * @param index - the ReachabilityIndex of the Maze
+	 * @param steps - a counter of the passages taken by all walks, or null
+	 * @return the time of the walk, summed in a long so that long walks cannot
+	 * overflow, or NO_EXIT if it does not reach the exit
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	private long exitTime(MazeCell cell, MazeCell outside, PassageSelector passageSelector, ReachabilityIndex index,
+			long[] steps) throws UninitializedObjectException {
+		if(!index.canReach(cell, outside)) {
+			// no selector can find a path that does not exist, so skip the walk
+			return NO_EXIT;
+		}
+		List<MazeCell> path = routePath(cell, outside, null, passageSelector);
+		if(steps != null && !path.isEmpty()) {
+			steps[0] += path.size() - 1;
+		}
+		if(!path.contains(outside)) {
+			return NO_EXIT;
+		}
+		long time = 0;
+		MazeCell previous = null;
+		for(MazeCell next : path) {
+			if(previous != null) {
+				int passageTime = previous.passageTimeTo(next);
+				if(passageTime == MazeCell.IMPASSABLE) {
+					return NO_EXIT;
+				}
+				time += passageTime;
+			}
+			previous = next;
+		}
+		return time;
+	}
+	
+	/**
+	 * Walks from a cell until the WalkSelector stops, the exit is reached, or
+	 * twice as many passages as the graph has plus one per cell have been taken.
+	 * 
+	 * @param graph - the graph of the Maze
+	 * @param start - the index of the cell the walk starts at
+	 * @param exit - the index of the exit, or -1 if the walk has no exit
+	 * @param walkSelector - implementation of the walk algorithm
+	 * @param path - a list that receives every cell entered, or null
+	 * @return the travel time of the walk, or IMPASSABLE if it did not reach the exit
+	 */
+	private long walkPath(PassageGraph graph, int start, int exit, WalkSelector walkSelector, IntList path) {
+		long maxSteps = 2 * graph.passageCount() + graph.cellCount();
+		WalkContext context = new WalkContext(graph, start, exit);
+		long time = 0;
+		if(path != null) {
+			path.add(start);
+		}
+		while(context.current() != exit && context.steps() < maxSteps) {
+			int passage = walkSelector.nextPassage(context);
+			if(passage < 0 || passage >= graph.passageCount(context.current())) {
+				break;
+			}
+			time += graph.passageTime(context.current(), passage);
+			context.move(passage);
+			if(path != null) {
+				path.add(context.current());
+			}
+		}
+		return context.current() == exit ? time : MazeCell.IMPASSABLE;
+	}
+	
+	/**
+	 * Determines why routePath() stopped walking.
+	 * 
+	 * @param path - the path generated by routePath()
+	 * @param passageSelector - the PassageSelector the path was generated with
+	 * @return one of the termination reasons of RouteEvent
+	 */
+	private String routeTermination(List<MazeCell> path, PassageSelector passageSelector) {
+		if(passageSelector == null) {
+			return RouteEvent.NO_SELECTOR;
+		}
+		if(path.isEmpty()) {
+			return RouteEvent.NOT_IN_MAZE;
+		}
+		MazeCell last = path.get(path.size() - 1);
+		// a revisited cell is the only cell that appears twice in the path
+		return path.indexOf(last) < path.size() - 1 ? RouteEvent.REVISIT : RouteEvent.DEAD_END;
+	}
+	
+	/**
+	 * Fills in and commits a MazeBuildEvent that has ended.
+	 * 
+	 * @param event - the event to commit
+	 * @param structure - what was built
+	 * @param cellCount - the number of cells of the structure
+	 * @param passageCount - the number of passages of the structure, or UNKNOWN
+	 */
+	private void commitBuildEvent(MazeBuildEvent event, String structure, int cellCount, long passageCount) {
+		event.mazeId = mazeId;
+		event.structure = structure;
+		event.cells = cellCount;
+		event.passages = passageCount;
+		event.commit();
+	}
+	
+	/**
+	 * Fills in and commits an ExitTimeEvent that has ended.
+	 */
+	private void commitExitTimeEvent(ExitTimeEvent event, PassageSelector passageSelector, long cells,
+			long steps, String terminationReason, double averageExitTime) {
+		event.mazeId = mazeId;
+		event.selector = passageSelector == null ? null : passageSelector.getClass();
+		event.cells = cells;
+		event.steps = steps;
+		event.terminationReason = terminationReason;
+		event.averageExitTime = averageExitTime;
+		event.commit();
+	}
+	
+	/**
+	 * Checks if a MazeCell belongs to the Maze.
+	 * 
+	 * @param cell - the MazeCell to look for
+	 * @return true if the cell is in the Maze, false otherwise
+	 */
+	private boolean containsCell(MazeCell cell) {
+		if(cells != null) {
+			return cells.contains(cell);
+		}
+		return graph.indexOf(cell) >= 0;
+	}
+	
 	/**
 	 * Creates an empty path if the input is null. Otherwise, the path is
 	 * unaltered and returned.
@@ -241,12 +1278,12 @@ public class Maze {
 	 * @return true if base case for routePath(); false otherwise
 	 */
 	private boolean isRouteBaseCase(MazeCell cell, MazeCell outside, List<MazeCell> path) {
-		if(!cells.contains(cell)) {
+		if(!containsCell(cell)) {
 			// base case: cell isn't in the Maze
 			path.clear();
 			return true;
 		}
-		if(path.contains(cell) || cell == outside) {
+		if(path.contains(cell) || cell.equals(outside)) {
 			// base case: cell has been visited before or is exit to the maze
 			path.add(cell);
 			return true;
@@ -255,28 +1292,27 @@ public class Maze {
 	}
 	
 	/**
-	 * Generates a unique String for a specified MazeCell containing information
+	 * Appends a unique String for a specified MazeCell containing information
 	 * on its adjoining cells and the time to reach each of them. 
 	 * 
-	 * @param cell - the MazeCell to create a String for
-	 * @return a String contain information of the MazeCell and its adjoining cells
+	 * @param builder - the StringBuilder to append to
+	 * @param cell - the MazeCell to describe
 	 * @throws UninitializedObjectException only thrown if the MazeCell is invalid
 	 */
-	private String buildCellString(MazeCell cell) throws UninitializedObjectException {
-		StringBuilder builder = new StringBuilder();
+	private void appendCellString(StringBuilder builder, MazeCell cell) throws UninitializedObjectException {
 		if(cell.isDeadEnd()) {
-			builder.append(cell + " -> dead end\n");
+			builder.append(cell).append(" -> dead end\n");
 		} else {
 			for(MazeCell neighbor : cell.connectedCells()) {
-				Integer time = cell.passageTimeTo(neighbor);
-				builder.append(cell + " -" + time + "-> " + neighbor + "\n");
+				builder.append(cell).append(" -").append(cell.passageTimeTo(neighbor)).append("-> ")
+						.append(neighbor).append('\n');
 			}
 		}
-		return builder.toString();
 	}
 	
 	/**
-	 * Creates a unique String for each Maze instance.
+	 * Creates a unique String for each Maze instance. The String holds every
+	 * passage of the Maze; large Mazes are better written with a MazeExporter.
 	 * 
 	 * @return a String representation of the Maze
 	 */
@@ -286,13 +1322,13 @@ public class Maze {
 		StringBuilder builder = new StringBuilder();
 		builder.append("<Maze ID " + mazeId + ">:\n");
 		try {
-			checkValidity();
-			if(cells.isEmpty()) {
+			PassageGraph graph = graph();
+			if(graph.cellCount() == 0) {
 				builder.append("empty");
 			} else {
 				// add each MazeCell in the Maze to the StringBuilder
-				for(MazeCell cell : cells) {
-					builder.append(buildCellString(cell));
+				for(int i = 0; i < graph.cellCount(); i++) {
+					appendCellString(builder, graph.cellAt(i));
 				}
 			}
 			return builder.toString();
@@ -300,4 +1336,86 @@ public class Maze {
 			return "Uninitialized Maze";
 		}
 	}
+	/**
+	 * The LandmarkTask class chooses the landmarks of a PassageGraph of the Maze.
+	 */
+	private class LandmarkTask extends RecursiveTask<LandmarkHeuristic> {
+		private static final long serialVersionUID = 1L;
+		private PassageGraph graph;
+
+		LandmarkTask(PassageGraph graph) {
+			this.graph = graph;
+		}
+
+		@Override
+		protected LandmarkHeuristic compute() {
+			MazeBuildEvent event = new MazeBuildEvent();
+			event.begin();
+			LandmarkHeuristic heuristic = new LandmarkHeuristic(graph);
+			event.end();
+			if(event.shouldCommit()) {
+				commitBuildEvent(event, "LandmarkHeuristic", graph.cellCount(), graph.passageCount());
+			}
+			return heuristic;
+		}
+	}
+	
+	/**
+	 * The ExitTimeTask class gathers the exit times of a range of cells by
+	 * splitting it in halves until the halves are small enough to be walked
+	 * directly. Every task fills its own ExitTimeStatistics, and the halves are
+	 * merged when they are joined, so no locks are needed.
+	 */
+	private class ExitTimeTask extends RecursiveTask<ExitTimeStatistics> {
+		private static final long serialVersionUID = 1L;
+		private final static int SEQUENTIAL_THRESHOLD = 64;
+		private PassageGraph graph;
+		private ReachabilityIndex index;
+		private MazeCell outside;
+		private PassageSelector passageSelector;
+		private int from;
+		private int to;
+
+		ExitTimeTask(PassageGraph graph, ReachabilityIndex index, MazeCell outside,
+				PassageSelector passageSelector, int from, int to) {
+			this.graph = graph;
+			this.index = index;
+			this.outside = outside;
+			this.passageSelector = passageSelector;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected ExitTimeStatistics compute() {
+			if(to - from > SEQUENTIAL_THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				ExitTimeTask left = new ExitTimeTask(graph, index, outside, passageSelector, from, middle);
+				left.fork();
+				ExitTimeStatistics statistics =
+						new ExitTimeTask(graph, index, outside, passageSelector, middle, to).compute();
+				statistics.merge(left.join());
+				return statistics;
+			}
+			ExitTimeStatistics statistics = new ExitTimeStatistics();
+			try {
+				for(int i = from; i < to; i++) {
+					MazeCell cell = graph.cellAt(i);
+					if(!cell.equals(outside)) {
+						long time = exitTime(cell, outside, passageSelector, index, null);
+						if(time == NO_EXIT) {
+							statistics.recordImpassable();
+						} else {
+							statistics.record(time);
+						}
+					}
+				}
+			} catch(UninitializedObjectException e) {
+				// the Maze was checked before the walks started and cannot become invalid
+				throw new IllegalStateException(e);
+			}
+			return statistics;
+		}
+	}
+
 }
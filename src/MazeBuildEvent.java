@@ -0,0 +1,35 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The MazeBuildEvent class is a Java Flight Recorder event describing the
+ * construction of a Maze or of one of its indexes, such as its MazeGraph or
+ * ReachabilityIndex.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+@Name("maze.Build")
+@Label("Maze Build")
+@Category("Maze")
+@Description("The construction of a Maze or of one of its indexes")
+class MazeBuildEvent extends Event {
+	// the passage count of structures that do not count their passages
+	final static long UNKNOWN = -1;
+
+	@Label("Maze ID")
+	int mazeId;
+
+	@Label("Structure")
+	@Description("What was built, for example Maze.addCells or ReachabilityIndex")
+	String structure;
+
+	@Label("Cells")
+	int cells;
+
+	@Label("Passages")
+	long passages;
+}
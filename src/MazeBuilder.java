@@ -0,0 +1,244 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The MazeBuilder class assembles large mazes without creating a MazeCell and a
+ * Map of passages for every cell. Cells are identified by consecutive indices
+ * handed out by addCells(), and passages are added as (from, to, time) triples
+ * of primitive ints into storage presized from the capacity hints. build() then
+ * validates all passages in parallel and sorts them directly into the compressed
+ * sparse row form of a MazeGraph, producing a valid Maze in a single pass. The
+ * cells of the Maze are GraphMazeCells created on demand by cellAt(), so they do
+ * not draw IDs from the MazeCell counter.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MazeBuilder {
+	// private class constants
+	private final static int PARALLEL_THRESHOLD = 1 << 14; // smaller ranges are checked by one thread
+
+	// private class variables
+	private int cellCount;
+	private IntList sources;
+	private IntList targets;
+	private IntList times;
+	private MazeGraph graph; // the graph of the most recently built Maze
+
+	/**
+	 * Constructor of the MazeBuilder class which creates a builder without any
+	 * cells or passages.
+	 *
+	 * @param passageCapacity - the expected number of passages of the maze
+	 */
+	public MazeBuilder(int passageCapacity) {
+		this.sources = new IntList(passageCapacity);
+		this.targets = new IntList(passageCapacity);
+		this.times = new IntList(passageCapacity);
+	}
+
+	/**
+	 * Adds a block of new cells to the maze.
+	 *
+	 * @param count - the number of cells to add
+	 * @return the index of the first new cell; the others follow consecutively
+	 */
+	public int addCells(int count) {
+		if(count < 0 || count > Integer.MAX_VALUE - 1 - cellCount) {
+			throw new IllegalArgumentException("Invalid number of cells: " + count);
+		}
+		int first = cellCount;
+		cellCount += count;
+		return first;
+	}
+
+	/**
+	 * Adds a passage between two cells. The passage is only checked by build(),
+	 * which rejects the maze if either index does not belong to a cell, the time
+	 * is not positive, or the same passage was added twice. Passages with the
+	 * time IMPASSABLE are accepted but not part of the Maze.
+	 *
+	 * @param from - the index of the cell the passage leaves from
+	 * @param to - the index of the cell the passage leads to
+	 * @param time - the time required to travel the passage
+	 */
+	public void addPassage(int from, int to, int time) {
+		sources.add(from);
+		targets.add(to);
+		times.add(time);
+	}
+
+	/**
+	 * @return the number of cells added so far
+	 */
+	public int cellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * @return the number of passages added so far
+	 */
+	public int passageCount() {
+		return sources.size();
+	}
+
+	/**
+	 * Creates a valid Maze from the cells and passages added so far. The builder
+	 * can keep adding cells and passages and build further Mazes afterwards.
+	 *
+	 * @return a valid Maze containing every cell and passable passage
+	 * @throws UninitializedObjectException if any passage is invalid
+	 */
+	public Maze build() throws UninitializedObjectException {
+		MazeBuildEvent event = new MazeBuildEvent();
+		event.begin();
+		graph = buildGraph();
+		Maze maze = new Maze();
+		maze.addGraph(graph);
+		event.end();
+		if(event.shouldCommit()) {
+			event.mazeId = maze.id();
+			event.structure = "MazeBuilder";
+			event.cells = graph.cellCount();
+			event.passages = graph.passageCount();
+			event.commit();
+		}
+		return maze;
+	}
+
+	/**
+	 * Determines the MazeCell of an index in the most recently built Maze.
+	 *
+	 * @param index - the index returned for the cell by addCells()
+	 * @return the MazeCell with the specified index
+	 * @throws UninitializedObjectException if no Maze containing the cell has been built
+	 */
+	public MazeCell cellAt(int index) throws UninitializedObjectException {
+		if(graph == null || index < 0 || index >= graph.cellCount()) {
+			throw new UninitializedObjectException();
+		}
+		return graph.cellAt(index);
+	}
+
+	/**
+	 * Validates the passages and sorts them into compressed sparse row form. Each
+	 * cell's passages end up ordered by target, which also places duplicates next
+	 * to each other.
+	 *
+	 * @return the graph of the maze
+	 * @throws UninitializedObjectException if any passage is invalid
+	 */
+	private MazeGraph buildGraph() throws UninitializedObjectException {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int passageCount = sources.size();
+		if(!pool.invoke(new CheckPassagesTask(0, passageCount))) {
+			throw new UninitializedObjectException();
+		}
+		// count the passable passages of every cell
+		int[] offsets = new int[cellCount + 1];
+		for(int i = 0; i < passageCount; i++) {
+			if(times.get(i) != MazeCell.IMPASSABLE) {
+				offsets[sources.get(i) + 1]++;
+			}
+		}
+		for(int cell = 0; cell < cellCount; cell++) {
+			offsets[cell + 1] += offsets[cell];
+		}
+		// place every passage as target and time in one long so that sorting keeps them together
+		long[] passages = new long[offsets[cellCount]];
+		int[] positions = Arrays.copyOf(offsets, cellCount);
+		for(int i = 0; i < passageCount; i++) {
+			if(times.get(i) != MazeCell.IMPASSABLE) {
+				passages[positions[sources.get(i)]++] = ((long)targets.get(i) << 32) | times.get(i);
+			}
+		}
+		int[] graphTargets = new int[passages.length];
+		int[] graphTimes = new int[passages.length];
+		if(!pool.invoke(new SortCellsTask(offsets, passages, graphTargets, graphTimes, 0, cellCount))) {
+			throw new UninitializedObjectException();
+		}
+		return new MazeGraph(offsets, graphTargets, graphTimes);
+	}
+
+	/**
+	 * The CheckPassagesTask class checks that a range of passages connects
+	 * existing cells with positive times, splitting large ranges in halves.
+	 */
+	private class CheckPassagesTask extends RecursiveTask<Boolean> {
+		private static final long serialVersionUID = 1L;
+		private int from;
+		private int to;
+
+		CheckPassagesTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Boolean compute() {
+			if(to - from > PARALLEL_THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				CheckPassagesTask left = new CheckPassagesTask(from, middle);
+				left.fork();
+				boolean isValid = new CheckPassagesTask(middle, to).compute();
+				return left.join() && isValid;
+			}
+			for(int i = from; i < to; i++) {
+				int source = sources.get(i);
+				int target = targets.get(i);
+				if(source < 0 || source >= cellCount || target < 0 || target >= cellCount || times.get(i) <= 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The SortCellsTask class sorts the passages of a range of cells by target,
+	 * rejects duplicate passages and unpacks targets and times into the graph
+	 * arrays, splitting large ranges in halves.
+	 */
+	private static class SortCellsTask extends RecursiveTask<Boolean> {
+		private static final long serialVersionUID = 1L;
+		private int[] offsets;
+		private long[] passages;
+		private int[] targets;
+		private int[] times;
+		private int from;
+		private int to;
+
+		SortCellsTask(int[] offsets, long[] passages, int[] targets, int[] times, int from, int to) {
+			this.offsets = offsets;
+			this.passages = passages;
+			this.targets = targets;
+			this.times = times;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Boolean compute() {
+			if(offsets[to] - offsets[from] > PARALLEL_THRESHOLD && to - from > 1) {
+				int middle = (from + to) >>> 1;
+				SortCellsTask left = new SortCellsTask(offsets, passages, targets, times, from, middle);
+				left.fork();
+				boolean isValid = new SortCellsTask(offsets, passages, targets, times, middle, to).compute();
+				return left.join() && isValid;
+			}
+			for(int cell = from; cell < to; cell++) {
+				Arrays.sort(passages, offsets[cell], offsets[cell + 1]);
+				for(int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+					targets[i] = (int)(passages[i] >>> 32);
+					times[i] = (int)passages[i];
+					if(i > offsets[cell] && targets[i] == targets[i - 1]) {
+						return false; // a cell has only one passage to each other cell
+					}
+				}
+			}
+			return true;
+		}
+	}
+
+}
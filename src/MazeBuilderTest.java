@@ -0,0 +1,114 @@
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the MazeBuilder class. This class tests all public
+ * methods of the MazeBuilder class for proper and expected functionality.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MazeBuilderTest {
+
+	/**
+	 * Tests that a built Maze contains the added cells and passages.
+	 */
+	@Test
+	public void testBuild() {
+		MazeBuilder builder = new MazeBuilder(4);
+		int first = builder.addCells(3);
+		assertEquals("addCells() does not start at zero", 0, first);
+		assertEquals("addCells() does not continue after earlier cells", 3, builder.addCells(1));
+		builder.addPassage(0, 2, 5);
+		builder.addPassage(0, 1, 2);
+		builder.addPassage(1, 2, 3);
+		builder.addPassage(2, 3, MazeCell.IMPASSABLE);
+		assertEquals("cellCount() is incorrect", 4, builder.cellCount());
+		assertEquals("passageCount() is incorrect", 4, builder.passageCount());
+		try {
+			Maze maze = builder.build();
+			assertTrue("build() does not create a valid Maze", maze.isValid());
+			MazeCell start = builder.cellAt(0);
+			Map<MazeCell, Integer> passages = start.passages();
+			assertEquals("build() loses passages", 2, passages.size());
+			assertEquals("build() changes passage times", new Integer(2), passages.get(builder.cellAt(1)));
+			assertTrue("build() keeps impassable passages", builder.cellAt(2).isDeadEnd());
+			assertEquals("build() creates an incorrect Maze", 5,
+					maze.routeShortest(start, builder.cellAt(2)).travelTime().intValue());
+			ExitTimeStatistics statistics = maze.exitTimeStatistics(builder.cellAt(2), new GreedySelector());
+			assertEquals("exitTimeStatistics() is incorrect for a built Maze", 4.0, statistics.mean(), 0.0);
+			assertEquals("exitTimeStatistics() misses the dead end of a built Maze", 1, statistics.impassableCount());
+		} catch(UninitializedObjectException e) {
+			fail("build() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests that invalid passages are rejected.
+	 */
+	@Test
+	public void testInvalidPassages() {
+		int[][] invalid = {{0, 2, 1}, {-1, 0, 1}, {0, 1, 0}, {0, 1, -4}};
+		for(int[] passage : invalid) {
+			MazeBuilder builder = new MazeBuilder(0);
+			builder.addCells(2);
+			builder.addPassage(passage[0], passage[1], passage[2]);
+			try {
+				builder.build();
+				fail("build() accepted an invalid passage");
+			} catch(UninitializedObjectException e) {
+				// expected
+			}
+		}
+		// test duplicate passages
+		MazeBuilder builder = new MazeBuilder(0);
+		builder.addCells(2);
+		builder.addPassage(0, 1, 1);
+		builder.addPassage(0, 1, 2);
+		try {
+			builder.build();
+			fail("build() accepted a duplicate passage");
+		} catch(UninitializedObjectException e) {
+			// expected
+		}
+		try {
+			builder.cellAt(0);
+			fail("cellAt() returned a cell before a Maze was built");
+		} catch(UninitializedObjectException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Tests a maze large enough to be validated and sorted in parallel.
+	 */
+	@Test
+	public void testLargeMaze() {
+		int size = 300;
+		MazeBuilder builder = new MazeBuilder(4 * size * size);
+		builder.addCells(size * size);
+		// a grid in reverse insertion order so that the passages must be sorted
+		for(int cell = size * size - 1; cell >= 0; cell--) {
+			if(cell % size != 0) {
+				builder.addPassage(cell, cell - 1, 1);
+			}
+			if(cell >= size) {
+				builder.addPassage(cell, cell - size, 2);
+			}
+		}
+		try {
+			Maze maze = builder.build();
+			CellDistances distances = maze.distancesTo(builder.cellAt(0));
+			assertEquals("build() creates an incorrect large Maze", (size - 1) * 3,
+					distances.distance(builder.cellAt(size * size - 1)));
+			assertEquals("build() sorts passages incorrectly", new Integer(2),
+					builder.cellAt(size + 1).passageTimeTo(builder.cellAt(1)));
+		} catch(UninitializedObjectException e) {
+			fail("build() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+}
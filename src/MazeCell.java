@@ -30,6 +30,17 @@ public class MazeCell {
 		this.isValid = false;
 	}
 	
+	/**
+	 * Constructor used by subclasses that identify their cells themselves
+	 * and therefore do not consume a MazeCell ID.
+	 * 
+	 * @param mazeCellId - the ID of the new MazeCell
+	 */
+	MazeCell(int mazeCellId) {
+		this.mazeCellId = mazeCellId;
+		this.isValid = false;
+	}
+	
 	/**
 	 * Adds passages to the MazeCell and validates the cell. Passages cannot be added to the
 	 * MazeCell more than once and cannot be removed once added. If the Map is null, no passages
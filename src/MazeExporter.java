@@ -0,0 +1,260 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.Set;
+
+/**
+ * The MazeExporter class writes the cells and passages of a Maze in GraphViz
+ * DOT, JSON or a binary edge list without building the whole description in
+ * memory. Text is collected in a buffer of bounded size that is handed to the
+ * Appendable whenever it fills up, and the edge list is written to a channel
+ * through a fixed-size ByteBuffer, so exporting needs the same memory for any
+ * size of maze. Cells are identified by their index in the PassageGraph of the
+ * Maze. The export can be restricted to a subset of the cells, in which case
+ * only passages between two selected cells are written.
+ *
+ * The binary edge list is little-endian: the int EDGE_LIST_MAGIC, the number of
+ * cells of the maze as an int and the number of passages written as a long,
+ * followed by the source, target and time of every passage as three ints.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MazeExporter {
+	// public class constants
+	public final static int EDGE_LIST_MAGIC = 0x4D5A454C;
+
+	// private class constants
+	private final static int TEXT_BUFFER_SIZE = 1 << 13; // characters collected before they are appended
+	private final static int BINARY_BUFFER_SIZE = 1 << 16;
+
+	// private class variables
+	private PassageGraph graph;
+	private long[] selected; // bitset of the exported cells, or null to export every cell
+	private StringBuilder text;
+
+	/**
+	 * Constructor of the MazeExporter class which exports every cell of a Maze.
+	 *
+	 * @param maze - the Maze to export
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public MazeExporter(Maze maze) throws UninitializedObjectException {
+		this.graph = maze.graph();
+	}
+
+	/**
+	 * Restricts the export to a set of cells. Cells that are not in the Maze are
+	 * ignored. A null Set exports every cell again.
+	 *
+	 * @param cells - the MazeCells to export
+	 * @return this MazeExporter
+	 */
+	public MazeExporter selectCells(Set<MazeCell> cells) {
+		if(cells == null) {
+			selected = null;
+			return this;
+		}
+		selected = new long[(graph.cellCount() + 63) >>> 6];
+		for(MazeCell cell : cells) {
+			int index = graph.indexOf(cell);
+			if(index >= 0) {
+				selected[index >>> 6] |= 1L << index;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Restricts the export to the cells that are at most a number of passages
+	 * away from a cell, following passages in either direction. If the cell is
+	 * not in the Maze, nothing is exported.
+	 *
+	 * @param center - the MazeCell the neighborhood is centered on
+	 * @param hops - the largest number of passages between the center and an exported cell
+	 * @return this MazeExporter
+	 */
+	public MazeExporter selectNeighborhood(MazeCell center, int hops) {
+		selected = new long[(graph.cellCount() + 63) >>> 6];
+		int start = graph.indexOf(center);
+		if(start < 0) {
+			return this;
+		}
+		selected[start >>> 6] |= 1L << start;
+		IntList frontier = new IntList(16);
+		frontier.add(start);
+		for(int hop = 0; hop < hops && frontier.size() > 0; hop++) {
+			IntList next = new IntList(frontier.size() * 2);
+			for(int i = 0; i < frontier.size(); i++) {
+				int cell = frontier.get(i);
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					visit(graph.passageTarget(cell, p), next);
+				}
+				for(int p = 0; p < graph.incomingCount(cell); p++) {
+					visit(graph.incomingSource(cell, p), next);
+				}
+			}
+			frontier = next;
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the selected cells and their passages as a GraphViz digraph. Every
+	 * passage is labeled with its travel time.
+	 *
+	 * @param out - the destination of the text
+	 * @throws IOException if the Appendable cannot be written
+	 */
+	public void writeDot(Appendable out) throws IOException {
+		text = new StringBuilder(TEXT_BUFFER_SIZE + 64);
+		text.append("digraph maze {\n");
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			if(isSelected(cell)) {
+				text.append("  ").append(cell).append(";\n");
+				flushIfFull(out);
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					int target = graph.passageTarget(cell, p);
+					if(isSelected(target)) {
+						text.append("  ").append(cell).append(" -> ").append(target)
+								.append(" [label=\"").append(graph.passageTime(cell, p)).append("\"];\n");
+						flushIfFull(out);
+					}
+				}
+			}
+		}
+		text.append("}\n");
+		flush(out);
+	}
+
+	/**
+	 * Writes the selected cells and their passages as a JSON object of the form
+	 * {"cellCount": n, "cells": [indices], "passages": [[from, to, time], ...]}.
+	 *
+	 * @param out - the destination of the text
+	 * @throws IOException if the Appendable cannot be written
+	 */
+	public void writeJson(Appendable out) throws IOException {
+		text = new StringBuilder(TEXT_BUFFER_SIZE + 64);
+		text.append("{\"cellCount\":").append(graph.cellCount()).append(",\"cells\":[");
+		boolean isFirst = true;
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			if(isSelected(cell)) {
+				if(!isFirst) {
+					text.append(',');
+				}
+				text.append(cell);
+				isFirst = false;
+				flushIfFull(out);
+			}
+		}
+		text.append("],\"passages\":[");
+		isFirst = true;
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			if(isSelected(cell)) {
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					int target = graph.passageTarget(cell, p);
+					if(isSelected(target)) {
+						if(!isFirst) {
+							text.append(',');
+						}
+						text.append('[').append(cell).append(',').append(target).append(',')
+								.append(graph.passageTime(cell, p)).append(']');
+						isFirst = false;
+						flushIfFull(out);
+					}
+				}
+			}
+		}
+		text.append("]}\n");
+		flush(out);
+	}
+
+	/**
+	 * Writes the passages between selected cells as a binary edge list.
+	 *
+	 * @param channel - the destination of the bytes
+	 * @throws IOException if the channel cannot be written
+	 */
+	public void writeEdgeList(WritableByteChannel channel) throws IOException {
+		// the passages are counted first so that the header does not have to be rewritten
+		long passageCount = 0;
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			if(isSelected(cell)) {
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					if(isSelected(graph.passageTarget(cell, p))) {
+						passageCount++;
+					}
+				}
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BINARY_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(EDGE_LIST_MAGIC);
+		buffer.putInt(graph.cellCount());
+		buffer.putLong(passageCount);
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			if(isSelected(cell)) {
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					int target = graph.passageTarget(cell, p);
+					if(isSelected(target)) {
+						if(buffer.remaining() < 12) {
+							flush(channel, buffer);
+						}
+						buffer.putInt(cell);
+						buffer.putInt(target);
+						buffer.putInt(graph.passageTime(cell, p));
+					}
+				}
+			}
+		}
+		flush(channel, buffer);
+	}
+
+	/**
+	 * @return true if the cell is exported, false otherwise
+	 */
+	private boolean isSelected(int cell) {
+		return selected == null || (selected[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Selects a cell reached by the neighborhood search and adds it to the next
+	 * frontier if it was not selected before.
+	 */
+	private void visit(int cell, IntList next) {
+		if((selected[cell >>> 6] & (1L << cell)) == 0) {
+			selected[cell >>> 6] |= 1L << cell;
+			next.add(cell);
+		}
+	}
+
+	/**
+	 * Appends the collected text once the buffer is full.
+	 */
+	private void flushIfFull(Appendable out) throws IOException {
+		if(text.length() >= TEXT_BUFFER_SIZE) {
+			flush(out);
+		}
+	}
+
+	/**
+	 * Appends the collected text and empties the buffer.
+	 */
+	private void flush(Appendable out) throws IOException {
+		out.append(text);
+		text.setLength(0);
+	}
+
+	/**
+	 * Writes the contents of the buffer to the channel and empties the buffer.
+	 */
+	private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+}
@@ -0,0 +1,129 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case class for the MazeExporter class. This class tests all public
+ * methods of the MazeExporter class for proper and expected functionality.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MazeExporterTest {
+	// private class variables
+	private MazeBuilder builder;
+	private Maze maze;
+
+	/**
+	 * Creates a corridor of four cells in which cell n leads to cell n + 1 with
+	 * time n + 1, and cell 3 leads back to cell 0 with time 7.
+	 */
+	@Before
+	public void generateMaze() {
+		builder = new MazeBuilder(4);
+		builder.addCells(4);
+		for(int cell = 0; cell < 3; cell++) {
+			builder.addPassage(cell, cell + 1, cell + 1);
+		}
+		builder.addPassage(3, 0, 7);
+		try {
+			maze = builder.build();
+		} catch(UninitializedObjectException e) {
+			fail("build() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests the writeDot() method with and without a cell subset.
+	 */
+	@Test
+	public void testWriteDot() {
+		try {
+			StringWriter out = new StringWriter();
+			new MazeExporter(maze).writeDot(out);
+			assertEquals("writeDot() writes an incorrect graph",
+					"digraph maze {\n  0;\n  0 -> 1 [label=\"1\"];\n  1;\n  1 -> 2 [label=\"2\"];\n"
+					+ "  2;\n  2 -> 3 [label=\"3\"];\n  3;\n  3 -> 0 [label=\"7\"];\n}\n", out.toString());
+			Set<MazeCell> cells = new HashSet<MazeCell>();
+			cells.add(builder.cellAt(1));
+			cells.add(builder.cellAt(2));
+			cells.add(new MazeCell());
+			out = new StringWriter();
+			new MazeExporter(maze).selectCells(cells).writeDot(out);
+			assertEquals("writeDot() does not restrict the export to the subset",
+					"digraph maze {\n  1;\n  1 -> 2 [label=\"2\"];\n  2;\n}\n", out.toString());
+		} catch(IOException e) {
+			fail("writeDot() generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("writeDot() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests the writeJson() method with a neighborhood.
+	 */
+	@Test
+	public void testWriteJson() {
+		try {
+			StringBuilder out = new StringBuilder();
+			new MazeExporter(maze).writeJson(out);
+			assertEquals("writeJson() writes an incorrect object",
+					"{\"cellCount\":4,\"cells\":[0,1,2,3],\"passages\":[[0,1,1],[1,2,2],[2,3,3],[3,0,7]]}\n",
+					out.toString());
+			out = new StringBuilder();
+			new MazeExporter(maze).selectNeighborhood(builder.cellAt(0), 1).writeJson(out);
+			assertEquals("selectNeighborhood() does not follow passages in both directions",
+					"{\"cellCount\":4,\"cells\":[0,1,3],\"passages\":[[0,1,1],[3,0,7]]}\n", out.toString());
+			out = new StringBuilder();
+			new MazeExporter(maze).selectNeighborhood(new MazeCell(), 3).writeJson(out);
+			assertEquals("selectNeighborhood() exports cells around a cell outside of the Maze",
+					"{\"cellCount\":4,\"cells\":[],\"passages\":[]}\n", out.toString());
+		} catch(IOException e) {
+			fail("writeJson() generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("writeJson() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests the writeEdgeList() method on a maze larger than the write buffer.
+	 */
+	@Test
+	public void testWriteEdgeList() {
+		try {
+			int size = 10000;
+			MazeBuilder large = new MazeBuilder(size);
+			large.addCells(size);
+			for(int cell = 0; cell < size - 1; cell++) {
+				large.addPassage(cell, cell + 1, cell % 5 + 1);
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			new MazeExporter(large.build()).writeEdgeList(Channels.newChannel(bytes));
+			ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+			assertEquals("writeEdgeList() writes an incorrect length", 16 + 12 * (size - 1), buffer.remaining());
+			assertEquals("writeEdgeList() writes an incorrect magic number", MazeExporter.EDGE_LIST_MAGIC, buffer.getInt());
+			assertEquals("writeEdgeList() writes an incorrect cell count", size, buffer.getInt());
+			assertEquals("writeEdgeList() writes an incorrect passage count", size - 1, buffer.getLong());
+			for(int cell = 0; cell < size - 1; cell++) {
+				assertEquals("writeEdgeList() writes an incorrect source", cell, buffer.getInt());
+				assertEquals("writeEdgeList() writes an incorrect target", cell + 1, buffer.getInt());
+				assertEquals("writeEdgeList() writes an incorrect time", cell % 5 + 1, buffer.getInt());
+			}
+		} catch(IOException e) {
+			fail("writeEdgeList() generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("writeEdgeList() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+}
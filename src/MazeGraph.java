@@ -0,0 +1,523 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The MazeGraph class is a compact, index-based snapshot of the passages of a
+ * valid Maze. Every MazeCell of the maze is assigned an index between zero and
+ * cellCount() - 1 and its passable passages to other cells of the same maze are
+ * stored in flat arrays (compressed sparse row form). Passages that leave the
+ * maze or are impassable are not part of the graph. A MazeGraph produced by a
+ * MazeBuilder has no MazeCells of its own and creates GraphMazeCells on demand.
+ *
+ * Most mazes define every passage from both sides with the same time. Such a
+ * pair of passages is stored once, as the exclusive or of the indices of its two
+ * cells and its time, in the pair list of the cell with the lower index; the
+ * cell with the higher index only keeps the position of the pair, from which
+ * both the neighbor and the time follow. The pairs of a cell serve as both its
+ * passages and its incoming passages, so no reverse index is needed for them.
+ * One-way passages, passages from a cell to itself and passages whose time
+ * differs from the way back are directed: the cells with directed passages in
+ * or out are marked in a bitset, and their directed passages are kept in a side
+ * table, once in the list of the cell they leave and once in the list of the
+ * cell they enter. The position of a cell in the side table is the number of
+ * marked cells before it, counted with a popcount over the bitset and the
+ * counts stored for every 64 cells. The passages of a cell are listed with the
+ * pairs first, by neighbor and then by time, followed by its directed passages
+ * in the same order; its incoming passages are listed in the same way.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MazeGraph implements PassageGraph {
+	// private class variables
+	private MazeCell[] cells; // null if the cells are created on demand
+	private Map<MazeCell, Integer> indices;
+	private int[] pairOffsets; // pairs of cell i with higher cells are stored in [pairOffsets[i], pairOffsets[i + 1])
+	private int[] pairEnds; // the exclusive or of the indices of the two cells of every pair
+	private int[] pairTimes;
+	private int[] lowerOffsets; // pairs of cell i with lower cells are listed in [lowerOffsets[i], lowerOffsets[i + 1])
+	private int[] lowerPairs; // the position of every such pair in pairEnds
+	private long[] exceptionBits; // marks the cells with directed passages in or out
+	private int[] exceptionRanks; // the number of marked cells before every word of exceptionBits
+	private int[] exceptionOffsets; // directed passages of the k-th marked cell: out in [2k, 2k + 1], in in [2k + 1, 2k + 2]
+	private int[] exceptionEnds; // the target of a passage out or the source of a passage in
+	private int[] exceptionTimes;
+	private long passageCount;
+
+	/**
+	 * Constructor of the MazeGraph class which indexes the specified cells in
+	 * order of their hash codes so that the same cells always produce the same graph.
+	 *
+	 * @param cells - a Set of valid MazeCells making up a maze
+	 * @throws UninitializedObjectException only thrown if a MazeCell is invalid
+	 */
+	MazeGraph(Set<MazeCell> cells) throws UninitializedObjectException {
+		this.cells = cells.toArray(new MazeCell[cells.size()]);
+		Arrays.sort(this.cells, new Comparator<MazeCell>() {
+			@Override
+			public int compare(MazeCell first, MazeCell second) {
+				return Integer.compare(first.hashCode(), second.hashCode());
+			}
+		});
+		this.indices = new HashMap<MazeCell, Integer>(this.cells.length * 2);
+		for(int i = 0; i < this.cells.length; i++) {
+			indices.put(this.cells[i], i);
+		}
+		copyPassages();
+	}
+
+	/**
+	 * Constructor of the MazeGraph class which adopts passage arrays that are
+	 * already in compressed sparse row form.
+	 *
+	 * @param offsets - the passages of cell i are stored in [offsets[i], offsets[i + 1])
+	 * @param targets - the cell every passage leads to
+	 * @param times - the travel time of every passage
+	 */
+	MazeGraph(int[] offsets, int[] targets, int[] times) {
+		storePassages(offsets, targets, times);
+	}
+
+	/**
+	 * Copies a PassageGraph into a MazeGraph whose cells are stored in a new
+	 * order, such as one computed by CellOrdering to place neighboring cells
+	 * close together in memory. The passages of every cell are listed in the
+	 * order of the new indices of their neighbors.
+	 * If the cells of the graph are MazeCells of their own, the copy indexes the
+	 * same MazeCells; otherwise it creates GraphMazeCells of the copy on demand.
+	 *
+	 * @param graph - the graph to copy
+	 * @param order - the index in the graph of the cell at every position of the copy
+	 * @return a MazeGraph with the cells of the graph in the new order
+	 */
+	public static MazeGraph copyOf(PassageGraph graph, int[] order) {
+		int cellCount = graph.cellCount();
+		if(order.length != cellCount) {
+			throw new IllegalArgumentException("The order must list each of the " + cellCount + " cells once");
+		}
+		int[] positions = new int[cellCount];
+		Arrays.fill(positions, -1);
+		for(int i = 0; i < cellCount; i++) {
+			if(order[i] < 0 || order[i] >= cellCount || positions[order[i]] >= 0) {
+				throw new IllegalArgumentException("The order must list each of the " + cellCount + " cells once");
+			}
+			positions[order[i]] = i;
+		}
+		if(graph.passageCount() > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("A MazeGraph holds at most " + (Integer.MAX_VALUE - 8) + " passages");
+		}
+		int[] offsets = new int[cellCount + 1];
+		int[] targets = new int[(int)graph.passageCount()];
+		int[] times = new int[targets.length];
+		int count = 0;
+		for(int i = 0; i < cellCount; i++) {
+			offsets[i] = count;
+			int cell = order[i];
+			for(int p = 0; p < graph.passageCount(cell); p++) {
+				targets[count] = positions[graph.passageTarget(cell, p)];
+				times[count] = graph.passageTime(cell, p);
+				count++;
+			}
+		}
+		offsets[cellCount] = count;
+		MazeGraph copy = new MazeGraph(offsets, targets, times);
+		MazeCell first = cellCount == 0 ? null : graph.cellAt(0);
+		if(first != null && !(first instanceof GraphMazeCell && ((GraphMazeCell)first).graph() == graph)) {
+			// keep the MazeCells of the graph so that they stay part of the maze
+			copy.cells = new MazeCell[cellCount];
+			copy.indices = new HashMap<MazeCell, Integer>(cellCount * 2);
+			for(int i = 0; i < cellCount; i++) {
+				copy.cells[i] = graph.cellAt(order[i]);
+				copy.indices.put(copy.cells[i], i);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * @return the number of cells in the graph
+	 */
+	@Override
+	public int cellCount() {
+		return pairOffsets.length - 1;
+	}
+
+	/**
+	 * @return the total number of passages in the graph
+	 */
+	@Override
+	public long passageCount() {
+		return passageCount;
+	}
+
+	/**
+	 * Determines the number of passable passages leaving a cell.
+	 *
+	 * @param cell - the index of the cell
+	 * @return the number of passages out of the cell
+	 */
+	@Override
+	public int passageCount(int cell) {
+		int count = pairCount(cell);
+		if(isException(cell)) {
+			int k = exceptionRank(cell);
+			count += exceptionOffsets[2 * k + 1] - exceptionOffsets[2 * k];
+		}
+		return count;
+	}
+
+	/**
+	 * Determines the cell that a passage leads to.
+	 *
+	 * @param cell - the index of the cell the passage leaves from
+	 * @param passage - the number of the passage between 0 and passageCount(cell) - 1
+	 * @return the index of the cell the passage leads to
+	 */
+	@Override
+	public int passageTarget(int cell, int passage) {
+		int pair = pairPosition(cell, passage);
+		if(pair >= 0) {
+			return pairEnds[pair] ^ cell;
+		}
+		return exceptionEnds[exceptionOffsets[2 * exceptionRank(cell)] + passage - pairCount(cell)];
+	}
+
+	/**
+	 * Determines the travel time of a passage.
+	 *
+	 * @param cell - the index of the cell the passage leaves from
+	 * @param passage - the number of the passage between 0 and passageCount(cell) - 1
+	 * @return the time required to travel the passage
+	 */
+	@Override
+	public int passageTime(int cell, int passage) {
+		int pair = pairPosition(cell, passage);
+		if(pair >= 0) {
+			return pairTimes[pair];
+		}
+		return exceptionTimes[exceptionOffsets[2 * exceptionRank(cell)] + passage - pairCount(cell)];
+	}
+
+	/**
+	 * Determines the number of passable passages leading into a cell.
+	 *
+	 * @param cell - the index of the cell
+	 * @return the number of passages into the cell
+	 */
+	@Override
+	public int incomingCount(int cell) {
+		int count = pairCount(cell);
+		if(isException(cell)) {
+			int k = exceptionRank(cell);
+			count += exceptionOffsets[2 * k + 2] - exceptionOffsets[2 * k + 1];
+		}
+		return count;
+	}
+
+	/**
+	 * Determines the cell that an incoming passage leaves from.
+	 *
+	 * @param cell - the index of the cell the passage leads to
+	 * @param passage - the number of the passage between 0 and incomingCount(cell) - 1
+	 * @return the index of the cell the passage leaves from
+	 */
+	@Override
+	public int incomingSource(int cell, int passage) {
+		int pair = pairPosition(cell, passage);
+		if(pair >= 0) {
+			return pairEnds[pair] ^ cell;
+		}
+		return exceptionEnds[exceptionOffsets[2 * exceptionRank(cell) + 1] + passage - pairCount(cell)];
+	}
+
+	/**
+	 * Determines the travel time of an incoming passage.
+	 *
+	 * @param cell - the index of the cell the passage leads to
+	 * @param passage - the number of the passage between 0 and incomingCount(cell) - 1
+	 * @return the time required to travel the passage
+	 */
+	@Override
+	public int incomingTime(int cell, int passage) {
+		int pair = pairPosition(cell, passage);
+		if(pair >= 0) {
+			return pairTimes[pair];
+		}
+		return exceptionTimes[exceptionOffsets[2 * exceptionRank(cell) + 1] + passage - pairCount(cell)];
+	}
+
+	/**
+	 * @return the number of pairs of passages stored once for both directions
+	 */
+	int pairCount() {
+		return pairEnds.length;
+	}
+
+	/**
+	 * @return the number of cells with directed passages in the side table
+	 */
+	int exceptionCount() {
+		return (exceptionOffsets.length - 1) / 2;
+	}
+
+	/**
+	 * @param index - the index of a cell in the graph
+	 * @return the MazeCell with the specified index
+	 */
+	@Override
+	public MazeCell cellAt(int index) {
+		if(cells == null) {
+			return new GraphMazeCell(this, index);
+		}
+		return cells[index];
+	}
+
+	/**
+	 * Determines the index of a MazeCell in the graph.
+	 *
+	 * @param cell - the MazeCell to look up
+	 * @return the index of the cell, or -1 if the cell is not part of the graph
+	 */
+	@Override
+	public int indexOf(MazeCell cell) {
+		if(cells == null) {
+			if(cell instanceof GraphMazeCell && ((GraphMazeCell)cell).graph() == this) {
+				int index = ((GraphMazeCell)cell).index();
+				return index >= 0 && index < cellCount() ? index : -1;
+			}
+			return -1;
+		}
+		Integer index = indices.get(cell);
+		if(index == null) {
+			return -1;
+		}
+		return index;
+	}
+
+	/**
+	 * Copies the passable passages of every cell that lead to another cell
+	 * of the graph into flat passage arrays and stores them.
+	 *
+	 * @throws UninitializedObjectException only thrown if a MazeCell is invalid
+	 */
+	private void copyPassages() throws UninitializedObjectException {
+		int[] offsets = new int[cells.length + 1];
+		int[] targets = new int[Math.max(cells.length, 16)];
+		int[] times = new int[targets.length];
+		int count = 0;
+		for(int i = 0; i < cells.length; i++) {
+			offsets[i] = count;
+			for(Map.Entry<MazeCell, Integer> passage : cells[i].passages().entrySet()) {
+				Integer target = indices.get(passage.getKey());
+				if(target != null) { // passages leaving the maze are not part of the graph
+					if(count == targets.length) {
+						targets = Arrays.copyOf(targets, count * 2);
+						times = Arrays.copyOf(times, count * 2);
+					}
+					targets[count] = target;
+					times[count] = passage.getValue();
+					count++;
+				}
+			}
+		}
+		offsets[cells.length] = count;
+		storePassages(offsets, Arrays.copyOf(targets, count), Arrays.copyOf(times, count));
+	}
+
+	/**
+	 * Splits passages in compressed sparse row form into pairs and directed
+	 * passages. The first pass counts the pairs and directed passages of every
+	 * cell, and the second fills the lists. A pair is placed in the list of its
+	 * lower cell, and its position is added to the list of its higher cell at
+	 * the same time; since the cells are visited in order, the lists of the
+	 * higher cells come out sorted by neighbor, as SymmetricPassages lists them.
+	 */
+	private void storePassages(int[] offsets, int[] targets, int[] times) {
+		int cellCount = offsets.length - 1;
+		PassageGraph directed = new DirectedPassages(offsets, targets, times);
+		SymmetricPassages passages = new SymmetricPassages();
+		pairOffsets = new int[cellCount + 1];
+		lowerOffsets = new int[cellCount + 1];
+		exceptionBits = new long[(cellCount + 63) >>> 6];
+		exceptionRanks = new int[exceptionBits.length];
+		IntList exceptionCounts = new IntList(16); // directed passages out and in of every marked cell
+		int exceptions = 0;
+		for(int cell = 0; cell < cellCount; cell++) {
+			passages.split(directed, cell);
+			pairOffsets[cell + 1] = pairOffsets[cell] + passages.upperCount();
+			lowerOffsets[cell + 1] = lowerOffsets[cell] + passages.lowerCount();
+			if((cell & 63) == 0) {
+				exceptionRanks[cell >>> 6] = exceptions;
+			}
+			if(!passages.isSymmetric()) {
+				exceptionBits[cell >>> 6] |= 1L << cell;
+				exceptionCounts.add(passages.directedOutCount());
+				exceptionCounts.add(passages.directedInCount());
+				exceptions++;
+			}
+		}
+		exceptionOffsets = new int[2 * exceptions + 1];
+		for(int i = 0; i < 2 * exceptions; i++) {
+			exceptionOffsets[i + 1] = exceptionOffsets[i] + exceptionCounts.get(i);
+		}
+		pairEnds = new int[pairOffsets[cellCount]];
+		pairTimes = new int[pairEnds.length];
+		lowerPairs = new int[pairEnds.length];
+		exceptionEnds = new int[exceptionOffsets[2 * exceptions]];
+		exceptionTimes = new int[exceptionEnds.length];
+		passageCount = targets.length;
+		int[] lowerPositions = Arrays.copyOf(lowerOffsets, cellCount);
+		int k = 0;
+		for(int cell = 0; cell < cellCount; cell++) {
+			passages.split(directed, cell);
+			for(int i = 0; i < passages.upperCount(); i++) {
+				int pair = pairOffsets[cell] + i;
+				int neighbor = SymmetricPassages.neighbor(passages.upper(i));
+				pairEnds[pair] = cell ^ neighbor;
+				pairTimes[pair] = SymmetricPassages.time(passages.upper(i));
+				lowerPairs[lowerPositions[neighbor]++] = pair;
+			}
+			if(!passages.isSymmetric()) {
+				for(int i = 0; i < passages.directedOutCount(); i++) {
+					exceptionEnds[exceptionOffsets[2 * k] + i] = SymmetricPassages.neighbor(passages.directedOut(i));
+					exceptionTimes[exceptionOffsets[2 * k] + i] = SymmetricPassages.time(passages.directedOut(i));
+				}
+				for(int i = 0; i < passages.directedInCount(); i++) {
+					exceptionEnds[exceptionOffsets[2 * k + 1] + i] = SymmetricPassages.neighbor(passages.directedIn(i));
+					exceptionTimes[exceptionOffsets[2 * k + 1] + i] = SymmetricPassages.time(passages.directedIn(i));
+				}
+				k++;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of pairs of a cell with its lower and higher neighbors
+	 */
+	private int pairCount(int cell) {
+		return lowerOffsets[cell + 1] - lowerOffsets[cell] + pairOffsets[cell + 1] - pairOffsets[cell];
+	}
+
+	/**
+	 * Determines where a passage of a cell is stored if it belongs to a pair.
+	 *
+	 * @return the position of the pair in pairEnds, or -1 if the passage is directed
+	 */
+	private int pairPosition(int cell, int passage) {
+		int lowerCount = lowerOffsets[cell + 1] - lowerOffsets[cell];
+		if(passage < lowerCount) {
+			return lowerPairs[lowerOffsets[cell] + passage];
+		}
+		passage -= lowerCount;
+		if(passage < pairOffsets[cell + 1] - pairOffsets[cell]) {
+			return pairOffsets[cell] + passage;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if the cell has directed passages in the side table
+	 */
+	private boolean isException(int cell) {
+		return (exceptionBits[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * @return the number of marked cells before the cell, its position in the side table
+	 */
+	private int exceptionRank(int cell) {
+		return exceptionRanks[cell >>> 6] + Long.bitCount(exceptionBits[cell >>> 6] & ((1L << cell) - 1));
+	}
+
+	/**
+	 * The DirectedPassages class is a PassageGraph view of passages in compressed
+	 * sparse row form with a reverse index, from which the pairs are found while
+	 * a MazeGraph is built.
+	 */
+	private static class DirectedPassages implements PassageGraph {
+		private int[] offsets;
+		private int[] targets;
+		private int[] times;
+		private int[] incomingOffsets;
+		private int[] sources;
+		private int[] incomingTimes;
+
+		DirectedPassages(int[] offsets, int[] targets, int[] times) {
+			int cellCount = offsets.length - 1;
+			this.offsets = offsets;
+			this.targets = targets;
+			this.times = times;
+			this.incomingOffsets = new int[cellCount + 1];
+			for(int target : targets) {
+				incomingOffsets[target + 1]++;
+			}
+			for(int i = 0; i < cellCount; i++) {
+				incomingOffsets[i + 1] += incomingOffsets[i];
+			}
+			int[] positions = Arrays.copyOf(incomingOffsets, cellCount);
+			this.sources = new int[targets.length];
+			this.incomingTimes = new int[targets.length];
+			for(int cell = 0; cell < cellCount; cell++) {
+				for(int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+					int position = positions[targets[i]]++;
+					sources[position] = cell;
+					incomingTimes[position] = times[i];
+				}
+			}
+		}
+
+		@Override
+		public int cellCount() {
+			return offsets.length - 1;
+		}
+
+		@Override
+		public long passageCount() {
+			return targets.length;
+		}
+
+		@Override
+		public int passageCount(int cell) {
+			return offsets[cell + 1] - offsets[cell];
+		}
+
+		@Override
+		public int passageTarget(int cell, int passage) {
+			return targets[offsets[cell] + passage];
+		}
+
+		@Override
+		public int passageTime(int cell, int passage) {
+			return times[offsets[cell] + passage];
+		}
+
+		@Override
+		public int incomingCount(int cell) {
+			return incomingOffsets[cell + 1] - incomingOffsets[cell];
+		}
+
+		@Override
+		public int incomingSource(int cell, int passage) {
+			return sources[incomingOffsets[cell] + passage];
+		}
+
+		@Override
+		public int incomingTime(int cell, int passage) {
+			return incomingTimes[incomingOffsets[cell] + passage];
+		}
+
+		@Override
+		public MazeCell cellAt(int index) {
+			throw new UnsupportedOperationException("The passages of a graph under construction have no cells");
+		}
+
+		@Override
+		public int indexOf(MazeCell cell) {
+			return -1;
+		}
+	}
+
+}
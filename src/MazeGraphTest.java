@@ -0,0 +1,109 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the MazeGraph class. This class tests that the passages
+ * of a MazeGraph and a MappedMazeGraph are correct whether they are stored once
+ * for both directions or apart as directed passages.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MazeGraphTest {
+
+	/**
+	 * Checks the incoming passages of every cell against the passages of the
+	 * graph, regardless of their order.
+	 */
+	private void assertIncomingPassages(PassageGraph graph) {
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			int count = 0;
+			for(int from = 0; from < graph.cellCount(); from++) {
+				for(int p = 0; p < graph.passageCount(from); p++) {
+					if(graph.passageTarget(from, p) == cell) {
+						count++;
+					}
+				}
+			}
+			assertEquals("incomingCount() is incorrect", count, graph.incomingCount(cell));
+			long[] expected = new long[count];
+			count = 0;
+			for(int from = 0; from < graph.cellCount(); from++) {
+				for(int p = 0; p < graph.passageCount(from); p++) {
+					if(graph.passageTarget(from, p) == cell) {
+						expected[count++] = ((long)from << 32) | graph.passageTime(from, p);
+					}
+				}
+			}
+			long[] actual = new long[count];
+			for(int p = 0; p < count; p++) {
+				actual[p] = ((long)graph.incomingSource(cell, p) << 32) | graph.incomingTime(cell, p);
+			}
+			Arrays.sort(expected);
+			Arrays.sort(actual);
+			assertTrue("incomingSource() or incomingTime() is incorrect", Arrays.equals(expected, actual));
+		}
+	}
+
+	/**
+	 * Tests that symmetric passages are only stored once and that the cells of
+	 * one-way passages keep their own incoming passages.
+	 */
+	@Test
+	public void testSymmetricPassages() {
+		GridMaze grid = new GridMaze(9, 8, true);
+		for(int x = 0; x < grid.width(); x++) {
+			for(int y = 0; y < grid.height(); y++) {
+				grid.setTime(x, y, 1 + (x * 7 + y * 3) % 5);
+				if(x + 1 < grid.width()) {
+					grid.connect(x, y, GridMaze.EAST);
+				}
+				if(y + 1 < grid.height()) {
+					grid.connect(x, y, GridMaze.SOUTH);
+				}
+			}
+		}
+		// a grid with times on the cells has different times in the two directions
+		int[] order = new int[grid.cellCount()];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		MazeGraph weighted = MazeGraph.copyOf(grid, order);
+		assertIncomingPassages(weighted);
+		assertEquals("passageCount() is incorrect with directed passages", grid.passageCount(), weighted.passageCount());
+		assertEquals("directed passages are not stored apart", grid.cellCount(), weighted.exceptionCount());
+		// a ring of cells joined in both directions with the same times
+		int size = 100;
+		int[] offsets = new int[size + 1];
+		int[] targets = new int[2 * size];
+		int[] times = new int[2 * size];
+		for(int cell = 0; cell < size; cell++) {
+			offsets[cell + 1] = 2 * (cell + 1);
+			targets[2 * cell] = (cell + size - 1) % size;
+			targets[2 * cell + 1] = (cell + 1) % size;
+			times[2 * cell] = 1 + (cell + size - 1) % size % 4;
+			times[2 * cell + 1] = 1 + cell % 4;
+		}
+		MazeGraph ring = new MazeGraph(offsets, targets, times);
+		assertEquals("symmetric passages are stored twice", 0, ring.exceptionCount());
+		assertEquals("symmetric passages are not stored once", size, ring.pairCount());
+		assertEquals("passageCount() is incorrect with pairs", 2 * size, ring.passageCount());
+		assertIncomingPassages(ring);
+		// slow down the passage from cell 11 back to cell 10 only
+		times[2 * 11] = 9;
+		MazeGraph oneWay = new MazeGraph(offsets, targets, times);
+		assertEquals("asymmetric passages are not stored apart", 2, oneWay.exceptionCount());
+		assertEquals("asymmetric passages are stored as a pair", size - 1, oneWay.pairCount());
+		MappedMazeGraph mapped = MappedMazeGraph.copyOf(oneWay);
+		assertEquals("mapped graphs store pairs differently", size - 1, mapped.pairCount());
+		assertEquals("mapped graphs store directed passages differently", 2, mapped.exceptionCount());
+		assertIncomingPassages(mapped);
+		assertIncomingPassages(oneWay);
+		assertEquals("incomingTime() is incorrect for an asymmetric passage", 9,
+				oneWay.incomingTime(10, oneWay.incomingSource(10, 0) == 11 ? 0 : 1));
+	}
+
+}
@@ -0,0 +1,267 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * The MazeQueryClient class sends queries to a MazeQueryServer on the same
+ * machine. Requests are pipelined: the send methods only buffer a request and
+ * return its number, flush() hands all buffered requests to the server, and
+ * receive() returns the responses in the order the requests were sent. The
+ * query methods send one request and wait for its response. Responses are not
+ * read until receive() is called, so a client that sends many thousands of
+ * requests should receive responses in between. A client must only be used by
+ * one thread at a time.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MazeQueryClient {
+	// private class variables
+	private Closeable connection;
+	private DataInputStream in;
+	private DataOutputStream out;
+	private int nextId;
+	private Queue<Byte> pendingTypes; // the types of the requests that have not been answered, oldest first
+
+	/**
+	 * Constructor of the MazeQueryClient class which connects to a server on the
+	 * loopback address.
+	 *
+	 * @param port - the port the server listens on
+	 * @throws IOException if the server cannot be reached
+	 */
+	public MazeQueryClient(int port) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		this.connection = socket;
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+		this.pendingTypes = new ArrayDeque<Byte>();
+	}
+
+	/**
+	 * Constructor of the MazeQueryClient class which connects to a server on a
+	 * Unix domain socket.
+	 *
+	 * @param path - the path of the socket file the server listens on
+	 * @throws IOException if the server cannot be reached
+	 */
+	public MazeQueryClient(Path path) throws IOException {
+		SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(path));
+		this.connection = channel;
+		this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+		this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+		this.pendingTypes = new ArrayDeque<Byte>();
+	}
+
+	/**
+	 * Buffers a request for the shortest route between two cells.
+	 *
+	 * @param from - the index of the cell the route starts at
+	 * @param to - the index of the cell the route ends at
+	 * @param deadline - the time in milliseconds since the epoch after which the
+	 * answer is no longer needed, or 0 for none
+	 * @return the number of the request
+	 * @throws IOException if the connection fails
+	 */
+	public int sendRoute(int from, int to, long deadline) throws IOException {
+		return sendPair(MazeQueryServer.ROUTE, from, to, deadline);
+	}
+
+	/**
+	 * Buffers a request for the shortest travel time between two cells.
+	 *
+	 * @param from - the index of the cell the route starts at
+	 * @param to - the index of the cell the route ends at
+	 * @param deadline - the time in milliseconds since the epoch after which the
+	 * answer is no longer needed, or 0 for none
+	 * @return the number of the request
+	 * @throws IOException if the connection fails
+	 */
+	public int sendTravelTime(int from, int to, long deadline) throws IOException {
+		return sendPair(MazeQueryServer.TRAVEL_TIME, from, to, deadline);
+	}
+
+	/**
+	 * Buffers a request for the average exit time of the Maze, as computed by
+	 * Maze.averageExitTime().
+	 *
+	 * @param exit - the index of the exit
+	 * @param selector - FIRST_SELECTOR, RANDOM_SELECTOR or GREEDY_SELECTOR of MazeQueryServer
+	 * @param deadline - the time in milliseconds since the epoch after which the
+	 * answer is no longer needed, or 0 for none
+	 * @return the number of the request
+	 * @throws IOException if the connection fails
+	 */
+	public int sendExitTime(int exit, byte selector, long deadline) throws IOException {
+		int id = nextId++;
+		pendingTypes.add(MazeQueryServer.EXIT_TIME);
+		out.writeInt(id);
+		out.writeByte(MazeQueryServer.EXIT_TIME);
+		out.writeLong(deadline);
+		out.writeInt(exit);
+		out.writeByte(selector);
+		return id;
+	}
+
+	/**
+	 * Hands all buffered requests to the server.
+	 *
+	 * @throws IOException if the connection fails
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Waits for the response to the oldest request that has not been answered.
+	 *
+	 * @return the response
+	 * @throws IOException if the connection fails
+	 */
+	public Response receive() throws IOException {
+		if(pendingTypes.isEmpty()) {
+			throw new IllegalStateException("Every request has been answered");
+		}
+		byte type = pendingTypes.poll();
+		Response response = new Response();
+		response.id = in.readInt();
+		response.status = in.readByte();
+		response.time = MazeCell.IMPASSABLE;
+		response.averageTime = MazeCell.IMPASSABLE_DOUBLE;
+		if(response.status == MazeQueryServer.OK) {
+			if(type == MazeQueryServer.ROUTE) {
+				response.cells = new int[in.readInt()];
+				for(int i = 0; i < response.cells.length; i++) {
+					response.cells[i] = in.readInt();
+				}
+			} else if(type == MazeQueryServer.TRAVEL_TIME) {
+				response.time = in.readInt();
+			} else {
+				response.averageTime = in.readDouble();
+			}
+		}
+		return response;
+	}
+
+	/**
+	 * Finds the shortest route between two cells and waits for the answer.
+	 *
+	 * @return the response, whose cells() are the route
+	 * @throws IOException if the connection fails
+	 */
+	public Response route(int from, int to, long deadline) throws IOException {
+		sendRoute(from, to, deadline);
+		flush();
+		return receive();
+	}
+
+	/**
+	 * Finds the shortest travel time between two cells and waits for the answer.
+	 *
+	 * @return the response, whose time() is the travel time
+	 * @throws IOException if the connection fails
+	 */
+	public Response travelTime(int from, int to, long deadline) throws IOException {
+		sendTravelTime(from, to, deadline);
+		flush();
+		return receive();
+	}
+
+	/**
+	 * Calculates the average exit time of the Maze and waits for the answer.
+	 *
+	 * @return the response, whose averageTime() is the average exit time
+	 * @throws IOException if the connection fails
+	 */
+	public Response exitTime(int exit, byte selector, long deadline) throws IOException {
+		sendExitTime(exit, selector, deadline);
+		flush();
+		return receive();
+	}
+
+	/**
+	 * Closes the connection to the server.
+	 *
+	 * @throws IOException if the connection cannot be closed
+	 */
+	public void close() throws IOException {
+		connection.close();
+	}
+
+	/**
+	 * Buffers a request with two cell arguments.
+	 */
+	private int sendPair(byte type, int from, int to, long deadline) throws IOException {
+		int id = nextId++;
+		pendingTypes.add(type);
+		out.writeInt(id);
+		out.writeByte(type);
+		out.writeLong(deadline);
+		out.writeInt(from);
+		out.writeInt(to);
+		return id;
+	}
+
+	/**
+	 * The Response class is the answer of the server to one request.
+	 */
+	public static class Response {
+		// private class variables
+		private int id;
+		private byte status;
+		private int[] cells;
+		private int time;
+		private double averageTime;
+
+		private Response() {
+		}
+
+		/**
+		 * @return the number of the request that was answered
+		 */
+		public int id() {
+			return id;
+		}
+
+		/**
+		 * @return OK, DEADLINE_EXCEEDED or BAD_REQUEST of MazeQueryServer
+		 */
+		public byte status() {
+			return status;
+		}
+
+		/**
+		 * @return the cell indices of the route of a route request, or null for other requests
+		 */
+		public int[] cells() {
+			return cells;
+		}
+
+		/**
+		 * @return the travel time of a travel time request, or IMPASSABLE for other requests
+		 */
+		public int time() {
+			return time;
+		}
+
+		/**
+		 * @return the average exit time of an exit time request, or IMPASSABLE_DOUBLE for other requests
+		 */
+		public double averageTime() {
+			return averageTime;
+		}
+	}
+
+}
@@ -0,0 +1,466 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The MazeQueryServer class shares one loaded Maze among several processes on
+ * the same machine. It listens on a loopback socket or a Unix domain socket and
+ * answers shortest route, travel time and average exit time queries in a binary
+ * protocol, in which cells are identified by their index in the Maze's
+ * PassageGraph. Both kinds of socket are served the same way.
+ *
+ * Every connection is served by its own thread. A client may send any number
+ * of requests without waiting for the responses (pipelining). The server reads
+ * every request that has already arrived, up to MAX_BATCH_SIZE, as one batch:
+ * travel time queries of the batch to the same destination share one backward
+ * search, equal exit time queries are computed once, and the queries of a batch
+ * run in parallel on the common ForkJoinPool. The responses are written in the
+ * order of the requests. Every request may carry a deadline; a request whose
+ * deadline has passed before or while it is answered receives the status
+ * DEADLINE_EXCEEDED instead of a result. Requests that expire while other
+ * groups of their batch run are dropped before their own group is computed,
+ * and a group without any remaining request is not computed at all.
+ *
+ * A request is the int request number, the byte request type, the long deadline
+ * in milliseconds since the epoch (0 for none) and the arguments of the type:
+ * two ints (start, destination) for ROUTE and TRAVEL_TIME, and an int exit and
+ * a byte selector for EXIT_TIME. A response is the int request number and the
+ * byte status, followed for the status OK by the int cell count and the cell
+ * indices of a ROUTE, the int travel time of a TRAVEL_TIME, or the double
+ * average time of an EXIT_TIME. All numbers are big-endian.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MazeQueryServer {
+	// public class constants
+	public final static byte OK = 0;
+	public final static byte DEADLINE_EXCEEDED = 1;
+	public final static byte BAD_REQUEST = 2;
+	public final static byte FIRST_SELECTOR = 0;
+	public final static byte RANDOM_SELECTOR = 1;
+	public final static byte GREEDY_SELECTOR = 2;
+	public final static int MAX_BATCH_SIZE = 1024;
+
+	// package-private class constants
+	final static byte ROUTE = 1;
+	final static byte TRAVEL_TIME = 2;
+	final static byte EXIT_TIME = 3;
+
+	// private class constants
+	private final static int SHARED_SEARCH_THRESHOLD = 4; // travel time queries to one destination that share a search
+
+	// private class variables
+	private Maze maze;
+	private PassageGraph graph;
+	private ServerSocket serverSocket;
+	private ServerSocketChannel unixChannel;
+	private Path socketPath;
+	private List<Closeable> connections;
+
+	/**
+	 * Constructor of the MazeQueryServer class which prepares a server for a Maze.
+	 *
+	 * @param maze - the Maze to answer queries about
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public MazeQueryServer(Maze maze) throws UninitializedObjectException {
+		this.maze = maze;
+		this.graph = maze.graph();
+		this.connections = new ArrayList<Closeable>();
+	}
+
+	/**
+	 * Starts accepting connections on the loopback address in a background thread.
+	 *
+	 * @param port - the port to listen on, or 0 for any free port
+	 * @return the port the server listens on
+	 * @throws IOException if the socket cannot be opened
+	 */
+	public synchronized int start(int port) throws IOException {
+		checkNotStarted();
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		startAcceptor("MazeQueryServer-" + serverSocket.getLocalPort());
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Starts accepting connections on a Unix domain socket in a background
+	 * thread. The socket file is created by the server and deleted by close().
+	 *
+	 * @param path - the path of the socket file, which must not exist yet
+	 * @throws IOException if the socket cannot be opened
+	 */
+	public synchronized void start(Path path) throws IOException {
+		checkNotStarted();
+		unixChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		try {
+			unixChannel.bind(UnixDomainSocketAddress.of(path), 50);
+		} catch(IOException e) {
+			unixChannel.close();
+			unixChannel = null;
+			throw e;
+		}
+		socketPath = path;
+		startAcceptor("MazeQueryServer-" + path.getFileName());
+	}
+
+	/**
+	 * Stops accepting connections and closes every open connection.
+	 *
+	 * @throws IOException if a socket cannot be closed
+	 */
+	public synchronized void close() throws IOException {
+		if(serverSocket != null) {
+			serverSocket.close();
+		}
+		if(unixChannel != null) {
+			unixChannel.close();
+			Files.deleteIfExists(socketPath);
+		}
+		for(Closeable connection : connections) {
+			connection.close();
+		}
+		connections.clear();
+	}
+
+	/**
+	 * @throws IllegalStateException if the server has already been started
+	 */
+	private void checkNotStarted() {
+		if(serverSocket != null || unixChannel != null) {
+			throw new IllegalStateException("The server has already been started");
+		}
+	}
+
+	/**
+	 * Starts the thread that accepts connections.
+	 */
+	private void startAcceptor(String name) {
+		Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptConnections();
+			}
+		}, name);
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Accepts connections until the server socket is closed and serves each of
+	 * them in its own thread.
+	 */
+	private void acceptConnections() {
+		for(int count = 0; ; count++) {
+			final Closeable connection;
+			final InputStream input;
+			final OutputStream output;
+			try {
+				if(unixChannel != null) {
+					SocketChannel channel = unixChannel.accept();
+					connection = channel;
+					input = Channels.newInputStream(channel);
+					output = Channels.newOutputStream(channel);
+				} else {
+					Socket socket = serverSocket.accept();
+					connection = socket;
+					socket.setTcpNoDelay(true);
+					input = socket.getInputStream();
+					output = socket.getOutputStream();
+				}
+			} catch(IOException e) {
+				return; // the server socket was closed
+			}
+			synchronized(this) {
+				if(unixChannel != null ? !unixChannel.isOpen() : serverSocket.isClosed()) {
+					closeQuietly(connection);
+					return;
+				}
+				connections.add(connection);
+			}
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					serve(connection, input, output);
+				}
+			}, "MazeQueryServer-connection-" + count);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Answers the requests of one connection in batches until the client
+	 * disconnects or sends a malformed request.
+	 */
+	private void serve(Closeable connection, InputStream input, OutputStream output) {
+		try {
+			BufferedInputStream buffered = new BufferedInputStream(input, 1 << 16);
+			DataInputStream in = new DataInputStream(buffered);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+			List<Request> batch = new ArrayList<Request>();
+			while(true) {
+				batch.clear();
+				batch.add(readRequest(in)); // wait for the first request of the batch
+				// take every request that has already arrived completely
+				while(batch.size() < MAX_BATCH_SIZE && buffered.available() >= Request.LARGEST_SIZE) {
+					batch.add(readRequest(in));
+				}
+				answer(batch);
+				for(Request request : batch) {
+					request.writeResponse(out);
+				}
+				out.flush();
+			}
+		} catch(EOFException e) {
+			// the client disconnected
+		} catch(IOException e) {
+			// the connection failed or was closed by close()
+		} finally {
+			synchronized(this) {
+				connections.remove(connection);
+			}
+			closeQuietly(connection);
+		}
+	}
+
+	/**
+	 * Reads one request from a connection.
+	 *
+	 * @throws IOException if the connection fails or the request type is unknown
+	 */
+	private Request readRequest(DataInputStream in) throws IOException {
+		Request request = new Request();
+		request.id = in.readInt();
+		request.type = in.readByte();
+		request.deadline = in.readLong();
+		if(request.type == ROUTE || request.type == TRAVEL_TIME) {
+			request.from = in.readInt();
+			request.to = in.readInt();
+		} else if(request.type == EXIT_TIME) {
+			request.to = in.readInt();
+			request.selector = in.readByte();
+		} else {
+			throw new IOException("Unknown request type " + request.type);
+		}
+		return request;
+	}
+
+	/**
+	 * Answers a batch of requests. Travel time queries to the same destination
+	 * and equal exit time queries are grouped so that they are computed once.
+	 */
+	private void answer(List<Request> batch) {
+		long now = System.currentTimeMillis();
+		Map<Long, List<Request>> groups = new HashMap<Long, List<Request>>();
+		for(Request request : batch) {
+			if(request.isExpired(now)) {
+				request.status = DEADLINE_EXCEEDED;
+			} else if(!isCell(request.to) || (request.type != EXIT_TIME && !isCell(request.from))
+					|| (request.type == EXIT_TIME && (request.selector < FIRST_SELECTOR || request.selector > GREEDY_SELECTOR))) {
+				request.status = BAD_REQUEST;
+			} else {
+				long key = ((long)request.type << 40) | ((long)request.selector << 32) | request.to;
+				if(request.type == ROUTE) {
+					key = -1 - request.id; // routes are never shared
+				}
+				List<Request> group = groups.get(key);
+				if(group == null) {
+					group = new ArrayList<Request>();
+					groups.put(key, group);
+				}
+				group.add(request);
+			}
+		}
+		List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+		for(final List<Request> group : groups.values()) {
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					answerGroup(group);
+				}
+			});
+		}
+		final List<RecursiveAction> allTasks = tasks;
+		ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(allTasks);
+			}
+		});
+	}
+
+	/**
+	 * Answers a group of requests of the same type and destination. Requests
+	 * that have expired by the time the group starts are not computed.
+	 */
+	private void answerGroup(List<Request> requests) {
+		long start = System.currentTimeMillis();
+		List<Request> group = new ArrayList<Request>(requests.size());
+		for(Request request : requests) {
+			if(request.isExpired(start)) {
+				request.status = DEADLINE_EXCEEDED;
+			} else {
+				group.add(request);
+			}
+		}
+		if(group.isEmpty()) {
+			return;
+		}
+		Request first = group.get(0);
+		try {
+			if(first.type == ROUTE) {
+				for(Request request : group) {
+					request.cells = routeCells(request.from, request.to);
+				}
+			} else if(first.type == TRAVEL_TIME && group.size() >= SHARED_SEARCH_THRESHOLD) {
+				CellDistances distances = maze.distancesTo(graph.cellAt(first.to));
+				for(Request request : group) {
+					request.time = distances.distance(request.from);
+				}
+			} else if(first.type == TRAVEL_TIME) {
+				for(Request request : group) {
+					request.time = travelTime(request.from, request.to);
+				}
+			} else {
+				double averageTime = maze.averageExitTime(graph.cellAt(first.to), selector(first.selector));
+				for(Request request : group) {
+					request.averageTime = averageTime;
+				}
+			}
+		} catch(UninitializedObjectException e) {
+			// the Maze was valid when the server was created and cannot become invalid
+			throw new IllegalStateException(e);
+		}
+		long now = System.currentTimeMillis();
+		for(Request request : group) {
+			request.status = request.isExpired(now) ? DEADLINE_EXCEEDED : OK;
+		}
+	}
+
+	/**
+	 * @return the cell indices of the shortest route between two cells, empty if there is none
+	 */
+	private int[] routeCells(int from, int to) throws UninitializedObjectException {
+		List<MazeCell> cells = maze.routeShortest(graph.cellAt(from), graph.cellAt(to)).getCells();
+		int[] indices = new int[cells.size()];
+		int i = 0;
+		for(MazeCell cell : cells) {
+			indices[i++] = graph.indexOf(cell);
+		}
+		return indices;
+	}
+
+	/**
+	 * @return the shortest travel time between two cells, or IMPASSABLE if there is none
+	 */
+	private int travelTime(int from, int to) throws UninitializedObjectException {
+		if(!maze.canReach(graph.cellAt(from), graph.cellAt(to))) {
+			return MazeCell.IMPASSABLE;
+		}
+		return maze.routeShortest(graph.cellAt(from), graph.cellAt(to)).travelTime();
+	}
+
+	/**
+	 * @return the PassageSelector of a selector code
+	 */
+	private PassageSelector selector(byte code) {
+		if(code == RANDOM_SELECTOR) {
+			return new RandomSelector();
+		} else if(code == GREEDY_SELECTOR) {
+			return new GreedySelector();
+		}
+		return new FirstSelector();
+	}
+
+	/**
+	 * @return true if the index belongs to a cell of the Maze
+	 */
+	private boolean isCell(int index) {
+		return index >= 0 && index < graph.cellCount();
+	}
+
+	/**
+	 * Closes a connection, ignoring failures.
+	 */
+	private static void closeQuietly(Closeable connection) {
+		try {
+			connection.close();
+		} catch(IOException e) {
+			// nothing more can be done with a connection that cannot be closed
+		}
+	}
+
+	/**
+	 * The Request class holds one request of a batch and its answer.
+	 */
+	private static class Request {
+		private final static int LARGEST_SIZE = 4 + 1 + 8 + 8; // the size of ROUTE and TRAVEL_TIME requests
+		private int id;
+		private byte type;
+		private long deadline;
+		private int from;
+		private int to;
+		private byte selector;
+		private byte status;
+		private int[] cells;
+		private int time;
+		private double averageTime;
+
+		/**
+		 * @return true if the request has a deadline that has passed
+		 */
+		boolean isExpired(long now) {
+			return deadline != 0 && deadline <= now;
+		}
+
+		/**
+		 * Writes the response to the request.
+		 */
+		void writeResponse(DataOutputStream out) throws IOException {
+			out.writeInt(id);
+			out.writeByte(status);
+			if(status != OK) {
+				return;
+			}
+			if(type == ROUTE) {
+				out.writeInt(cells.length);
+				for(int cell : cells) {
+					out.writeInt(cell);
+				}
+			} else if(type == TRAVEL_TIME) {
+				out.writeInt(time);
+			} else {
+				out.writeDouble(averageTime);
+			}
+		}
+	}
+
+}
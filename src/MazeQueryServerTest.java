@@ -0,0 +1,201 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case class for the MazeQueryServer and MazeQueryClient classes. This
+ * class starts a server on the loopback address and tests all queries of the
+ * protocol through a client, and the same queries through a Unix domain socket.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class MazeQueryServerTest {
+	// private class variables
+	private GridMaze grid;
+	private Maze maze;
+	private MazeQueryServer server;
+	private MazeQueryClient client;
+	private int port;
+
+	/**
+	 * Creates a weighted grid maze with a few walls and starts a server for it.
+	 */
+	@Before
+	public void startServer() {
+		int size = 20;
+		grid = new GridMaze(size, size, true);
+		for(int x = 0; x < size; x++) {
+			for(int y = 0; y < size; y++) {
+				grid.setTime(x, y, 1 + (x * 5 + y * 3) % 7);
+				if(x > 0 && y % 5 != 2) {
+					grid.connect(x, y, GridMaze.WEST);
+				}
+				if(y > 0 && (x % 4 == 0 || y % 3 == 0)) {
+					grid.connect(x, y, GridMaze.NORTH);
+				}
+			}
+		}
+		maze = new Maze();
+		maze.addGraph(grid);
+		try {
+			server = new MazeQueryServer(maze);
+			port = server.start(0);
+			client = new MazeQueryClient(port);
+		} catch(IOException e) {
+			fail("the server could not be started");
+		} catch(UninitializedObjectException e) {
+			fail("MazeQueryServer generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	@After
+	public void stopServer() throws IOException {
+		client.close();
+		server.close();
+	}
+
+	/**
+	 * Tests single queries of every type.
+	 */
+	@Test
+	public void testQueries() {
+		try {
+			MazeQueryClient.Response response = client.route(0, 399, 0);
+			assertEquals("route() does not succeed", MazeQueryServer.OK, response.status());
+			MazeRoute expected = maze.routeShortest(grid.cellAt(0), grid.cellAt(399));
+			List<MazeCell> cells = expected.getCells();
+			assertEquals("route() returns a route of the wrong length", cells.size(), response.cells().length);
+			assertEquals("route() does not start at the start", 0, response.cells()[0]);
+			assertEquals("route() does not end at the destination", 399, response.cells()[cells.size() - 1]);
+			response = client.travelTime(0, 399, 0);
+			assertEquals("travelTime() is incorrect", expected.travelTime().intValue(), response.time());
+			response = client.exitTime(0, MazeQueryServer.GREEDY_SELECTOR, 0);
+			assertEquals("exitTime() is incorrect", maze.averageExitTime(grid.cellAt(0), new GreedySelector()),
+					response.averageTime(), 0.0);
+			response = client.travelTime(0, 400, 0);
+			assertEquals("travelTime() accepts a cell outside of the Maze", MazeQueryServer.BAD_REQUEST,
+					response.status());
+			response = client.exitTime(0, (byte)7, 0);
+			assertEquals("exitTime() accepts an unknown selector", MazeQueryServer.BAD_REQUEST, response.status());
+		} catch(IOException e) {
+			fail("the query generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("the query generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests many pipelined queries, which the server answers in batches.
+	 */
+	@Test
+	public void testPipelining() {
+		try {
+			int[] ids = new int[600];
+			for(int i = 0; i < ids.length; i++) {
+				// many queries share a destination and are answered by one search
+				ids[i] = client.sendTravelTime((i * 37) % 400, i % 3 == 0 ? 0 : (i * 11) % 400, 0);
+			}
+			client.sendExitTime(5, MazeQueryServer.FIRST_SELECTOR, 0);
+			client.sendExitTime(5, MazeQueryServer.FIRST_SELECTOR, 0);
+			client.flush();
+			for(int i = 0; i < ids.length; i++) {
+				MazeQueryClient.Response response = client.receive();
+				assertEquals("responses are not in the order of the requests", ids[i], response.id());
+				int to = i % 3 == 0 ? 0 : (i * 11) % 400;
+				assertEquals("pipelined travel times are incorrect",
+						maze.distancesTo(grid.cellAt(to)).distance((i * 37) % 400), response.time());
+			}
+			double averageTime = maze.averageExitTime(grid.cellAt(5), new FirstSelector());
+			assertEquals("pipelined exit times are incorrect", averageTime, client.receive().averageTime(), 0.0);
+			assertEquals("pipelined exit times are incorrect", averageTime, client.receive().averageTime(), 0.0);
+		} catch(IOException e) {
+			fail("the queries generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("the queries generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests requests whose deadlines have passed.
+	 */
+	@Test
+	public void testDeadlines() {
+		try {
+			long past = System.currentTimeMillis() - 1;
+			long future = System.currentTimeMillis() + 60000;
+			client.sendRoute(0, 399, past);
+			client.sendRoute(0, 399, future);
+			client.flush();
+			MazeQueryClient.Response response = client.receive();
+			assertEquals("an expired request is answered", MazeQueryServer.DEADLINE_EXCEEDED, response.status());
+			assertNull("an expired request has a route", response.cells());
+			response = client.receive();
+			assertEquals("a request with a later deadline is not answered", MazeQueryServer.OK, response.status());
+			// a second client is served at the same time
+			MazeQueryClient other = new MazeQueryClient(port);
+			assertEquals("a second client is not served", MazeQueryServer.OK, other.travelTime(1, 2, future).status());
+			other.close();
+		} catch(IOException e) {
+			fail("the queries generated an IOException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests queries through a Unix domain socket.
+	 */
+	@Test
+	public void testUnixDomainSocket() {
+		Path directory = null;
+		try {
+			directory = Files.createTempDirectory("maze");
+			Path path = directory.resolve("query.sock");
+			MazeQueryServer unixServer = new MazeQueryServer(maze);
+			unixServer.start(path);
+			try {
+				assertTrue("start() does not create the socket file", Files.exists(path));
+				MazeQueryClient unixClient = new MazeQueryClient(path);
+				MazeRoute expected = maze.routeShortest(grid.cellAt(0), grid.cellAt(399));
+				MazeQueryClient.Response response = unixClient.route(0, 399, 0);
+				assertEquals("route() does not succeed", MazeQueryServer.OK, response.status());
+				assertEquals("route() returns a route of the wrong length", expected.getCells().size(),
+						response.cells().length);
+				// pipelined queries are batched as on the loopback socket
+				int[] ids = new int[100];
+				for(int i = 0; i < ids.length; i++) {
+					ids[i] = unixClient.sendTravelTime(i * 3, 7, 0);
+				}
+				unixClient.flush();
+				CellDistances distances = maze.distancesTo(grid.cellAt(7));
+				for(int i = 0; i < ids.length; i++) {
+					response = unixClient.receive();
+					assertEquals("responses are not in the order of the requests", ids[i], response.id());
+					assertEquals("pipelined travel times are incorrect", distances.distance(i * 3), response.time());
+				}
+				unixClient.close();
+			} finally {
+				unixServer.close();
+			}
+			assertFalse("close() does not delete the socket file", Files.exists(path));
+		} catch(IOException e) {
+			fail("the queries generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("the queries generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(directory != null) {
+				directory.toFile().delete();
+			}
+		}
+	}
+
+}
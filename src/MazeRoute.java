@@ -96,6 +96,34 @@ public class MazeRoute {
 		return calculateTravelTime(true);
 	}
 	
+	/**
+	 * Calculates the distribution of the times travelTimeRandom() returns for
+	 * the MazeRoute, instead of estimating it from many random samples. The
+	 * distribution is exact unless the route has more than about a million
+	 * possible travel times. It is impassable if the route is impassable, and
+	 * always 0 for a route with less than two MazeCells.
+	 * 
+	 * @return the distribution of the randomized travel time
+	 * @throws UninitializedObjectException only thrown if the MazeRoute is invalid
+	 */
+	public TravelTimeDistribution travelTimeDistribution() throws UninitializedObjectException {
+		checkValidity();
+		int[] times = new int[Math.max(route.size() - 1, 0)];
+		if(!route.isEmpty()) {
+			Iterator<MazeCell> routeIterate = route.iterator();
+			MazeCell prevCell = routeIterate.next();
+			for(int i = 0; i < times.length; i++) {
+				MazeCell currentCell = routeIterate.next();
+				times[i] = prevCell.passageTimeTo(currentCell);
+				if(times[i] == MazeCell.IMPASSABLE) {
+					return new TravelTimeDistribution(null);
+				}
+				prevCell = currentCell;
+			}
+		}
+		return new TravelTimeDistribution(times);
+	}
+	
 	/**
 	 * Adds the input route to the MazeRoute and checks that all MazeCells being added
 	 * are valid.
@@ -1,5 +1,6 @@
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -193,6 +194,131 @@ public class MazeRouteTest {
 		}
 	}
 	
+	/**
+	 * Tests the travelTimeDistribution() method against the randomized travel times.
+	 */
+	@Test
+	public void testTravelTimeDistribution() {
+		try {
+			// test impassable routes
+			assertTrue("travelTimeDistribution() is not impassable when there is no passage",
+					routeTwo.travelTimeDistribution().isImpassable());
+			assertEquals("travelTimeDistribution() is not impassable when there is an impassable passage",
+					MazeCell.IMPASSABLE, routeThree.travelTimeDistribution().min());
+			// test route with all passable passages
+			TravelTimeDistribution distribution = routeOne.travelTimeDistribution();
+			assertEquals("travelTimeDistribution() has an incorrect minimum", 2, distribution.min());
+			assertEquals("travelTimeDistribution() has an incorrect maximum", 3, distribution.max());
+			assertEquals("travelTimeDistribution() has an incorrect probability", 0.5, distribution.probability(2), 1e-12);
+			assertEquals("travelTimeDistribution() has an incorrect mean", 2.5, distribution.mean(), 1e-12);
+			assertEquals("travelTimeDistribution() has an incorrect variance", 0.25, distribution.variance(), 1e-12);
+			assertEquals("travelTimeDistribution() has an incorrect quantile", 2, distribution.quantile(0.5));
+			assertEquals("travelTimeDistribution() has an incorrect quantile", 3, distribution.quantile(0.51));
+			// test a longer route against counting every combination of passage times
+			distribution = routeOf(3, 7, 1, 4, 6).travelTimeDistribution();
+			int[] counts = new int[22];
+			for(int a = 1; a <= 3; a++) {
+				for(int b = 1; b <= 7; b++) {
+					for(int d = 1; d <= 4; d++) {
+						for(int e = 1; e <= 6; e++) {
+							counts[a + b + 1 + d + e]++;
+						}
+					}
+				}
+			}
+			double cumulative = 0;
+			for(int time = 0; time < counts.length; time++) {
+				cumulative += counts[time] / 504.0;
+				assertEquals("travelTimeDistribution() has an incorrect probability",
+						counts[time] / 504.0, distribution.probability(time), 1e-12);
+				assertEquals("travelTimeDistribution() has an incorrect cdf", cumulative, distribution.cdf(time), 1e-12);
+			}
+			assertEquals("travelTimeDistribution() has an incorrect mean", 2 + 4 + 1 + 2.5 + 3.5, distribution.mean(), 1e-12);
+		} catch(UninitializedObjectException e) {
+			fail("travelTimeDistribution() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the travelTimeDistribution() method for routes with more possible
+	 * travel times than are computed exactly.
+	 */
+	@Test
+	public void testTravelTimeDistributionLong() {
+		try {
+			// a single passage is uniform
+			TravelTimeDistribution distribution = routeOf(50000000).travelTimeDistribution();
+			assertEquals("travelTimeDistribution() has an incorrect minimum", 1, distribution.min());
+			assertEquals("travelTimeDistribution() has an incorrect maximum", 50000000, distribution.max());
+			for(long time = 0; time <= 50000000; time += 6250000) {
+				assertEquals("travelTimeDistribution() has an incorrect cdf of a long passage",
+						time / 50000000.0, distribution.cdf(time), 1e-6);
+			}
+			assertEquals("travelTimeDistribution() has an incorrect quantile of a long passage",
+					45000000, distribution.quantile(0.9), 100);
+			// two passages add up to a trapezoid
+			int first = 30000000;
+			int second = 20000000;
+			distribution = routeOf(first, second).travelTimeDistribution();
+			assertEquals("travelTimeDistribution() has an incorrect maximum", 50000000, distribution.max());
+			for(long time = 2; time <= 50000000; time += 4999999) {
+				// count the pairs of times with a total of at most time
+				long full = Math.max(0, Math.min(first, time - second)); // every second time fits
+				long from = Math.max(1, time - second + 1);
+				long to = Math.min(first, time - 1);
+				long partial = to < from ? 0 : (to - from + 1) * (2 * time - from - to) / 2;
+				assertEquals("travelTimeDistribution() has an incorrect cdf of two long passages",
+						(full * (double)second + partial) / ((double)first * second), distribution.cdf(time), 1e-6);
+			}
+			// many long passages are approximately normal
+			int[] times = new int[1000];
+			Arrays.fill(times, 1000000);
+			MazeRoute route = routeOf(times);
+			distribution = route.travelTimeDistribution();
+			assertEquals("travelTimeDistribution() has an incorrect mean", 500000500.0, distribution.mean(), 1e-3);
+			double deviation = Math.sqrt(distribution.variance());
+			assertEquals("travelTimeDistribution() has an incorrect cdf of many passages",
+					0.5, distribution.cdf((long)distribution.mean()), 1e-3);
+			assertEquals("travelTimeDistribution() has an incorrect cdf of many passages",
+					0.97725, distribution.cdf((long)(distribution.mean() + 2 * deviation)), 1e-3);
+			assertEquals("travelTimeDistribution() has an incorrect quantile of many passages",
+					distribution.mean() - 2 * deviation, distribution.quantile(0.02275), deviation / 100);
+			int inside = 0;
+			for(int i = 0; i < 200; i++) {
+				if(Math.abs(route.travelTimeRandom() - distribution.mean()) <= 3 * deviation) {
+					inside++;
+				}
+			}
+			assertTrue("travelTimeRandom() does not agree with travelTimeDistribution()", inside >= 195);
+		} catch(UninitializedObjectException e) {
+			fail("travelTimeDistribution() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Builds a route of new MazeCells whose passages have the specified times.
+	 *
+	 * @param times - the travel time of every passage of the route
+	 * @return the route
+	 * @throws UninitializedObjectException only thrown if the route is invalid
+	 */
+	private MazeRoute routeOf(int... times) throws UninitializedObjectException {
+		List<MazeCell> cells = new LinkedList<MazeCell>();
+		MazeCell next = new MazeCell();
+		next.addPassages(new HashMap<MazeCell, Integer>(), new MazeCell.Status());
+		cells.add(next);
+		for(int i = times.length - 1; i >= 0; i--) {
+			Map<MazeCell, Integer> map = new HashMap<MazeCell, Integer>();
+			map.put(next, times[i]);
+			next = new MazeCell();
+			next.addPassages(map, new MazeCell.Status());
+			cells.add(0, next);
+		}
+		MazeRoute route = new MazeRoute();
+		route.addCells(cells);
+		return route;
+	}
+	
 	/**
 	 * Tests the toString() method for unique identification Strings.
 	 */
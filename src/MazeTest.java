@@ -1,11 +1,20 @@
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -263,6 +272,532 @@ public class MazeTest {
 		}
 	}
 	
+	/**
+	 * Tests the routeShortest() method assuming valid Maze.
+	 */
+	@Test
+	public void testRouteShortest() {
+		try {
+			// test a single path
+			List<MazeCell> route = new LinkedList<MazeCell>();
+			route.add(cellOne);
+			route.add(cellTwo);
+			route.add(cellThree);
+			assertEquals("routeShortest() method does not return the correct route along a single path",
+					route, mazeOne.routeShortest(cellOne, cellThree).getCells());
+			// test a cycle
+			route = new LinkedList<MazeCell>();
+			route.add(cellFive);
+			route.add(cellFour);
+			assertEquals("routeShortest() method does not return the correct route in a cycle",
+					route, mazeTwo.routeShortest(cellFive, cellFour).getCells());
+			// test the same start and destination
+			route = new LinkedList<MazeCell>();
+			route.add(cellTwo);
+			assertEquals("routeShortest() method does not return the correct route to the same cell",
+					route, mazeOne.routeShortest(cellTwo, cellTwo).getCells());
+			// test an unreachable destination and a destination outside of the Maze
+			assertEquals("routeShortest() method does not return an empty route when unreachable",
+					new LinkedList<MazeCell>(), mazeThree.routeShortest(cellSeven, cellEight).getCells());
+			assertEquals("routeShortest() method does not return an empty route when leaving the Maze",
+					new LinkedList<MazeCell>(), mazeFour.routeShortest(cellOne, cellTwo).getCells());
+			// test a shortcut that takes more passages but less time
+			MazeCell start = new MazeCell();
+			MazeCell middle = new MazeCell();
+			MazeCell end = new MazeCell();
+			end.addPassages(new HashMap<MazeCell, Integer>(), new MazeCell.Status());
+			Map<MazeCell, Integer> map = new HashMap<MazeCell, Integer>();
+			map.put(end, new Integer(2));
+			middle.addPassages(map, new MazeCell.Status());
+			map = new HashMap<MazeCell, Integer>();
+			map.put(middle, new Integer(2));
+			map.put(end, new Integer(5));
+			start.addPassages(map, new MazeCell.Status());
+			Set<MazeCell> cells = new HashSet<MazeCell>();
+			cells.add(start);
+			cells.add(middle);
+			cells.add(end);
+			Maze shortcut = new Maze();
+			shortcut.addCells(cells);
+			MazeRoute shortest = shortcut.routeShortest(start, end);
+			route = new LinkedList<MazeCell>();
+			route.add(start);
+			route.add(middle);
+			route.add(end);
+			assertEquals("routeShortest() method does not return the fastest route",
+					route, shortest.getCells());
+			assertEquals("routeShortest() method does not return the fastest travel time",
+					new Integer(4), shortest.travelTime());
+		} catch(UninitializedObjectException e) {
+			fail("routeShortest() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the compressCorridors() method on a perfect maze with a few loops.
+	 */
+	@Test
+	public void testCompressCorridors() {
+		try {
+			int size = 60;
+			Random random = new Random(42);
+			GridMaze grid = new GridMaze(size, size, true);
+			for(int index = 0; index < size * size; index++) {
+				grid.setTime(index % size, index / size, 1 + random.nextInt(9));
+			}
+			// carve a perfect maze by a randomized depth-first search
+			boolean[] isCarved = new boolean[size * size];
+			IntList carved = new IntList(size * size);
+			IntList stack = new IntList(size * size);
+			stack.add(0);
+			isCarved[0] = true;
+			while(!stack.isEmpty()) {
+				int cell = stack.get(stack.size() - 1);
+				int x = cell % size;
+				int y = cell / size;
+				int[] directions = new int[4];
+				int count = 0;
+				for(int direction = 0; direction < 4; direction++) {
+					int nx = x + (direction == GridMaze.EAST ? 1 : direction == GridMaze.WEST ? -1 : 0);
+					int ny = y + (direction == GridMaze.SOUTH ? 1 : direction == GridMaze.NORTH ? -1 : 0);
+					if(nx >= 0 && ny >= 0 && nx < size && ny < size && !isCarved[grid.index(nx, ny)]) {
+						directions[count++] = direction;
+					}
+				}
+				if(count == 0) {
+					stack.removeLast();
+					continue;
+				}
+				int direction = directions[random.nextInt(count)];
+				grid.connect(x, y, direction);
+				carved.add(cell * 4 + direction);
+				int next = grid.index(x, y) + (direction == GridMaze.EAST ? 1
+						: direction == GridMaze.WEST ? -1 : direction == GridMaze.SOUTH ? size : -size);
+				isCarved[next] = true;
+				stack.add(next);
+			}
+			int[] terminalIndices = new int[6];
+			Set<MazeCell> terminals = new HashSet<MazeCell>();
+			for(int i = 0; i < terminalIndices.length; i++) {
+				terminalIndices[i] = random.nextInt(size * size);
+				terminals.add(grid.cellAt(terminalIndices[i]));
+			}
+			Maze compressed = new Maze();
+			compressed.addGraph(grid);
+			int keptCells = compressed.compressCorridors(terminals);
+			assertTrue("compressCorridors() does not shrink a perfect maze ten times", keptCells * 10 < size * size);
+			// build the same maze with a few loops and compare routes with an uncompressed Maze
+			GridMaze looped = new GridMaze(size, size, true);
+			for(int index = 0; index < size * size; index++) {
+				looped.setTime(index % size, index / size, grid.passageTime(index, 0));
+			}
+			for(int i = 0; i < carved.size(); i++) {
+				int cell = carved.get(i) / 4;
+				looped.connect(cell % size, cell / size, carved.get(i) % 4);
+			}
+			for(int i = 0; i < 30; i++) {
+				looped.connect(1 + random.nextInt(size - 2), 1 + random.nextInt(size - 2), random.nextInt(4));
+			}
+			terminals.clear();
+			for(int index : terminalIndices) {
+				terminals.add(looped.cellAt(index));
+			}
+			compressed = new Maze();
+			compressed.addGraph(looped);
+			keptCells = compressed.compressCorridors(terminals);
+			assertTrue("compressCorridors() does not keep the terminals", keptCells >= terminals.size());
+			Maze plain = new Maze();
+			plain.addGraph(looped);
+			List<MazeCell> ends = new LinkedList<MazeCell>(terminals);
+			ends.add(looped.cellAt(size + 1)); // most likely contracted or pruned
+			for(MazeCell from : ends) {
+				for(MazeCell to : ends) {
+					MazeRoute expected = plain.routeShortest(from, to);
+					MazeRoute actual = compressed.routeShortest(from, to);
+					assertEquals("compressed routes do not have the shortest travel time",
+							expected.travelTime(), actual.travelTime());
+					assertEquals("compressed routes do not start at the initial cell", from, actual.getCells().get(0));
+					assertEquals("compressed routes do not end at the destination",
+							to, actual.getCells().get(actual.getCells().size() - 1));
+				}
+			}
+		} catch(UninitializedObjectException e) {
+			fail("compressCorridors() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the routeShortest() method for ranked alternative routes.
+	 */
+	@Test
+	public void testRouteShortestAlternatives() {
+		try {
+			/*
+			 * 0 -1-> 1 -1-> 3
+			 * 0 -2-> 2 -1-> 3
+			 * 1 -1-> 2
+			 * 0 -5-> 3
+			 */
+			MazeBuilder builder = new MazeBuilder(6);
+			builder.addCells(4);
+			builder.addPassage(0, 1, 1);
+			builder.addPassage(0, 2, 2);
+			builder.addPassage(1, 3, 1);
+			builder.addPassage(2, 3, 1);
+			builder.addPassage(1, 2, 1);
+			builder.addPassage(0, 3, 5);
+			Maze diamond = builder.build();
+			List<MazeRoute> routes = diamond.routeShortest(builder.cellAt(0), builder.cellAt(3), 10);
+			assertEquals("routeShortest() does not find every loopless route", 4, routes.size());
+			int[] times = {2, 3, 3, 5};
+			for(int i = 0; i < times.length; i++) {
+				assertEquals("routeShortest() does not rank the routes by travel time",
+						new Integer(times[i]), routes.get(i).travelTime());
+			}
+			List<MazeCell> route = new LinkedList<MazeCell>();
+			route.add(builder.cellAt(0));
+			route.add(builder.cellAt(1));
+			route.add(builder.cellAt(3));
+			assertEquals("routeShortest() does not return the shortest route first", route, routes.get(0).getCells());
+			assertEquals("routeShortest() does not limit the number of routes",
+					2, diamond.routeShortest(builder.cellAt(0), builder.cellAt(3), 2).size());
+			// test that queries towards other destinations in between do not change the answer
+			for(int round = 0; round < 3; round++) {
+				for(int destination = 1; destination < 3; destination++) {
+					assertEquals("routeShortest() does not reuse its searches correctly",
+							diamond.routeShortest(builder.cellAt(0), builder.cellAt(destination)).getCells(),
+							diamond.routeShortest(builder.cellAt(0), builder.cellAt(destination), 1).get(0).getCells());
+				}
+				List<MazeRoute> again = diamond.routeShortest(builder.cellAt(0), builder.cellAt(3), 10);
+				for(int i = 0; i < routes.size(); i++) {
+					assertEquals("routeShortest() does not repeat its routes", routes.get(i).getCells(), again.get(i).getCells());
+				}
+			}
+			// test unreachable destinations and an invalid number of routes
+			assertTrue("routeShortest() returns routes to an unreachable cell",
+					diamond.routeShortest(builder.cellAt(3), builder.cellAt(0), 3).isEmpty());
+			assertTrue("routeShortest() returns routes when none are requested",
+					diamond.routeShortest(builder.cellAt(0), builder.cellAt(3), 0).isEmpty());
+			assertTrue("routeShortest() returns routes leaving the Maze",
+					mazeFour.routeShortest(cellOne, cellTwo, 3).isEmpty());
+		} catch(UninitializedObjectException e) {
+			fail("routeShortest() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the routeAnytime() method assuming valid Maze.
+	 */
+	@Test
+	public void testRouteAnytime() {
+		try {
+			// test a single path and the small mazes
+			List<MazeCell> route = new LinkedList<MazeCell>();
+			route.add(cellOne);
+			route.add(cellTwo);
+			route.add(cellThree);
+			AnytimeRoute answer = mazeOne.routeAnytime(cellOne, cellThree, 0, null);
+			assertEquals("routeAnytime() does not return the correct route along a single path",
+					route, answer.route().getCells());
+			assertEquals("routeAnytime() has the wrong travel time", 5, answer.travelTime());
+			assertTrue("routeAnytime() does not prove a finished route shortest", answer.isOptimal() && answer.isComplete());
+			assertTrue("routeAnytime() does not return an empty route when unreachable",
+					mazeThree.routeAnytime(cellSeven, cellEight, 0, null).route().getCells().isEmpty());
+			assertEquals("routeAnytime() returns a travel time when unreachable",
+					MazeCell.IMPASSABLE, mazeThree.routeAnytime(cellSeven, cellEight, 0, null).travelTime());
+			assertEquals("routeAnytime() is incorrect for the same cell",
+					1, mazeOne.routeAnytime(cellTwo, cellTwo, 0, null).route().getCells().size());
+			// test that finished searches on a weighted grid find the shortest routes
+			int size = 40;
+			GridMaze grid = new GridMaze(size, size, true);
+			Random random = new Random(48);
+			for(int x = 0; x < size; x++) {
+				for(int y = 0; y < size; y++) {
+					grid.setTime(x, y, 1 + random.nextInt(9));
+					if(x + 1 < size && random.nextInt(10) < 8) {
+						grid.connect(x, y, GridMaze.EAST);
+					}
+					if(y + 1 < size && random.nextInt(10) < 8) {
+						grid.connect(x, y, GridMaze.SOUTH);
+					}
+				}
+			}
+			Maze gridMaze = new Maze();
+			gridMaze.addGraph(grid);
+			for(int i = 0; i < 50; i++) {
+				MazeCell from = grid.cellAt(random.nextInt(size), random.nextInt(size));
+				MazeCell to = grid.cellAt(random.nextInt(size), random.nextInt(size));
+				answer = gridMaze.routeAnytime(from, to, 0, null);
+				MazeRoute shortest = gridMaze.routeShortest(from, to);
+				if(shortest.getCells().isEmpty()) {
+					assertTrue("routeAnytime() finds a route that does not exist", answer.route().getCells().isEmpty());
+				} else {
+					assertEquals("routeAnytime() does not find the shortest route",
+							(long)shortest.travelTime(), answer.travelTime());
+					assertEquals("routeAnytime() reports the wrong travel time",
+							(long)answer.route().travelTime(), answer.travelTime());
+					assertEquals("routeAnytime() does not bound the shortest route by 1", 1.0, answer.bound(), 0.0);
+				}
+			}
+			// test that a cancelled or late search stops without a route
+			MazeCell corner = grid.cellAt(0, 0);
+			MazeCell other = grid.cellAt(size - 1, size - 1);
+			answer = gridMaze.routeAnytime(corner, other, 0, new AtomicBoolean(true));
+			if(gridMaze.canReach(corner, other)) {
+				assertFalse("routeAnytime() ignores the cancellation", answer.isComplete());
+				assertEquals("routeAnytime() bounds a route it did not find",
+						Double.POSITIVE_INFINITY, answer.bound(), 0.0);
+				answer = gridMaze.routeAnytime(corner, other, System.currentTimeMillis() - 1, null);
+				assertFalse("routeAnytime() ignores the deadline", answer.isComplete());
+			}
+		} catch(UninitializedObjectException e) {
+			fail("routeAnytime() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests that anytime searches that are stopped after their first round
+	 * return routes within their bounds.
+	 */
+	@Test
+	public void testRouteAnytimeStopped() {
+		try {
+			int size = 120;
+			GridMaze grid = new GridMaze(size, size, true);
+			Random random = new Random(148);
+			for(int x = 0; x < size; x++) {
+				for(int y = 0; y < size; y++) {
+					grid.setTime(x, y, 1 + random.nextInt(9));
+					if(x + 1 < size && random.nextInt(10) < 9) {
+						grid.connect(x, y, GridMaze.EAST);
+					}
+					if(y + 1 < size && random.nextInt(10) < 9) {
+						grid.connect(x, y, GridMaze.SOUTH);
+					}
+				}
+			}
+			Maze gridMaze = new Maze();
+			gridMaze.addGraph(grid);
+			MazeCell from = grid.cellAt(0, 0);
+			MazeCell to = grid.cellAt(size - 1, size - 1);
+			// a first call with a deadline does not wait for the landmarks or the index
+			AnytimeRoute answer = gridMaze.routeAnytime(from, to, System.currentTimeMillis() + 60000, null);
+			long shortest = gridMaze.routeShortest(from, to).travelTime();
+			assertTrue("routeAnytime() does not finish before a distant deadline", answer.isComplete());
+			assertEquals("routeAnytime() does not find the shortest route without landmarks",
+					shortest, answer.travelTime());
+			// stop the search after more and more checks of whether to stop
+			PassageGraph graph = gridMaze.graph();
+			LandmarkHeuristic heuristic = new LandmarkHeuristic(graph);
+			int intermediateRoutes = 0;
+			for(int checks = 1; checks < 500; checks++) {
+				final int allowedChecks = checks;
+				AnytimeRouter router = new AnytimeRouter(graph) {
+					private int count;
+
+					@Override
+					boolean isStopped() {
+						return ++count > allowedChecks;
+					}
+				};
+				int[] indices = router.route(graph.indexOf(from), graph.indexOf(to), heuristic, 0, null);
+				if(indices == null) {
+					continue;
+				}
+				long travelTime = 0;
+				for(int i = 1; i < indices.length; i++) {
+					travelTime += graph.cellAt(indices[i - 1]).passageTimeTo(graph.cellAt(indices[i]));
+				}
+				assertEquals("a stopped anytime search reports the wrong travel time", travelTime, router.lastTravelTime());
+				assertTrue("a stopped anytime search returns a route longer than its bound allows",
+						travelTime <= router.lastBound() * shortest * (1 + 1e-12));
+				if(!router.isLastComplete() && router.lastBound() > 1.0 && router.lastBound() != Double.POSITIVE_INFINITY) {
+					intermediateRoutes++;
+				}
+				if(router.isLastComplete()) {
+					assertEquals("a finished anytime search does not find the shortest route", shortest, travelTime);
+					break;
+				}
+			}
+			assertTrue("a stopped anytime search never returns an intermediate route", intermediateRoutes > 0);
+		} catch(UninitializedObjectException e) {
+			fail("routeAnytime() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests that routes longer than the stack allows for recursion are generated.
+	 */
+	@Test
+	public void testLongRoute() {
+		try {
+			MazeBuilder builder = new MazeBuilder(10000);
+			builder.addCells(10000);
+			for(int cell = 0; cell + 1 < 10000; cell++) {
+				builder.addPassage(cell, cell + 1, 1);
+			}
+			Maze maze = builder.build();
+			assertEquals("routeFirst() does not follow a long corridor to its end",
+					9999, (int)maze.routeFirst(builder.cellAt(0)).travelTime());
+		} catch(UninitializedObjectException e) {
+			fail("routeFirst() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the distancesFrom() and distancesTo() methods assuming valid Maze.
+	 */
+	@Test
+	public void testDistances() {
+		try {
+			// test travel times along a single path
+			CellDistances from = mazeOne.distancesFrom(cellOne);
+			assertEquals("distancesFrom() is incorrect for the start", 0, from.distance(cellOne));
+			assertEquals("distancesFrom() is incorrect for one passage", 2, from.distance(cellTwo));
+			assertEquals("distancesFrom() is incorrect for two passages", 5, from.distance(cellThree));
+			CellDistances to = mazeOne.distancesTo(cellThree, 1);
+			assertEquals("distancesTo() is incorrect for two passages", 5, to.distance(cellOne));
+			assertEquals("distancesTo() is incorrect for the end", 0, to.distance(cellThree));
+			// test unreachable cells and cells outside of the Maze
+			assertEquals("distancesTo() is incorrect for an unreachable cell",
+					MazeCell.IMPASSABLE, mazeThree.distancesTo(cellSeven).distance(cellEight));
+			assertEquals("distance() is incorrect for a cell outside of the Maze",
+					MazeCell.IMPASSABLE, from.distance(cellFour));
+			assertEquals("distancesFrom() is incorrect for a start outside of the Maze",
+					MazeCell.IMPASSABLE, mazeFour.distancesFrom(cellTwo).distance(cellOne));
+			assertEquals("cellCount() is incorrect", 3, from.cellCount());
+			// test travel times that do not fit in an int
+			int slow = 1500000000;
+			MazeBuilder builder = new MazeBuilder(3);
+			builder.addCells(4);
+			for(int cell = 0; cell < 3; cell++) {
+				builder.addPassage(cell, cell + 1, slow);
+			}
+			Maze slowMaze = builder.build();
+			from = slowMaze.distancesFrom(builder.cellAt(0));
+			assertEquals("distancesFrom() is incorrect for a long passage", slow, from.distance(builder.cellAt(1)));
+			assertEquals("distancesFrom() does not report an overflowing time as IMPASSABLE",
+					MazeCell.IMPASSABLE, from.distance(builder.cellAt(2)));
+			assertEquals("distancesFrom() does not report an overflowing time as IMPASSABLE",
+					MazeCell.IMPASSABLE, from.distance(builder.cellAt(3)));
+			assertEquals("distancesTo() does not report an overflowing time as IMPASSABLE",
+					MazeCell.IMPASSABLE, slowMaze.distancesTo(builder.cellAt(3)).distance(builder.cellAt(0)));
+		} catch(UninitializedObjectException e) {
+			fail("distancesFrom() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the hopsToExits() method assuming valid Maze.
+	 */
+	@Test
+	public void testHopsToExits() {
+		try {
+			// test a single exit
+			Set<MazeCell> exits = new HashSet<MazeCell>();
+			exits.add(cellThree);
+			CellDistances hops = mazeOne.hopsToExits(exits);
+			assertEquals("hopsToExits() is incorrect for two passages", 2, hops.distance(cellOne));
+			assertEquals("hopsToExits() is incorrect for one passage", 1, hops.distance(cellTwo));
+			assertEquals("hopsToExits() is incorrect for the exit", 0, hops.distance(cellThree));
+			// test several exits
+			exits = new HashSet<MazeCell>();
+			exits.add(cellSeven);
+			exits.add(cellEight);
+			exits.add(cellOne);
+			hops = mazeThree.hopsToExits(exits);
+			assertEquals("hopsToExits() is incorrect for several exits", 1, hops.distance(cellSix));
+			assertEquals("hopsToExits() is incorrect for an exit", 0, hops.distance(cellEight));
+			// test an exit that cannot be reached
+			exits = new HashSet<MazeCell>();
+			exits.add(cellSix);
+			assertEquals("hopsToExits() is incorrect for an unreachable exit",
+					MazeCell.IMPASSABLE, mazeThree.hopsToExits(exits).distance(cellSeven));
+			assertEquals("hopsToExits() is incorrect without exits",
+					MazeCell.IMPASSABLE, mazeOne.hopsToExits(null).distance(cellOne));
+		} catch(UninitializedObjectException e) {
+			fail("hopsToExits() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the incomingPassages() and cellsReaching() methods assuming valid Maze.
+	 */
+	@Test
+	public void testIncomingPassages() {
+		try {
+			// test a single path
+			Map<MazeCell, Integer> incoming = mazeOne.incomingPassages(cellThree);
+			assertEquals("incomingPassages() is incorrect for one passage", 1, incoming.size());
+			assertEquals("incomingPassages() has the wrong travel time", Integer.valueOf(3), incoming.get(cellTwo));
+			assertTrue("incomingPassages() is incorrect for a start", mazeOne.incomingPassages(cellOne).isEmpty());
+			assertTrue("incomingPassages() is incorrect for a cell outside of the Maze",
+					mazeOne.incomingPassages(cellFour).isEmpty());
+			// test a loop
+			assertEquals("incomingPassages() is incorrect for a loop",
+					Integer.valueOf(5), mazeTwo.incomingPassages(cellFive).get(cellFour));
+			// test the cells that reach an exit
+			Set<MazeCell> reaching = mazeOne.cellsReaching(cellThree);
+			assertEquals("cellsReaching() is incorrect for a path", 3, reaching.size());
+			assertTrue("cellsReaching() is incorrect for a path", reaching.contains(cellOne));
+			reaching = mazeThree.cellsReaching(cellEight);
+			assertEquals("cellsReaching() includes a cell that cannot reach the exit", 2, reaching.size());
+			assertFalse("cellsReaching() includes a cell that cannot reach the exit", reaching.contains(cellSeven));
+			assertEquals("cellsReaching() is incorrect for a loop", 2, mazeTwo.cellsReaching(cellFour).size());
+			assertTrue("cellsReaching() is incorrect for a cell outside of the Maze",
+					mazeOne.cellsReaching(cellSix).isEmpty());
+		} catch(UninitializedObjectException e) {
+			fail("incomingPassages() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the walkBackward() method assuming valid Maze.
+	 */
+	@Test
+	public void testWalkBackward() {
+		try {
+			// test a walk from the exit of a path back to its entrance
+			List<MazeCell> cells = mazeOne.walkBackward(cellThree, cellOne, new TremauxSelector()).getCells();
+			List<MazeCell> expected = new LinkedList<MazeCell>();
+			expected.add(cellOne);
+			expected.add(cellTwo);
+			expected.add(cellThree);
+			assertEquals("walkBackward() is incorrect for a path", expected, cells);
+			assertEquals("walkBackward() has the wrong travel time", Integer.valueOf(5),
+					mazeOne.walkBackward(cellThree, cellOne, new TremauxSelector()).travelTime());
+			// test a walk without an entrance, which ends where no passage leads further back
+			assertEquals("walkBackward() is incorrect without an entrance", expected,
+					mazeOne.walkBackward(cellThree, null, new TremauxSelector()).getCells());
+			// test a grid, where every walk back from the exit can reach every cell
+			GridMaze grid = new GridMaze(6, 6, false);
+			for(int x = 0; x < 6; x++) {
+				for(int y = 0; y < 6; y++) {
+					if(x + 1 < 6) {
+						grid.connect(x, y, GridMaze.EAST);
+					}
+					if(y + 1 < 6) {
+						grid.connect(x, y, GridMaze.SOUTH);
+					}
+				}
+			}
+			Maze gridMaze = new Maze();
+			gridMaze.addGraph(grid);
+			MazeRoute route = gridMaze.walkBackward(grid.cellAt(5, 5), grid.cellAt(0, 0), new TremauxSelector());
+			List<MazeCell> walked = route.getCells();
+			assertEquals("walkBackward() does not start at the entrance", grid.cellAt(0, 0), walked.get(0));
+			assertEquals("walkBackward() does not end at the exit", grid.cellAt(5, 5), walked.get(walked.size() - 1));
+			assertTrue("walkBackward() does not return a passable route", route.travelTime() != MazeCell.IMPASSABLE);
+			// test invalid inputs
+			assertTrue("walkBackward() is incorrect for an exit outside of the Maze",
+					mazeOne.walkBackward(cellFour, cellOne, new TremauxSelector()).getCells().isEmpty());
+			assertTrue("walkBackward() is incorrect without a WalkSelector",
+					mazeOne.walkBackward(cellThree, cellOne, null).getCells().isEmpty());
+		} catch(UninitializedObjectException e) {
+			fail("walkBackward() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
 	/**
 	 * Tests the averageExitTime() method assuming valid Maze.
 	 */
@@ -298,6 +833,267 @@ public class MazeTest {
 		}
 	}
 	
+	/**
+	 * Tests the expectedExitTime() method assuming valid Maze.
+	 */
+	@Test
+	public void testExpectedExitTime() {
+		try {
+			// test a single path
+			assertEquals("expectedExitTime() is incorrect for a single path",
+					4.0, mazeOne.expectedExitTime(cellThree, 1e-12), 1e-9);
+			// test exits that cannot be reached from every cell
+			assertEquals("expectedExitTime() is incorrect when the walk can be trapped",
+					MazeCell.IMPASSABLE_DOUBLE, mazeThree.expectedExitTime(cellEight, 1e-12), 0.0);
+			assertEquals("expectedExitTime() is incorrect for an exit outside of the Maze",
+					MazeCell.IMPASSABLE_DOUBLE, mazeOne.expectedExitTime(cellEight, 1e-12), 0.0);
+			// test a walk that may go back and forth before leaving
+			MazeCell start = new MazeCell();
+			MazeCell side = new MazeCell();
+			MazeCell exit = new MazeCell();
+			exit.addPassages(new HashMap<MazeCell, Integer>(), new MazeCell.Status());
+			Map<MazeCell, Integer> map = new HashMap<MazeCell, Integer>();
+			map.put(side, new Integer(1));
+			map.put(exit, new Integer(5));
+			start.addPassages(map, new MazeCell.Status());
+			map = new HashMap<MazeCell, Integer>();
+			map.put(start, new Integer(1));
+			side.addPassages(map, new MazeCell.Status());
+			Set<MazeCell> cells = new HashSet<MazeCell>();
+			cells.add(start);
+			cells.add(side);
+			cells.add(exit);
+			Maze loop = new Maze();
+			loop.addCells(cells);
+			// h(start) = 7 and h(side) = 8
+			assertEquals("expectedExitTime() is incorrect with revisits",
+					7.5, loop.expectedExitTime(exit, 1e-12), 1e-6);
+			// test tolerances that cannot be reached
+			double[] invalid = {0.0, -1e-9, Double.NaN};
+			for(double tolerance : invalid) {
+				try {
+					loop.expectedExitTime(exit, tolerance);
+					fail("expectedExitTime() accepted a tolerance of " + tolerance);
+				} catch(IllegalArgumentException e) {
+					// expected
+				}
+			}
+			// test a long corridor whose sweeps change little long before the times are right:
+			// from cell i of n the walk needs n^2 - i^2 passages
+			int length = 200;
+			MazeBuilder builder = new MazeBuilder(2 * length);
+			builder.addCells(length + 1);
+			for(int cell = 0; cell < length; cell++) {
+				builder.addPassage(cell, cell + 1, 1);
+				if(cell > 0) {
+					builder.addPassage(cell, cell - 1, 1);
+				}
+			}
+			Maze corridor = builder.build();
+			double expected = 0;
+			for(int cell = 0; cell < length; cell++) {
+				expected += (double)length * length - (double)cell * cell;
+			}
+			expected /= length;
+			assertEquals("expectedExitTime() stops before the times of a long corridor are right",
+					expected, corridor.expectedExitTime(builder.cellAt(length), 1e-6), expected * 1e-6);
+		} catch(UninitializedObjectException e) {
+			fail("expectedExitTime() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the walk() and averageWalkExitTime() methods with the Tremaux and
+	 * wall follower WalkSelectors.
+	 */
+	@Test
+	public void testWalk() {
+		try {
+			// carve a maze without loops out of a grid by a depth-first search
+			int size = 8;
+			GridMaze perfect = new GridMaze(size, size, false);
+			boolean[] isCarved = new boolean[size * size];
+			int[] stack = new int[size * size];
+			int top = 0;
+			stack[top++] = 0;
+			isCarved[0] = true;
+			Random random = new Random(293);
+			while(top > 0) {
+				int cell = stack[top - 1];
+				int x = perfect.x(cell);
+				int y = perfect.y(cell);
+				int direction = random.nextInt(4);
+				boolean isCarving = false;
+				for(int d = 0; d < 4 && !isCarving; d++) {
+					int turn = (direction + d) % 4;
+					int nextX = x + (turn == GridMaze.EAST ? 1 : turn == GridMaze.WEST ? -1 : 0);
+					int nextY = y + (turn == GridMaze.SOUTH ? 1 : turn == GridMaze.NORTH ? -1 : 0);
+					if(nextX >= 0 && nextX < size && nextY >= 0 && nextY < size && !isCarved[perfect.index(nextX, nextY)]) {
+						perfect.connect(x, y, turn);
+						isCarved[perfect.index(nextX, nextY)] = true;
+						stack[top++] = perfect.index(nextX, nextY);
+						isCarving = true;
+					}
+				}
+				if(!isCarving) {
+					top--;
+				}
+			}
+			Maze perfectMaze = new Maze();
+			perfectMaze.addGraph(perfect);
+			MazeCell exit = perfect.cellAt(size - 1, size - 1);
+			assertTrue("TremauxSelector does not reach the exit of a maze without loops",
+					perfectMaze.averageWalkExitTime(exit, new TremauxSelector()) != MazeCell.IMPASSABLE_DOUBLE);
+			assertTrue("WallFollowerSelector does not reach the exit of a maze without loops",
+					perfectMaze.averageWalkExitTime(exit, new WallFollowerSelector()) != MazeCell.IMPASSABLE_DOUBLE);
+			assertTrue("left-hand WallFollowerSelector does not reach the exit of a maze without loops",
+					perfectMaze.averageWalkExitTime(exit, new WallFollowerSelector(true)) != MazeCell.IMPASSABLE_DOUBLE);
+			// test a maze full of loops, where a FirstSelector can walk in circles
+			GridMaze open = new GridMaze(size, size, false);
+			for(int x = 0; x < size; x++) {
+				for(int y = 0; y < size; y++) {
+					if(x + 1 < size) {
+						open.connect(x, y, GridMaze.EAST);
+					}
+					if(y + 1 < size) {
+						open.connect(x, y, GridMaze.SOUTH);
+					}
+				}
+			}
+			Maze openMaze = new Maze();
+			openMaze.addGraph(open);
+			exit = open.cellAt(size - 1, size - 1);
+			assertTrue("TremauxSelector does not reach the exit of a maze with loops",
+					openMaze.averageWalkExitTime(exit, new TremauxSelector()) != MazeCell.IMPASSABLE_DOUBLE);
+			MazeRoute walk = openMaze.walk(open.cellAt(0, 0), exit, new TremauxSelector());
+			List<MazeCell> cells = walk.getCells();
+			assertEquals("walk() does not start at the initial cell", open.cellAt(0, 0), cells.get(0));
+			assertEquals("walk() does not end at the exit", exit, cells.get(cells.size() - 1));
+			assertTrue("walk() takes more than two steps per cell", cells.size() <= 2 * size * size);
+			// test invalid walks
+			assertEquals("walk() method does not return an empty route when walkSelector is null",
+					new LinkedList<MazeCell>(), openMaze.walk(exit, exit, null).getCells());
+			assertEquals("walk() method does not return an empty route outside of the Maze",
+					new LinkedList<MazeCell>(), openMaze.walk(cellOne, exit, new TremauxSelector()).getCells());
+			assertEquals("averageWalkExitTime() does not return IMPASSABLE for an unreachable exit",
+					new Double(MazeCell.IMPASSABLE_DOUBLE), mazeThree.averageWalkExitTime(cellEight, new TremauxSelector()));
+			assertEquals("averageWalkExitTime() is incorrect for a single path",
+					new Double(4.0), mazeOne.averageWalkExitTime(cellThree, new TremauxSelector()));
+		} catch(UninitializedObjectException e) {
+			fail("walk() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the exitTimeStatistics() method for the distribution of exit times.
+	 */
+	@Test
+	public void testExitTimeStatistics() {
+		try {
+			// test a maze in which every cell reaches the exit
+			ExitTimeStatistics statistics = mazeOne.exitTimeStatistics(cellThree, new GreedySelector());
+			assertEquals("exitTimeStatistics() does not count every walk", 2, statistics.count());
+			assertEquals("exitTimeStatistics() counts impassable cells incorrectly", 0, statistics.impassableCount());
+			assertEquals("exitTimeStatistics() has an incorrect mean", 4.0, statistics.mean(), 0.0);
+			assertEquals("exitTimeStatistics() has an incorrect variance", 1.0, statistics.variance(), 1e-12);
+			assertEquals("exitTimeStatistics() has an incorrect minimum", 3, statistics.min());
+			assertEquals("exitTimeStatistics() has an incorrect maximum", 5, statistics.max());
+			assertEquals("exitTimeStatistics() has an incorrect p50", 3, statistics.percentile(50));
+			assertEquals("exitTimeStatistics() has an incorrect p99", 5, statistics.percentile(99));
+			// test a maze with a dead end that cannot reach the exit
+			statistics = mazeThree.exitTimeStatistics(cellEight, new GreedySelector());
+			assertEquals("exitTimeStatistics() does not count passable walks", 1, statistics.count());
+			assertEquals("exitTimeStatistics() does not count impassable cells", 1, statistics.impassableCount());
+			assertEquals("exitTimeStatistics() has an incorrect mean with impassable cells",
+					8.0, statistics.mean(), 0.0);
+			// test a maze large enough to be split across threads
+			GridMaze grid = new GridMaze(50, 50, false);
+			for(int x = 0; x < 50; x++) {
+				for(int y = 0; y < 50; y++) {
+					if(y > 0) {
+						grid.openPassage(x, y, GridMaze.NORTH);
+					} else if(x > 0) {
+						grid.openPassage(x, y, GridMaze.WEST);
+					}
+				}
+			}
+			Maze gridMaze = new Maze();
+			gridMaze.addGraph(grid);
+			statistics = gridMaze.exitTimeStatistics(grid.cellAt(0, 0), new FirstSelector());
+			assertEquals("exitTimeStatistics() does not count every walk of a large maze", 2499, statistics.count());
+			assertEquals("exitTimeStatistics() has an incorrect total for a large maze", 2500L * 49, statistics.total());
+			assertEquals("averageExitTime() does not agree with exitTimeStatistics()",
+					new Double(statistics.mean()), gridMaze.averageExitTime(grid.cellAt(0, 0), new FirstSelector()));
+			// test walks whose times do not fit in an int
+			int slow = 1500000000;
+			MazeBuilder builder = new MazeBuilder(3);
+			builder.addCells(4);
+			for(int cell = 0; cell < 3; cell++) {
+				builder.addPassage(cell, cell + 1, slow);
+			}
+			Maze slowMaze = builder.build();
+			statistics = slowMaze.exitTimeStatistics(builder.cellAt(3), new FirstSelector());
+			assertEquals("exitTimeStatistics() overflows on a long walk", 3L * slow, statistics.max());
+			assertEquals("exitTimeStatistics() has an incorrect total for long walks", 6L * slow, statistics.total());
+			assertEquals("averageExitTime() overflows on a long walk", 2.0 * slow,
+					slowMaze.averageExitTime(builder.cellAt(3), new FirstSelector()), 0.0);
+		} catch(UninitializedObjectException e) {
+			fail("exitTimeStatistics() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+	
+	/**
+	 * Tests the Flight Recorder events of routes, exit times and index builds.
+	 */
+	@Test
+	public void testFlightRecorderEvents() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".jfr");
+			Recording recording = new Recording();
+			recording.enable("maze.Route").withoutThreshold();
+			recording.enable("maze.AverageExitTime").withoutThreshold();
+			recording.enable("maze.Build").withoutThreshold();
+			recording.start();
+			mazeOne.routeFirst(cellOne);
+			mazeOne.route(cellFour, new FirstSelector());
+			mazeOne.averageExitTime(cellThree, new FirstSelector());
+			mazeTwo.route(cellFour, new FirstSelector());
+			recording.stop();
+			recording.dump(file.toPath());
+			recording.close();
+			List<String> reasons = new LinkedList<String>();
+			Set<String> structures = new HashSet<String>();
+			for(RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+				String name = event.getEventType().getName();
+				if(name.equals("maze.Route")) {
+					reasons.add(event.getString("terminationReason"));
+				} else if(name.equals("maze.AverageExitTime")) {
+					assertEquals("the exit time event has the wrong termination reason",
+							"complete", event.getString("terminationReason"));
+					assertEquals("the exit time event counts the wrong cells", 2, event.getLong("cells"));
+					assertEquals("the exit time event counts the wrong steps", 3, event.getLong("steps"));
+					assertEquals("the exit time event has the wrong result", 4.0, event.getDouble("averageExitTime"), 0.0);
+				} else if(name.equals("maze.Build")) {
+					structures.add(event.getString("structure"));
+				}
+			}
+			Collections.sort(reasons);
+			assertEquals("route events have the wrong termination reasons", "[dead end, not in maze, revisit]",
+					reasons.toString());
+			assertTrue("index builds are not recorded", structures.contains("MazeGraph"));
+			assertTrue("index builds are not recorded", structures.contains("ReachabilityIndex"));
+		} catch(IOException e) {
+			fail("the recording generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("recorded methods generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+	
 	/**
 	 * Tests the toString() method for unique identification Strings.
 	 */
@@ -365,6 +1161,27 @@ public class MazeTest {
 		} catch(UninitializedObjectException e) {
 			// test passed because exception was thrown
 		}
+		// routeShortest() test
+		try {
+			test.routeShortest(cellOne, cellTwo);
+			fail("routeShortest() method should have thrown an UninitializedObjectException");
+		} catch(UninitializedObjectException e) {
+			// test passed because exception was thrown
+		}
+		// distancesFrom() test
+		try {
+			test.distancesFrom(cellOne);
+			fail("distancesFrom() method should have thrown an UninitializedObjectException");
+		} catch(UninitializedObjectException e) {
+			// test passed because exception was thrown
+		}
+		// hopsToExits() test
+		try {
+			test.hopsToExits(new HashSet<MazeCell>());
+			fail("hopsToExits() method should have thrown an UninitializedObjectException");
+		} catch(UninitializedObjectException e) {
+			// test passed because exception was thrown
+		}
 		// averageExitTime() test
 		try {
 			test.averageExitTime(cellOne, new FirstSelector());
@@ -0,0 +1,206 @@
+import java.util.Arrays;
+
+/**
+ * The NearestExitField class labels every cell of a Maze with the exit it can
+ * reach fastest and the travel time to that exit. The field is computed by one
+ * run of Dijkstra's algorithm backward over the incoming passages that starts
+ * from all exits at once, so its cost does not grow with the number of exits.
+ * Times and exits are stored in primitive arrays indexed like the Maze's
+ * PassageGraph and are looked up in constant time. The distribution of the
+ * times of the cells other than the exits is gathered in an ExitTimeStatistics
+ * when the field is computed; cells that cannot reach any exit are counted as
+ * impassable. A travel time of MazeCell.IMPASSABLE or more does not fit in the
+ * field, so a cell whose nearest exit takes that long is treated like a cell
+ * that cannot reach any exit: its time is IMPASSABLE, it has no nearest exit,
+ * and it is counted as impassable rather than being part of the averages and
+ * percentiles of the times.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class NearestExitField {
+	// private class variables
+	private PassageGraph graph;
+	private int[] times; // travel time to the nearest exit, IMPASSABLE if there is none
+	private int[] exits; // index of the nearest exit, -1 if there is none
+	private ExitTimeStatistics statistics;
+	private int[] sortedTimes; // times of the cells other than the exits in ascending order, sorted when first needed
+
+	/**
+	 * Constructor of the NearestExitField class which computes the field.
+	 *
+	 * @param graph - the graph of the Maze
+	 * @param exitIndices - the indices of the exits
+	 */
+	NearestExitField(PassageGraph graph, int[] exitIndices) {
+		this.graph = graph;
+		int cellCount = graph.cellCount();
+		this.times = new int[cellCount];
+		this.exits = new int[cellCount];
+		Arrays.fill(times, MazeCell.IMPASSABLE);
+		Arrays.fill(exits, -1);
+		boolean[] isSettled = new boolean[cellCount];
+		CellPriorityQueue queue = new CellPriorityQueue(Math.max(exitIndices.length, 64));
+		for(int exit : exitIndices) {
+			times[exit] = 0;
+			exits[exit] = exit;
+			queue.add(exit, 0);
+		}
+		while(!queue.isEmpty()) {
+			int cell = queue.poll();
+			if(isSettled[cell]) {
+				continue; // an outdated entry of a cell that was reached faster later
+			}
+			isSettled[cell] = true;
+			for(int p = 0; p < graph.incomingCount(cell); p++) {
+				int source = graph.incomingSource(cell, p);
+				long time = (long)times[cell] + graph.incomingTime(cell, p);
+				if(time < times[source]) { // a time that overflows is never below IMPASSABLE
+					times[source] = (int)time;
+					exits[source] = exits[cell];
+					queue.add(source, (int)time);
+				}
+			}
+		}
+		this.statistics = new ExitTimeStatistics();
+		for(int cell = 0; cell < cellCount; cell++) {
+			if(times[cell] == MazeCell.IMPASSABLE) {
+				statistics.recordImpassable();
+			} else if(exits[cell] != cell) {
+				statistics.record(times[cell]);
+			}
+		}
+	}
+
+	/**
+	 * Determines the travel time from a MazeCell to its nearest exit.
+	 *
+	 * @param cell - the MazeCell to look up
+	 * @return the travel time to the nearest exit, or MazeCell.IMPASSABLE if no
+	 * exit can be reached or the cell is not in the Maze
+	 */
+	public int time(MazeCell cell) {
+		int index = graph.indexOf(cell);
+		return index < 0 ? MazeCell.IMPASSABLE : times[index];
+	}
+
+	/**
+	 * @param index - the index of a cell in the Maze's PassageGraph
+	 * @return the travel time to the nearest exit of the cell
+	 */
+	public int time(int index) {
+		return times[index];
+	}
+
+	/**
+	 * Determines the exit a MazeCell reaches fastest. Exits are their own nearest exit.
+	 *
+	 * @param cell - the MazeCell to look up
+	 * @return the nearest exit, or null if no exit can be reached or the cell is not in the Maze
+	 */
+	public MazeCell nearestExit(MazeCell cell) {
+		int index = graph.indexOf(cell);
+		return index < 0 || exits[index] < 0 ? null : graph.cellAt(exits[index]);
+	}
+
+	/**
+	 * @param index - the index of a cell in the Maze's PassageGraph
+	 * @return the index of the nearest exit of the cell, or -1 if no exit can be reached
+	 */
+	public int nearestExit(int index) {
+		return exits[index];
+	}
+
+	/**
+	 * @return the number of cells in the field
+	 */
+	public int cellCount() {
+		return times.length;
+	}
+
+	/**
+	 * @return the distribution of the times to the nearest exit of all cells other than the exits
+	 */
+	public ExitTimeStatistics statistics() {
+		return statistics;
+	}
+
+	/**
+	 * Calculates the average time to the nearest exit of the cells other than the
+	 * exits. If any cell cannot reach an exit, the average is IMPASSABLE_DOUBLE.
+	 *
+	 * @return the average time to the nearest exit
+	 */
+	public double averageTime() {
+		return statistics.impassableCount() > 0 ? MazeCell.IMPASSABLE_DOUBLE : statistics.mean();
+	}
+
+	/**
+	 * Determines the longest time to the nearest exit of any cell. If any cell
+	 * cannot reach an exit, the longest time is IMPASSABLE.
+	 *
+	 * @return the longest time to the nearest exit, or 0 if every cell is an exit
+	 */
+	public long maxTime() {
+		if(statistics.impassableCount() > 0) {
+			return MazeCell.IMPASSABLE;
+		}
+		return statistics.count() == 0 ? 0 : statistics.max();
+	}
+
+	/**
+	 * Determines a percentile of the times to the nearest exit of the cells that
+	 * can reach one. Unlike ExitTimeStatistics.percentile(), which estimates it
+	 * from a histogram, the percentile is exact: it is the smallest time such that
+	 * at least the given percent of the times are not greater. The times are
+	 * sorted on the first call, so later calls take constant time.
+	 *
+	 * @param percentile - the percentile between 0 and 100
+	 * @return the time, or MazeCell.IMPASSABLE if no cell other than an exit can reach an exit
+	 */
+	public long percentileTime(double percentile) {
+		int[] sorted = sortedTimes();
+		if(sorted.length == 0) {
+			return MazeCell.IMPASSABLE;
+		}
+		long rank = (long)Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * sorted.length);
+		return sorted[(int)Math.max(1, rank) - 1];
+	}
+
+	/**
+	 * @return the times of the cells other than the exits that can reach an exit, in ascending order
+	 */
+	private synchronized int[] sortedTimes() {
+		if(sortedTimes == null) {
+			int[] sorted = new int[(int)statistics.count()];
+			int count = 0;
+			for(int cell = 0; cell < times.length; cell++) {
+				if(times[cell] != MazeCell.IMPASSABLE && exits[cell] != cell) {
+					sorted[count++] = times[cell];
+				}
+			}
+			Arrays.sort(sorted);
+			sortedTimes = sorted;
+		}
+		return sortedTimes;
+	}
+
+	/**
+	 * Copies the times to a new array to avoid inadvertent changes.
+	 *
+	 * @return the time to the nearest exit of every cell indexed like the Maze's PassageGraph
+	 */
+	public int[] timesToArray() {
+		return Arrays.copyOf(times, times.length);
+	}
+
+	/**
+	 * Copies the nearest exits to a new array to avoid inadvertent changes.
+	 *
+	 * @return the index of the nearest exit of every cell indexed like the Maze's PassageGraph
+	 */
+	public int[] exitsToArray() {
+		return Arrays.copyOf(exits, exits.length);
+	}
+
+}
@@ -0,0 +1,178 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case class for the NearestExitField class. This class tests all public
+ * methods of the NearestExitField class for proper and expected functionality.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class NearestExitFieldTest {
+	// private class variables
+	private MazeBuilder builder;
+	private Maze maze;
+
+	/**
+	 * Creates a corridor of six cells in which neighboring cells are connected
+	 * both ways with time 1, except that cell 4 leads to cell 5 with time 10
+	 * and cell 5 only leads back to cell 4.
+	 */
+	@Before
+	public void generateMaze() {
+		builder = new MazeBuilder(10);
+		builder.addCells(6);
+		for(int cell = 0; cell < 4; cell++) {
+			builder.addPassage(cell, cell + 1, 1);
+			builder.addPassage(cell + 1, cell, 1);
+		}
+		builder.addPassage(4, 5, 10);
+		builder.addPassage(5, 4, 1);
+		try {
+			maze = builder.build();
+		} catch(UninitializedObjectException e) {
+			fail("build() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests the lookups of the nearest exits and their times.
+	 */
+	@Test
+	public void testLookups() {
+		try {
+			Set<MazeCell> exits = new HashSet<MazeCell>();
+			exits.add(builder.cellAt(0));
+			exits.add(builder.cellAt(5));
+			exits.add(new MazeCell());
+			NearestExitField field = maze.nearestExits(exits);
+			assertEquals("cellCount() is incorrect", 6, field.cellCount());
+			assertEquals("time() is incorrect for an exit", 0, field.time(builder.cellAt(5)));
+			assertEquals("nearestExit() is incorrect for an exit", builder.cellAt(5), field.nearestExit(builder.cellAt(5)));
+			assertEquals("time() is incorrect", 2, field.time(builder.cellAt(2)));
+			assertEquals("nearestExit() is incorrect", builder.cellAt(0), field.nearestExit(builder.cellAt(2)));
+			// cell 4 is one step from cell 5, but the passage takes longer than walking to cell 0
+			assertEquals("time() does not follow passage times", 4, field.time(4));
+			assertEquals("nearestExit() does not follow passage times", 0, field.nearestExit(4));
+			assertEquals("time() is incorrect for a cell outside of the Maze",
+					MazeCell.IMPASSABLE, field.time(new MazeCell()));
+			assertNull("nearestExit() is incorrect for a cell outside of the Maze", field.nearestExit(new MazeCell()));
+			assertArrayEquals("timesToArray() is incorrect", new int[] {0, 1, 2, 3, 4, 0}, field.timesToArray());
+			assertArrayEquals("exitsToArray() is incorrect", new int[] {0, 0, 0, 0, 0, 5}, field.exitsToArray());
+		} catch(UninitializedObjectException e) {
+			fail("nearestExits() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests the aggregates of the times to the nearest exits.
+	 */
+	@Test
+	public void testAggregates() {
+		try {
+			Set<MazeCell> exits = new HashSet<MazeCell>();
+			exits.add(builder.cellAt(0));
+			NearestExitField field = maze.nearestExits(exits);
+			assertEquals("averageTime() is incorrect", 3.0, field.averageTime(), 0.0);
+			assertEquals("maxTime() is incorrect", 5, field.maxTime());
+			assertEquals("percentileTime() is incorrect", 3, field.percentileTime(50));
+			assertEquals("statistics() does not count every cell", 5, field.statistics().count());
+			exits.clear();
+			exits.add(builder.cellAt(3));
+			exits.add(builder.cellAt(5));
+			field = maze.nearestExits(exits);
+			assertEquals("averageTime() is incorrect for several exits", 7.0 / 4, field.averageTime(), 0.0);
+			// without exits, no cell can reach one
+			field = maze.nearestExits(new HashSet<MazeCell>());
+			assertEquals("averageTime() is not impassable without exits",
+					MazeCell.IMPASSABLE_DOUBLE, field.averageTime(), 0.0);
+			assertEquals("maxTime() is not impassable without exits", MazeCell.IMPASSABLE, field.maxTime());
+			assertEquals("statistics() does not count impassable cells", 6, field.statistics().impassableCount());
+			// times that do not fit in an int are impassable
+			int slow = 1500000000;
+			MazeBuilder slowBuilder = new MazeBuilder(3);
+			slowBuilder.addCells(4);
+			for(int cell = 0; cell < 3; cell++) {
+				slowBuilder.addPassage(cell, cell + 1, slow);
+			}
+			Maze slowMaze = slowBuilder.build();
+			exits.clear();
+			exits.add(slowBuilder.cellAt(3));
+			field = slowMaze.nearestExits(exits);
+			assertEquals("time() is incorrect for a long passage", slow, field.time(2));
+			assertEquals("time() does not report an overflowing time as IMPASSABLE", MazeCell.IMPASSABLE, field.time(1));
+			assertEquals("nearestExit() is incorrect for an overflowing time", -1, field.nearestExit(0));
+			assertEquals("statistics() does not count overflowing times as impassable",
+					2, field.statistics().impassableCount());
+			assertEquals("percentileTime() includes an overflowing time", slow, field.percentileTime(100));
+			assertEquals("averageTime() is not impassable for an overflowing time",
+					MazeCell.IMPASSABLE_DOUBLE, field.averageTime(), 0.0);
+		} catch(UninitializedObjectException e) {
+			fail("nearestExits() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests that the field agrees with the shortest travel time to each exit.
+	 */
+	@Test
+	public void testAgreesWithDistances() {
+		try {
+			int size = 30;
+			GridMaze grid = new GridMaze(size, size, true);
+			for(int x = 0; x < size; x++) {
+				for(int y = 0; y < size; y++) {
+					grid.setTime(x, y, 1 + (x * 7 + y * 13) % 9);
+					if(x > 0) {
+						grid.connect(x, y, GridMaze.WEST);
+					}
+					if(y > 0 && (x % 3 == 0 || y % 4 == 0)) {
+						grid.connect(x, y, GridMaze.NORTH);
+					}
+				}
+			}
+			Maze gridMaze = new Maze();
+			gridMaze.addGraph(grid);
+			Set<MazeCell> exits = new HashSet<MazeCell>();
+			for(int i = 0; i < 12; i++) {
+				exits.add(grid.cellAt((i * 37) % size, (i * 11) % size));
+			}
+			NearestExitField field = gridMaze.nearestExits(exits);
+			int[] best = new int[size * size];
+			Arrays.fill(best, MazeCell.IMPASSABLE);
+			for(MazeCell exit : exits) {
+				int[] times = gridMaze.distancesTo(exit).toArray();
+				for(int cell = 0; cell < best.length; cell++) {
+					best[cell] = Math.min(best[cell], times[cell]);
+				}
+			}
+			assertArrayEquals("the field does not agree with the distances to every exit", best, field.timesToArray());
+			for(int cell = 0; cell < best.length; cell += 7) {
+				assertEquals("the nearest exit is not at the nearest time", best[cell],
+						gridMaze.distancesTo(grid.cellAt(field.nearestExit(cell))).distance(cell));
+			}
+			// percentiles are exact, not rounded to the buckets of the statistics
+			int[] sorted = new int[best.length];
+			int count = 0;
+			for(int cell = 0; cell < best.length; cell++) {
+				if(best[cell] != MazeCell.IMPASSABLE && best[cell] > 0) {
+					sorted[count++] = best[cell];
+				}
+			}
+			Arrays.sort(sorted, 0, count);
+			for(int percentile : new int[] {0, 10, 50, 90, 99, 100}) {
+				int rank = Math.max(1, (int)Math.ceil(percentile / 100.0 * count));
+				assertEquals("percentileTime() is not exact", sorted[rank - 1], field.percentileTime(percentile));
+			}
+		} catch(UninitializedObjectException e) {
+			fail("nearestExits() generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+/**
+ * Provides an interface for the index-based passage storage behind a Maze.
+ * Every cell is identified by an index between zero and cellCount() - 1, and
+ * only passable passages between cells of the same maze are visible. Routing
+ * and aggregate algorithms work on this interface so that they run unchanged
+ * against any storage backend.
+ * 
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public interface PassageGraph {
+	
+	public int cellCount();
+	
+	public long passageCount();
+	
+	public int passageCount(int cell);
+	
+	public int passageTarget(int cell, int passage);
+	
+	public int passageTime(int cell, int passage);
+	
+	public int incomingCount(int cell);
+	
+	public int incomingSource(int cell, int passage);
+	
+	public int incomingTime(int cell, int passage);
+	
+	public MazeCell cellAt(int index);
+	
+	public int indexOf(MazeCell cell);
+	
+}
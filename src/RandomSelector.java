@@ -1,13 +1,15 @@
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Implements a random next MazeCell selection algorithm.
+ * Implements a random next MazeCell selection algorithm. In batches, the
+ * random numbers are drawn from a generator of the calling thread.
  * 
  * @author Derrick Tilsner dtt13
  *
  */
-public class RandomSelector implements PassageSelector {
+public class RandomSelector implements PassageSelector, BatchPassageSelector {
 
 	@Override
 	public MazeCell nextCell(MazeCell currentCell)
@@ -27,5 +29,14 @@ public class RandomSelector implements PassageSelector {
 		}
 		return nextCell;
 	}
+
+	@Override
+	public void nextCells(PassageGraph graph, int[] current, int[] next, int count) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for(int i = 0; i < count; i++) {
+			int passages = graph.passageCount(current[i]);
+			next[i] = passages == 0 ? -1 : graph.passageTarget(current[i], random.nextInt(passages));
+		}
+	}
 	
 }
@@ -0,0 +1,260 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The RandomWalkSolver class calculates the exact expected time a random walk
+ * needs to reach an exit cell. The walk is an absorbing Markov chain: in every
+ * cell it takes each passage to another cell of the maze with equal probability,
+ * it may visit cells any number of times, and it stops once it reaches the exit.
+ * The expected times satisfy h(exit) = 0 and, for every other cell, h(cell) equal
+ * to the average over its passages of the passage time plus h of the next cell.
+ * Cells from which the walk can end up somewhere it cannot leave without the exit
+ * have no finite expected time. The linear system of the remaining cells is solved
+ * by Gauss-Seidel iteration, split into blocks of cells that are swept in parallel.
+ *
+ * The iteration stops on the residual, not on the change of a sweep, which can
+ * be tiny long before the times are right, for example along long corridors. The
+ * residual of a cell is the difference between its time and the average over its
+ * passages that defines it. The error of any time is at most the largest residual
+ * times the expected number of passages of a walk, which is at most the largest
+ * expected time divided by the shortest passage time. A largest residual of at
+ * most the tolerance times the shortest passage time therefore bounds the error
+ * of every time by the tolerance times the largest expected time.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class RandomWalkSolver {
+	// private class constants
+	private final static int BLOCK_SIZE = 4096;
+	private final static int MAX_ITERATIONS = 1000000;
+	private final static int RESIDUAL_INTERVAL = 8; // sweeps between checks of the residual
+
+	// private class variables
+	private PassageGraph graph;
+	private ForkJoinPool pool;
+
+	/**
+	 * Constructor of the RandomWalkSolver class.
+	 *
+	 * @param graph - the graph the walk moves through
+	 * @param pool - the pool that sweeps the blocks of cells
+	 */
+	RandomWalkSolver(PassageGraph graph, ForkJoinPool pool) {
+		this.graph = graph;
+		this.pool = pool;
+	}
+
+	/**
+	 * Calculates the expected time to reach the exit from every cell.
+	 *
+	 * @param exit - the index of the exit cell
+	 * @param tolerance - the largest error of any expected time relative to the
+	 * largest expected time
+	 * @return the expected time to reach the exit from every cell, or
+	 * MazeCell.IMPASSABLE_DOUBLE for cells without a finite expected time
+	 * @throws IllegalArgumentException if the tolerance is not positive
+	 * @throws IllegalStateException if the iteration does not reach the tolerance,
+	 * for example because it lies below the rounding error of the times
+	 */
+	double[] solve(int exit, double tolerance) {
+		if(!(tolerance > 0)) {
+			throw new IllegalArgumentException("The tolerance must be positive, not " + tolerance);
+		}
+		final boolean[] isFinite = findFiniteCells(exit);
+		final double[] previous = new double[graph.cellCount()];
+		final double[] next = new double[graph.cellCount()];
+		double allowed = tolerance * shortestTime(isFinite, exit);
+		double residual = Double.MAX_VALUE;
+		int iteration = 0;
+		while(residual > allowed) {
+			if(iteration == MAX_ITERATIONS) {
+				throw new IllegalStateException("The expected times did not converge in " + MAX_ITERATIONS
+						+ " sweeps; the largest residual is " + residual + " instead of " + allowed);
+			}
+			sweep(isFinite, exit, previous, next);
+			System.arraycopy(next, 0, previous, 0, next.length);
+			iteration++;
+			if(iteration % RESIDUAL_INTERVAL == 0 || iteration == MAX_ITERATIONS) {
+				residual = residual(isFinite, exit, next);
+			}
+		}
+		for(int cell = 0; cell < next.length; cell++) {
+			if(!isFinite[cell]) {
+				next[cell] = MazeCell.IMPASSABLE_DOUBLE;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * @return the shortest time of any passage a walk with a finite expected time
+	 * can take, or 1 if there is none
+	 */
+	private double shortestTime(boolean[] isFinite, int exit) {
+		int shortest = Integer.MAX_VALUE;
+		for(int cell = 0; cell < graph.cellCount(); cell++) {
+			if(isFinite[cell] && cell != exit) {
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					shortest = Math.min(shortest, graph.passageTime(cell, p));
+				}
+			}
+		}
+		return shortest == Integer.MAX_VALUE ? 1.0 : shortest;
+	}
+
+	/**
+	 * Determines which cells have a finite expected time. A cell has one if every
+	 * cell the walk can reach from it before the exit can itself reach the exit.
+	 *
+	 * @param exit - the index of the exit cell
+	 * @return true for every cell with a finite expected time
+	 */
+	private boolean[] findFiniteCells(int exit) {
+		int cellCount = graph.cellCount();
+		// find the cells that can reach the exit
+		boolean[] canExit = new boolean[cellCount];
+		IntList stack = new IntList(64);
+		canExit[exit] = true;
+		stack.add(exit);
+		while(!stack.isEmpty()) {
+			int cell = stack.removeLast();
+			for(int p = 0; p < graph.incomingCount(cell); p++) {
+				int previous = graph.incomingSource(cell, p);
+				if(!canExit[previous]) {
+					canExit[previous] = true;
+					stack.add(previous);
+				}
+			}
+		}
+		// every cell that can reach a trapped cell without passing the exit is trapped too
+		boolean[] isTrapped = new boolean[cellCount];
+		for(int cell = 0; cell < cellCount; cell++) {
+			if(!canExit[cell]) {
+				isTrapped[cell] = true;
+				stack.add(cell);
+			}
+		}
+		while(!stack.isEmpty()) {
+			int cell = stack.removeLast();
+			for(int p = 0; p < graph.incomingCount(cell); p++) {
+				int previous = graph.incomingSource(cell, p);
+				if(!isTrapped[previous] && previous != exit) {
+					isTrapped[previous] = true;
+					stack.add(previous);
+				}
+			}
+		}
+		boolean[] isFinite = new boolean[cellCount];
+		for(int cell = 0; cell < cellCount; cell++) {
+			isFinite[cell] = !isTrapped[cell];
+		}
+		return isFinite;
+	}
+
+	/**
+	 * Performs one Gauss-Seidel sweep over all cells. Blocks of cells are swept in
+	 * parallel; within a block, cells use the new values of earlier cells of the
+	 * same block and the values of the previous iteration for all other cells.
+	 */
+	private void sweep(boolean[] isFinite, int exit, double[] previous, double[] next) {
+		forEachBlock(isFinite, exit, previous, next);
+	}
+
+	/**
+	 * Computes the largest residual of any cell with a finite expected time.
+	 *
+	 * @return the largest difference between the time of a cell and the average
+	 * over its passages of the passage time plus the time of the next cell
+	 */
+	private double residual(boolean[] isFinite, int exit, double[] times) {
+		double[] residuals = forEachBlock(isFinite, exit, times, null);
+		double residual = 0;
+		for(double blockResidual : residuals) {
+			residual = Math.max(residual, blockResidual);
+		}
+		return residual;
+	}
+
+	/**
+	 * Sweeps or measures all blocks of cells in parallel.
+	 *
+	 * @param next - the array to sweep into, or null to measure the residuals of previous
+	 * @return the largest residual of every block if measuring
+	 */
+	private double[] forEachBlock(final boolean[] isFinite, final int exit, final double[] previous,
+			final double[] next) {
+		int cellCount = graph.cellCount();
+		final int blockCount = (cellCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		final double[] residuals = new double[blockCount];
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				RecursiveAction[] blocks = new RecursiveAction[blockCount];
+				for(int b = 0; b < blockCount; b++) {
+					final int block = b;
+					blocks[b] = new RecursiveAction() {
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						protected void compute() {
+							if(next == null) {
+								residuals[block] = blockResidual(block, isFinite, exit, previous);
+							} else {
+								sweepBlock(block, isFinite, exit, previous, next);
+							}
+						}
+					};
+				}
+				invokeAll(blocks);
+			}
+		});
+		return residuals;
+	}
+
+	/**
+	 * Sweeps one block of cells.
+	 */
+	private void sweepBlock(int block, boolean[] isFinite, int exit, double[] previous, double[] next) {
+		int from = block * BLOCK_SIZE;
+		int to = Math.min(from + BLOCK_SIZE, graph.cellCount());
+		for(int cell = from; cell < to; cell++) {
+			int count = graph.passageCount(cell);
+			if(cell == exit || !isFinite[cell] || count == 0) {
+				next[cell] = 0;
+				continue;
+			}
+			double total = 0;
+			for(int p = 0; p < count; p++) {
+				int target = graph.passageTarget(cell, p);
+				double time = (target >= from && target < cell) ? next[target] : previous[target];
+				total += graph.passageTime(cell, p) + time;
+			}
+			next[cell] = total / count;
+		}
+	}
+
+	/**
+	 * @return the largest residual of any cell of a block with a finite expected time
+	 */
+	private double blockResidual(int block, boolean[] isFinite, int exit, double[] times) {
+		int from = block * BLOCK_SIZE;
+		int to = Math.min(from + BLOCK_SIZE, graph.cellCount());
+		double residual = 0;
+		for(int cell = from; cell < to; cell++) {
+			int count = graph.passageCount(cell);
+			if(cell == exit || !isFinite[cell] || count == 0) {
+				continue;
+			}
+			double total = 0;
+			for(int p = 0; p < count; p++) {
+				total += graph.passageTime(cell, p) + times[graph.passageTarget(cell, p)];
+			}
+			residual = Math.max(residual, Math.abs(total / count - times[cell]));
+		}
+		return residual;
+	}
+
+}
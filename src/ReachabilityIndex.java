@@ -0,0 +1,710 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * The ReachabilityIndex class answers whether one cell of a Maze can ever reach
+ * another cell by following passable passages. The maze is condensed into its
+ * strongly connected components, which form a directed acyclic graph. Small
+ * condensed graphs store their full transitive closure as bitsets so that every
+ * query is a single bit test. Larger graphs store interval labels from several
+ * depth-first traversals (GRAIL) which reject almost all unreachable pairs in
+ * constant time and prune the search for the remaining queries.
+ *
+ * The index is kept in int and long buffers, so an index stored in an
+ * IndexSnapshot is read as views of the mapped file instead of being copied
+ * onto the heap.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class ReachabilityIndex {
+	// public class constants
+	public final static int BITSET_COMPONENT_LIMIT = 4096;
+
+	// private class constants
+	private final static int MAGIC = 0x4D5A5249;
+	private final static int FORMAT_VERSION = 1;
+	private final static int LABEL_TRAVERSALS = 2;
+	private final static int LABEL_INTS = 2 * LABEL_TRAVERSALS; // low and rank of each traversal
+	private final static int BUFFER_MAGIC = 0x4D5A5242;
+	private final static int BUFFER_HEADER_SIZE = 32;
+
+	// private class variables
+	private PassageGraph graph;
+	private IntBuffer components; // component of each cell
+	private int componentCount;
+	private IntBuffer dagOffsets; // successors of component c are in [dagOffsets[c], dagOffsets[c + 1])
+	private IntBuffer dagTargets;
+	private LongBuffer closure; // only used for small condensed graphs, closureWords per component
+	private int closureWords;
+	private IntBuffer labels; // lowest rank below and post-order rank of each traversal, LABEL_INTS per component
+	private ThreadLocal<SearchSpace> searchSpaces; // scratch space of the pruned search of each thread
+
+	/**
+	 * Constructor of the ReachabilityIndex class which condenses the graph and
+	 * builds the labels used to answer queries.
+	 *
+	 * @param graph - the compact graph of a valid Maze
+	 */
+	ReachabilityIndex(PassageGraph graph) {
+		this.graph = graph;
+		int[] componentArray = findComponents();
+		this.components = IntBuffer.wrap(componentArray);
+		buildCondensedGraph(componentArray);
+		buildLabels();
+	}
+
+	/**
+	 * Constructor used when reading a previously written index.
+	 *
+	 * @param graph - the compact graph of a valid Maze
+	 */
+	private ReachabilityIndex(PassageGraph graph, IntBuffer components, int componentCount) {
+		this.graph = graph;
+		this.components = components;
+		this.componentCount = componentCount;
+		this.closureWords = (componentCount + 63) >>> 6;
+	}
+
+	/**
+	 * Determines if a passable path leads from one MazeCell to another. Every
+	 * MazeCell of the maze can reach itself. MazeCells that are not part of the
+	 * maze cannot reach or be reached by any cell.
+	 *
+	 * @param from - the MazeCell the path starts at
+	 * @param to - the MazeCell the path ends at
+	 * @return true if the destination can be reached from the start, false otherwise
+	 */
+	public boolean canReach(MazeCell from, MazeCell to) {
+		int fromIndex = graph.indexOf(from);
+		int toIndex = graph.indexOf(to);
+		if(fromIndex < 0 || toIndex < 0) {
+			return false;
+		}
+		return canReach(fromIndex, toIndex);
+	}
+
+	/**
+	 * Determines if a passable path leads from one cell index to another.
+	 *
+	 * @param from - the index of the cell the path starts at
+	 * @param to - the index of the cell the path ends at
+	 * @return true if the destination can be reached from the start, false otherwise
+	 */
+	boolean canReach(int from, int to) {
+		int source = components.get(from);
+		int target = components.get(to);
+		if(source == target) {
+			return true;
+		}
+		if(target > source) { // components are numbered in reverse topological order
+			return false;
+		}
+		if(closure != null) {
+			return (closure.get(source * closureWords + (target >>> 6)) & (1L << target)) != 0;
+		}
+		if(!isLabelCompatible(source, target)) {
+			return false;
+		}
+		return searchCondensedGraph(source, target);
+	}
+
+	/**
+	 * @return the number of strongly connected components of the maze
+	 */
+	public int componentCount() {
+		return componentCount;
+	}
+
+	/**
+	 * Writes the index to a stream so that it can be restored for the same Maze
+	 * without condensing the maze again.
+	 *
+	 * @param stream - the stream to write to
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void writeTo(OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(graph.cellCount());
+		out.writeLong(graph.passageCount());
+		out.writeInt(componentCount);
+		writeInts(out, components);
+		writeInts(out, dagOffsets);
+		writeInts(out, dagTargets);
+		out.writeBoolean(closure != null);
+		if(closure != null) {
+			for(int i = 0; i < closure.limit(); i++) {
+				out.writeLong(closure.get(i));
+			}
+		} else {
+			for(int t = 0; t < LABEL_TRAVERSALS; t++) {
+				for(int c = 0; c < componentCount; c++) {
+					out.writeInt(labels.get(c * LABEL_INTS + 2 * t + 1));
+				}
+				for(int c = 0; c < componentCount; c++) {
+					out.writeInt(labels.get(c * LABEL_INTS + 2 * t));
+				}
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads an index previously written with writeTo() for the Maze described
+	 * by the specified graph.
+	 *
+	 * @param stream - the stream to read from
+	 * @param graph - the compact graph of the Maze the index was written for
+	 * @return the restored ReachabilityIndex
+	 * @throws IOException if the stream cannot be read or does not belong to the graph
+	 */
+	static ReachabilityIndex readFrom(InputStream stream, PassageGraph graph) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+			throw new IOException("The stream does not contain a reachability index");
+		}
+		if(in.readInt() != graph.cellCount() || in.readLong() != graph.passageCount()) {
+			throw new IOException("The reachability index was written for a different maze");
+		}
+		int componentCount = in.readInt();
+		ReachabilityIndex index = new ReachabilityIndex(graph, readInts(in, graph.cellCount()), componentCount);
+		index.dagOffsets = readInts(in, componentCount + 1);
+		index.dagTargets = readInts(in, index.dagOffsets.get(componentCount));
+		if(in.readBoolean()) {
+			long[] closure = new long[componentCount * index.closureWords];
+			for(int i = 0; i < closure.length; i++) {
+				closure[i] = in.readLong();
+			}
+			index.closure = LongBuffer.wrap(closure);
+		} else {
+			int[] labels = new int[componentCount * LABEL_INTS];
+			for(int t = 0; t < LABEL_TRAVERSALS; t++) {
+				for(int c = 0; c < componentCount; c++) {
+					labels[c * LABEL_INTS + 2 * t + 1] = in.readInt();
+				}
+				for(int c = 0; c < componentCount; c++) {
+					labels[c * LABEL_INTS + 2 * t] = in.readInt();
+				}
+			}
+			index.labels = IntBuffer.wrap(labels);
+			index.allocateSearchSpace();
+		}
+		return index;
+	}
+
+	/**
+	 * Stores the index in a little-endian buffer in which every array starts at
+	 * a multiple of eight bytes, so that the arrays can be viewed in place by
+	 * view() once the buffer is written to a file and mapped.
+	 *
+	 * @return a buffer containing the index, positioned at its start
+	 */
+	ByteBuffer toBuffer() {
+		long size = BUFFER_HEADER_SIZE + intBytes(graph.cellCount()) + intBytes(componentCount + 1)
+				+ intBytes(dagTargets.limit());
+		if(closure != null) {
+			size += 8L * closure.limit();
+		} else {
+			size += intBytes(labels.limit());
+		}
+		if(size > Integer.MAX_VALUE) {
+			throw new IllegalStateException("The reachability index does not fit in a buffer");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int)size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(BUFFER_MAGIC);
+		buffer.putInt(FORMAT_VERSION);
+		buffer.putInt(graph.cellCount());
+		buffer.putInt(componentCount);
+		buffer.putLong(graph.passageCount());
+		buffer.putInt(closure != null ? 1 : 0);
+		buffer.putInt(dagTargets.limit());
+		putInts(buffer, components);
+		putInts(buffer, dagOffsets);
+		putInts(buffer, dagTargets);
+		if(closure != null) {
+			for(int i = 0; i < closure.limit(); i++) {
+				buffer.putLong(closure.get(i));
+			}
+		} else {
+			putInts(buffer, labels);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Views an index stored by toBuffer() for the Maze described by the
+	 * specified graph. The arrays of the index are read from the buffer
+	 * whenever they are used, so a mapped buffer is never copied onto the heap.
+	 *
+	 * @param buffer - the buffer containing the index, positioned at its start
+	 * @param graph - the compact graph of the Maze the index was stored for
+	 * @return the ReachabilityIndex backed by the buffer
+	 * @throws IOException if the buffer does not contain an index of the graph
+	 */
+	static ReachabilityIndex view(ByteBuffer buffer, PassageGraph graph) throws IOException {
+		ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		if(data.limit() < BUFFER_HEADER_SIZE || data.getInt(0) != BUFFER_MAGIC || data.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("The buffer does not contain a reachability index");
+		}
+		if(data.getInt(8) != graph.cellCount() || data.getLong(16) != graph.passageCount()) {
+			throw new IOException("The reachability index was written for a different maze");
+		}
+		int componentCount = data.getInt(12);
+		boolean hasClosure = data.getInt(24) == 1;
+		int dagPassages = data.getInt(28);
+		if(componentCount < 0 || componentCount > graph.cellCount() || dagPassages < 0
+				|| (hasClosure && componentCount > BITSET_COMPONENT_LIMIT)) {
+			throw new IOException("The reachability index is damaged");
+		}
+		int words = (componentCount + 63) >>> 6;
+		long size = BUFFER_HEADER_SIZE + intBytes(graph.cellCount()) + intBytes(componentCount + 1)
+				+ intBytes(dagPassages)
+				+ (hasClosure ? 8L * componentCount * words : intBytes(componentCount * LABEL_INTS));
+		if(data.limit() != size) {
+			throw new IOException("The reachability index is truncated");
+		}
+		int position = BUFFER_HEADER_SIZE;
+		ReachabilityIndex index = new ReachabilityIndex(graph, intView(data, position, graph.cellCount()), componentCount);
+		position += intBytes(graph.cellCount());
+		index.dagOffsets = intView(data, position, componentCount + 1);
+		position += intBytes(componentCount + 1);
+		if(index.dagOffsets.get(componentCount) != dagPassages) {
+			throw new IOException("The reachability index is damaged");
+		}
+		index.dagTargets = intView(data, position, dagPassages);
+		position += intBytes(dagPassages);
+		if(hasClosure) {
+			data.position(position);
+			data.limit(position + 8 * componentCount * words);
+			index.closure = data.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+		} else {
+			index.labels = intView(data, position, componentCount * LABEL_INTS);
+			index.allocateSearchSpace();
+		}
+		return index;
+	}
+
+	/**
+	 * Finds the strongly connected components of the maze with an iterative
+	 * version of Tarjan's algorithm. Components are numbered in the order they
+	 * are completed, so every passage between two components leads to a
+	 * component with a lower number.
+	 *
+	 * @return the component of each cell
+	 */
+	private int[] findComponents() {
+		int cellCount = graph.cellCount();
+		int[] components = new int[cellCount];
+		int[] order = new int[cellCount];
+		int[] low = new int[cellCount];
+		Arrays.fill(order, -1);
+		boolean[] onStack = new boolean[cellCount];
+		int[] componentStack = new int[cellCount];
+		int componentTop = 0;
+		int[] callStack = new int[cellCount];
+		int[] passageStack = new int[cellCount];
+		int counter = 0;
+		for(int start = 0; start < cellCount; start++) {
+			if(order[start] != -1) {
+				continue;
+			}
+			int callTop = 0;
+			callStack[0] = start;
+			passageStack[0] = 0;
+			order[start] = low[start] = counter++;
+			componentStack[componentTop++] = start;
+			onStack[start] = true;
+			while(callTop >= 0) {
+				int cell = callStack[callTop];
+				if(passageStack[callTop] < graph.passageCount(cell)) {
+					int next = graph.passageTarget(cell, passageStack[callTop]++);
+					if(order[next] == -1) { // descend into a never-before-seen cell
+						order[next] = low[next] = counter++;
+						componentStack[componentTop++] = next;
+						onStack[next] = true;
+						callTop++;
+						callStack[callTop] = next;
+						passageStack[callTop] = 0;
+					} else if(onStack[next]) {
+						low[cell] = Math.min(low[cell], order[next]);
+					}
+				} else {
+					callTop--;
+					if(callTop >= 0) {
+						int parent = callStack[callTop];
+						low[parent] = Math.min(low[parent], low[cell]);
+					}
+					if(low[cell] == order[cell]) { // cell is the root of a component
+						int member;
+						do {
+							member = componentStack[--componentTop];
+							onStack[member] = false;
+							components[member] = componentCount;
+						} while(member != cell);
+						componentCount++;
+					}
+				}
+			}
+		}
+		return components;
+	}
+
+	/**
+	 * Builds the successor lists of the condensed graph without duplicate passages.
+	 *
+	 * @param components - the component of each cell
+	 */
+	private void buildCondensedGraph(int[] components) {
+		int[] counts = new int[componentCount + 1];
+		int[] lastSeen = new int[componentCount];
+		Arrays.fill(lastSeen, -1);
+		int[][] members = groupMembers(components);
+		// count the distinct successors of each component
+		for(int c = 0; c < componentCount; c++) {
+			for(int cell : members[c]) {
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					int next = components[graph.passageTarget(cell, p)];
+					if(next != c && lastSeen[next] != c) {
+						lastSeen[next] = c;
+						counts[c]++;
+					}
+				}
+			}
+		}
+		int[] dagOffsets = new int[componentCount + 1];
+		for(int c = 0; c < componentCount; c++) {
+			dagOffsets[c + 1] = dagOffsets[c] + counts[c];
+		}
+		// fill the successors of each component
+		int[] dagTargets = new int[dagOffsets[componentCount]];
+		Arrays.fill(lastSeen, -1);
+		for(int c = 0; c < componentCount; c++) {
+			int position = dagOffsets[c];
+			for(int cell : members[c]) {
+				for(int p = 0; p < graph.passageCount(cell); p++) {
+					int next = components[graph.passageTarget(cell, p)];
+					if(next != c && lastSeen[next] != c) {
+						lastSeen[next] = c;
+						dagTargets[position++] = next;
+					}
+				}
+			}
+		}
+		this.dagOffsets = IntBuffer.wrap(dagOffsets);
+		this.dagTargets = IntBuffer.wrap(dagTargets);
+	}
+
+	/**
+	 * Groups the cell indices of the maze by their component.
+	 *
+	 * @param components - the component of each cell
+	 * @return the cell indices of each component
+	 */
+	private int[][] groupMembers(int[] components) {
+		int[] sizes = new int[componentCount];
+		for(int component : components) {
+			sizes[component]++;
+		}
+		int[][] members = new int[componentCount][];
+		for(int c = 0; c < componentCount; c++) {
+			members[c] = new int[sizes[c]];
+			sizes[c] = 0;
+		}
+		for(int cell = 0; cell < components.length; cell++) {
+			int component = components[cell];
+			members[component][sizes[component]++] = cell;
+		}
+		return members;
+	}
+
+	/**
+	 * Builds the bitset closure for small condensed graphs and the interval
+	 * labels for all other graphs.
+	 */
+	private void buildLabels() {
+		closureWords = (componentCount + 63) >>> 6;
+		if(componentCount <= BITSET_COMPONENT_LIMIT) {
+			int words = closureWords;
+			long[] rows = new long[componentCount * words];
+			// successors always have lower numbers, so they are complete before their predecessors
+			for(int c = 0; c < componentCount; c++) {
+				int row = c * words;
+				rows[row + (c >>> 6)] |= 1L << c;
+				for(int i = dagOffsets.get(c); i < dagOffsets.get(c + 1); i++) {
+					int successor = dagTargets.get(i) * words;
+					for(int w = 0; w < words; w++) {
+						rows[row + w] |= rows[successor + w];
+					}
+				}
+			}
+			closure = LongBuffer.wrap(rows);
+		} else {
+			// the labels of a component are kept together so that a check reads a single cache line
+			int[] interleaved = new int[componentCount * LABEL_INTS];
+			int[] rank = new int[componentCount];
+			int[] low = new int[componentCount];
+			for(int t = 0; t < LABEL_TRAVERSALS; t++) {
+				Arrays.fill(rank, 0);
+				labelTraversal(t, rank, low);
+				for(int c = 0; c < componentCount; c++) {
+					interleaved[c * LABEL_INTS + 2 * t] = low[c];
+					interleaved[c * LABEL_INTS + 2 * t + 1] = rank[c];
+				}
+			}
+			labels = IntBuffer.wrap(interleaved);
+			allocateSearchSpace();
+		}
+	}
+
+	/**
+	 * Assigns post-order ranks and the lowest rank reachable below each component
+	 * during one depth-first traversal of the condensed graph. Odd traversals
+	 * visit roots and successors in the opposite order of even traversals so
+	 * that the intervals of both traversals differ.
+	 *
+	 * @param traversal - the number of the traversal
+	 * @param rank - receives the post-order rank of each component
+	 * @param low - receives the lowest rank below each component
+	 */
+	private void labelTraversal(int traversal, int[] rank, int[] low) {
+		boolean reversed = (traversal % 2) == 1;
+		int[] callStack = new int[componentCount];
+		int[] passageStack = new int[componentCount];
+		int counter = 1;
+		for(int r = 0; r < componentCount; r++) {
+			int root = reversed ? r : componentCount - 1 - r;
+			if(rank[root] != 0) {
+				continue;
+			}
+			int callTop = 0;
+			callStack[0] = root;
+			passageStack[0] = 0;
+			rank[root] = -1; // mark as visited until the rank is assigned
+			low[root] = Integer.MAX_VALUE;
+			while(callTop >= 0) {
+				int component = callStack[callTop];
+				int degree = dagOffsets.get(component + 1) - dagOffsets.get(component);
+				if(passageStack[callTop] < degree) {
+					int p = passageStack[callTop]++;
+					int next = dagTargets.get(reversed ? dagOffsets.get(component + 1) - 1 - p : dagOffsets.get(component) + p);
+					if(rank[next] == 0) {
+						rank[next] = -1;
+						low[next] = Integer.MAX_VALUE;
+						callTop++;
+						callStack[callTop] = next;
+						passageStack[callTop] = 0;
+					} else {
+						low[component] = Math.min(low[component], low[next]);
+					}
+				} else {
+					rank[component] = counter++;
+					low[component] = Math.min(low[component], rank[component]);
+					callTop--;
+					if(callTop >= 0) {
+						int parent = callStack[callTop];
+						low[parent] = Math.min(low[parent], low[component]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks that the interval of the target component is contained in the
+	 * interval of the source component for every traversal. If it is not, the
+	 * target cannot be reached from the source.
+	 *
+	 * @param source - the component the path starts at
+	 * @param target - the component the path ends at
+	 * @return false if the target is certainly unreachable, true if it may be reachable
+	 */
+	private boolean isLabelCompatible(int source, int target) {
+		int sourceLabels = source * LABEL_INTS;
+		int targetLabels = target * LABEL_INTS;
+		for(int i = 0; i < LABEL_INTS; i += 2) {
+			if(labels.get(sourceLabels + i) > labels.get(targetLabels + i)
+					|| labels.get(targetLabels + i + 1) > labels.get(sourceLabels + i + 1)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Searches the condensed graph for the target component, skipping every
+	 * component whose labels rule out the target. An index built or read onto
+	 * the heap is searched through its arrays, which is about a third faster
+	 * than going through the buffers. Every thread searches with its own
+	 * scratch space, so searches of several threads run at the same time.
+	 *
+	 * @param source - the component the search starts at
+	 * @param target - the component the search looks for
+	 * @return true if the target is reachable from the source, false otherwise
+	 */
+	private boolean searchCondensedGraph(int source, int target) {
+		SearchSpace space = searchSpaces.get();
+		int epoch = space.nextEpoch();
+		int[] visitStamps = space.stamps;
+		int[] searchStack = space.stack;
+		if(dagOffsets.hasArray() && dagTargets.hasArray() && labels.hasArray()) {
+			return searchArrays(source, target, visitStamps, epoch, searchStack,
+					dagOffsets.array(), dagTargets.array(), labels.array());
+		}
+		int top = 0;
+		searchStack[top++] = source;
+		visitStamps[source] = epoch;
+		while(top > 0) {
+			int component = searchStack[--top];
+			int end = dagOffsets.get(component + 1);
+			for(int i = dagOffsets.get(component); i < end; i++) {
+				int next = dagTargets.get(i);
+				if(next == target) {
+					return true;
+				}
+				if(visitStamps[next] != epoch && next > target && isLabelCompatible(next, target)) {
+					visitStamps[next] = epoch;
+					searchStack[top++] = next;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the pruned search of searchCondensedGraph() on the arrays backing
+	 * the buffers of the index.
+	 */
+	private static boolean searchArrays(int source, int target, int[] stamps, int epoch, int[] stack,
+			int[] offsets, int[] targets, int[] labels) {
+		int targetLabels = target * LABEL_INTS;
+		int top = 0;
+		stack[top++] = source;
+		stamps[source] = epoch;
+		while(top > 0) {
+			int component = stack[--top];
+			int end = offsets[component + 1];
+			for(int i = offsets[component]; i < end; i++) {
+				int next = targets[i];
+				if(next == target) {
+					return true;
+				}
+				if(stamps[next] == epoch || next < target) {
+					continue;
+				}
+				int nextLabels = next * LABEL_INTS;
+				boolean compatible = true;
+				for(int l = 0; l < LABEL_INTS && compatible; l += 2) {
+					compatible = labels[nextLabels + l] <= labels[targetLabels + l]
+							&& labels[targetLabels + l + 1] <= labels[nextLabels + l + 1];
+				}
+				if(compatible) {
+					stamps[next] = epoch;
+					stack[top++] = next;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Prepares the scratch arrays of the pruned search, which each thread
+	 * allocates on its first search.
+	 */
+	private void allocateSearchSpace() {
+		final int size = componentCount;
+		searchSpaces = new ThreadLocal<SearchSpace>() {
+			@Override
+			protected SearchSpace initialValue() {
+				return new SearchSpace(size);
+			}
+		};
+	}
+
+	/**
+	 * Writes an int buffer without its length.
+	 */
+	private static void writeInts(DataOutputStream out, IntBuffer values) throws IOException {
+		for(int i = 0; i < values.limit(); i++) {
+			out.writeInt(values.get(i));
+		}
+	}
+
+	/**
+	 * Reads an int array of known length.
+	 */
+	private static IntBuffer readInts(DataInputStream in, int length) throws IOException {
+		int[] values = new int[length];
+		for(int i = 0; i < length; i++) {
+			values[i] = in.readInt();
+		}
+		return IntBuffer.wrap(values);
+	}
+
+	/**
+	 * Puts an int buffer into a byte buffer and pads it to a multiple of eight bytes.
+	 */
+	private static void putInts(ByteBuffer buffer, IntBuffer values) {
+		for(int i = 0; i < values.limit(); i++) {
+			buffer.putInt(values.get(i));
+		}
+		if((values.limit() & 1) != 0) {
+			buffer.putInt(0);
+		}
+	}
+
+	/**
+	 * @return the bytes of an int array padded to a multiple of eight bytes
+	 */
+	private static long intBytes(int length) {
+		return 4L * (length + (length & 1));
+	}
+
+	/**
+	 * @return a view of ints of a byte buffer
+	 */
+	private static IntBuffer intView(ByteBuffer data, int position, int length) {
+		ByteBuffer slice = data.duplicate();
+		slice.position(position);
+		slice.limit(position + 4 * length);
+		return slice.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	}
+
+	/**
+	 * The SearchSpace class holds the scratch arrays of the pruned search of
+	 * one thread. A component is visited in the current search if its stamp
+	 * equals the current epoch, so the stamps do not have to be cleared.
+	 */
+	private static class SearchSpace {
+		private int[] stamps;
+		private int[] stack;
+		private int epoch;
+
+		SearchSpace(int size) {
+			this.stamps = new int[size];
+			this.stack = new int[size];
+		}
+
+		/**
+		 * @return the epoch of a new search
+		 */
+		int nextEpoch() {
+			if(++epoch == 0) { // the stamps wrapped around, so clear them
+				Arrays.fill(stamps, 0);
+				epoch = 1;
+			}
+			return epoch;
+		}
+	}
+
+}
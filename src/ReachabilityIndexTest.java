@@ -0,0 +1,240 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case class for the ReachabilityIndex class. This class tests all public
+ * methods of the ReachabilityIndex class for proper and expected functionality.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class ReachabilityIndexTest {
+	// private class variables
+	private Maze maze;
+	private MazeCell cellOne;
+	private MazeCell cellTwo;
+	private MazeCell cellThree;
+	private MazeCell cellFour;
+	private MazeCell cellFive;
+	private MazeCell outsider;
+
+	/**
+	 * Creates a Maze with a cycle, a dead end and an impassable passage.
+	 */
+	@Before
+	public void generateMaze() {
+		cellOne = new MazeCell();
+		cellTwo = new MazeCell();
+		cellThree = new MazeCell();
+		cellFour = new MazeCell();
+		cellFive = new MazeCell();
+		outsider = new MazeCell();
+		outsider.addPassages(new HashMap<MazeCell, Integer>(), new MazeCell.Status());
+		/*
+		 * cellOne -1-> cellTwo
+		 * cellTwo -1-> cellOne
+		 * cellTwo -2-> cellThree
+		 * cellThree -//-> cellFour
+		 * cellFour -3-> cellFive
+		 * cellFive -1-> outsider
+		 */
+		Map<MazeCell, Integer> map = new HashMap<MazeCell, Integer>();
+		map.put(cellTwo, new Integer(1));
+		cellOne.addPassages(map, new MazeCell.Status());
+		map = new HashMap<MazeCell, Integer>();
+		map.put(cellOne, new Integer(1));
+		map.put(cellThree, new Integer(2));
+		cellTwo.addPassages(map, new MazeCell.Status());
+		map = new HashMap<MazeCell, Integer>();
+		map.put(cellFour, new Integer(MazeCell.IMPASSABLE));
+		cellThree.addPassages(map, new MazeCell.Status());
+		map = new HashMap<MazeCell, Integer>();
+		map.put(cellFive, new Integer(3));
+		cellFour.addPassages(map, new MazeCell.Status());
+		map = new HashMap<MazeCell, Integer>();
+		map.put(outsider, new Integer(1));
+		cellFive.addPassages(map, new MazeCell.Status());
+		Set<MazeCell> cells = new HashSet<MazeCell>();
+		cells.add(cellOne);
+		cells.add(cellTwo);
+		cells.add(cellThree);
+		cells.add(cellFour);
+		cells.add(cellFive);
+		maze = new Maze();
+		try {
+			maze.addCells(cells);
+		} catch(UninitializedObjectException e) {
+			fail("Initialization of the Maze failed");
+		}
+	}
+
+	/**
+	 * Tests the canReach() method on a small maze.
+	 */
+	@Test
+	public void testCanReach() {
+		try {
+			ReachabilityIndex index = maze.reachabilityIndex();
+			// test cells within a cycle
+			assertTrue("canReach() is incorrect within a cycle", index.canReach(cellOne, cellTwo));
+			assertTrue("canReach() is incorrect within a cycle", index.canReach(cellTwo, cellOne));
+			// test a cell reaching itself
+			assertTrue("canReach() is incorrect for the same cell", index.canReach(cellThree, cellThree));
+			// test reaching a cell outside of the cycle
+			assertTrue("canReach() is incorrect when leaving a cycle", index.canReach(cellOne, cellThree));
+			assertFalse("canReach() is incorrect against the passage direction", index.canReach(cellThree, cellOne));
+			// test an impassable passage
+			assertFalse("canReach() should not follow impassable passages", index.canReach(cellOne, cellFive));
+			assertTrue("canReach() is incorrect for a single passage", index.canReach(cellFour, cellFive));
+			// test a cell that is not in the maze
+			assertFalse("canReach() should not reach cells outside of the maze", index.canReach(cellFive, outsider));
+			assertEquals("componentCount() is incorrect", 4, index.componentCount());
+			assertTrue("Maze canReach() does not match the index", maze.canReach(cellTwo, cellOne));
+		} catch(UninitializedObjectException e) {
+			fail("reachabilityIndex() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests the canReach() method on a maze that is too large for a bitset closure.
+	 */
+	@Test
+	public void testCanReachLargeMaze() {
+		try {
+			// build a chain of single passages with a side branch every tenth cell
+			int length = ReachabilityIndex.BITSET_COMPONENT_LIMIT + 100;
+			MazeCell[] chain = new MazeCell[length];
+			MazeCell[] branches = new MazeCell[length];
+			for(int i = 0; i < length; i++) {
+				chain[i] = new MazeCell();
+			}
+			Set<MazeCell> cells = new HashSet<MazeCell>();
+			for(int i = length - 1; i >= 0; i--) {
+				Map<MazeCell, Integer> map = new HashMap<MazeCell, Integer>();
+				if(i + 1 < length) {
+					map.put(chain[i + 1], new Integer(1));
+				}
+				if(i % 10 == 0) {
+					branches[i] = new MazeCell();
+					branches[i].addPassages(new HashMap<MazeCell, Integer>(), new MazeCell.Status());
+					map.put(branches[i], new Integer(1));
+					cells.add(branches[i]);
+				}
+				chain[i].addPassages(map, new MazeCell.Status());
+				cells.add(chain[i]);
+			}
+			Maze large = new Maze();
+			large.addCells(cells);
+			assertTrue("canReach() is incorrect along a long chain", large.canReach(chain[0], chain[length - 1]));
+			assertTrue("canReach() is incorrect for a late branch", large.canReach(chain[5], branches[4000]));
+			assertFalse("canReach() is incorrect against a long chain", large.canReach(chain[length - 1], chain[0]));
+			assertFalse("canReach() is incorrect for an earlier branch", large.canReach(chain[25], branches[10]));
+			assertFalse("canReach() is incorrect from a branch", large.canReach(branches[20], chain[30]));
+			// searches of several threads share the index
+			final ReachabilityIndex index = large.reachabilityIndex();
+			final MazeCell[] path = chain;
+			final MazeCell[] sides = branches;
+			final AtomicInteger wrong = new AtomicInteger();
+			Thread[] threads = new Thread[4];
+			for(int t = 0; t < threads.length; t++) {
+				final int seed = t;
+				threads[t] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						Random random = new Random(seed);
+						for(int q = 0; q < 2000; q++) {
+							int from = random.nextInt(path.length);
+							int to = random.nextInt(path.length / 10) * 10;
+							if(index.canReach(path[from], sides[to]) != (from <= to)
+									|| index.canReach(path[from], path[to]) != (from <= to)) {
+								wrong.incrementAndGet();
+							}
+						}
+					}
+				});
+				threads[t].start();
+			}
+			for(Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals("canReach() is incorrect when called by several threads", 0, wrong.get());
+		} catch(InterruptedException e) {
+			fail("the threads of canReach() were interrupted");
+		} catch(UninitializedObjectException e) {
+			fail("canReach() method generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests the writeTo() method and restoring the index with Maze.loadReachabilityIndex().
+	 */
+	@Test
+	public void testPersistence() {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			maze.reachabilityIndex().writeTo(out);
+			// restoring is refused once the maze has an index
+			assertFalse("loadReachabilityIndex() should not replace an existing index",
+					maze.loadReachabilityIndex(new ByteArrayInputStream(out.toByteArray())));
+			// restore into a second maze made of the same cells
+			Maze copy = new Maze();
+			Set<MazeCell> cells = new HashSet<MazeCell>();
+			cells.add(cellOne);
+			cells.add(cellTwo);
+			cells.add(cellThree);
+			cells.add(cellFour);
+			cells.add(cellFive);
+			copy.addCells(cells);
+			assertTrue("loadReachabilityIndex() did not restore the index",
+					copy.loadReachabilityIndex(new ByteArrayInputStream(out.toByteArray())));
+			assertTrue("Restored index is incorrect", copy.canReach(cellOne, cellThree));
+			assertFalse("Restored index is incorrect", copy.canReach(cellThree, cellFour));
+			// restoring into a different maze fails
+			Maze other = new Maze();
+			other.addCells(new HashSet<MazeCell>());
+			try {
+				other.loadReachabilityIndex(new ByteArrayInputStream(out.toByteArray()));
+				fail("loadReachabilityIndex() should reject an index of a different maze");
+			} catch(IOException e) {
+				// test passed because exception was thrown
+			}
+		} catch(IOException e) {
+			fail("Persisting the index generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("Persisting the index generated an UninitializedObjectException incorrectly");
+		}
+	}
+
+	/**
+	 * Tests that an invalid Maze cannot build an index.
+	 */
+	@Test
+	public void testExceptionThrowing() {
+		Maze test = new Maze();
+		try {
+			test.reachabilityIndex();
+			fail("reachabilityIndex() method should have thrown an UninitializedObjectException");
+		} catch(UninitializedObjectException e) {
+			// test passed because exception was thrown
+		}
+		try {
+			test.canReach(cellOne, cellTwo);
+			fail("canReach() method should have thrown an UninitializedObjectException");
+		} catch(UninitializedObjectException e) {
+			// test passed because exception was thrown
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+/**
+ * The ReversedGraph class is a view of a PassageGraph in which every passage
+ * leads the other way: the passages of a cell are the incoming passages of the
+ * cell in the underlying graph, and the reverse. Both directions are already
+ * indexed by every PassageGraph, so the view costs nothing to create, and any
+ * algorithm or WalkSelector written for passages runs backward on it
+ * unchanged, for example to walk or search from an exit toward the cells that
+ * lead to it.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class ReversedGraph implements PassageGraph {
+	// private class variables
+	private PassageGraph graph;
+
+	/**
+	 * Constructor of the ReversedGraph class.
+	 *
+	 * @param graph - the graph to reverse
+	 */
+	ReversedGraph(PassageGraph graph) {
+		this.graph = graph;
+	}
+
+	@Override
+	public int cellCount() {
+		return graph.cellCount();
+	}
+
+	@Override
+	public long passageCount() {
+		return graph.passageCount();
+	}
+
+	@Override
+	public int passageCount(int cell) {
+		return graph.incomingCount(cell);
+	}
+
+	@Override
+	public int passageTarget(int cell, int passage) {
+		return graph.incomingSource(cell, passage);
+	}
+
+	@Override
+	public int passageTime(int cell, int passage) {
+		return graph.incomingTime(cell, passage);
+	}
+
+	@Override
+	public int incomingCount(int cell) {
+		return graph.passageCount(cell);
+	}
+
+	@Override
+	public int incomingSource(int cell, int passage) {
+		return graph.passageTarget(cell, passage);
+	}
+
+	@Override
+	public int incomingTime(int cell, int passage) {
+		return graph.passageTime(cell, passage);
+	}
+
+	@Override
+	public MazeCell cellAt(int index) {
+		return graph.cellAt(index);
+	}
+
+	@Override
+	public int indexOf(MazeCell cell) {
+		return graph.indexOf(cell);
+	}
+
+}
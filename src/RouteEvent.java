@@ -0,0 +1,40 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The RouteEvent class is a Java Flight Recorder event describing one walk of
+ * Maze.route() or Maze.walk(). Its fields are only filled in when the event is
+ * enabled and lasted longer than its threshold.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+@Name("maze.Route")
+@Label("Maze Route")
+@Category("Maze")
+@Description("A walk through a Maze guided by a selector")
+class RouteEvent extends Event {
+	// termination reasons
+	final static String EXIT = "exit";
+	final static String REVISIT = "revisit";
+	final static String DEAD_END = "dead end";
+	final static String NOT_IN_MAZE = "not in maze";
+	final static String NO_SELECTOR = "no selector";
+	final static String STOPPED = "stopped";
+
+	@Label("Maze ID")
+	int mazeId;
+
+	@Label("Selector")
+	Class<?> selector;
+
+	@Label("Steps")
+	@Description("The number of passages taken")
+	int steps;
+
+	@Label("Termination Reason")
+	String terminationReason;
+}
@@ -0,0 +1,578 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The RouteLog class reads a compact, append-only file of routes through one
+ * Maze written by a RouteLog.Writer. Every route is stored as the indices of
+ * its cells in the Maze's PassageGraph: the number of cells and the first
+ * index as varints, followed by the difference of every further index to the
+ * one before it as a zigzag varint, so that neighboring cells take one or two
+ * bytes each. Routes are grouped in blocks, each with a header giving its
+ * number of routes and its length, and the file ends with an index of the
+ * offsets of the blocks. The file also records the fingerprint of its Maze so
+ * that it is never read for a different maze.
+ *
+ * A log is read through memory mappings of its blocks. Single routes are
+ * found by a binary search of the block index, and iterator() decodes all
+ * routes from a given one onward in order. If the writer did not close the
+ * log, the blocks are found by following their headers instead of the index.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class RouteLog implements Closeable {
+	// private class constants
+	private final static int MAGIC = 0x4D5A524C;
+	private final static int FORMAT_VERSION = 1;
+	private final static int HEADER_SIZE = 32;
+	private final static int BLOCK_MAGIC = 0x424C4B31;
+	private final static int BLOCK_HEADER_SIZE = 12;
+	private final static int INDEX_MAGIC = 0x49445831;
+	private final static int TRAILER_SIZE = 24;
+
+	// private class variables
+	private PassageGraph graph;
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long[] blockOffsets;
+	private long[] firstRoutes; // the number of the first route of every block, plus the total at the end
+	private ByteBuffer[] blocks; // the mapped payload of every block, mapped on first use
+
+	/**
+	 * Constructor of the RouteLog class which opens a log for reading.
+	 */
+	private RouteLog(PassageGraph graph, RandomAccessFile file, BlockIndex index) {
+		this.graph = graph;
+		this.file = file;
+		this.channel = file.getChannel();
+		this.blockOffsets = Arrays.copyOf(index.offsets, index.blockCount);
+		this.firstRoutes = Arrays.copyOf(index.firstRoutes, index.blockCount + 1);
+		firstRoutes[index.blockCount] = index.total;
+		this.blocks = new ByteBuffer[blockOffsets.length];
+	}
+
+	/**
+	 * Opens a log for appending routes, creating the file if it does not exist.
+	 *
+	 * @param file - the file of the log
+	 * @param maze - the Maze the routes go through
+	 * @return a Writer that appends routes after the routes already in the log
+	 * @throws IOException if the file cannot be written or belongs to a different Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public static Writer append(File file, Maze maze) throws IOException, UninitializedObjectException {
+		return new Writer(file, maze.graph());
+	}
+
+	/**
+	 * Opens a log for reading.
+	 *
+	 * @param file - the file of the log
+	 * @param maze - the Maze the routes go through
+	 * @return a RouteLog backed by the file
+	 * @throws IOException if the file cannot be read, does not contain a route log,
+	 * or belongs to a different Maze
+	 * @throws UninitializedObjectException only thrown if the Maze is invalid
+	 */
+	public static RouteLog open(File file, Maze maze) throws IOException, UninitializedObjectException {
+		PassageGraph graph = maze.graph();
+		RandomAccessFile stream = new RandomAccessFile(file, "r");
+		try {
+			BlockIndex index = readIndex(stream.getChannel(), graph);
+			return new RouteLog(graph, stream, index);
+		} catch(IOException e) {
+			stream.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the number of routes in the log
+	 */
+	public long routeCount() {
+		return firstRoutes[firstRoutes.length - 1];
+	}
+
+	/**
+	 * Reads the cells of one route.
+	 *
+	 * @param route - the number of the route, counted from 0 in the order of appending
+	 * @return the indices of the cells of the route in the Maze's PassageGraph
+	 * @throws IOException if the log is damaged
+	 */
+	public int[] cells(long route) throws IOException {
+		if(route < 0 || route >= routeCount()) {
+			throw new IndexOutOfBoundsException("No route " + route + " in a log of " + routeCount());
+		}
+		return readRoute(positionAt(blockOf(route), route));
+	}
+
+	/**
+	 * Reads one route as a MazeRoute.
+	 *
+	 * @param route - the number of the route, counted from 0 in the order of appending
+	 * @return a MazeRoute of the cells of the route
+	 * @throws IOException if the log is damaged
+	 * @throws UninitializedObjectException only thrown if a MazeCell is invalid
+	 */
+	public MazeRoute route(long route) throws IOException, UninitializedObjectException {
+		return toMazeRoute(cells(route));
+	}
+
+	/**
+	 * Converts the cell indices of a route into a MazeRoute.
+	 *
+	 * @param cells - the indices of the cells in the Maze's PassageGraph
+	 * @return a MazeRoute of the cells
+	 * @throws UninitializedObjectException only thrown if a MazeCell is invalid
+	 */
+	public MazeRoute toMazeRoute(int[] cells) throws UninitializedObjectException {
+		List<MazeCell> path = new LinkedList<MazeCell>();
+		for(int cell : cells) {
+			path.add(graph.cellAt(cell));
+		}
+		MazeRoute mazeRoute = new MazeRoute();
+		mazeRoute.addCells(path);
+		return mazeRoute;
+	}
+
+	/**
+	 * Streams the cells of the routes of the log in order, decoding every block
+	 * once. A damaged block ends the iteration with an IllegalStateException.
+	 *
+	 * @param first - the number of the first route to return
+	 * @return an Iterator over the cell indices of every route from the first one on
+	 */
+	public Iterator<int[]> iterator(final long first) {
+		if(first < 0 || first > routeCount()) {
+			throw new IndexOutOfBoundsException("No route " + first + " in a log of " + routeCount());
+		}
+		return new Iterator<int[]>() {
+			private long route = first;
+			private int block = -1;
+			private ByteBuffer data;
+
+			@Override
+			public boolean hasNext() {
+				return route < routeCount();
+			}
+
+			@Override
+			public int[] next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				try {
+					if(data == null) {
+						block = blockOf(route);
+						data = positionAt(block, route);
+					} else if(route == firstRoutes[block + 1]) {
+						data = block(++block);
+					}
+					route++;
+					return readRoute(data);
+				} catch(IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Closes the file of the log. The routes can no longer be read afterwards.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * @return the block that contains a route
+	 */
+	private int blockOf(long route) {
+		int block = Arrays.binarySearch(firstRoutes, route);
+		return block < 0 ? -block - 2 : block; // the last block starting before the route
+	}
+
+	/**
+	 * @return a view of the payload of a block positioned at one of its routes
+	 */
+	private ByteBuffer positionAt(int block, long route) throws IOException {
+		ByteBuffer data = block(block);
+		for(long skipped = firstRoutes[block]; skipped < route; skipped++) {
+			skipRoute(data);
+		}
+		return data;
+	}
+
+	/**
+	 * Maps the payload of a block into memory on first use.
+	 *
+	 * @return a new view of the payload, positioned at its first route
+	 */
+	private ByteBuffer block(int block) throws IOException {
+		if(blocks[block] == null) {
+			ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, blockOffsets[block]);
+			blocks[block] = channel.map(FileChannel.MapMode.READ_ONLY, blockOffsets[block] + BLOCK_HEADER_SIZE,
+					header.getInt(8));
+		}
+		return blocks[block].duplicate();
+	}
+
+	/**
+	 * Decodes the route at the position of the buffer.
+	 */
+	private int[] readRoute(ByteBuffer data) throws IOException {
+		int length = readVarint(data);
+		int[] cells = new int[length];
+		int cell = 0;
+		for(int i = 0; i < length; i++) {
+			int value = readVarint(data);
+			cell = i == 0 ? value : cell + ((value >>> 1) ^ -(value & 1));
+			if(cell < 0 || cell >= graph.cellCount()) {
+				throw new IOException("The route log contains a cell that is not in the maze");
+			}
+			cells[i] = cell;
+		}
+		return cells;
+	}
+
+	/**
+	 * Moves the position of the buffer past one route.
+	 */
+	private void skipRoute(ByteBuffer data) throws IOException {
+		int length = readVarint(data);
+		for(int i = 0; i < length; i++) {
+			readVarint(data);
+		}
+	}
+
+	/**
+	 * Decodes an unsigned varint: seven bits per byte, least significant first,
+	 * with the high bit set on every byte but the last.
+	 */
+	private static int readVarint(ByteBuffer data) throws IOException {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			if(!data.hasRemaining()) {
+				throw new IOException("The route log is truncated");
+			}
+			byte b = data.get();
+			value |= (b & 0x7F) << shift;
+			if(b >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("The route log contains an invalid number");
+	}
+
+	/**
+	 * Reads the header of a log and the offsets of its blocks, from the index at
+	 * the end of the file or, if there is none, by following the block headers.
+	 */
+	private static BlockIndex readIndex(FileChannel channel, PassageGraph graph) throws IOException {
+		long size = channel.size();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		if(size < HEADER_SIZE) {
+			throw new IOException("The file does not contain a route log");
+		}
+		readFully(channel, header, 0);
+		if(header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("The file does not contain a route log");
+		}
+		if(header.getLong(8) != IndexSnapshot.fingerprint(graph) || header.getInt(16) != graph.cellCount()) {
+			throw new IOException("The route log was written for a different maze");
+		}
+		BlockIndex index = new BlockIndex();
+		if(size >= HEADER_SIZE + TRAILER_SIZE) {
+			ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, trailer, size - TRAILER_SIZE);
+			long indexOffset = trailer.getLong(0);
+			long total = trailer.getLong(8);
+			int blockCount = trailer.getInt(16);
+			if(trailer.getInt(20) == INDEX_MAGIC && blockCount >= 0 && indexOffset >= HEADER_SIZE
+					&& indexOffset + 16L * blockCount + TRAILER_SIZE == size) {
+				ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, 16L * blockCount)
+						.order(ByteOrder.LITTLE_ENDIAN);
+				for(int b = 0; b < blockCount; b++) {
+					long offset = entries.getLong(16 * b);
+					long firstRoute = entries.getLong(16 * b + 8);
+					long nextRoute = b + 1 < blockCount ? entries.getLong(16 * b + 24) : total;
+					index.add(offset, firstRoute, (int)(nextRoute - firstRoute));
+				}
+				index.end = indexOffset;
+				return index;
+			}
+		}
+		// the log was not closed, so find its complete blocks from their headers
+		long position = HEADER_SIZE;
+		long routes = 0;
+		ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while(position + BLOCK_HEADER_SIZE <= size) {
+			blockHeader.clear();
+			readFully(channel, blockHeader, position);
+			int routeCount = blockHeader.getInt(4);
+			int length = blockHeader.getInt(8);
+			if(blockHeader.getInt(0) != BLOCK_MAGIC || routeCount < 0 || length < 0
+					|| position + BLOCK_HEADER_SIZE + length > size) {
+				break;
+			}
+			index.add(position, routes, routeCount);
+			routes += routeCount;
+			position += BLOCK_HEADER_SIZE + length;
+		}
+		index.end = position;
+		return index;
+	}
+
+	/**
+	 * Reads bytes from a position of a channel until the buffer is full.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if(read < 0) {
+				throw new IOException("The route log is truncated");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * The BlockIndex class collects the offsets and first routes of the blocks of a log.
+	 */
+	private static class BlockIndex {
+		private long[] offsets = new long[16];
+		private long[] firstRoutes = new long[16];
+		private int blockCount;
+		private long end; // the offset just past the last block
+		private long total; // the number of routes in the blocks
+
+		/**
+		 * Appends a block of routes.
+		 */
+		void add(long offset, long firstRoute, int routeCount) {
+			if(blockCount == offsets.length) {
+				offsets = Arrays.copyOf(offsets, blockCount * 2);
+				firstRoutes = Arrays.copyOf(firstRoutes, blockCount * 2);
+			}
+			offsets[blockCount] = offset;
+			firstRoutes[blockCount] = firstRoute;
+			blockCount++;
+			total = firstRoute + routeCount;
+		}
+	}
+
+	/**
+	 * The Writer class appends routes to a log. Routes are encoded into a block
+	 * in memory, and every full block is written to the file through a FileChannel
+	 * with one call. close() writes the final block and the block index; a log
+	 * whose Writer was not closed keeps every block written before, and appending
+	 * to it later continues after its last complete block.
+	 */
+	public static class Writer implements Closeable {
+		// private class constants
+		private final static int BLOCK_ROUTES = 4096; // routes per block
+		private final static int BLOCK_BYTES = 1 << 16; // payload size at which a block is written early
+
+		// private class variables
+		private PassageGraph graph;
+		private RandomAccessFile file;
+		private FileChannel channel;
+		private long position; // the offset at which the next block is written
+		private long routeCount;
+		private BlockIndex index; // the blocks written so far
+		private ByteBuffer block; // the header and payload of the current block
+		private int blockRoutes;
+
+		/**
+		 * Constructor of the Writer class which opens or creates a log.
+		 */
+		private Writer(File file, PassageGraph graph) throws IOException {
+			this.graph = graph;
+			this.file = new RandomAccessFile(file, "rw");
+			this.channel = this.file.getChannel();
+			try {
+				if(channel.size() == 0) {
+					ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+					header.putInt(MAGIC);
+					header.putInt(FORMAT_VERSION);
+					header.putLong(IndexSnapshot.fingerprint(graph));
+					header.putInt(graph.cellCount());
+					header.position(HEADER_SIZE);
+					header.flip();
+					writeFully(header, 0);
+					index = new BlockIndex();
+					index.end = HEADER_SIZE;
+				} else {
+					index = readIndex(channel, graph);
+				}
+				position = index.end;
+				routeCount = index.total;
+				// the index is written again on close, after the new blocks
+				channel.truncate(position);
+			} catch(IOException e) {
+				this.file.close();
+				throw e;
+			}
+			this.block = ByteBuffer.allocate(BLOCK_BYTES + 1024).order(ByteOrder.LITTLE_ENDIAN);
+			block.position(BLOCK_HEADER_SIZE);
+		}
+
+		/**
+		 * Appends a route given by its MazeCells.
+		 *
+		 * @param route - a MazeRoute through the Maze of the log
+		 * @return the number of the route in the log
+		 * @throws IOException if the log cannot be written
+		 * @throws UninitializedObjectException only thrown if the MazeRoute is invalid
+		 */
+		public long append(MazeRoute route) throws IOException, UninitializedObjectException {
+			List<MazeCell> cells = route.getCells();
+			int[] indices = new int[cells.size()];
+			int i = 0;
+			for(MazeCell cell : cells) {
+				indices[i++] = graph.indexOf(cell);
+			}
+			return append(indices);
+		}
+
+		/**
+		 * Appends a route given by the indices of its cells in the Maze's PassageGraph.
+		 *
+		 * @param cells - the indices of the cells of the route in order of traversal
+		 * @return the number of the route in the log
+		 * @throws IOException if the log cannot be written
+		 */
+		public long append(int[] cells) throws IOException {
+			for(int cell : cells) {
+				if(cell < 0 || cell >= graph.cellCount()) {
+					throw new IllegalArgumentException("The route contains a cell that is not in the maze");
+				}
+			}
+			ensureRemaining(5 * (cells.length + 1));
+			writeVarint(cells.length);
+			for(int i = 0; i < cells.length; i++) {
+				if(i == 0) {
+					writeVarint(cells[0]);
+				} else {
+					int delta = cells[i] - cells[i - 1];
+					writeVarint((delta << 1) ^ (delta >> 31));
+				}
+			}
+			blockRoutes++;
+			long route = routeCount++;
+			if(blockRoutes == BLOCK_ROUTES || block.position() >= BLOCK_BYTES) {
+				writeBlock();
+			}
+			return route;
+		}
+
+		/**
+		 * Writes the routes appended so far to the file as a complete block.
+		 *
+		 * @throws IOException if the log cannot be written
+		 */
+		public void flush() throws IOException {
+			writeBlock();
+		}
+
+		/**
+		 * Writes the remaining routes and the block index and closes the file.
+		 *
+		 * @throws IOException if the log cannot be written
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				writeBlock();
+				ByteBuffer entries = ByteBuffer.allocate(16 * index.blockCount + TRAILER_SIZE)
+						.order(ByteOrder.LITTLE_ENDIAN);
+				for(int b = 0; b < index.blockCount; b++) {
+					entries.putLong(index.offsets[b]);
+					entries.putLong(index.firstRoutes[b]);
+				}
+				entries.putLong(position);
+				entries.putLong(routeCount);
+				entries.putInt(index.blockCount);
+				entries.putInt(INDEX_MAGIC);
+				entries.flip();
+				writeFully(entries, position);
+				channel.force(false);
+			} finally {
+				file.close();
+			}
+		}
+
+		/**
+		 * Writes the current block, if it has any routes, and starts a new one.
+		 */
+		private void writeBlock() throws IOException {
+			if(blockRoutes == 0) {
+				return;
+			}
+			int length = block.position() - BLOCK_HEADER_SIZE;
+			block.putInt(0, BLOCK_MAGIC);
+			block.putInt(4, blockRoutes);
+			block.putInt(8, length);
+			block.flip();
+			writeFully(block, position);
+			index.add(position, routeCount - blockRoutes, blockRoutes);
+			position += BLOCK_HEADER_SIZE + length;
+			block.clear();
+			block.position(BLOCK_HEADER_SIZE);
+			blockRoutes = 0;
+		}
+
+		/**
+		 * Grows the block buffer for routes longer than a block.
+		 */
+		private void ensureRemaining(int bytes) {
+			if(block.remaining() < bytes) {
+				ByteBuffer larger = ByteBuffer.allocate(block.position() + bytes).order(ByteOrder.LITTLE_ENDIAN);
+				block.flip();
+				larger.put(block);
+				block = larger;
+			}
+		}
+
+		/**
+		 * Encodes an unsigned varint into the block.
+		 */
+		private void writeVarint(int value) {
+			while((value & ~0x7F) != 0) {
+				block.put((byte)((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			block.put((byte)value);
+		}
+
+		/**
+		 * Writes the whole buffer at a position of the file.
+		 */
+		private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+			while(buffer.hasRemaining()) {
+				offset += channel.write(buffer, offset);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,203 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the RouteLog class. This class tests all public
+ * methods of the RouteLog class for proper and expected functionality.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class RouteLogTest {
+
+	/**
+	 * Builds a ring of 1000 cells in which every cell leads to the next one.
+	 *
+	 * @param time - the time of the passage out of the first cell
+	 * @return the builder of the maze, after the maze was built
+	 */
+	private MazeBuilder buildRing(int time) {
+		MazeBuilder builder = new MazeBuilder(1000);
+		builder.addCells(1000);
+		for(int cell = 0; cell < 1000; cell++) {
+			builder.addPassage(cell, (cell + 1) % 1000, cell == 0 ? time : 1);
+		}
+		return builder;
+	}
+
+	/**
+	 * @return a route of the ring from a cell with the given number of passages
+	 */
+	private int[] ringRoute(int start, int passages) {
+		int[] cells = new int[passages + 1];
+		for(int i = 0; i <= passages; i++) {
+			cells[i] = (start + i) % 1000;
+		}
+		return cells;
+	}
+
+	/**
+	 * Tests writing many routes over several blocks and reading them back at
+	 * random and in order.
+	 */
+	@Test
+	public void testWriteAndRead() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".routes");
+			Maze maze = buildRing(1).build();
+			Random random = new Random(46);
+			int[][] routes = new int[10000][];
+			RouteLog.Writer writer = RouteLog.append(file, maze);
+			for(int r = 0; r < routes.length; r++) {
+				routes[r] = ringRoute(random.nextInt(1000), random.nextInt(r % 100 == 0 ? 2000 : 20));
+				assertEquals("append() returns the wrong route number", r, writer.append(routes[r]));
+			}
+			writer.close();
+			assertTrue("the log is not compact", file.length() < 10000L * 20 * 2);
+			RouteLog log = RouteLog.open(file, buildRing(1).build());
+			assertEquals("routeCount() is incorrect", routes.length, log.routeCount());
+			for(int i = 0; i < 500; i++) {
+				int r = random.nextInt(routes.length);
+				assertArrayEquals("cells() returns the wrong route", routes[r], log.cells(r));
+			}
+			Iterator<int[]> iterator = log.iterator(4000);
+			for(int r = 4000; r < routes.length; r++) {
+				assertTrue("iterator() ends early", iterator.hasNext());
+				assertArrayEquals("iterator() returns the wrong route", routes[r], iterator.next());
+			}
+			assertFalse("iterator() does not end", iterator.hasNext());
+			try {
+				log.cells(routes.length);
+				fail("cells() accepted a route that is not in the log");
+			} catch(IndexOutOfBoundsException e) {
+				// expected
+			}
+			log.close();
+		} catch(IOException e) {
+			fail("RouteLog generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("RouteLog generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Tests appending MazeRoutes and reading them back as MazeRoutes.
+	 */
+	@Test
+	public void testMazeRoutes() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".routes");
+			MazeBuilder builder = buildRing(1);
+			Maze maze = builder.build();
+			MazeRoute route = maze.routeShortest(builder.cellAt(998), builder.cellAt(3));
+			RouteLog.Writer writer = RouteLog.append(file, maze);
+			writer.append(route);
+			MazeRoute empty = new MazeRoute();
+			empty.addCells(new LinkedList<MazeCell>());
+			writer.append(empty);
+			writer.close();
+			RouteLog log = RouteLog.open(file, maze);
+			List<MazeCell> cells = log.route(0).getCells();
+			assertEquals("route() returns the wrong cells", route.getCells(), cells);
+			assertEquals("route() returns the wrong travel time", route.travelTime(), log.route(0).travelTime());
+			assertEquals("an empty route is not stored", 0, log.cells(1).length);
+			log.close();
+		} catch(IOException e) {
+			fail("RouteLog generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("RouteLog generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Tests that appending continues a closed log and a log whose writer was
+	 * not closed, keeping every route that was flushed.
+	 */
+	@Test
+	public void testAppendAndRecover() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".routes");
+			Maze maze = buildRing(1).build();
+			RouteLog.Writer writer = RouteLog.append(file, maze);
+			writer.append(ringRoute(0, 5));
+			writer.close();
+			writer = RouteLog.append(file, maze);
+			assertEquals("append() does not continue a closed log", 1, writer.append(ringRoute(10, 5)));
+			writer.flush();
+			writer.append(ringRoute(20, 5)); // never flushed, as if the process died
+			RouteLog log = RouteLog.open(file, maze);
+			assertEquals("open() does not recover the flushed routes", 2, log.routeCount());
+			assertArrayEquals("open() recovers the wrong route", ringRoute(10, 5), log.cells(1));
+			log.close();
+			writer = RouteLog.append(file, maze);
+			assertEquals("append() does not continue an unclosed log", 2, writer.append(ringRoute(30, 5)));
+			writer.close();
+			log = RouteLog.open(file, maze);
+			assertEquals("routeCount() is incorrect after recovery", 3, log.routeCount());
+			assertArrayEquals("the recovered log is incorrect", ringRoute(30, 5), log.cells(2));
+			log.close();
+		} catch(IOException e) {
+			fail("RouteLog generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("RouteLog generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Tests that a log is rejected for a different maze.
+	 */
+	@Test
+	public void testDifferentMaze() {
+		File file = null;
+		try {
+			file = File.createTempFile("maze", ".routes");
+			RouteLog.Writer writer = RouteLog.append(file, buildRing(1).build());
+			writer.append(ringRoute(0, 5));
+			writer.close();
+			try {
+				RouteLog.open(file, buildRing(3).build());
+				fail("open() accepted a log of a different maze");
+			} catch(IOException e) {
+				// expected
+			}
+			try {
+				RouteLog.append(file, buildRing(3).build());
+				fail("append() accepted a log of a different maze");
+			} catch(IOException e) {
+				// expected
+			}
+		} catch(IOException e) {
+			fail("RouteLog generated an IOException incorrectly");
+		} catch(UninitializedObjectException e) {
+			fail("RouteLog generated an UninitializedObjectException incorrectly");
+		} finally {
+			if(file != null) {
+				file.delete();
+			}
+		}
+	}
+
+}
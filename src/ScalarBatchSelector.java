@@ -0,0 +1,49 @@
+/**
+ * The ScalarBatchSelector class lets a PassageSelector that only chooses one
+ * cell at a time be used where a BatchPassageSelector is expected, by asking
+ * it about each walker in turn.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class ScalarBatchSelector implements BatchPassageSelector {
+	// private class variables
+	private PassageSelector passageSelector;
+
+	/**
+	 * Constructor of the ScalarBatchSelector class.
+	 *
+	 * @param passageSelector - the PassageSelector to ask
+	 */
+	ScalarBatchSelector(PassageSelector passageSelector) {
+		this.passageSelector = passageSelector;
+	}
+
+	/**
+	 * Determines the BatchPassageSelector to use for a PassageSelector.
+	 *
+	 * @param passageSelector - any PassageSelector
+	 * @return the PassageSelector itself if it chooses in batches, otherwise a
+	 * ScalarBatchSelector asking it about each walker
+	 */
+	static BatchPassageSelector of(PassageSelector passageSelector) {
+		if(passageSelector instanceof BatchPassageSelector) {
+			return (BatchPassageSelector)passageSelector;
+		}
+		return new ScalarBatchSelector(passageSelector);
+	}
+
+	@Override
+	public void nextCells(PassageGraph graph, int[] current, int[] next, int count) {
+		try {
+			for(int i = 0; i < count; i++) {
+				MazeCell cell = passageSelector.nextCell(graph.cellAt(current[i]));
+				next[i] = cell == null ? -1 : graph.indexOf(cell);
+			}
+		} catch(UninitializedObjectException e) {
+			// every cell of a PassageGraph is valid
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+import java.util.Arrays;
+
+/**
+ * The SymmetricPassages class sorts the passages of one cell of a PassageGraph
+ * into the symmetric pairs the cell shares with its neighbors and the directed
+ * passages left over. A passage from the cell to a neighbor forms a pair with a
+ * passage from the neighbor back to the cell with the same time; every other
+ * passage, including a passage from a cell to itself, is directed. MazeGraph
+ * and MappedMazeGraph use it to store every pair once, in the list of the cell
+ * with the lower index, and to keep the directed passages in a side table.
+ *
+ * Passages are handled as keys that hold the neighbor in the upper 32 bits and
+ * the time in the lower 32 bits, so sorting the keys sorts the passages by
+ * neighbor and then by time. The lists are reused for every cell, so an
+ * instance must only be used by one thread at a time.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+class SymmetricPassages {
+	// private class variables
+	private long[] outgoing = new long[16];
+	private long[] incoming = new long[16];
+	private long[] lower = new long[16]; // pairs with a neighbor of a lower index
+	private long[] upper = new long[16]; // pairs with a neighbor of a higher index
+	private long[] directedOut = new long[16];
+	private long[] directedIn = new long[16];
+	private int lowerCount;
+	private int upperCount;
+	private int directedOutCount;
+	private int directedInCount;
+
+	/**
+	 * Sorts the passages of a cell into pairs and directed passages.
+	 *
+	 * @param graph - the graph the cell belongs to
+	 * @param cell - the index of the cell
+	 */
+	void split(PassageGraph graph, int cell) {
+		int outCount = graph.passageCount(cell);
+		int inCount = graph.incomingCount(cell);
+		outgoing = ensureCapacity(outgoing, outCount);
+		incoming = ensureCapacity(incoming, inCount);
+		for(int p = 0; p < outCount; p++) {
+			outgoing[p] = key(graph.passageTarget(cell, p), graph.passageTime(cell, p));
+		}
+		for(int p = 0; p < inCount; p++) {
+			incoming[p] = key(graph.incomingSource(cell, p), graph.incomingTime(cell, p));
+		}
+		Arrays.sort(outgoing, 0, outCount);
+		Arrays.sort(incoming, 0, inCount);
+		lower = ensureCapacity(lower, Math.min(outCount, inCount));
+		upper = ensureCapacity(upper, Math.min(outCount, inCount));
+		directedOut = ensureCapacity(directedOut, outCount);
+		directedIn = ensureCapacity(directedIn, inCount);
+		lowerCount = 0;
+		upperCount = 0;
+		directedOutCount = 0;
+		directedInCount = 0;
+		// merge the sorted lists, pairing equal keys one to one
+		int i = 0;
+		int j = 0;
+		while(i < outCount || j < inCount) {
+			if(j == inCount || (i < outCount && outgoing[i] < incoming[j])) {
+				directedOut[directedOutCount++] = outgoing[i++];
+			} else if(i == outCount || incoming[j] < outgoing[i]) {
+				directedIn[directedInCount++] = incoming[j++];
+			} else if(neighbor(outgoing[i]) == cell) {
+				directedOut[directedOutCount++] = outgoing[i++];
+				directedIn[directedInCount++] = incoming[j++];
+			} else if(neighbor(outgoing[i]) < cell) {
+				lower[lowerCount++] = outgoing[i++];
+				j++;
+			} else {
+				upper[upperCount++] = outgoing[i++];
+				j++;
+			}
+		}
+	}
+
+	/**
+	 * @return true if the cell has no directed passages in or out
+	 */
+	boolean isSymmetric() {
+		return directedOutCount == 0 && directedInCount == 0;
+	}
+
+	int lowerCount() {
+		return lowerCount;
+	}
+
+	long lower(int index) {
+		return lower[index];
+	}
+
+	int upperCount() {
+		return upperCount;
+	}
+
+	long upper(int index) {
+		return upper[index];
+	}
+
+	int directedOutCount() {
+		return directedOutCount;
+	}
+
+	long directedOut(int index) {
+		return directedOut[index];
+	}
+
+	int directedInCount() {
+		return directedInCount;
+	}
+
+	long directedIn(int index) {
+		return directedIn[index];
+	}
+
+	/**
+	 * Determines the position of a pair among the pairs with a neighbor of a
+	 * higher index. Pairs with the same neighbor and time are told apart by
+	 * the number of equal pairs before them.
+	 *
+	 * @param key - the key of the pair
+	 * @param occurrence - the number of equal pairs before the pair
+	 * @return the position of the pair in the upper list
+	 */
+	int upperIndex(long key, int occurrence) {
+		int index = Arrays.binarySearch(upper, 0, upperCount, key);
+		while(index > 0 && upper[index - 1] == key) {
+			index--;
+		}
+		return index + occurrence;
+	}
+
+	/**
+	 * @return the key of a passage
+	 */
+	static long key(int neighbor, int time) {
+		return ((long)neighbor << 32) | (time & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @return the neighbor of a passage key
+	 */
+	static int neighbor(long key) {
+		return (int)(key >>> 32);
+	}
+
+	/**
+	 * @return the time of a passage key
+	 */
+	static int time(long key) {
+		return (int)key;
+	}
+
+	/**
+	 * @return an array of at least the specified length, reusing the given one if possible
+	 */
+	private static long[] ensureCapacity(long[] array, int length) {
+		return array.length >= length ? array : new long[Math.max(length, 2 * array.length)];
+	}
+
+}
@@ -0,0 +1,327 @@
+import java.util.Arrays;
+
+/**
+ * The TravelTimeDistribution class is the probability distribution of the time
+ * MazeRoute.travelTimeRandom() returns for a route. Every passage of the route
+ * takes a time drawn uniformly from 1 to its travel time, independently of the
+ * other passages, so the total time is distributed as the convolution of these
+ * uniform distributions. The convolution is computed one passage at a time with
+ * prefix sums, which costs one pass over the possible totals per passage.
+ *
+ * Routes with at most MAX_SUPPORT possible totals get the exact distribution.
+ * Longer routes are convolved as continuous uniform distributions on a grid of
+ * at most MAX_SUPPORT buckets, and the CDF is interpolated within a bucket.
+ * Routes whose convolution would take more than MAX_WORK steps, which only
+ * happens for routes of many long passages, use a normal distribution with the
+ * exact mean and variance instead. The cumulative probabilities are kept so
+ * that the CDF is looked up in constant time and quantiles by binary search.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class TravelTimeDistribution {
+	// private class constants
+	private final static int MAX_SUPPORT = 1 << 20; // the largest number of totals or buckets
+	private final static long MAX_WORK = 1L << 25; // the largest number of steps of the convolution
+
+	// private class variables
+	private long minimum; // the smallest possible total time
+	private long maximum; // the largest possible total time
+	private long step = 1; // the number of totals in a bucket of cumulative
+	private double[] cumulative; // cumulative[i] is the probability of a total below the end of bucket i, null if normal
+	private double mean;
+	private double variance;
+
+	/**
+	 * Constructor of the TravelTimeDistribution class which convolves the uniform
+	 * distributions of the passages of a route.
+	 *
+	 * @param times - the travel time of every passage of the route, or null if the
+	 * route is impassable
+	 */
+	TravelTimeDistribution(int[] times) {
+		if(times == null) {
+			// the route always takes IMPASSABLE time
+			this.minimum = MazeCell.IMPASSABLE;
+			this.maximum = MazeCell.IMPASSABLE;
+			this.cumulative = new double[] {1.0};
+			this.mean = MazeCell.IMPASSABLE;
+			return;
+		}
+		int[] sorted = Arrays.copyOf(times, times.length);
+		Arrays.sort(sorted); // short passages first keep the arrays small for longer
+		long support = 1;
+		for(int time : sorted) {
+			minimum++;
+			support += time - 1;
+			mean += (time + 1.0) / 2;
+			variance += ((double)time * time - 1) / 12.0;
+		}
+		maximum = minimum + support - 1;
+		if(support > MAX_SUPPORT) {
+			step = (support - 2) / MAX_SUPPORT + 1;
+		}
+		// every passage costs one pass over the buckets of the passages before it and itself
+		long work = 0;
+		long spread = 0;
+		for(int time : sorted) {
+			spread += time - 1;
+			work += spread / step + 1;
+		}
+		if(work > MAX_WORK) {
+			return; // normal distribution
+		}
+		if(step == 1) {
+			convolveExact(sorted, (int)support);
+		} else {
+			convolveBuckets(sorted);
+		}
+	}
+
+	/**
+	 * Convolves the discrete uniform distributions of the passages exactly.
+	 *
+	 * @param sorted - the travel times of the passages in ascending order
+	 * @param support - the number of possible totals
+	 */
+	private void convolveExact(int[] sorted, int support) {
+		double[] probabilities = new double[support];
+		double[] next = new double[support];
+		double[] prefix = new double[support + 1];
+		probabilities[0] = 1.0;
+		int length = 1; // the number of possible totals of the passages convolved so far
+		for(int time : sorted) {
+			prefix[0] = 0;
+			for(int i = 0; i < length; i++) {
+				prefix[i + 1] = prefix[i] + probabilities[i];
+			}
+			int nextLength = length + time - 1;
+			// adding a passage of time t spreads every total evenly over t consecutive totals
+			for(int i = 0; i < nextLength; i++) {
+				double sum = prefix[Math.min(i + 1, length)] - prefix[Math.max(i + 1 - time, 0)];
+				next[i] = sum / time;
+			}
+			double[] swap = probabilities;
+			probabilities = next;
+			next = swap;
+			length = nextLength;
+		}
+		this.cumulative = new double[length];
+		double total = 0;
+		for(int i = 0; i < length; i++) {
+			total += probabilities[i];
+			cumulative[i] = total;
+		}
+		cumulative[length - 1] = 1.0; // remove the rounding error of the last total
+	}
+
+	/**
+	 * Convolves the passages as continuous uniform distributions of width one
+	 * less than their travel time, measured in buckets of step totals, so that
+	 * the convolution has the exact mean and range. The probability within a
+	 * bucket is spread evenly. Passages narrower than a bucket are merged until
+	 * they are at least one bucket wide, which keeps the differences of the
+	 * prefix sums accurate.
+	 *
+	 * @param sorted - the travel times of the passages in ascending order
+	 */
+	private void convolveBuckets(int[] sorted) {
+		int buckets = (int)((maximum - minimum + step - 1) / step);
+		double[] probabilities = new double[buckets];
+		double[] next = new double[buckets];
+		double[] below = new double[buckets + 1]; // probability below the start of each bucket
+		double[] area = new double[buckets + 1]; // integral of the CDF up to the start of each bucket
+		probabilities[0] = 1.0;
+		int length = 1;
+		double range = 0; // the width of the distribution of the passages convolved so far
+		double pending = 0;
+		for(int p = 0; p < sorted.length; p++) {
+			pending += (sorted[p] - 1) / (double)step;
+			if(pending < 1 && p < sorted.length - 1) {
+				continue;
+			}
+			if(pending == 0) {
+				break;
+			}
+			for(int i = 0; i < length; i++) {
+				below[i + 1] = below[i] + probabilities[i];
+				area[i + 1] = area[i] + below[i] + probabilities[i] / 2;
+			}
+			range += pending;
+			int nextLength = Math.min(buckets, (int)Math.ceil(range));
+			// the CDF after adding a uniform width w is the average of the CDF over the last w,
+			// so the probability of a bucket is a difference of integrals of the CDF
+			int shift = (int)Math.ceil(pending);
+			double fraction = shift - pending;
+			double previous = area(-shift, fraction, probabilities, below, area, length);
+			for(int i = 0; i < nextLength; i++) {
+				double rise = i < length ? below[i] + probabilities[i] / 2 : below[length];
+				double shifted = area(i + 1 - shift, fraction, probabilities, below, area, length);
+				next[i] = Math.max((rise - shifted + previous) / pending, 0.0);
+				previous = shifted;
+			}
+			double[] swap = probabilities;
+			probabilities = next;
+			next = swap;
+			length = nextLength;
+			pending = 0;
+		}
+		this.cumulative = new double[length];
+		double total = 0;
+		for(int i = 0; i < length; i++) {
+			total += probabilities[i];
+			cumulative[i] = total;
+		}
+		for(int i = 0; i < length; i++) {
+			cumulative[i] = Math.min(cumulative[i] / total, 1.0);
+		}
+	}
+
+	/**
+	 * Integrates the CDF of a bucketed distribution from 0 to a position.
+	 *
+	 * @param bucket - the bucket of the position
+	 * @param fraction - the fraction of the bucket before the position
+	 * @param probabilities - the probability of each bucket
+	 * @param below - the probability below the start of each bucket
+	 * @param area - the integral of the CDF up to the start of each bucket
+	 * @param length - the number of buckets
+	 * @return the integral of the CDF
+	 */
+	private static double area(int bucket, double fraction, double[] probabilities, double[] below, double[] area,
+			int length) {
+		if(bucket < 0) {
+			return 0.0;
+		}
+		if(bucket >= length) {
+			return area[length] + below[length] * (bucket - length + fraction);
+		}
+		return area[bucket] + below[bucket] * fraction + probabilities[bucket] * fraction * fraction / 2;
+	}
+
+	/**
+	 * @return true if the route cannot be travelled, false otherwise
+	 */
+	public boolean isImpassable() {
+		return minimum == MazeCell.IMPASSABLE;
+	}
+
+	/**
+	 * @return the smallest possible travel time
+	 */
+	public long min() {
+		return minimum;
+	}
+
+	/**
+	 * @return the largest possible travel time
+	 */
+	public long max() {
+		return maximum;
+	}
+
+	/**
+	 * @return the expected travel time
+	 */
+	public double mean() {
+		return mean;
+	}
+
+	/**
+	 * @return the variance of the travel time
+	 */
+	public double variance() {
+		return variance;
+	}
+
+	/**
+	 * Determines the probability of one travel time.
+	 *
+	 * @param time - the travel time
+	 * @return the probability that the route takes exactly this time
+	 */
+	public double probability(long time) {
+		if(time < minimum || time > maximum) {
+			return 0.0;
+		}
+		return cdf(time) - cdf(time - 1);
+	}
+
+	/**
+	 * Determines the cumulative probability of a travel time.
+	 *
+	 * @param time - the travel time
+	 * @return the probability that the route takes at most this time
+	 */
+	public double cdf(long time) {
+		if(time < minimum) {
+			return 0.0;
+		}
+		if(time >= maximum) {
+			return 1.0;
+		}
+		if(cumulative == null) {
+			return normalCdf((time + 0.5 - mean) / Math.sqrt(variance));
+		}
+		if(step == 1) {
+			return cumulative[(int)(time - minimum)];
+		}
+		// a total stands for the continuous times within half a unit of it
+		double position = (time - minimum + 0.5) / step;
+		int bucket = (int)position;
+		if(bucket >= cumulative.length) {
+			return 1.0;
+		}
+		double start = bucket == 0 ? 0.0 : cumulative[bucket - 1];
+		return start + (cumulative[bucket] - start) * (position - bucket);
+	}
+
+	/**
+	 * Determines a quantile of the travel time.
+	 *
+	 * @param probability - the probability between 0 and 1, for example 0.99
+	 * @return the smallest travel time whose cumulative probability is at least the probability
+	 */
+	public long quantile(double probability) {
+		if(probability < 0.0 || probability > 1.0) {
+			throw new IllegalArgumentException("Invalid probability: " + probability);
+		}
+		long low = minimum;
+		long high = maximum;
+		while(low < high) {
+			long middle = low + ((high - low) >>> 1);
+			if(cdf(middle) >= probability) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Approximates the CDF of the standard normal distribution with the
+	 * complementary error function of Numerical Recipes, whose fractional error
+	 * is below 1.2e-7.
+	 *
+	 * @param z - the number of standard deviations from the mean
+	 * @return the probability of at most z
+	 */
+	private static double normalCdf(double z) {
+		double x = Math.abs(z) / Math.sqrt(2);
+		double t = 1 / (1 + 0.5 * x);
+		double erfc = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+				+ t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+				+ t * (-0.82215223 + t * 0.17087277)))))))));
+		return z >= 0 ? 1 - erfc / 2 : erfc / 2;
+	}
+
+	@Override
+	public String toString() {
+		if(isImpassable()) {
+			return "impassable";
+		}
+		return "travel time " + min() + ".." + max() + ", mean " + mean + ", variance " + variance;
+	}
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Implements Tremaux's maze solving algorithm as a WalkSelector. The walk takes
+ * a passage to a cell it has not visited yet whenever one exists, and otherwise
+ * returns the way it came, so every cell is entered at most once and left back
+ * at most once. If every passage of the maze can be taken in both directions,
+ * the walk reaches any exit that can be reached within two steps per cell.
+ * 
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class TremauxSelector implements WalkSelector {
+
+	@Override
+	public int nextPassage(WalkContext context) {
+		State state = (State)context.state();
+		if(state == null) {
+			state = new State(context.graph().cellCount());
+			context.setState(state);
+		}
+		PassageGraph graph = context.graph();
+		int cell = context.current();
+		if(state.path.isEmpty() || state.path.get(state.path.size() - 1) != cell) {
+			// the cell was entered for the first time
+			state.path.add(cell);
+		}
+		// continue with the next passage to an unvisited cell
+		while(state.nextPassages[cell] < graph.passageCount(cell)) {
+			int passage = state.nextPassages[cell]++;
+			if(!context.isVisited(graph.passageTarget(cell, passage))) {
+				return passage;
+			}
+		}
+		// every passage was tried, so return to the cell this one was entered from
+		state.path.removeLast();
+		if(state.path.isEmpty()) {
+			return -1;
+		}
+		return context.passageTo(cell, state.path.get(state.path.size() - 1));
+	}
+
+	/**
+	 * The State class holds the cells of the walk that have not been returned
+	 * from and the next passage to try in every cell.
+	 */
+	private static class State {
+		private IntList path;
+		private int[] nextPassages;
+
+		State(int cellCount) {
+			this.path = new IntList(64);
+			this.nextPassages = new int[cellCount];
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+/**
+ * The WalkContext class describes a walk through a Maze to a WalkSelector. It
+ * exposes the PassageGraph of the Maze, the current and the previous cell, the
+ * cells visited so far as a bitset and a state object that the WalkSelector may
+ * use for bookkeeping of its own. A new WalkContext is created for every walk.
+ *
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class WalkContext {
+	// private class variables
+	private PassageGraph graph;
+	private int exit;
+	private int current;
+	private int previous;
+	private long steps;
+	private long[] visited;
+	private Object state;
+
+	/**
+	 * Constructor of the WalkContext class which starts a walk at a cell.
+	 *
+	 * @param graph - the graph the walk moves through
+	 * @param start - the index of the cell the walk starts at
+	 * @param exit - the index of the cell the walk ends at, or -1 if there is none
+	 */
+	WalkContext(PassageGraph graph, int start, int exit) {
+		this.graph = graph;
+		this.exit = exit;
+		this.current = start;
+		this.previous = -1;
+		this.visited = new long[(graph.cellCount() + 63) >>> 6];
+		visited[start >>> 6] |= 1L << start;
+	}
+
+	/**
+	 * @return the graph the walk moves through
+	 */
+	public PassageGraph graph() {
+		return graph;
+	}
+
+	/**
+	 * @return the index of the cell the walk is in
+	 */
+	public int current() {
+		return current;
+	}
+
+	/**
+	 * @return the index of the cell the walk came from, or -1 at the start of the walk
+	 */
+	public int previous() {
+		return previous;
+	}
+
+	/**
+	 * @return the index of the cell the walk ends at, or -1 if there is none
+	 */
+	public int exit() {
+		return exit;
+	}
+
+	/**
+	 * @return the number of passages taken so far
+	 */
+	public long steps() {
+		return steps;
+	}
+
+	/**
+	 * @param cell - the index of a cell
+	 * @return true if the walk has been in the cell, false otherwise
+	 */
+	public boolean isVisited(int cell) {
+		return (visited[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Determines the passage out of the current cell that leads back to the
+	 * previous cell.
+	 *
+	 * @return the number of the passage back, or -1 if there is no such passage
+	 */
+	public int passageBack() {
+		return passageTo(current, previous);
+	}
+
+	/**
+	 * Determines the passage out of a cell that leads to another cell.
+	 *
+	 * @param cell - the index of the cell the passage leaves from
+	 * @param target - the index of the cell the passage leads to
+	 * @return the number of the passage, or -1 if there is no such passage
+	 */
+	public int passageTo(int cell, int target) {
+		if(cell < 0 || target < 0) {
+			return -1;
+		}
+		for(int p = 0; p < graph.passageCount(cell); p++) {
+			if(graph.passageTarget(cell, p) == target) {
+				return p;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the state the WalkSelector stored for this walk, or null if none was stored
+	 */
+	public Object state() {
+		return state;
+	}
+
+	/**
+	 * Stores a state of the WalkSelector for the rest of this walk.
+	 *
+	 * @param state - the state to store
+	 */
+	public void setState(Object state) {
+		this.state = state;
+	}
+
+	/**
+	 * Moves the walk through a passage of the current cell.
+	 *
+	 * @param passage - the number of the passage to take
+	 */
+	void move(int passage) {
+		int next = graph.passageTarget(current, passage);
+		previous = current;
+		current = next;
+		steps++;
+		visited[next >>> 6] |= 1L << next;
+	}
+
+}
@@ -0,0 +1,21 @@
+/**
+ * Provides an interface for a walk algorithm that chooses passages with the
+ * knowledge of the whole walk so far. Unlike a PassageSelector, a WalkSelector
+ * is given a WalkContext holding the cells visited so far, the previous cell
+ * and a state of its own for each walk, so it can avoid walking in circles.
+ * 
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public interface WalkSelector {
+	
+	/**
+	 * Chooses the next passage of a walk.
+	 * 
+	 * @param context - the walk, positioned at its current cell
+	 * @return the number of the passage to take out of the current cell, between
+	 * 0 and context.graph().passageCount(context.current()) - 1, or -1 to stop the walk
+	 */
+	public int nextPassage(WalkContext context);
+	
+}
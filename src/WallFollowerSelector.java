@@ -0,0 +1,47 @@
+/**
+ * Implements the wall follower maze solving algorithm as a WalkSelector. The
+ * passages of every cell are taken to be listed clockwise, as in a GridMaze, and
+ * the walk keeps one hand on the wall: in every cell it takes the passage next
+ * to the one it came through, turning towards its hand. In a maze without
+ * loops the walk takes every passage at most once in each direction before it
+ * reaches an exit that can be reached.
+ * 
+ * @author Derrick Tilsner dtt13
+ *
+ */
+public class WallFollowerSelector implements WalkSelector {
+	// private class variables
+	private boolean isLeftHand;
+
+	/**
+	 * Constructor of the WallFollowerSelector class which keeps the right hand on the wall.
+	 */
+	public WallFollowerSelector() {
+		this(false);
+	}
+
+	/**
+	 * Constructor of the WallFollowerSelector class.
+	 * 
+	 * @param isLeftHand - true to keep the left hand on the wall, false for the right hand
+	 */
+	public WallFollowerSelector(boolean isLeftHand) {
+		this.isLeftHand = isLeftHand;
+	}
+
+	@Override
+	public int nextPassage(WalkContext context) {
+		int count = context.graph().passageCount(context.current());
+		if(count == 0) {
+			return -1;
+		}
+		int back = context.passageBack();
+		if(back < 0) {
+			// at the start, or after a one-way passage, there is no wall to follow yet
+			return 0;
+		}
+		// the right hand turns counterclockwise from the way back, the left hand clockwise
+		return isLeftHand ? (back + 1) % count : (back + count - 1) % count;
+	}
+
+}